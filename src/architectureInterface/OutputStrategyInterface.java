@@ -1,8 +1,10 @@
 package architectureInterface;
 
 
+import inputOutputHandler.InputOutputHandlerController;
 import message.Reply;
 import message.Request;
+import outputStrategy.RoundState;
 
 
 /**
@@ -46,8 +48,69 @@ public interface OutputStrategyInterface {
 	public void addReply(Reply reply);
 
 	/**
-	 * Initialize the component...
+	 * Must make the implementing output strategy ready for accepting 
+	 * messages. Called once, before the first message is added.
+	 * 
+	 * @param inputOutputHandler	Reference on component 
+	 * 								<code>InputOutputHandler</code> (used to 
+	 * 								send messages after output).
+	 */
+	public void initialize(InputOutputHandlerController inputOutputHandler);
+	
+	
+	/**
+	 * Must put out all messages collected so far immediately (no matter 
+	 * whether the output criterion is fulfilled or not) and stop any pending 
+	 * timeouts.
+	 * <p>
+	 * Used to drain an output strategy before it is replaced at runtime. 
+	 * Messages of upcoming rounds must be kept (they are handed over with 
+	 * <code>getRoundState()</code>).
+	 */
+	public void putOutBatch();
+	
+	
+	/**
+	 * Must return the number of channels the output strategy currently 
+	 * expects messages from (used to hand over the channel state when the 
+	 * output strategy is replaced at runtime).
+	 * 
+	 * @return	Number of channels the output strategy currently expects 
+	 * 			messages from.
+	 */
+	public int getNumberOfChannels();
+	
+	
+	/**
+	 * Must make the output strategy expect messages from the bypassed number 
+	 * of channels (used to hand over the channel state when the output 
+	 * strategy is replaced at runtime).
+	 * 
+	 * @param numberOfChannels	Number of channels the output strategy shall 
+	 * 							expect messages from.
+	 */
+	public void setNumberOfChannels(int numberOfChannels);
+	
+	
+	/**
+	 * Must return the state of the output strategy's rounds (see 
+	 * <code>RoundState</code>). Used to hand over the rounds when the output 
+	 * strategy is replaced at runtime (called after 
+	 * <code>putOutBatch()</code> while no messages are added; the output 
+	 * strategy isn't used afterwards).
+	 * 
+	 * @return	State of the output strategy's rounds.
+	 */
+	public RoundState getRoundState();
+	
+	
+	/**
+	 * Must make the output strategy continue the rounds of the bypassed state 
+	 * (of the output strategy it replaces at runtime). Called after 
+	 * <code>initialize()</code>, before the first message is added.
+	 * 
+	 * @param roundState	State of the rounds to continue.
 	 */
-	public void initialize();
+	public void setRoundState(RoundState roundState);
 	
 }
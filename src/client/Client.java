@@ -20,6 +20,7 @@ import architectureInterface.ClientInterface;
 import message.ChannelEstablishMessagePart;
 import message.ChannelMessagePart;
 import message.Payload;
+import message.ReplyMessage;
 
 import util.Util;
 
@@ -630,6 +631,13 @@ public final class Client implements ClientInterface {
 	 * Otherwise the cascade would drop this client. Synchronized with <code>
 	 * Client</code> via <code>sendBuffer</code> and <code>receiveBuffer
 	 * </code>.
+	 * <p>
+	 * Replies pushed by the cascade's last mix (server push, see property 
+	 * <code>PUSH_THRESHOLD</code>) can arrive at any time. They are marked 
+	 * in their length header (see <code>ReplyMessage.PUSH_FLAG</code>), so 
+	 * they are never taken for the reply to the last request: Their payload 
+	 * is added to the <code>receiveBuffer</code>, but the next request is 
+	 * only sent after the reply to the previous one.
 	 * 
 	 * @author Karl-Peter Fuchs
 	 *
@@ -670,7 +678,16 @@ public final class Client implements ClientInterface {
 			while (true) {
 				
 				sendMixMessage();
-				receiveReply();
+				
+				boolean isPushed;
+				
+				do { // pushed replies may arrive before the request's reply
+					
+					isPushed = receiveReply();
+					
+				} while (isPushed);
+				
+				receivePushedReplies();
 				
 				// give user(-application) time to answer his communication 
 				// partner's reply (just received)
@@ -836,13 +853,19 @@ public final class Client implements ClientInterface {
 		 * saves its payload in the <code>receiveBuffer</code>, from where it's 
 		 * available for the user's <code>InputStream</code>. Blocks until 
 		 * message is received and written to buffer.
+		 * 
+		 * @return	Whether the reply was pushed by the cascade's last 
+		 * 			mix (see <code>ReplyMessage.PUSH_FLAG</code>) or 
+		 * 			answers the last request.
 		 */
-		private void receiveReply() {
+		private boolean receiveReply() {
 
 			byte[] lengthOfReplyAsArray = new byte[4]; // length header
 			
-			int lengthOfReply;	// indicates how long the cascades's  
-								// (dynamic) reply will be
+			int lengthOfReply = 0;	// indicates how long the cascades's
+									// (dynamic) reply will be
+			
+			boolean isPushed = false;
 			
 			byte[] encryptedReply;
 			byte[] decryptedReply;
@@ -853,6 +876,8 @@ public final class Client implements ClientInterface {
 				
 				mixInputStream.read(lengthOfReplyAsArray);
 				lengthOfReply = Util.byteArrayToInt(lengthOfReplyAsArray);
+				isPushed = (lengthOfReply & ReplyMessage.PUSH_FLAG) != 0;
+				lengthOfReply &= ~ReplyMessage.PUSH_FLAG;
 				encryptedReply = new byte[lengthOfReply];
 				mixInputStream.read(encryptedReply);
 				decryptedReply = cryptography.decryptReply(encryptedReply);
@@ -898,8 +923,14 @@ public final class Client implements ClientInterface {
 					
 					receiveBuffer.put(decryptedReplyWithoutPadding);
 					
-				} else if (lastMessageWasDummy && isReadMethodWaiting) {
-					// no further data can be expected
+				} else if (	lastMessageWasDummy
+							&&
+							isReadMethodWaiting
+							&&
+							!isPushed
+							) {
+					// no further data can be expected (pushed replies without
+					// data are sent to all idle channels and say nothing)
 					// -> force read()-method to return
 					
 					isReadMethodReturnForced = true;
@@ -914,9 +945,39 @@ public final class Client implements ClientInterface {
 				
 			}
 			
+			return isPushed;
+			
 		}
 
 		
+		/**
+		 * Receives all further <code>Reply</code>ies already available 
+		 * (replies pushed by the cascade's last mix without a preceding 
+		 * <code>Request</code>; the reply to the last request is received 
+		 * already). Doesn't block if no such reply is available.
+		 * 
+		 * @see #receiveReply()
+		 */
+		private void receivePushedReplies() {
+			
+			try {
+				
+				while (mixInputStream.available() > 0) {
+					
+					receiveReply();
+					
+				}
+				
+			} catch (IOException e) {
+				
+				LOGGER.severe(e.getMessage());
+				System.exit(1);
+				
+			}
+			
+		}
+		
+		
 		/**
 		 * Releases connection to mix cascade.
 		 */
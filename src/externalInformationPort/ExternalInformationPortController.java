@@ -130,13 +130,21 @@ public class ExternalInformationPortController implements
 	
 	/**
 	 * Makes the bypassed key available via <code>InformationProvider</code>. 
-	 * This key is used to encrypt data between mixes.
+	 * This key is used to encrypt data between mixes on the connection with 
+	 * the bypassed index (a link between two mixes can consist of several 
+	 * connections, see property <code>NUMBER_OF_INTER_MIX_CONNECTIONS</code>).
 	 * 
+	 * @param connection	Index of the connection the key is used for.
 	 * @param interMixKey	Key used to encrypt data between mixes.
 	 */
-	public void setInterMixKeyWithPreviousMix(SecretKey interMixKey) {
+	public void setInterMixKeyWithPreviousMix(	int connection,
+												SecretKey interMixKey
+												) {
 		
-		informationProvider.setInterMixKeyWithPreviousMix(interMixKey);
+		informationProvider.setInterMixKeyWithPreviousMix(
+				connection,
+				interMixKey
+				);
 		
 	}
 	
@@ -144,16 +152,22 @@ public class ExternalInformationPortController implements
 	/**
 	 * Makes the bypassed initialization vector available via 
 	 * <code>InformationProvider</code>. This initialization vector is used to 
-	 * encrypt data between mixes.
+	 * encrypt data between mixes on the connection with the bypassed index.
 	 * 
+	 * @param connection	Index of the connection the initialization vector 
+	 * 						is used for.
 	 * @param interMixIV	Initialization vector used to encrypt data 
 	 * 						between mixes.
 	 */
 	public void setInterMixIVWithPreviousMix(
+			int connection,
 			IvParameterSpec interMixIV
 			) {
 		
-		informationProvider.setInterMixIVWithPreviousMix(interMixIV);
+		informationProvider.setInterMixIVWithPreviousMix(
+				connection,
+				interMixIV
+				);
 		
 	}
 	
@@ -199,12 +213,14 @@ public class ExternalInformationPortController implements
 				
 			case INTER_MIX_KEY:
 				return getInterMixKey(	informationProviderAddress,
-										informationProviderPort
+										informationProviderPort,
+										null
 										);
 				
 			case INTER_MIX_IV:
 				return getInterMixIV(	informationProviderAddress,
-										informationProviderPort
+										informationProviderPort,
+										null
 										);
 				
 			case NEXT_MIX_ADDRESS:
@@ -265,6 +281,18 @@ public class ExternalInformationPortController implements
 		
 		switch (informationOfInterest) {
 		
+			case INTER_MIX_KEY: // data: index of connection
+				return getInterMixKey(	informationProviderAddress,
+										informationProviderPort,
+										data
+										);
+			
+			case INTER_MIX_IV: // data: index of connection
+				return getInterMixIV(	informationProviderAddress,
+										informationProviderPort,
+										data
+										);
+			
 			default:
 				return InformationGrabber.getInformation(
 						informationProviderAddress,
@@ -403,6 +431,10 @@ public class ExternalInformationPortController implements
 	 * 											ExternalInformationPort</code>
 	 * 											component to receive data 
 	 * 											from runs on.
+	 * @param connection						Index of the connection the 
+	 * 											key is used for (or 
+	 * 											<code>null</code> for the 
+	 * 											first connection).
 	 * 
 	 * @return									The specified mix' 
 	 * 											<code>SYMMETRIC_KEY</code>.
@@ -413,7 +445,8 @@ public class ExternalInformationPortController implements
 	 */
 	private SecretKey getInterMixKey(
 			InetAddress nexMixInformationProviderAddress,
-			int nexMixInformationProviderPort
+			int nexMixInformationProviderPort,
+			byte[] connection
 		) throws InformationRetrieveException {
 
 		byte[] encryptedKey = 
@@ -421,7 +454,7 @@ public class ExternalInformationPortController implements
 					nexMixInformationProviderAddress, 
 					nexMixInformationProviderPort, 
 					Information.INTER_MIX_KEY,
-					null
+					connection
 					);
 		
 		byte[] decryptedKey;
@@ -458,6 +491,10 @@ public class ExternalInformationPortController implements
 	 * 											ExternalInformationPort</code> 
 	 * 											component to receive data 
 	 * 											from runs on.
+	 * @param connection						Index of the connection the 
+	 * 											initialization vector is used 
+	 * 											for (or <code>null</code> for 
+	 * 											the first connection).
 	 * 
 	 * @return									The specified mix' 
 	 * 											<code>IV</code>.
@@ -468,7 +505,8 @@ public class ExternalInformationPortController implements
 	 */
 	private IvParameterSpec getInterMixIV(
 			InetAddress nexMixInformationProviderAddress,
-			int nexMixInformationProviderPort
+			int nexMixInformationProviderPort,
+			byte[] connection
 			) throws InformationRetrieveException {
 		
 		byte[] ivAsByteArray = 
@@ -476,7 +514,7 @@ public class ExternalInformationPortController implements
 					nexMixInformationProviderAddress, 
 					nexMixInformationProviderPort, 
 					Information.INTER_MIX_IV,
-					null
+					connection
 					);
 		
 		return new IvParameterSpec(ivAsByteArray);
@@ -62,30 +62,27 @@ final class InformationProvider extends Thread {
 	/** This mix' public key. */
 	private PublicKey publicKey;
 	
-	/** Key used to encrypt data between this mix and its predecessor. */
-	private SecretKey interMixKey;
-	
-	/** 
-	 * Key used to encrypt data between this mix and its predecessor, 
-	 * encrypted with the predecessor's public key.
+	/**
+	 * Keys used to encrypt data between this mix and its predecessor (one 
+	 * for each connection of the link, accessible by connection index).
 	 */
-	private byte[] encryptedInterMixKey;
+	private SecretKey[] interMixKeys;
 	
 	/** 
-	 * Initialization vector used to encrypt data between this mix and its 
-	 * predecessor.
+	 * Keys used to encrypt data between this mix and its predecessor, 
+	 * encrypted with the predecessor's public key (<code>null</code>, if 
+	 * not encrypted yet, i. e. not prepared for sending via an insecure 
+	 * channel yet).
+	 * 
+	 * @see #interMixKeys
 	 */
-	private IvParameterSpec interMixIV;
+	private byte[][] encryptedInterMixKeys;
 	
-	/**
-	 * Indicates whether the key used to encrypt data between this mix and its 
-	 * predecessor has already been encrypted (= prepared for sending via 
-	 * an insecure channel).
-	 * 
-	 * @see #interMixKey
-	 * @see #encryptedInterMixKey
+	/** 
+	 * Initialization vectors used to encrypt data between this mix and its 
+	 * predecessor (one for each connection of the link).
 	 */
-	private boolean isSymmetricKeyEncrypted = false;
+	private IvParameterSpec[] interMixIVs;
 	
 	/** 
 	 * The mix' position in the cascade this object belongs to. "1" means 
@@ -154,34 +151,54 @@ final class InformationProvider extends Thread {
 			new Integer(internalInformationPort.
 					getProperty("PREVIOUS_MIX_INFO_PORT")
 				);
+		
+		int numberOfInterMixConnections = 
+			new Integer(internalInformationPort.
+					getProperty("NUMBER_OF_INTER_MIX_CONNECTIONS")
+				);
+		
+		this.interMixKeys = new SecretKey[numberOfInterMixConnections];
+		this.encryptedInterMixKeys = new byte[numberOfInterMixConnections][];
+		this.interMixIVs = new IvParameterSpec[numberOfInterMixConnections];
 
 	}
 	
 	
 	/**
-	 * Sets the key used to encrypt data between this mix and its predecessor.
+	 * Sets the key used to encrypt data between this mix and its predecessor 
+	 * on the connection with the bypassed index.
 	 * 
+	 * @param connection	Index of the connection (of the link) the key is 
+	 * 						used for.
 	 * @param interMixKey	Key used to encrypt data between this mix and its 
 	 * 						predecessor.
 	 */
-	protected void setInterMixKeyWithPreviousMix(SecretKey interMixKey) {
-		
-		this.interMixKey = interMixKey;
+	protected synchronized void setInterMixKeyWithPreviousMix(
+			int connection,
+			SecretKey interMixKey
+			) {
 		
+		this.interMixKeys[connection] = interMixKey;
+		this.encryptedInterMixKeys[connection] = null;
 		
 	}
 
 
 	/**
 	 * Sets the initialization vector used to encrypt data between this mix and 
-	 * its predecessor.
+	 * its predecessor on the connection with the bypassed index.
 	 * 
+	 * @param connection	Index of the connection (of the link) the 
+	 * 						initialization vector is used for.
 	 * @param interMixIV	Initialization vector used to encrypt data between 
 	 * 						this mix and its predecessor.
 	 */
-	protected void setInterMixIVWithPreviousMix(IvParameterSpec interMixIV) {
+	protected synchronized void setInterMixIVWithPreviousMix(
+			int connection,
+			IvParameterSpec interMixIV
+			) {
 		
-		this.interMixIV = interMixIV;
+		this.interMixIVs[connection] = interMixIV;
 		
 	}
 	
@@ -266,10 +283,10 @@ final class InformationProvider extends Thread {
 				return providePublicKey();			
 				
 			case INTER_MIX_KEY:
-				return provideInterMixKey();
+				return provideInterMixKey(getConnectionIndex(data));
 				
 			case INTER_MIX_IV:
-				return provideInterMixIV();
+				return provideInterMixIV(getConnectionIndex(data));
 				
 			case NEXT_MIX_ADDRESS:
 				return provideNextMixAddress();
@@ -304,21 +321,51 @@ final class InformationProvider extends Thread {
 	
 	
 	/**
-	 * Provides this mix' <code>INTER_MIX_KEY</code>.
+	 * Returns the index of the connection (of the link with the previous 
+	 * mix) the bypassed request data refers to. Requests without data refer 
+	 * to the first connection.
+	 * 
+	 * @param data	Data submitted by caller (connection index or 
+	 * 				<code>null</code>).
+	 * 
+	 * @return		The index of the connection or <code>-1</code>, if the 
+	 * 				bypassed index is invalid.
+	 */
+	private int getConnectionIndex(byte[] data) {
+		
+		int connection = (data == null) ? 0 : Util.byteArrayToInt(data);
+		
+		return (connection >= 0 && connection < interMixKeys.length)
+				? connection
+				: -1;
+				
+	}
+
+	
+	/**
+	 * Provides this mix' <code>INTER_MIX_KEY</code> for the connection with 
+	 * the bypassed index.
 	 * <p>
 	 * Security note: Key is not signed!
 	 * 
-	 * @return	This mix' <code>INTER_MIX_KEY</code>.
+	 * @param connection	Index of the connection (of the link).
+	 * 
+	 * @return	This mix' <code>INTER_MIX_KEY</code> or <code>null</code>, 
+	 * 			if not available (yet).
 	 */
-	private byte[] provideInterMixKey() {
+	private synchronized byte[] provideInterMixKey(int connection) {
 		
-		if (!isSymmetricKeyEncrypted) {
+		if (connection == -1 || interMixKeys[connection] == null) {
+			
+			return null;
+			
+		} else if (encryptedInterMixKeys[connection] == null) {
 				
-			return encryptInterMixKey();
+			return encryptInterMixKey(connection);
 				
 		} else {
 				
-			return encryptedInterMixKey;
+			return encryptedInterMixKeys[connection];
 				
 		}
 		
@@ -326,15 +373,27 @@ final class InformationProvider extends Thread {
 	
 	
 	/**
-	 * Provides this mix' <code>INTER_MIX_IV</code>.
+	 * Provides this mix' <code>INTER_MIX_IV</code> for the connection with 
+	 * the bypassed index.
 	 * <p>
 	 * Security note: Not signed!
 	 * 
-	 * @return	This mix' <code>INTER_MIX_IV</code>.
+	 * @param connection	Index of the connection (of the link).
+	 * 
+	 * @return	This mix' <code>INTER_MIX_IV</code> or <code>null</code>, 
+	 * 			if not available (yet).
 	 */
-	private byte[] provideInterMixIV() {
+	private synchronized byte[] provideInterMixIV(int connection) {
 		
-		return interMixIV.getIV();
+		if (connection == -1 || interMixIVs[connection] == null) {
+			
+			return null;
+			
+		} else {
+			
+			return interMixIVs[connection].getIV();
+			
+		}
 		
 	}
 
@@ -396,14 +455,17 @@ final class InformationProvider extends Thread {
 
 	
 	/**
-	 * Encrypts and returns the <code>interMixKey>/code>.
+	 * Encrypts and returns the <code>interMixKey>/code> of the connection 
+	 * with the bypassed index.
+	 * 
+	 * @param connection	Index of the connection (of the link).
 	 * 
 	 * @return	The encrypted <code>interMixKey>/code>.
 	 * 
-	 * @see #interMixKey
-	 * @see #isSymmetricKeyEncrypted
+	 * @see #interMixKeys
+	 * @see #encryptedInterMixKeys
 	 */
-	private byte[] encryptInterMixKey() {
+	private byte[] encryptInterMixKey(int connection) {
 		
 		try {
 			
@@ -429,12 +491,11 @@ final class InformationProvider extends Thread {
 					);
 			
 			// encrypt and return symmetric key
-			encryptedInterMixKey = 
-				asymmetricCipher.doFinal(interMixKey.getEncoded());
-			
-			isSymmetricKeyEncrypted = true;
+			byte[] plainKey = interMixKeys[connection].getEncoded();
+			encryptedInterMixKeys[connection] = 
+				asymmetricCipher.doFinal(plainKey);
 			
-			return encryptedInterMixKey;
+			return encryptedInterMixKeys[connection];
 				
 		} catch (Exception e) {
 
@@ -1,68 +1,208 @@
 package ifaceloading;
 
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Logger;
+
+import architectureInterface.OutputStrategyInterface;
+
+
 /**
- * Example loader Method
+ * Registry of the output strategies available to this mix. Output strategies 
+ * are located via <code>java.util.ServiceLoader</code>: Any implementation of 
+ * <code>OutputStrategyInterface</code> listed in a file named 
+ * <code>META-INF/services/architectureInterface.OutputStrategyInterface</code> 
+ * on the class path (or in the optional external directory/jar file) is 
+ * available and can be selected by its (fully qualified or simple) class 
+ * name.
+ * <p>
+ * Each call returns a new instance, so a strategy can be replaced at runtime 
+ * by loading a fresh one (see 
+ * <code>OutputStrategyController.switchOutputStrategy(String)</code>).
+ * 
+ * @see architectureInterface.OutputStrategyInterface
  */
+public final class OutputStrategyLoader {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	
+	/**
+	 * Empty constructor. Never used since all methods are static.
+	 */
+	private OutputStrategyLoader() {
+	
+	}
 
-import java.io.*;
-import java.lang.reflect.Method;
-import java.net.*;
+	
+	/**
+	 * Returns a new instance of the output strategy with the bypassed name or 
+	 * <code>null</code>, if no such strategy is registered.
+	 * 
+	 * @param name			(Fully qualified or simple) class name of the 
+	 * 						output strategy.
+	 * @param extFilePath	Directory or jar file to load output strategies 
+	 * 						from additionally to the class path (may be 
+	 * 						<code>null</code> or empty).
+	 * 
+	 * @return				A new (uninitialized) instance of the requested 
+	 * 						output strategy or <code>null</code>.
+	 */
+	public static OutputStrategyInterface getOutputStrategy(
+			String name,
+			String extFilePath
+			) {
+		
+		Iterator<OutputStrategyInterface> strategies = 
+			ServiceLoader.load(	OutputStrategyInterface.class,
+								getClassLoader(extFilePath)
+								).iterator();
+		
+		while (true) {
+			
+			try {
+				
+				if (!strategies.hasNext()) {
+					
+					break;
+					
+				}
+				
+				OutputStrategyInterface strategy = strategies.next();
+				Class<?> strategyClass = strategy.getClass();
+				
+				if (	strategyClass.getName().equals(name)
+						||
+						strategyClass.getSimpleName().equals(name)
+						) {
+					
+					LOGGER.config(	"(OutputStrategyLoader) Loaded output "
+									+"strategy " +strategyClass.getName()
+									);
+					
+					return strategy;
+					
+				}
+				
+			} catch (ServiceConfigurationError e) {
+				// skip broken registrations, but keep looking
+				
+				LOGGER.warning(	"(OutputStrategyLoader) Invalid output "
+								+"strategy registration: " +e.getMessage()
+								);
+								
+			}
+			
+		}
+		
+		LOGGER.severe(	"(OutputStrategyLoader) No output strategy named \""
+						+name +"\" registered!"
+						);
+		
+		return null;
+		
+	}
 
-import architectureInterface.OutputStrategyInterface;
+	
+	/**
+	 * Returns the class names of all registered output strategies.
+	 * 
+	 * @param extFilePath	Directory or jar file to load output strategies 
+	 * 						from additionally to the class path (may be 
+	 * 						<code>null</code> or empty).
+	 * 
+	 * @return				Class names of all registered output strategies.
+	 */
+	public static String[] getAvailableOutputStrategies(String extFilePath) {
+		
+		LinkedList<String> names = new LinkedList<String>();
+		
+		Iterator<OutputStrategyInterface> strategies = 
+			ServiceLoader.load(	OutputStrategyInterface.class,
+								getClassLoader(extFilePath)
+								).iterator();
+		
+		while (true) {
+			
+			try {
+				
+				if (!strategies.hasNext()) {
+					
+					break;
+					
+				}
+				
+				names.add(strategies.next().getClass().getName());
+				
+			} catch (ServiceConfigurationError e) {
+				
+				LOGGER.warning(	"(OutputStrategyLoader) Invalid output "
+								+"strategy registration: " +e.getMessage()
+								);
+								
+			}
+			
+		}
+		
+		return names.toArray(new String[names.size()]);
+		
+	}
 
-public class OutputStrategyLoader {
-	public static OutputStrategyInterface getClass( String extFilePath, String classname ) 
-	{
-		System.out.println("Starting to load external class...");
-		//fr Rckgabe		
-		OutputStrategyInterface extIF = null;
+	
+	/**
+	 * Returns the <code>ClassLoader</code> output strategies shall be loaded 
+	 * with. If an external directory/jar file is specified, a new 
+	 * <code>URLClassLoader</code> is returned (so a recompiled strategy can 
+	 * be loaded again at runtime).
+	 * 
+	 * @param extFilePath	Directory or jar file to load output strategies 
+	 * 						from additionally to the class path (may be 
+	 * 						<code>null</code> or empty).
+	 * 
+	 * @return				The <code>ClassLoader</code> to use.
+	 */
+	private static ClassLoader getClassLoader(String extFilePath) {
+		
+		ClassLoader parent = OutputStrategyLoader.class.getClassLoader();
+		
+		if (extFilePath == null || extFilePath.trim().length() == 0) {
+			
+			return parent;
+			
+		}
 
 		try {
-			final URL url = new File( extFilePath ).toURI().toURL();
 
-			System.out.println("URL to load from: " + url);
-			URLClassLoader ucl = new URLClassLoader( new URL[] { url } );
-			//Klasse laden
-			final Class<?> tempClass = ucl.loadClass( classname );
+			URL url = new File(extFilePath.trim()).toURI().toURL();
+			return new URLClassLoader(new URL[] {url}, parent);
 
-			//fr unbekannte Klassen: Ausgabe alles Methodensignaturen
-			Method m[] = tempClass.getDeclaredMethods();
-			for (int i = 0; i < m.length; i++)
-				System.out.println(m[i].toString());
+		} catch (MalformedURLException e) {
 
-			//Test, ob Klasse das Interface implementiert
-			if (OutputStrategyInterface.class.isAssignableFrom( tempClass )) {
+			LOGGER.warning(	"(OutputStrategyLoader) Invalid path \""
+							+extFilePath +"\": " +e.getMessage()
+							);
 
-				//Cast und direkte Benutzung des Interfaces
-				extIF = (OutputStrategyInterface) tempClass.newInstance();
-			}	
-		}
-		catch( MalformedURLException ex ) {
-			// catch the exception
-			System.out.println("MalformedURLException: " + ex.getMessage());
-		}
-		catch( ClassNotFoundException ex ) {
-			// catch the exception
-			System.out.println("ClassNotFoundException: " + ex.getMessage());
+			return parent;
+			
 		}
-		catch( ClassCastException ex ) {
-			// catch the exception
-			System.out.println("ClassCastException: " + ex.getMessage());
-		}
-		catch( InstantiationException ex ) {
-			// catch the exception
-			System.out.println("InstantiationException: " + ex.getMessage());
-		}
-		catch( IllegalAccessException ex ) {
-			// catch the exception
-			System.out.println("IllegalAccessException: " + ex.getMessage());
-		} catch (SecurityException ex) {
-			// TODO Auto-generated catch block
-			ex.printStackTrace();
-		} catch (IllegalArgumentException ex) {
-			// TODO Auto-generated catch block
-			ex.printStackTrace();
-		}
-		return extIF;
+		
 	}
-}
\ No newline at end of file
+
+}
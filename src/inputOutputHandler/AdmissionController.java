@@ -0,0 +1,247 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+
+/**
+ * Token bucket limiting the rate at which new channels are admitted to 
+ * channel establishment (used by first mix only). Each 
+ * <code>ChannelEstablishMessage</code> costs an asymmetric decryption at 
+ * every mix of the cascade. Therefore, the 
+ * <code>ClientConnectionHandler</code> (and 
+ * <code>BlockingClientConnectionHandler</code>) doesn't read the first 
+ * message of a new channel before it was admitted (see 
+ * <code>tryAcquire()</code>), instead of accepting an unbounded amount of 
+ * work (e. g. when many clients reconnect at the same time).
+ * <p>
+ * The bucket is refilled with <code>CHANNEL_ESTABLISH_RATE</code> tokens per 
+ * second and holds up to <code>CHANNEL_ESTABLISH_BURST</code> tokens. 
+ * Additionally, no channel is admitted while the number of requests waiting 
+ * for the <code>MessageProcessor</code> (which performs the asymmetric 
+ * decryption) reaches <code>CHANNEL_ESTABLISH_QUEUE_THRESHOLD</code>.
+ * <p>
+ * This class is thread-safe.
+ */
+final class AdmissionController {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/**
+	 * Time (in ms) to wait before checking the queue depth again, if a 
+	 * channel wasn't admitted due to the queue depth.
+	 */
+	private static final long QUEUE_CHECK_INTERVAL = 10;
+	
+	/** Number of tokens added per nanosecond (<code>0</code> = no limit). */
+	private final double RATE;
+	
+	/** Maximum number of tokens in the bucket. */
+	private final double BURST;
+	
+	/**
+	 * Number of unprocessed requests, from which on no channel is admitted 
+	 * (<code>0</code> = queue depth not observed).
+	 */
+	private final int QUEUE_THRESHOLD;
+	
+	/** Indicates whether admission control is enabled or not. */
+	private final boolean IS_ENABLED;
+	
+	/**
+	 * Reference on <code>InputOutputHandlerController</code> (used to 
+	 * observe the number of unprocessed requests).
+	 */
+	private InputOutputHandlerController inputOutputHandler;
+	
+	/** Number of tokens currently in the bucket. */
+	private double tokens;
+	
+	/** Time of the last refill (<code>System.nanoTime()</code>). */
+	private long lastRefill;
+	
+	
+	/**
+	 * Creates a new <code>AdmissionController</code> (with the rate, burst 
+	 * and queue threshold specified in the property file). The bucket is 
+	 * full initially.
+	 * 
+	 * @param inputOutputHandler	Reference on 
+	 * 								<code>InputOutputHandlerController</code> 
+	 * 								(used to observe the number of 
+	 * 								unprocessed requests).
+	 */
+	protected AdmissionController(
+			InputOutputHandlerController inputOutputHandler
+			) {
+		
+		this.inputOutputHandler = inputOutputHandler;
+		
+		this.RATE = 
+			new Double(getProperty("CHANNEL_ESTABLISH_RATE")) / 1000000000d;
+		
+		this.BURST = 
+			Math.max(1d, new Double(getProperty("CHANNEL_ESTABLISH_BURST")));
+		
+		this.QUEUE_THRESHOLD = 
+			new Integer(getProperty("CHANNEL_ESTABLISH_QUEUE_THRESHOLD"));
+		
+		this.IS_ENABLED = RATE > 0 || QUEUE_THRESHOLD > 0;
+		this.tokens = BURST;
+		this.lastRefill = System.nanoTime();
+		
+	}
+
+	
+	/**
+	 * Indicates whether admission control is enabled or not (if not, every 
+	 * channel is admitted immediately).
+	 * 
+	 * @return	Whether admission control is enabled or not.
+	 */
+	protected boolean isEnabled() {
+		
+		return IS_ENABLED;
+		
+	}
+
+	
+	/**
+	 * Admits a new channel, if a token is available and the number of 
+	 * unprocessed requests is below the threshold. Never blocks.
+	 * 
+	 * @return	Whether the channel was admitted or not.
+	 */
+	protected synchronized boolean tryAcquire() {
+		
+		if (!IS_ENABLED) {
+			
+			return true;
+			
+		} else if (isQueueFull()) {
+			
+			return false;
+			
+		} else if (RATE <= 0) { // rate not limited
+			
+			return true;
+			
+		}
+		
+		refill();
+		
+		if (tokens >= 1d) {
+			
+			tokens -= 1d;
+			return true;
+			
+		} else {
+			
+			return false;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Admits a new channel. Blocks, until a token is available and the 
+	 * number of unprocessed requests is below the threshold.
+	 */
+	protected void acquire() {
+		
+		while (!tryAcquire()) {
+			
+			try {
+				
+				Thread.sleep(getWaitTime());
+				
+			} catch (InterruptedException e) {
+				
+				continue;
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the time (in ms) until the next channel can be admitted 
+	 * (approximated, at least 1 ms).
+	 * 
+	 * @return	The time (in ms) until the next channel can be admitted.
+	 */
+	protected synchronized long getWaitTime() {
+		
+		if (!IS_ENABLED) {
+			
+			return 1;
+			
+		} else if (isQueueFull() || RATE <= 0) {
+			
+			return QUEUE_CHECK_INTERVAL;
+			
+		}
+		
+		refill();
+		
+		long nanosUntilNextToken = (long)Math.ceil((1d - tokens) / RATE);
+		
+		return Math.max(1, (nanosUntilNextToken + 999999) / 1000000);
+		
+	}
+
+	
+	/**
+	 * Adds the tokens generated since the last refill to the bucket.
+	 */
+	private void refill() {
+		
+		long now = System.nanoTime();
+		tokens = Math.min(BURST, tokens + (now - lastRefill) * RATE);
+		lastRefill = now;
+		
+	}
+
+	
+	/**
+	 * Indicates whether the number of unprocessed requests reached the 
+	 * threshold or not.
+	 * 
+	 * @return	Whether the number of unprocessed requests reached the 
+	 * 			threshold or not.
+	 */
+	private boolean isQueueFull() {
+		
+		return	QUEUE_THRESHOLD > 0
+				&&
+				inputOutputHandler.getNumberOfUnprocessedRequests()
+				>= 
+				QUEUE_THRESHOLD;
+				
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+}
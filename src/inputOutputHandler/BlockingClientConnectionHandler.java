@@ -0,0 +1,833 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import outputStrategy.OutputStrategyController;
+
+import message.ChannelEstablishMessage;
+import message.ChannelEstablishMessagePart;
+import message.ChannelReleaseMessage;
+import message.ChannelMessage;
+import message.ChannelMessagePart;
+import message.Reply;
+import message.ReplyMessage;
+
+import userDatabase.User;
+import userDatabase.UserDatabaseController;
+
+import util.Util;
+
+import exception.UserAlreadyExistingException;
+import exception.UnknownUserException;
+
+
+/**
+ * Handles communication with <code>Client</code>s using blocking I/O and one 
+ * thread per connection (alternative to the non-blocking 
+ * <code>ClientConnectionHandler</code>, see property 
+ * <code>CLIENT_IO_MODE</code>). Accepts connections, receives 
+ * <code>Requests</code> and sends <code>Reply</code>ies. 
+ * <code>Requests</code> are put in the 
+ * <code>InputOutputHandlerController</code>'s <code>requestInputQueue</code> 
+ * (see <code>InputOutputHandlerController.addUnprocessedRequest()</code>). 
+ * <code>Reply</code>ies are taken from the 
+ * <code>InputOutputHandlerController</code>'s <code>replyOutputQueue</code> 
+ * (see <code>InputOutputHandlerController.getProcessedReplies()</code>).
+ * <p>
+ * Each connection is served by a reader thread (blocking reads of whole 
+ * messages) and a writer thread (blocking writes of the <code>Reply</code>ies 
+ * in the <code>User</code>'s write buffer). These are virtual threads, if 
+ * supported by the JVM (see <code>ConnectionThreads</code>), platform 
+ * threads otherwise. Uses the same <code>User</code> buffers and queues as 
+ * the <code>ClientConnectionHandler</code>.
+ * <p>
+ * Adds/removes user to/from <code>UserDatabase</code>.
+ */
+final class BlockingClientConnectionHandler extends Thread {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/** Port number this <code>BlockingClientConnectionHandler</code> runs on. */
+	private final int PORT;
+	
+	/**
+	 * Address this <code>BlockingClientConnectionHandler</code>'s socket shall 
+	 * be bound to.
+	 */
+	private final InetAddress BIND_ADDRESS;
+	
+	/**
+	 * The maximum queue length for incoming connection indications. If a 
+	 * connection indication arrives when the queue is full, the connection is 
+	 * refused.
+	 */
+	private final int BACKLOG;
+	
+	/**
+	 * Maximum number of connections (=connected <code>Client</code>s).
+	 */
+	private final int MAX_CONNECTIONS;
+	
+	/**
+	 * The mix' position in the cascade this object belongs to. "1" means 
+	 * "first mix", "2" means "a middle mix" and "3" means "last mix" of 
+	 * cascade.
+	 */
+	private final int POSITION_OF_MIX_IN_CASCADE;
+	
+	/**
+	 * Number of further mixes between the mix this <code>InputOutputHandler 
+	 * </code> belongs to and the receiver.
+	 */
+	private final int NUMBER_OF_FURTHER_HOPS;
+	
+	/**
+	 * Reference on <code>InputOutputHandlerController</code> (Used to add 
+	 * messages).
+	 */
+	private InputOutputHandlerController inputOutputHandler;
+	
+	/**
+	 * Reference on component <code>UserDatabase</code> (Used to add/remove 
+	 * <code>User</code>)s.
+	 */
+	private UserDatabaseController userDatabase;
+	
+	/**
+	 * Reference on component <code>OutputStrategy</code> (Used to send 
+	 * <code>InternalMessage</code>s).
+	 */
+	private OutputStrategyController outputStrategy;
+	
+	/**
+	 * Random number generator used to generate <code>User</code> identifiers.
+	 */
+	private SecureRandom secureRandom = new SecureRandom();
+	
+	/** Number of <code>Client</code>s currently connected. */
+	private AtomicInteger numberOfActiveConnections = new AtomicInteger(0);
+	
+	/**
+	 * Writer thread of each connected <code>User</code>, accessible by the 
+	 * <code>User</code>'s identifier.
+	 */
+	private ConcurrentHashMap<Integer, ReplyWriter> replyWriters = 
+		new ConcurrentHashMap<Integer, ReplyWriter>();
+	
+	/** <code>ServerSocketChannel</code> used for accepting connections. */
+	private ServerSocketChannel serverSocketChannel;
+	
+	/**
+	 * <code>Reply</code>ies that didn't fit in their channel's write buffer 
+	 * (sent, as soon as space is available).
+	 */
+	private ReplyOverflowQueue replyOverflowQueue = new ReplyOverflowQueue();
+	
+	/**
+	 * Limits the rate at which new channels are admitted to channel 
+	 * establishment (the first message of a new channel isn't read before 
+	 * it was admitted).
+	 */
+	private AdmissionController admissionController;
+	
+	
+	/**
+	 * Constructs a new <code>BlockingClientConnectionHandler</code> which 
+	 * accepts connections, receives <code>Requests</code> and sends 
+	 * <code>Reply</code>ies using one thread per connection.
+	 * 
+	 * @param inputOutputHandler	Reference on 
+	 * 								<code>InputOutputHandlerController</code> 
+	 * 								(Used to add messages).
+	 * @param userDatabase			Reference on component 
+	 * 								<code>UserDatabase</code> (Used to 
+	 * 								add/remove <code>User</code>)s.
+	 * @param outputStrategy		Reference on component 
+	 * 								<code>OutputStrategy</code> (Used to send 
+	 * 								<code>InternalMessage</code>s).
+	 */
+	protected BlockingClientConnectionHandler(
+			InputOutputHandlerController inputOutputHandler,
+			UserDatabaseController userDatabase,
+			OutputStrategyController outputStrategy
+			) {
+		
+		this.inputOutputHandler = inputOutputHandler;
+		this.userDatabase = userDatabase;
+		this.outputStrategy = outputStrategy;
+		
+		// load values (from property file)
+		this.BIND_ADDRESS = 
+			InputOutputHandlerController.tryToGenerateInetAddress(
+					getProperty("BIND_ADDRESS")
+					);
+		
+		this.PORT = new Integer(getProperty("PORT"));
+		this.BACKLOG = new Integer(getProperty("BACKLOG"));
+		
+		this.MAX_CONNECTIONS = 
+			new Integer(getProperty("MAX_CONNECTIONS"));
+		
+		this.admissionController = new AdmissionController(inputOutputHandler);
+		
+		this.POSITION_OF_MIX_IN_CASCADE = 
+			inputOutputHandler.POSITION_OF_MIX_IN_CASCADE;
+		
+		this.NUMBER_OF_FURTHER_HOPS = 
+			inputOutputHandler.NUMBER_OF_FURTHER_HOPS;
+			
+	}
+
+	
+	/**
+	 * Makes this <code>BlockingClientConnectionHandler</code> wait for 
+	 * connections, <code>Request</code>s and <code>Reply</code>ies.
+	 */
+	protected void acceptConnections() {
+		
+		// generate and bind serverSocketChannel
+		try {
+			
+			serverSocketChannel = ServerSocketChannel.open();
+			ServerSocket serverSocket = serverSocketChannel.socket();
+			
+			InetSocketAddress endpoint = 
+				new InetSocketAddress(BIND_ADDRESS, PORT);
+			
+			serverSocket.bind(endpoint, BACKLOG);
+			
+			LOGGER.info(	"(MIX" +POSITION_OF_MIX_IN_CASCADE +" IOH) "
+							+"Listening on port " +PORT
+							+" (thread per connection, "
+							+(ConnectionThreads.isVirtual()
+								? "virtual threads)"
+								: "platform threads)")
+							);
+			
+			LOGGER.config(	"(MIX" +POSITION_OF_MIX_IN_CASCADE +") Bound to: "
+							+BIND_ADDRESS +":" +PORT
+							);
+							
+		} catch (IOException e) {
+			
+			LOGGER.severe(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+							+" IOH) Couldn't bind socket to port " +PORT +"!"
+							+e.getMessage()
+							);
+			
+			System.exit(1);
+			
+		}
+		
+		start();
+		
+		new Thread(
+			
+			new Runnable() {
+				
+				public void run() {
+					
+					dispatchReplies();
+					
+				}
+				
+			}
+		
+		).start();
+		
+	}
+
+	
+	/**
+	 * Accepts connections (until the maximum number of connections is 
+	 * reached) and starts a reader and a writer thread for each of them.
+	 */
+	@Override
+	public void run() {
+		
+		while (true) { // accept connections
+			
+			try {
+				
+				SocketChannel client = serverSocketChannel.accept();
+				
+				if (numberOfActiveConnections.get() >= MAX_CONNECTIONS) {
+					
+					LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+									+" IOH) Accept denied!"
+									);
+					
+					client.close();
+					continue;
+					
+				}
+				
+				User channel = acceptConnection(client);
+				ReplyWriter replyWriter = new ReplyWriter(channel);
+				replyWriters.put(channel.getIdentifier(), replyWriter);
+				ConnectionThreads.start(replyWriter);
+				ConnectionThreads.start(new RequestReader(channel));
+				
+			} catch (IOException e) {
+				
+				LOGGER.fine(e.getMessage());
+				continue;
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Generates a <code>User</code> object for the bypassed (accepted) 
+	 * connection and adds it to the <code>UserDatabase</code>.
+	 * 
+	 * @param client	The accepted connection.
+	 * 
+	 * @return			The connection's <code>User</code>.
+	 */
+	private User acceptConnection(SocketChannel client) {
+		
+		User channel = null;
+		numberOfActiveConnections.incrementAndGet();
+		
+		while (true) {
+			
+			try {
+				
+				channel = new User(Math.abs(secureRandom.nextInt()));
+				channel.initializeClientBuffers(client);
+				userDatabase.addUser(channel);
+				
+			} catch (UserAlreadyExistingException e) {
+				
+				continue;
+				
+			}
+			
+			break;
+			
+		}
+		
+		LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+						+" IOH) Accept granted: " +client
+						+", ID: " +channel.getIdentifier()
+						);
+		
+		return channel;
+		
+	}
+
+	
+	/**
+	 * Waits for <code>Reply</code>ies ready to be sent (to 
+	 * <code>Client</code>s). Ready <code>Reply</code>ies are put in the 
+	 * suiting <code>User</code>'s write buffer, from where the connection's 
+	 * <code>ReplyWriter</code> sends them. <code>Reply</code>ies that don't 
+	 * fit in the write buffer are put in the <code>replyOverflowQueue</code> 
+	 * (see <code>queueReply()</code>).
+	 */
+	private void dispatchReplies() {
+		
+		while (true) {
+			
+			Reply[] replies = 
+				inputOutputHandler.getProcessedReplies(
+						inputOutputHandler.QUEUE_DRAIN_LIMIT
+						);
+			
+			for (Reply reply: replies) {
+				
+				User channel = reply.getChannel();
+				ReplyWriter replyWriter = 
+					replyWriters.get(channel.getIdentifier());
+				
+				if (replyWriter == null) { // client disconnected meanwhile
+					
+					continue;
+					
+				}
+				
+				ByteBuffer channelWriteBuffer = channel.getClientWriteBuffer();
+				
+				synchronized (channelWriteBuffer) {
+					
+					if (channel.isReleased()) {
+						// buffer returned to pool (see User.releaseBuffers())
+						
+						continue;
+						
+					}
+					
+					if (	replyOverflowQueue.hasPendingReplies(channel)
+							||
+							channelWriteBuffer.remaining()
+							<
+							(reply.getByteMessage().length + 4)
+							) {	// "+4" since length-header must be
+								// submitted as well
+						
+						// client too slow (or replies queued already)
+						queueReply(channel, reply);
+										
+					} else {
+						
+						// generate header for reply
+						channelWriteBuffer.put(
+								ReplyMessage.generateLengthHeader(reply)
+								);
+						channelWriteBuffer.put(reply.getByteMessage());
+						
+						// wake up writer so it can send the reply
+						replyWriter.signal();
+						
+					}
+					
+				}
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Puts the bypassed <code>Reply</code> in the 
+	 * <code>replyOverflowQueue</code> (the <code>Client</code> doesn't 
+	 * receive messages fast enough). If the queue is full, either the 
+	 * slowest channel is closed or the reply is dropped (see property 
+	 * <code>REPLY_OVERFLOW_POLICY</code>). Must be called with the lock on 
+	 * the channel's write buffer held.
+	 * 
+	 * @param channel	The channel the reply belongs to.
+	 * @param reply		The reply to queue.
+	 */
+	private void queueReply(User channel, Reply reply) {
+		
+		byte[] framedReply = 
+			Util.mergeArrays(	ReplyMessage.generateLengthHeader(reply),
+								reply.getByteMessage()
+								);
+		
+		if (framedReply.length > channel.getClientWriteBuffer().capacity()) {
+			
+			LOGGER.warning(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+							+" IOH) Reply for user " +channel.getIdentifier()
+							+" too long! Dropped."
+							);
+			
+			return;
+			
+		}
+		
+		while (!replyOverflowQueue.add(channel, framedReply)) {
+			
+			if (!replyOverflowQueue.isClosingSlowestChannel()) {
+				
+				LOGGER.fine(	"User " +channel.getIdentifier()
+								+" doesn't receive messages fast enough! "
+								+"Dropped reply."
+								);
+				
+				return;
+				
+			}
+			
+			User slowestChannel = 
+				replyOverflowQueue.removeSlowestChannel(channel);
+			
+			LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+							+" IOH) Couldn't queue reply ("
+							+replyOverflowQueue.getUsedBudget()
+							+" bytes queued)! Closing slowest channel "
+							+slowestChannel.getIdentifier()
+							);
+			
+			removeChannel(slowestChannel);
+			
+			if (slowestChannel == channel) {
+				
+				return;
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Closes the bypassed (disconnected) channel's connection, releases the 
+	 * channel (on the following mixes) and removes it from the 
+	 * <code>UserDatabase</code>. Does nothing, if already done.
+	 * 
+	 * @param channel	The disconnected channel.
+	 */
+	private void removeChannel(User channel) {
+		
+		ReplyWriter replyWriter = replyWriters.remove(channel.getIdentifier());
+		
+		if (replyWriter == null) { // already removed
+			
+			return;
+			
+		}
+		
+		replyWriter.close();
+		replyOverflowQueue.remove(channel);
+		
+		try {
+			
+			channel.getSocketChannel().close();
+			
+		} catch (IOException e) {
+			
+			LOGGER.fine(e.getMessage());
+			
+		}
+		
+		if (POSITION_OF_MIX_IN_CASCADE != 3) {
+			// not last mix of cascade
+			
+			outputStrategy.addRequest(new ChannelReleaseMessage(channel));
+			
+		}
+		
+		numberOfActiveConnections.decrementAndGet();
+		
+		try {
+			
+			userDatabase.removeUser(channel.getIdentifier());
+			
+		} catch (UnknownUserException e) {
+			
+			LOGGER.fine(e.getMessage());
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+	
+	/**
+	 * Task receiving the messages of one connection (blocking reads of 
+	 * whole <code>ChannelEstablishMessage</code>s and 
+	 * <code>ChannelMessage</code>s) and passing them to the 
+	 * <code>InputOutputHandlerController</code>.
+	 * <p>
+	 * Uses its own buffer instead of the <code>User</code>'s (pooled) 
+	 * client read buffer: A blocking read can't be made with the buffer's 
+	 * lock held (the <code>User</code> may be removed meanwhile, see 
+	 * <code>User.releaseBuffers()</code>).
+	 */
+	private final class RequestReader implements Runnable {
+		
+		/** The <code>User</code> whose messages are received. */
+		private final User channel;
+		
+		
+		/**
+		 * Creates a new <code>RequestReader</code> for the bypassed 
+		 * <code>User</code>. Start a thread executing it to start receiving.
+		 * 
+		 * @param channel	The <code>User</code> whose messages shall be 
+		 * 					received.
+		 */
+		private RequestReader(User channel) {
+			
+			this.channel = channel;
+			
+		}
+		
+		
+		/**
+		 * Receives messages until the connection is closed.
+		 */
+		@Override
+		public void run() {
+			
+			SocketChannel client = channel.getSocketChannel();
+			
+			ByteBuffer buffer = 
+				ByteBuffer.allocate(
+					Math.max(
+						ChannelMessagePart.getMessageLength(
+							NUMBER_OF_FURTHER_HOPS),
+						ChannelEstablishMessagePart.getMessageLength(
+							NUMBER_OF_FURTHER_HOPS)
+						)
+					);
+			
+			try {
+				
+				while (true) {
+					
+					boolean isChannelEstablished = 
+						channel.getIsChannelEstablished();
+					
+					if (!isChannelEstablished) { // wait for admission
+						
+						admissionController.acquire();
+						
+					}
+					
+					buffer.clear();
+					
+					buffer.limit(
+							isChannelEstablished
+							? ChannelMessagePart.getMessageLength(
+								NUMBER_OF_FURTHER_HOPS)
+							: ChannelEstablishMessagePart.getMessageLength(
+								NUMBER_OF_FURTHER_HOPS)
+							);
+					
+					boolean isMessageAllowed = 
+						!channel.getHasMessageInCurrentBatch();
+					
+					while (buffer.hasRemaining()) { // read whole message
+						
+						if (client.read(buffer) == -1) {
+							
+							LOGGER.fine(	"(MIX"+POSITION_OF_MIX_IN_CASCADE
+											+" IOH) Client disconnected."
+											);
+							
+							removeChannel(channel);
+							return;
+							
+						}
+						
+						channel.setTimestampOfLastActivity();
+						
+					}
+					
+					if (!isMessageAllowed) {
+						// user is trying to send a message, although he has
+						// already a message in the current batch
+						// => ignore his request
+						
+						LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+										+" IOH) User " +channel.getIdentifier()
+										+" is trying to add multiple messages "
+										+"to one batch!"
+										);
+						
+						continue;
+						
+					}
+					
+					buffer.flip();
+					byte[] byteMessage = new byte[buffer.limit()];
+					buffer.get(byteMessage);
+					
+					if (!isChannelEstablished) {
+						
+						inputOutputHandler.addUnprocessedRequest(
+								new ChannelEstablishMessage(
+									byteMessage,
+									channel,
+									NUMBER_OF_FURTHER_HOPS
+									)
+								);
+								
+					} else { // channel is established
+						
+						inputOutputHandler.addUnprocessedRequest(
+								new ChannelMessage(
+									byteMessage,
+									channel,
+									NUMBER_OF_FURTHER_HOPS
+									)
+								);
+								
+					}
+					
+				}
+				
+			} catch (IOException e) {
+				
+				LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+								+" IOH) Connection to client lost."
+								);
+				
+				removeChannel(channel);
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Task sending the <code>Reply</code>ies put in the write buffer of one 
+	 * connection's <code>User</code> (blocking writes). The buffer is only 
+	 * locked while its content is copied, so a slow client doesn't block the 
+	 * dispatching of other clients' <code>Reply</code>ies. Waits for 
+	 * <code>signal()</code> (not on the buffer's monitor, which would pin a 
+	 * virtual thread to its platform thread).
+	 */
+	private final class ReplyWriter implements Runnable {
+		
+		/** The <code>User</code> whose <code>Reply</code>ies are sent. */
+		private final User channel;
+		
+		/** Released, when data was put in the write buffer (or closed). */
+		private final Semaphore wakeUp = new Semaphore(0);
+		
+		/** Indicates whether the connection was closed or not. */
+		private volatile boolean isClosed = false;
+		
+		
+		/**
+		 * Creates a new <code>ReplyWriter</code> for the bypassed 
+		 * <code>User</code>. Start a thread executing it to start sending.
+		 * 
+		 * @param channel	The <code>User</code> whose <code>Reply</code>ies 
+		 * 					shall be sent.
+		 */
+		private ReplyWriter(User channel) {
+			
+			this.channel = channel;
+			
+		}
+		
+		
+		/**
+		 * Wakes up this writer (data was put in the write buffer).
+		 */
+		private void signal() {
+			
+			wakeUp.release();
+			
+		}
+		
+		
+		/**
+		 * Makes this writer stop (the connection was closed).
+		 */
+		private void close() {
+			
+			isClosed = true;
+			wakeUp.release();
+			
+		}
+		
+		
+		/**
+		 * Sends <code>Reply</code>ies until the connection is closed.
+		 */
+		@Override
+		public void run() {
+			
+			ByteBuffer channelWriteBuffer = channel.getClientWriteBuffer();
+			
+			try {
+				
+				while (!isClosed) {
+					
+					ByteBuffer data = null;
+					
+					synchronized (channelWriteBuffer) {
+						
+						if (channel.isReleased()) { // channel removed
+							
+							return;
+							
+						}
+						
+						if (channelWriteBuffer.position() != 0) {
+							
+							channelWriteBuffer.flip();
+							data = ByteBuffer.allocate(
+									channelWriteBuffer.limit()
+									);
+							
+							data.put(channelWriteBuffer);
+							data.flip();
+							channelWriteBuffer.clear();
+							
+							// refill with replies, that didn't fit in before
+							replyOverflowQueue.moveTo(	channel,
+														channelWriteBuffer
+														);
+							
+						}
+						
+					}
+					
+					if (data == null) { // wait for signal() or close()
+						
+						wakeUp.acquire();
+						wakeUp.drainPermits(); // buffer is checked anyway
+						continue;
+						
+					}
+					
+					while (data.hasRemaining()) {
+						
+						channel.getSocketChannel().write(data);
+						
+					}
+					
+				}
+				
+			} catch (InterruptedException e) { // connection closed
+				
+				return;
+				
+			} catch (IOException e) {
+				
+				LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+								+" IOH) Connection to client lost."
+								);
+				
+				removeChannel(channel);
+				
+			}
+			
+		}
+		
+	}
+
+}
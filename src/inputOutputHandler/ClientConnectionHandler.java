@@ -8,14 +8,18 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.security.SecureRandom;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import outputStrategy.OutputStrategyController;
@@ -26,6 +30,7 @@ import message.ChannelReleaseMessage;
 import message.ChannelMessage;
 import message.ChannelMessagePart;
 import message.Reply;
+import message.ReplyMessage;
 
 import userDatabase.User;
 import userDatabase.UserDatabaseController;
@@ -44,11 +49,16 @@ import exception.UnknownUserException;
  * (see <code>InputOutputHandlerController.addUnprocessedRequest()</code>).
  * <code>Reply</code>ies are taken from the 
  * <code>InputOutputHandlerController</code>'s <code>replyOutputQueue</code> 
- * (see <code>InputOutputHandlerController.getProcessedReply()</code>).
+ * (see <code>InputOutputHandlerController.getProcessedReplies()</code>).
  * <p>
  * Adds/removes user to/from <code>UserDatabase</code>.
  * <p>
- * Uses non-blocking I/O.
+ * Uses non-blocking I/O. The connections are distributed (round-robin) among 
+ * <code>NUMBER_OF_SELECTOR_THREADS</code> <code>Reactor</code>s, each with 
+ * its own <code>Selector</code> and thread. If more than one 
+ * <code>Reactor</code> is used, connections are accepted by this thread 
+ * (acceptor). Otherwise, the only <code>Reactor</code> accepts connections 
+ * itself.
  * 
  * @author Karl-Peter Fuchs
  */
@@ -92,6 +102,12 @@ final class ClientConnectionHandler extends Thread {
 	private final int MAX_CONNECTIONS;
 	
 	/** 
+	 * Number of <code>Reactor</code>s (= selector threads) handling the 
+	 * connections.
+	 */
+	private final int NUMBER_OF_SELECTOR_THREADS;
+	
+	/**
 	 * The mix' position in the cascade this object belongs to. "1" means 
 	 * "first mix", "2" means "a middle mix" and "3" means "last mix" of 
 	 * cascade.
@@ -122,23 +138,43 @@ final class ClientConnectionHandler extends Thread {
 	 */
 	private OutputStrategyController outputStrategy;
 	
-	/** List of <code>User</code>s with data ready to be sent. */
-	private LinkedList<User> writeRequests =  new LinkedList<User>();
-	
 	/** 
 	 * Random number generator used to generate <code>User</code> identifiers.
 	 */
 	private SecureRandom secureRandom = new SecureRandom();
 	
 	/** Number of <code>Client</code>s currently connected. */
-	private Integer numberOfActiveConnections = 0;
+	private AtomicInteger numberOfActiveConnections = new AtomicInteger(0);
+	
+	/** <code>Reactor</code>s handling the connections. */
+	private Reactor[] reactors;
+	
+	/**
+	 * <code>Reactor</code> of each connected <code>User</code>, accessible by 
+	 * the <code>User</code>'s identifier.
+	 */
+	private ConcurrentHashMap<Integer, Reactor> reactorOfChannel = 
+		new ConcurrentHashMap<Integer, Reactor>();
 	
-	/** <code>Selector</code> used for non-blocking I/O. */
-	private Selector selector = null;
+	/** Index of the <code>Reactor</code> for the next connection. */
+	private int nextReactor = 0;
 	
 	/** <code>ServerSocketChannel</code> used for accepting connections. */
 	private ServerSocketChannel serverSocketChannel;
 	
+	/**
+	 * <code>Reply</code>ies that didn't fit in their channel's 
+	 * <code>clientWriteBuffer</code> (sent, as soon as space is available).
+	 */
+	private ReplyOverflowQueue replyOverflowQueue = new ReplyOverflowQueue();
+	
+	/**
+	 * Limits the rate at which new channels are admitted to channel 
+	 * establishment (the first message of a new channel isn't read before 
+	 * it was admitted).
+	 */
+	private AdmissionController admissionController;
+	
 	
 	/**
 	 * Constructs a new <code>ClientConnectionHandler</code> which accepts 
@@ -149,7 +185,7 @@ final class ClientConnectionHandler extends Thread {
 	 * (see <code>InputOutputHandlerController.addUnprocessedRequest()</code>).
 	 * <code>Reply</code>ies are taken from the 
 	 * <code>InputOutputHandlerController</code>'s <code>replyOutputQueue</code> 
-	 * (see <code>InputOutputHandlerController.getProcessedReply()</code>).
+	 * (see <code>InputOutputHandlerController.getProcessedReplies()</code>).
 	 * <p>
 	 * Adds/removes user to/from <code>UserDatabase</code>.
 	 * <p>
@@ -188,6 +224,11 @@ final class ClientConnectionHandler extends Thread {
 		this.MAX_CONNECTIONS = 
 			new Integer(getProperty("MAX_CONNECTIONS"));
 		
+		this.NUMBER_OF_SELECTOR_THREADS = 
+			Math.max(1, new Integer(getProperty("NUMBER_OF_SELECTOR_THREADS")));
+		
+		this.admissionController = new AdmissionController(inputOutputHandler);
+		
 		this.POSITION_OF_MIX_IN_CASCADE = 
 			inputOutputHandler.POSITION_OF_MIX_IN_CASCADE;
 		
@@ -207,7 +248,6 @@ final class ClientConnectionHandler extends Thread {
 		try {
 			
 			serverSocketChannel = ServerSocketChannel.open();
-			serverSocketChannel.configureBlocking(false);
 			ServerSocket serverSocket = serverSocketChannel.socket();
 			
 			InetSocketAddress endpoint = 
@@ -218,9 +258,24 @@ final class ClientConnectionHandler extends Thread {
 			serverSocket.setSoTimeout(SO_TIMEOUT);
 			
 			
-			// generate selector
-			selector = Selector.open(); 
-			serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+			// generate reactors (selectors)
+			reactors = new Reactor[NUMBER_OF_SELECTOR_THREADS];
+			
+			for (int i=0; i<reactors.length; i++) {
+				
+				reactors[i] = new Reactor();
+				
+			}
+			
+			if (reactors.length == 1) { // reactor accepts connections itself
+				
+				serverSocketChannel.configureBlocking(false);
+				
+				serverSocketChannel.register(	reactors[0].selector,
+												SelectionKey.OP_ACCEPT
+												);
+												
+			}
 			
 			LOGGER.info(	"(MIX" +POSITION_OF_MIX_IN_CASCADE +" IOH) " 
 							+"Listening on port " +PORT
@@ -242,7 +297,17 @@ final class ClientConnectionHandler extends Thread {
 	
 		}
 		
-		start();
+		for (Reactor reactor: reactors) {
+			
+			reactor.start();
+			
+		}
+		
+		if (reactors.length > 1) { // dedicated acceptor
+			
+			start();
+			
+		}
 
 		new Thread(
 					
@@ -264,207 +329,292 @@ final class ClientConnectionHandler extends Thread {
 	/**
 	 * Waits for <code>Reply</code>ies ready to be sent (to 
 	 * <code>Client</code>s). Ready <code>Reply</code>ies are put in the 
-	 * suiting <code>User</code>'s <code>buffer</code>. Afterwards the 
-	 * <code>selector</code> is notified about the data being ready to 
-	 * send (non-blocking I/O).
+	 * suiting <code>User</code>'s <code>buffer</code> and written to the 
+	 * <code>Client</code> directly (non-blocking, see 
+	 * <code>writeDirectly()</code>). Only if the socket's send buffer is 
+	 * full, the <code>User</code>'s <code>Reactor</code> is notified about 
+	 * the data left (and writes it, as soon as the socket is writable). Each 
+	 * <code>Reactor</code> is woken up (at most) once per batch of 
+	 * <code>Reply</code>ies.
+	 * <p>
+	 * <code>Reply</code>ies that don't fit in the <code>buffer</code> are 
+	 * put in the <code>replyOverflowQueue</code> (see 
+	 * <code>queueReply()</code>).
 	 * 
-	 * @see #writeRequests
-	 * @see #selector
+	 * @see Reactor#addWriteRequest(User)
 	 */
 	private void initializeReplyProcess() {
 		
 		User channelWhosReplyIsReady;
-		Reply reply;
 		ByteBuffer channelWriteBuffer;
+		
+		// reactors with new write requests (woken up after each batch)
+		HashSet<Reactor> reactorsToWakeUp = new HashSet<Reactor>();
 			
 		while (true) {
 				
-			reply = inputOutputHandler.getProcessedReply();
-			channelWhosReplyIsReady = reply.getChannel();
-			
-			channelWriteBuffer = 
-				channelWhosReplyIsReady.getClientWriteBuffer();
+			Reply[] replies = 
+				inputOutputHandler.getProcessedReplies(
+						inputOutputHandler.QUEUE_DRAIN_LIMIT
+						);
 			
-			if (	channelWriteBuffer.remaining() 
-					<
-					(reply.getByteMessage().length + 4)
-					) {	// "+4" since length-header must be submitted as 
-						// well
+			for (Reply reply: replies) {
 				
-				LOGGER.fine(	"User "
-								+channelWhosReplyIsReady.getIdentifier()
-								+" doesn't receive messages fast enough!"
-								);
+				channelWhosReplyIsReady = reply.getChannel();
 				
-			} else {
+				Reactor reactor = reactorOfChannel.get(
+						channelWhosReplyIsReady.getIdentifier()
+						);
+				
+				if (reactor == null) { // client disconnected meanwhile
+					
+					continue;
+					
+				}
+				
+				channelWriteBuffer = 
+					channelWhosReplyIsReady.getClientWriteBuffer();
 				
-				// generate header for reply
 				int lengthOfReply = reply.getByteMessage().length;
-				channelWriteBuffer.put(Util.intToByteArray(lengthOfReply));
-				channelWriteBuffer.put(reply.getByteMessage());
 				
-				synchronized(writeRequests) {
+				synchronized (channelWriteBuffer) {
 					
-					writeRequests.add(channelWhosReplyIsReady);
+					if (channelWhosReplyIsReady.isReleased()) {
+						// buffer returned to pool (see User.releaseBuffers())
+						
+						continue;
+						
+					}
+					
+					if (	!replyOverflowQueue.hasPendingReplies(
+								channelWhosReplyIsReady)
+							&&
+							channelWriteBuffer.remaining()
+							>= 
+							(lengthOfReply + 4)
+							) {	// "+4" since length-header must be
+								// submitted as well
+						
+						// data left -> reactor will write this reply, too
+						boolean isWritePending = 
+							channelWriteBuffer.position() > 0;
+						
+						// generate header for reply
+						channelWriteBuffer.put(
+								ReplyMessage.generateLengthHeader(reply)
+								);
+						
+						channelWriteBuffer.put(reply.getByteMessage());
+						
+						if (	!isWritePending
+								&&
+								!writeDirectly(	channelWhosReplyIsReady,
+												channelWriteBuffer
+												)
+								) { // socket's send buffer full
+							
+							reactor.addWriteRequest(channelWhosReplyIsReady);
+							reactorsToWakeUp.add(reactor);
+							
+						}
+						
+					} else { // client too slow (or replies queued already)
+						
+						queueReply(channelWhosReplyIsReady, reply);
+						
+					}
 					
 				}
 				
-				// wake up selector so it can send the replies
-				selector.wakeup();
+			}
+			
+			// one wakeup per reactor and batch (not per reply)
+			for (Reactor reactor: reactorsToWakeUp) {
+				
+				reactor.selector.wakeup();
 				
 			}
+			
+			reactorsToWakeUp.clear();
+
+		}
+		
+	}
 
+	
+	/**
+	 * Writes as much data from the bypassed channel's 
+	 * <code>clientWriteBuffer</code> to its (non-blocking) 
+	 * <code>SocketChannel</code> as the socket's send buffer accepts. Data 
+	 * not written remains in the buffer. Used by the reply thread (optimistic 
+	 * write, without involving the <code>Reactor</code>) and by the 
+	 * <code>Reactor</code> (socket writable again). Must be called with the 
+	 * lock on the buffer held.
+	 * 
+	 * @param channel	The channel to write to.
+	 * @param buffer	The channel's <code>clientWriteBuffer</code>.
+	 * 
+	 * @return			Whether all data was written (or the connection was 
+	 * 					lost) or not (socket's send buffer full).
+	 */
+	private boolean writeDirectly(User channel, ByteBuffer buffer) {
+		
+		buffer.flip();
+		
+		try {
+			
+			channel.getSocketChannel().write(buffer);
+			buffer.compact();
+			
+			return buffer.position() == 0;
+			
+		} catch (IOException e) {
+			
+			LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+							+" IOH) Connection to client lost."
+							);
+			
+			buffer.clear();
+			removeChannel(channel);
+			
+			return true; // nothing left to write
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Puts the bypassed <code>Reply</code> in the 
+	 * <code>replyOverflowQueue</code> (the <code>Client</code> doesn't 
+	 * receive messages fast enough). If the queue is full, either the 
+	 * slowest channel is closed or the reply is dropped (see property 
+	 * <code>REPLY_OVERFLOW_POLICY</code>). Must be called with the lock on 
+	 * the channel's <code>clientWriteBuffer</code> held.
+	 * 
+	 * @param channel	The channel the reply belongs to.
+	 * @param reply		The reply to queue.
+	 */
+	private void queueReply(User channel, Reply reply) {
+		
+		byte[] framedReply = 
+			Util.mergeArrays(	ReplyMessage.generateLengthHeader(reply),
+								reply.getByteMessage()
+								);
+		
+		if (framedReply.length > channel.getClientWriteBuffer().capacity()) {
+			
+			LOGGER.warning(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+							+" IOH) Reply for user " +channel.getIdentifier()
+							+" too long! Dropped."
+							);
+			
+			return;
+			
+		}
+		
+		while (!replyOverflowQueue.add(channel, framedReply)) {
+			
+			if (!replyOverflowQueue.isClosingSlowestChannel()) {
+				
+				LOGGER.fine(	"User " +channel.getIdentifier()
+								+" doesn't receive messages fast enough! "
+								+"Dropped reply."
+								);
+				
+				return;
+				
+			}
+			
+			User slowestChannel = 
+				replyOverflowQueue.removeSlowestChannel(channel);
+			
+			LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+							+" IOH) Couldn't queue reply ("
+							+replyOverflowQueue.getUsedBudget()
+							+" bytes queued)! Closing slowest channel "
+							+slowestChannel.getIdentifier()
+							);
+			
+			removeChannel(slowestChannel);
+			
+			if (slowestChannel == channel) {
+				
+				return;
+				
+			}
+			
 		}
 		
 	}
 	
 	
 	/**
-	 * Handles read, write and accept events (non-blocking I/O).
+	 * Accepts connections and distributes them (round-robin) among the 
+	 * <code>Reactor</code>s (acceptor, only used if there is more than one 
+	 * <code>Reactor</code>).
 	 */
 	@Override
 	public void run() {
 		
-		while (true) { // handle read, write and accept events
-
+		while (true) { // accept connections
+			
 			try {
-					
-				registerWriteRequests();
 				
-				// wait for event(s)
-				selector.select();
+				SocketChannel client = serverSocketChannel.accept();
+				
+				if (numberOfActiveConnections.get() < MAX_CONNECTIONS) {
 					
-				// retrieve keys
-				Set<SelectionKey> keys = selector.selectedKeys();
-				Iterator<SelectionKey> selectedKeys = keys.iterator();
+					acceptConnection(client, reactors[nextReactor]);
+					nextReactor = (nextReactor + 1) % reactors.length;
 					
-				SelectionKey key;
+				} else {
 					
-				// for each key
-				while (selectedKeys.hasNext()) {
-						
-					key = (SelectionKey)selectedKeys.next();
-					selectedKeys.remove();
-		
-					if (key.isAcceptable()) {
-						
-						handleAcceptRequest();
-						continue;
+					LOGGER.fine(	"(MIX"
+									+POSITION_OF_MIX_IN_CASCADE
+									+" IOH) Accept denied!"
+									);
 					
-					} else if (key.isReadable()) {
-						
-						handleReadRequest(key);
-						continue;
-							
-					} else if (key.isWritable()) {
-						
-						handleWriteRequest(key);
-							
-					}
-						
-				}
+					client.close();
 					
+				}
+				
 			} catch (IOException e) {
-					
+				
 				LOGGER.fine(e.getMessage());
 				continue;
-						
-			}
 				
-		}
-
-	} 
-	
-	
-	/**
-	 * Registers all write requests from <code>writeRequests</code> with 
-	 * <code>selector</code>.
-	 * 
-	 * @see #writeRequests
-	 * @see #selector
-	 */
-	private void registerWriteRequests() {
-		
-		synchronized(writeRequests) {
-		        	
-	        Iterator<User> writeRequestIterator = 
-	        	writeRequests.iterator();
-	        	
-	        while (writeRequestIterator.hasNext()) { 
-	        	// for each channelWriteBuffer with reply ready: 
-	        		
-	        	User channel= writeRequestIterator.next();
-	        	
-	        	SelectionKey selectionkey = 
-	        		channel.getSocketChannel().keyFor(selector);
-	        	
-	        	// register writeRequest in selector
-	        	selectionkey.interestOps(SelectionKey.OP_WRITE);
-		        	
-	        }
-		        	
-	        // delete old writeRequests
-	        writeRequests.clear();
-	        
+			}
+			
 		}
 		
 	}
 	
 	
 	/**
-	 * Handles an accept request. Accepts connections until the maximum number 
+	 * Handles an accept request (if the only <code>Reactor</code> accepts 
+	 * connections itself). Accepts connections until the maximum number 
 	 * of connections is reached (see <code>numberOfActiveConnections</code>, 
-	 * <code>MAX_CONNECTIONS</code>). Generates <code>User</code> objects and 
-	 * adds them to the <code>UserDatabase</code> (if connection accepted).
+	 * <code>MAX_CONNECTIONS</code>).
+	 * 
+	 * @param reactor	The <code>Reactor</code> that received the accept 
+	 * 					request.
 	 * 
 	 * @throws IOException If an I/O error occurres.
 	 */
-	private void handleAcceptRequest() throws IOException {
+	private void handleAcceptRequest(Reactor reactor) throws IOException {
 		
-		if (	numberOfActiveConnections 
+		if (	numberOfActiveConnections.get()
 				< 
 				MAX_CONNECTIONS) {
-				
+			
 			SocketChannel client = serverSocketChannel.accept();
-			User channel = null;
-			numberOfActiveConnections++;
-			client.configureBlocking(false);
 			
-			while (true) {
-				
-				try {
-					
-					channel = new User(Math.abs(secureRandom.nextInt()));
-					channel.initializeClientBuffers(client);
-					userDatabase.addUser(channel);
-					
-				} catch (UserAlreadyExistingException e) {
-
-					continue;
-
-				}
+			if (client != null) {
 				
-				break;
+				acceptConnection(client, reactor);
 				
 			}
-			
-			if (inputOutputHandler.IS_LAST) { // single mix
-					
-				channel.initializeProxyBuffers();
-					
-			}
-			
-			int channelIdentifier = channel.getIdentifier();
-					
-			client.register(	selector, 
-								SelectionKey.OP_READ, 
-								channelIdentifier
-								);
-					
-			LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE 
-							+" IOH) Accept granted: " +client
-							+", ID: " +channelIdentifier
-							);
 				
 		} else {
 				
@@ -478,22 +628,74 @@ final class ClientConnectionHandler extends Thread {
 	}
 	
 	
+	/**
+	 * Generates a <code>User</code> object for the bypassed (accepted) 
+	 * connection, adds it to the <code>UserDatabase</code> and hands the 
+	 * connection over to the bypassed <code>Reactor</code>.
+	 * 
+	 * @param client	The accepted connection.
+	 * @param reactor	The <code>Reactor</code> that shall handle the 
+	 * 					connection.
+	 * 
+	 * @throws IOException If an I/O error occurres.
+	 */
+	private void acceptConnection(SocketChannel client, Reactor reactor)
+			throws IOException {
+		
+		User channel = null;
+		numberOfActiveConnections.incrementAndGet();
+		client.configureBlocking(false);
+		
+		while (true) {
+			
+			try {
+				
+				channel = new User(Math.abs(secureRandom.nextInt()));
+				channel.initializeClientBuffers(client);
+				userDatabase.addUser(channel);
+				
+			} catch (UserAlreadyExistingException e) {
+				
+				continue;
+				
+			}
+			
+			break;
+			
+		}
+		
+		int channelIdentifier = channel.getIdentifier();
+		reactorOfChannel.put(channelIdentifier, reactor);
+		reactor.register(client, channelIdentifier);
+		
+		LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+						+" IOH) Accept granted: " +client
+						+", ID: " +channelIdentifier
+						);
+						
+	}
+
+	
 	/**
 	 * Handles a read request. Writes received data to the suiting 
 	 * <code>User</code>'s buffer. If a buffer contains a whole message, a 
 	 * <code>Message</code> object is created and passed to the 
 	 * <code>InputOutputHandlerController</code> (which provides it to the 
 	 * <code>MessageProcessor</code>).
+	 * <p>
+	 * The first message of a new channel is only read, if the channel was 
+	 * admitted by the <code>admissionController</code>. Otherwise, the 
+	 * channel is deferred by the bypassed <code>Reactor</code>.
 	 * 
-	 * @param key	Token representing the registration of a 
-	 * 				<code>SelectableChannel</code> with the 
-	 * 				<code>selector</code>. 
+	 * @param key		Token representing the registration of a 
+	 * 					<code>SelectableChannel</code> with a 
+	 * 					<code>Reactor</code>'s <code>selector</code>.
+	 * @param reactor	The <code>Reactor</code> the key belongs to.
 	 * 
 	 * @throws IOException If an I/O error occurres.
-	 * 
-	 * @see #selector
 	 */
-	private void handleReadRequest(SelectionKey key) throws IOException {
+	private void handleReadRequest(SelectionKey key, Reactor reactor)
+			throws IOException {
 		
 		int channelIdentifier = (Integer)key.attachment();
 		SocketChannel client = (SocketChannel)key.channel();
@@ -518,149 +720,129 @@ final class ClientConnectionHandler extends Thread {
 		ByteBuffer buffer = channel.getClientReadBuffer();
 		channel.setTimestampOfLastActivity();
 		
-		if (	buffer.position() == 0 
-				&& 
-				channel.getHasMessageInCurrentBatch()
-				) {
-			// user is trying to send a message, although he has already a
-			// message in the current batch
-			// => ignore his request until next output
-			
-			LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE 
-							+" IOH) User " +channelIdentifier
-							+" is trying to add multiple messages to one "
-							+"batch!"
-							);
-			
-			key.cancel();
-			return;
-			
-		}
+		byte[] byteMessage = null;
+		boolean isConnectionLost = false;
 		
-		if (channel.getIsChannelEstablished()) {
-				
-			buffer.limit(
-					ChannelMessagePart.getMessageLength(
-						NUMBER_OF_FURTHER_HOPS)
-						);
+		// buffer may be returned to pool any time (see User.releaseBuffers())
+		synchronized (buffer) {
+			
+			if (channel.isReleased()) { // channel removed meanwhile
 				
-		} else {
+				key.cancel();
+				return;
 				
-			buffer.limit(
-					ChannelEstablishMessagePart.getMessageLength(
-						NUMBER_OF_FURTHER_HOPS)
-						);
-			
-		}
+			}
 			
-		try {
-				
-			int bytesRead = client.read(buffer);
+			if (	buffer.position() == 0
+					&&
+					channel.getHasMessageInCurrentBatch()
+					) {
+				// user is trying to send a message, although he has already a
+				// message in the current batch
+				// => ignore his request until next output
 				
-			if (bytesRead == -1) {
-					
-				LOGGER.fine(	"(MIX"+POSITION_OF_MIX_IN_CASCADE 
-								+" IOH) Client disconnected."
+				LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+								+" IOH) User " +channelIdentifier
+								+" is trying to add multiple messages to one "
+								+"batch!"
 								);
-					
+				
 				key.cancel();
-				client.close();
-					
-				if (POSITION_OF_MIX_IN_CASCADE != 3) { 
-					// not last mix of cascade
-						
-					outputStrategy.addRequest(
-						new ChannelReleaseMessage(channel)
-						);	
-						
-				}
-					
-				numberOfActiveConnections--;
+				return;
 				
-				try {
-					
-					userDatabase.removeUser(channelIdentifier);
-					
-				} catch (UnknownUserException e) {
-
-					LOGGER.fine(e.getMessage());
-					return;
-					
-				}
+			}
+			
+			if (	!channel.getIsChannelEstablished()
+					&&
+					buffer.position() == 0
+					&&
+					!reactor.isAdmitted(key)
+					) { // too many channels being established -> read later
 				
+				reactor.defer(key);
 				return;
-					
-			}
 				
-		} catch (IOException e) {
+			}
+			
+			if (channel.getIsChannelEstablished()) {
 				
-			LOGGER.fine(	"(MIX" 
-							+POSITION_OF_MIX_IN_CASCADE 
-							+" IOH) Connection to " 
-							+"client lost."
+				buffer.limit(
+						ChannelMessagePart.getMessageLength(
+							NUMBER_OF_FURTHER_HOPS)
 							);
+							
+			} else {
 				
-			key.cancel();
-			client.close();
+				buffer.limit(
+						ChannelEstablishMessagePart.getMessageLength(
+							NUMBER_OF_FURTHER_HOPS)
+							);
+							
+			}
 			
-			if (POSITION_OF_MIX_IN_CASCADE != 3) { 
-				// not last mix of cascade
+			try {
+				
+				if (client.read(buffer) == -1) {
 					
-				outputStrategy.addRequest(
-						new ChannelReleaseMessage(channel)
-					);	
+					LOGGER.fine(	"(MIX"+POSITION_OF_MIX_IN_CASCADE
+									+" IOH) Client disconnected."
+									);
 					
-			}
+					isConnectionLost = true;
+					
+				}
 				
-			numberOfActiveConnections--;
-			
-			try {
+			} catch (IOException e) {
 				
-				userDatabase.removeUser(channelIdentifier);
+				LOGGER.fine(	"(MIX"
+								+POSITION_OF_MIX_IN_CASCADE
+								+" IOH) Connection to "
+								+"client lost."
+								);
 				
-			} catch (UnknownUserException ex) {
-
-				LOGGER.fine(ex.getMessage());
-				return;
+				isConnectionLost = true;
 				
 			}
 			
-			return;
+			if (!isConnectionLost && buffer.position() == buffer.limit()) {
+				// message received completely
 				
+				buffer.flip();
+				byteMessage = new byte[buffer.limit()];
+				buffer.get(byteMessage);
+				buffer.clear();
+				
+			}
+			
 		}
+		
+		if (isConnectionLost) {
+			
+			key.cancel();
+			removeChannel(channel);
+			
+		} else if (byteMessage == null) {
 			
-		if(buffer.position() < buffer.limit()) {
-				
 			// message receival not complete yet
+			
+		} else if (!channel.getIsChannelEstablished()) {
+			
+			inputOutputHandler.addUnprocessedRequest(
+					new ChannelEstablishMessage(byteMessage,
+												channel,
+												NUMBER_OF_FURTHER_HOPS
+												)
+											);
+											
+		} else { // channel is established
 				
-		} else { // message received completely
-				
-			buffer.flip();
-			byte[] byteMessage = new byte[buffer.limit()];
-			buffer.get(byteMessage);
-				
-			if (!channel.getIsChannelEstablished()) {
-				
-				inputOutputHandler.addUnprocessedRequest(
-						new ChannelEstablishMessage(byteMessage, 
-													channel, 
-													NUMBER_OF_FURTHER_HOPS
-													)
-												);
-				
-			} else { // channel is established
-					
-				inputOutputHandler.addUnprocessedRequest(
-						new ChannelMessage(
-							byteMessage, 
-							channel,
-							NUMBER_OF_FURTHER_HOPS
-							)
-					);
-					
-			}
-				
-			buffer.clear();
+			inputOutputHandler.addUnprocessedRequest(
+					new ChannelMessage(
+						byteMessage,
+						channel,
+						NUMBER_OF_FURTHER_HOPS
+						)
+				);
 				
 		}
 		
@@ -669,18 +851,19 @@ final class ClientConnectionHandler extends Thread {
 	
 	/**
 	 * Handles a write request. Writes data from a <code>User</code>'s buffer 
-	 * to the suiting <code>SocketChannel</code>.
+	 * to the suiting <code>SocketChannel</code>. Refills the buffer with 
+	 * <code>Reply</code>ies from the <code>replyOverflowQueue</code> (if 
+	 * any).
 	 * 
 	 * @param key	Token representing the registration of a 
-	 * 				<code>SelectableChannel</code> with the 
-	 * 				<code>selector</code>. 
+	 * 				<code>SelectableChannel</code> with a 
+	 * 				<code>Reactor</code>'s <code>selector</code>.
 	 * 
 	 * @throws IOException If an I/O error occurres.
 	 */
 	private void handleWriteRequest(SelectionKey key) throws IOException {
 		
 		int channelIdentifier = (Integer)key.attachment();
-		SocketChannel client = (SocketChannel)key.channel();
 		User channel;
 		
 		try {
@@ -688,34 +871,98 @@ final class ClientConnectionHandler extends Thread {
 			channel = userDatabase.getUser(channelIdentifier);
 			
 		} catch (UnknownUserException e) {
-
+			
+			key.cancel(); // channel removed meanwhile
 			throw new IOException(e.getMessage());
 			
 		}
 		
 		ByteBuffer buffer = channel.getClientWriteBuffer();
 		
-		buffer.flip();
-		
-		client.write(buffer);
-		
-		if (buffer.remaining() > 0) {
-			// couldn't write all data at once
+		synchronized (buffer) {
+			
+			if (channel.isReleased()) { // channel removed meanwhile
 				
-			// continue writing later
-			return;
+				key.cancel();
+				return;
 				
-		} else { // all data written
+			}
+			
+			// keeps data not written yet (for next write request)
+			writeDirectly(channel, buffer);
+			
+			replyOverflowQueue.moveTo(channel, buffer);
+			
+			if (buffer.position() > 0) {
+				// couldn't write all data at once
 				
-			buffer.clear();
-			// signalize interest in new data from client
-			key.interestOps(SelectionKey.OP_READ);
+				// continue writing later
+				return;
+				
+			} else if (key.isValid()) { // all data written
 				
+				// no interest in write events until data is left again
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+				
+			}
+			
 		}
 		
 	}
 	
 	
+	/**
+	 * Closes the bypassed (disconnected) channel's connection, releases the 
+	 * channel (on the following mixes) and removes it from the 
+	 * <code>UserDatabase</code> and from its <code>Reactor</code>. Does 
+	 * nothing, if already done.
+	 * 
+	 * @param channel	The disconnected channel.
+	 */
+	private void removeChannel(User channel) {
+		
+		int channelIdentifier = channel.getIdentifier();
+		
+		if (reactorOfChannel.remove(channelIdentifier) == null) {
+			// already removed
+			
+			return;
+			
+		}
+		
+		try {
+			
+			channel.getSocketChannel().close();
+			
+		} catch (IOException e) {
+			
+			LOGGER.fine(e.getMessage());
+			
+		}
+		
+		if (POSITION_OF_MIX_IN_CASCADE != 3) {
+			// not last mix of cascade
+			
+			outputStrategy.addRequest(new ChannelReleaseMessage(channel));
+			
+		}
+		
+		replyOverflowQueue.remove(channel);
+		numberOfActiveConnections.decrementAndGet();
+		
+		try {
+			
+			userDatabase.removeUser(channelIdentifier);
+			
+		} catch (UnknownUserException e) {
+			
+			LOGGER.fine(e.getMessage());
+			
+		}
+		
+	}
+
+	
 	/**
 	 * Simply used to shorten method calls (calls 
 	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
@@ -731,4 +978,341 @@ final class ClientConnectionHandler extends Thread {
 		
 	}
 	
+	
+	/**
+	 * Handles read and write events (and accept events, if it's the only 
+	 * <code>Reactor</code>) for the connections assigned to it, using its own 
+	 * <code>Selector</code> and thread (non-blocking I/O). Connections and 
+	 * write requests from other threads are queued and registered by the 
+	 * <code>Reactor</code>'s thread itself.
+	 */
+	private final class Reactor extends Thread {
+		
+		/** <code>Selector</code> used for non-blocking I/O. */
+		private final Selector selector;
+		
+		/** List of <code>User</code>s with data ready to be sent. */
+		private LinkedList<User> writeRequests = new LinkedList<User>();
+		
+		/** Accepted connections not yet registered with the selector. */
+		private LinkedList<SocketChannel> newConnections = 
+			new LinkedList<SocketChannel>();
+		
+		/** Identifiers of the connections in <code>newConnections</code>. */
+		private LinkedList<Integer> newConnectionIdentifiers = 
+			new LinkedList<Integer>();
+		
+		/**
+		 * Keys of new channels waiting for admission (oldest first). 
+		 * <code>OP_READ</code> is deregistered while a key is deferred. Only 
+		 * accessed by the <code>Reactor</code>'s thread.
+		 */
+		private LinkedList<SelectionKey> deferredKeys = 
+			new LinkedList<SelectionKey>();
+		
+		/**
+		 * Keys of (previously deferred) new channels, that were admitted, but 
+		 * whose first message wasn't read yet. Only accessed by the 
+		 * <code>Reactor</code>'s thread.
+		 */
+		private HashSet<SelectionKey> admittedKeys = 
+			new HashSet<SelectionKey>();
+		
+		
+		/**
+		 * Creates a new <code>Reactor</code> with its own 
+		 * <code>Selector</code>. Call <code>start()</code> to make it handle 
+		 * events.
+		 * 
+		 * @throws IOException If the <code>Selector</code> can't be opened.
+		 */
+		private Reactor() throws IOException {
+			
+			this.selector = Selector.open();
+			
+		}
+		
+		
+		/**
+		 * Makes this <code>Reactor</code> handle the bypassed (accepted) 
+		 * connection.
+		 * 
+		 * @param client			The accepted connection.
+		 * @param channelIdentifier	Identifier of the connection's 
+		 * 							<code>User</code>.
+		 */
+		private void register(SocketChannel client, int channelIdentifier) {
+			
+			synchronized (newConnections) {
+				
+				newConnections.add(client);
+				newConnectionIdentifiers.add(channelIdentifier);
+				
+			}
+			
+			selector.wakeup();
+			
+		}
+		
+		
+		/**
+		 * Notifies this <code>Reactor</code> about data being ready to be 
+		 * sent to the bypassed <code>User</code>. Doesn't wake up the 
+		 * <code>selector</code> (the caller must call 
+		 * <code>selector.wakeup()</code> after adding all requests of a 
+		 * batch).
+		 * 
+		 * @param channel	<code>User</code> with data ready to be sent.
+		 */
+		private void addWriteRequest(User channel) {
+			
+			synchronized (writeRequests) {
+				
+				writeRequests.add(channel);
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Indicates whether the first message of the bypassed (new) channel 
+		 * may be read or not. Channels are admitted in the order they were 
+		 * deferred (a new channel isn't admitted, while other channels wait 
+		 * for admission).
+		 * 
+		 * @param key	Key of the new channel.
+		 * 
+		 * @return		Whether the channel was admitted or not.
+		 */
+		private boolean isAdmitted(SelectionKey key) {
+			
+			if (!admissionController.isEnabled()) {
+				
+				return true;
+				
+			} else if (admittedKeys.remove(key)) {
+				
+				return true;
+				
+			} else {
+				
+				return	deferredKeys.isEmpty()
+						&&
+						admissionController.tryAcquire();
+						
+			}
+			
+		}
+		
+		
+		/**
+		 * Defers reading the first message of the bypassed (new) channel, 
+		 * until it is admitted (see <code>resumeDeferredKeys()</code>).
+		 * 
+		 * @param key	Key of the new channel.
+		 */
+		private void defer(SelectionKey key) {
+			
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			deferredKeys.add(key);
+			
+		}
+		
+		
+		/**
+		 * Registers <code>OP_READ</code> again for as many deferred channels 
+		 * as the <code>admissionController</code> admits (oldest first). 
+		 * Channels closed in the meantime are removed.
+		 */
+		private void resumeDeferredKeys() {
+			
+			Iterator<SelectionKey> admittedKeyIterator = 
+				admittedKeys.iterator();
+			
+			while (admittedKeyIterator.hasNext()) {
+				
+				if (!admittedKeyIterator.next().isValid()) {
+					
+					admittedKeyIterator.remove();
+					
+				}
+				
+			}
+			
+			while (!deferredKeys.isEmpty()) {
+				
+				SelectionKey key = deferredKeys.getFirst();
+				
+				if (!key.isValid()) { // channel closed
+					
+					deferredKeys.removeFirst();
+					continue;
+					
+				}
+				
+				if (!admissionController.tryAcquire()) {
+					
+					return;
+					
+				}
+				
+				deferredKeys.removeFirst();
+				
+				try {
+					
+					key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+					admittedKeys.add(key);
+					
+				} catch (CancelledKeyException e) { // channel just closed
+					
+					continue;
+					
+				}
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Handles read, write and accept events (non-blocking I/O).
+		 */
+		@Override
+		public void run() {
+			
+			while (true) { // handle read, write and accept events
+				
+				try {
+					
+					registerNewConnections();
+					registerWriteRequests();
+					resumeDeferredKeys();
+					
+					// wait for event(s) (or admission of deferred channels)
+					if (deferredKeys.isEmpty()) {
+						
+						selector.select();
+						
+					} else {
+						
+						selector.select(admissionController.getWaitTime());
+						
+					}
+					
+					// retrieve keys
+					Set<SelectionKey> keys = selector.selectedKeys();
+					Iterator<SelectionKey> selectedKeys = keys.iterator();
+					
+					SelectionKey key;
+					
+					// for each key
+					while (selectedKeys.hasNext()) {
+						
+						key = selectedKeys.next();
+						selectedKeys.remove();
+						
+						if (key.isAcceptable()) {
+							
+							handleAcceptRequest(this);
+							continue;
+							
+						}
+						
+						// reads and writes of a connection don't exclude
+						// each other (OP_READ stays registered while writing)
+						if (key.isReadable()) {
+							
+							handleReadRequest(key, this);
+							
+						}
+						
+						if (key.isValid() && key.isWritable()) {
+							
+							handleWriteRequest(key);
+							
+						}
+						
+					}
+					
+				} catch (IOException e) {
+					
+					LOGGER.fine(e.getMessage());
+					continue;
+					
+				}
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Registers all connections from <code>newConnections</code> with 
+		 * <code>selector</code>.
+		 * 
+		 * @throws IOException If an I/O error occurres.
+		 */
+		private void registerNewConnections() throws IOException {
+			
+			synchronized (newConnections) {
+				
+				while (!newConnections.isEmpty()) {
+					
+					newConnections.removeFirst().register(
+							selector,
+							SelectionKey.OP_READ,
+							newConnectionIdentifiers.removeFirst()
+							);
+							
+				}
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Registers all write requests from <code>writeRequests</code> with 
+		 * <code>selector</code>.
+		 * 
+		 * @see #writeRequests
+		 * @see #selector
+		 */
+		private void registerWriteRequests() {
+			
+			synchronized(writeRequests) {
+		        
+		        Iterator<User> writeRequestIterator = 
+		        	writeRequests.iterator();
+		        
+		        while (writeRequestIterator.hasNext()) {
+		        	// for each channelWriteBuffer with reply ready:
+		        	
+		        	User channel= writeRequestIterator.next();
+		        	
+		        	SelectionKey selectionkey = 
+		        		channel.getSocketChannel().keyFor(selector);
+		        	
+		        	if (selectionkey != null && selectionkey.isValid()) {
+		        		
+		        		// register writeRequest in selector (keep OP_READ)
+		        		selectionkey.interestOps(
+		        				selectionkey.interestOps()
+		        				| SelectionKey.OP_WRITE
+		        				);
+		        		
+		        	}
+		        	
+		        }
+		        
+		        // delete old writeRequests
+		        writeRequests.clear();
+		        
+			}
+			
+		}
+		
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package inputOutputHandler;
+
+
+import java.lang.reflect.Method;
+
+
+/**
+ * Starts the threads serving single client connections (see 
+ * <code>BlockingClientConnectionHandler</code>). Uses virtual threads, if 
+ * available, so thousands of connections don't need thousands of operating 
+ * system threads (a virtual thread blocked in a socket operation doesn't 
+ * occupy a platform thread). Platform threads are used otherwise.
+ * <p>
+ * Virtual threads require Java 21 or later. Since this project must still 
+ * compile for older versions, the API is accessed via reflection (like in 
+ * <code>UnixDomainSockets</code>).
+ * <p>
+ * Note: Threads started here shouldn't wait for a monitor 
+ * (<code>Object.wait()</code>) or block while holding one, since a virtual 
+ * thread can't release its platform thread then (before Java 24).
+ */
+final class ConnectionThreads {
+	
+	/** <code>Thread.ofVirtual()</code> (<code>null</code>, if n/a). */
+	private static Method createBuilder;
+	
+	/** <code>Thread.Builder.start(Runnable)</code>. */
+	private static Method start;
+	
+	static {
+		
+		try {
+			
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			
+			Method startMethod = 
+				Class.forName("java.lang.Thread$Builder"
+						).getMethod("start", Runnable.class);
+			
+			// fails, if virtual threads are a (disabled) preview feature
+			ofVirtual.invoke(null);
+			
+			start = startMethod;
+			createBuilder = ofVirtual;
+			
+		} catch (Exception e) { // Java < 21 or preview not enabled
+			
+			createBuilder = null;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Empty constructor. Never used since all methods are static.
+	 */
+	private ConnectionThreads() {
+	
+	}
+
+	
+	/**
+	 * Indicates whether virtual threads are used or not.
+	 * 
+	 * @return	Whether virtual threads are used or not.
+	 */
+	protected static boolean isVirtual() {
+		
+		return createBuilder != null;
+		
+	}
+
+	
+	/**
+	 * Starts a new (virtual, if available) thread executing the bypassed 
+	 * task.
+	 * 
+	 * @param task	The task to execute.
+	 * 
+	 * @return		The started thread.
+	 */
+	protected static Thread start(Runnable task) {
+		
+		if (createBuilder != null) {
+			
+			try {
+				
+				// new builder for each thread (builders aren't thread-safe)
+				Object builder = createBuilder.invoke(null);
+				return (Thread)start.invoke(builder, task);
+				
+			} catch (Exception e) { // unexpected -> platform thread
+				
+				createBuilder = null;
+				
+			}
+			
+		}
+		
+		Thread thread = new Thread(task);
+		thread.start();
+		
+		return thread;
+		
+	}
+
+}
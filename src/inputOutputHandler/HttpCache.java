@@ -0,0 +1,628 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.logging.Logger;
+
+
+/**
+ * Stores HTTP responses received from the proxy server (used by 
+ * <code>HttpCacheFilter</code> on the last mix of the cascade only).
+ * <p>
+ * Responses are stored in memory (least recently used responses are 
+ * evicted, when the stored responses exceed <code>HTTP_CACHE_SIZE</code> 
+ * bytes). If <code>HTTP_CACHE_DISK_FILE</code> is specified, evicted 
+ * responses are moved to a second tier: a memory-mapped file of 
+ * <code>HTTP_CACHE_DISK_SIZE</code> bytes, written like a ring (the oldest 
+ * responses are overwritten). Responses found in the file are moved back to 
+ * memory. The file's index is kept in memory only, i. e. its content is 
+ * lost, when the mix is restarted.
+ * <p>
+ * Each response is stored until it isn't fresh any more (as determined by 
+ * <code>HttpCacheFilter</code> from its cache-control headers).
+ * <p>
+ * This class is thread-safe.
+ */
+final class HttpCache {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/** Maximum number of bytes stored in memory. */
+	private final long MEMORY_SIZE;
+	
+	/** Maximum size of a single response (in byte). */
+	private final int MAX_OBJECT_SIZE;
+	
+	/** Responses stored in memory, by URL (least recently used first). */
+	private LinkedHashMap<String, Entry> memoryTier = 
+		new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	
+	/** Number of bytes stored in memory. */
+	private long usedMemory = 0;
+	
+	/** Second tier (<code>null</code>, if no file is used). */
+	private DiskTier diskTier;
+	
+	
+	/**
+	 * Creates a new (empty) <code>HttpCache</code> (with the sizes and file 
+	 * specified in the property file).
+	 */
+	protected HttpCache() {
+		
+		this.MEMORY_SIZE = new Long(getProperty("HTTP_CACHE_SIZE"));
+		
+		this.MAX_OBJECT_SIZE = 
+			new Integer(getProperty("HTTP_CACHE_MAX_OBJECT_SIZE"));
+		
+		String file = getProperty("HTTP_CACHE_DISK_FILE").trim();
+		
+		if (!file.equals("")) {
+			
+			int diskSize = new Integer(getProperty("HTTP_CACHE_DISK_SIZE"));
+			this.diskTier = new DiskTier(file, diskSize);
+			
+		}
+		
+		LOGGER.config(	"(HttpCache) Memory: " +MEMORY_SIZE +" byte, disk: "
+						+(diskTier == null ? "-" : file)
+						);
+						
+	}
+
+	
+	/**
+	 * Returns the maximum size of a single response (larger responses aren't 
+	 * stored).
+	 * 
+	 * @return	The maximum size of a single response (in byte).
+	 */
+	protected int getMaxObjectSize() {
+		
+		return MAX_OBJECT_SIZE;
+		
+	}
+
+	
+	/**
+	 * Returns the (still fresh) response stored for the bypassed URL.
+	 * 
+	 * @param url	The requested URL.
+	 * 
+	 * @return		The response or <code>null</code> (nothing stored or 
+	 * 				not fresh any more).
+	 */
+	protected synchronized Entry get(String url) {
+		
+		long now = System.currentTimeMillis();
+		Entry entry = memoryTier.get(url);
+		
+		if (entry != null) {
+			
+			if (entry.isFresh(now)) {
+				
+				return entry;
+				
+			}
+			
+			removeFromMemory(url);
+			
+		}
+		
+		if (diskTier != null) {
+			
+			entry = diskTier.get(url, now);
+			
+			if (entry != null) { // move back to memory
+				
+				putInMemory(url, entry);
+				
+			}
+			
+		}
+		
+		return entry;
+		
+	}
+
+	
+	/**
+	 * Stores the bypassed response for the bypassed URL (replaces the 
+	 * previous response, if any). Responses larger than 
+	 * <code>MAX_OBJECT_SIZE</code> aren't stored.
+	 * 
+	 * @param url	The requested URL.
+	 * @param entry	The response.
+	 */
+	protected synchronized void put(String url, Entry entry) {
+		
+		if (entry.response.length > MAX_OBJECT_SIZE) {
+			
+			return;
+			
+		}
+		
+		remove(url);
+		putInMemory(url, entry);
+		
+	}
+
+	
+	/**
+	 * Removes the response stored for the bypassed URL (e. g. since the 
+	 * resource was modified).
+	 * 
+	 * @param url	The URL.
+	 */
+	protected synchronized void remove(String url) {
+		
+		removeFromMemory(url);
+		
+		if (diskTier != null) {
+			
+			diskTier.remove(url);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Adds the bypassed response to <code>memoryTier</code> and evicts the 
+	 * least recently used responses (to <code>diskTier</code>, if used), 
+	 * while more than <code>MEMORY_SIZE</code> bytes are stored.
+	 * 
+	 * @param url	The requested URL.
+	 * @param entry	The response.
+	 */
+	private void putInMemory(String url, Entry entry) {
+		
+		memoryTier.put(url, entry);
+		usedMemory += entry.response.length;
+		
+		Iterator<Map.Entry<String, Entry>> iterator = 
+			memoryTier.entrySet().iterator();
+		
+		while (usedMemory > MEMORY_SIZE && iterator.hasNext()) {
+			
+			Map.Entry<String, Entry> eldest = iterator.next();
+			iterator.remove();
+			usedMemory -= eldest.getValue().response.length;
+			
+			if (	diskTier != null
+					&&
+					eldest.getValue().isFresh(System.currentTimeMillis())
+					) {
+				
+				diskTier.put(eldest.getKey(), eldest.getValue());
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Removes the response stored for the bypassed URL from 
+	 * <code>memoryTier</code>.
+	 * 
+	 * @param url	The URL.
+	 */
+	private void removeFromMemory(String url) {
+		
+		Entry entry = memoryTier.remove(url);
+		
+		if (entry != null) {
+			
+			usedMemory -= entry.response.length;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+	
+	/**
+	 * A stored response (status line, headers and body, as sent to the 
+	 * client, but without <code>Age</code> header).
+	 */
+	protected static final class Entry {
+		
+		/** The response (without <code>Age</code> header). */
+		private final byte[] response;
+		
+		/** Length of the response's status line (including CRLF). */
+		private final int statusLineLength;
+		
+		/** Time the response was received (in ms). */
+		private final long receivedAt;
+		
+		/** Age of the response when it was received (in seconds). */
+		private final long initialAge;
+		
+		/** Time the response stops being fresh (in ms). */
+		private final long expiresAt;
+		
+		
+		/**
+		 * Creates a new <code>Entry</code>.
+		 * 
+		 * @param response			The response (without <code>Age</code> 
+		 * 							header).
+		 * @param statusLineLength	Length of the response's status line 
+		 * 							(including CRLF).
+		 * @param receivedAt		Time the response was received (in ms).
+		 * @param initialAge		Age of the response when it was received 
+		 * 							(in seconds).
+		 * @param expiresAt			Time the response stops being fresh (in 
+		 * 							ms).
+		 */
+		protected Entry(	byte[] response,
+							int statusLineLength,
+							long receivedAt,
+							long initialAge,
+							long expiresAt
+							) {
+			
+			this.response = response;
+			this.statusLineLength = statusLineLength;
+			this.receivedAt = receivedAt;
+			this.initialAge = initialAge;
+			this.expiresAt = expiresAt;
+			
+		}
+		
+		
+		/**
+		 * Indicates whether this response is still fresh or not.
+		 * 
+		 * @param now	Current time (in ms).
+		 * 
+		 * @return		Whether this response is still fresh or not.
+		 */
+		private boolean isFresh(long now) {
+			
+			return now < expiresAt;
+			
+		}
+		
+		
+		/**
+		 * Returns the response as it shall be sent to the client (with an 
+		 * <code>Age</code> header added after the status line).
+		 * 
+		 * @return	The response.
+		 */
+		protected byte[] getResponse() {
+			
+			long age = 
+				initialAge
+				+ Math.max(0, System.currentTimeMillis() - receivedAt) / 1000;
+			
+			byte[] ageHeader = ("Age: " +age +"\r\n").getBytes();
+			byte[] result = new byte[response.length + ageHeader.length];
+			
+			System.arraycopy(response, 0, result, 0, statusLineLength);
+			
+			System.arraycopy(	ageHeader, 0,
+								result, statusLineLength,
+								ageHeader.length
+								);
+			
+			System.arraycopy(	response, statusLineLength,
+								result, statusLineLength + ageHeader.length,
+								response.length - statusLineLength
+								);
+			
+			return result;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Second tier of the cache: Responses are written to a memory-mapped 
+	 * file, one after the other. When the end of the file is reached, 
+	 * writing continues at its beginning and the oldest responses are 
+	 * overwritten. Must be accessed with the lock on the 
+	 * <code>HttpCache</code> held.
+	 */
+	private static final class DiskTier {
+		
+		/** The memory-mapped file. */
+		private final MappedByteBuffer file;
+		
+		/** Location of the stored responses, by URL. */
+		private HashMap<String, Location> index = 
+			new HashMap<String, Location>();
+		
+		/** Location of the stored responses, oldest first. */
+		private LinkedList<Location> log = new LinkedList<Location>();
+		
+		/** Position, the next response will be written to. */
+		private int writePosition = 0;
+		
+		
+		/**
+		 * Opens (or creates) and maps the bypassed file.
+		 * 
+		 * @param path	Path of the file.
+		 * @param size	Size of the file (in byte).
+		 */
+		private DiskTier(String path, int size) {
+			
+			MappedByteBuffer mappedFile = null;
+			
+			try {
+				
+				RandomAccessFile randomAccessFile = 
+					new RandomAccessFile(path, "rw");
+				
+				randomAccessFile.setLength(size);
+				
+				mappedFile = 
+					randomAccessFile.getChannel().map(
+							FileChannel.MapMode.READ_WRITE, 0, size
+							);
+				
+				randomAccessFile.close(); // mapping stays valid
+				
+			} catch (IOException e) {
+				
+				LOGGER.severe(	"(HttpCache) Couldn't map file " +path
+								+"! " +e.getMessage()
+								);
+				
+				System.exit(1);
+				
+			}
+			
+			this.file = mappedFile;
+			
+		}
+		
+		
+		/**
+		 * Returns the (still fresh) response stored for the bypassed URL.
+		 * 
+		 * @param url	The requested URL.
+		 * @param now	Current time (in ms).
+		 * 
+		 * @return		The response or <code>null</code> (nothing stored or 
+		 * 				not fresh any more).
+		 */
+		private Entry get(String url, long now) {
+			
+			Location location = index.get(url);
+			
+			if (location == null) {
+				
+				return null;
+				
+			} else if (!location.isFresh(now)) {
+				
+				remove(url);
+				return null;
+				
+			}
+			
+			byte[] response = new byte[location.length];
+			ByteBuffer view = file.duplicate();
+			view.position(location.position);
+			view.get(response);
+			
+			return new Entry(	response,
+								location.statusLineLength,
+								location.receivedAt,
+								location.initialAge,
+								location.expiresAt
+								);
+								
+		}
+		
+		
+		/**
+		 * Writes the bypassed response to the file (overwrites the oldest 
+		 * responses, if necessary).
+		 * 
+		 * @param url	The requested URL.
+		 * @param entry	The response.
+		 */
+		private void put(String url, Entry entry) {
+			
+			int length = entry.response.length;
+			
+			if (length > file.capacity()) {
+				
+				return;
+				
+			}
+			
+			remove(url);
+			
+			if (writePosition + length > file.capacity()) {
+				// continue at beginning -> evict responses behind
+				
+				while (	!log.isEmpty()
+						&&
+						log.getFirst().position >= writePosition
+						) {
+					
+					evictOldest();
+					
+				}
+				
+				writePosition = 0;
+				
+			}
+			
+			while (	!log.isEmpty()
+					&&
+					log.getFirst().position >= writePosition
+					&&
+					log.getFirst().position < writePosition + length
+					) { // would be overwritten
+				
+				evictOldest();
+				
+			}
+			
+			ByteBuffer view = file.duplicate();
+			view.position(writePosition);
+			view.put(entry.response);
+			
+			Location location = 
+				new Location(url, writePosition, length, entry);
+			
+			index.put(url, location);
+			log.add(location);
+			writePosition += length;
+			
+		}
+		
+		
+		/**
+		 * Removes the response stored for the bypassed URL from the index 
+		 * (its space is reused, when it is reached by 
+		 * <code>writePosition</code>).
+		 * 
+		 * @param url	The URL.
+		 */
+		private void remove(String url) {
+			
+			Location location = index.remove(url);
+			
+			if (location != null) {
+				
+				location.isRemoved = true;
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Removes the oldest response (the next one to be overwritten).
+		 */
+		private void evictOldest() {
+			
+			Location oldest = log.removeFirst();
+			
+			if (!oldest.isRemoved) {
+				
+				index.remove(oldest.url);
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Location (and meta data) of a response stored in the file of the 
+	 * <code>DiskTier</code>.
+	 */
+	private static final class Location {
+		
+		/** The requested URL. */
+		private final String url;
+		
+		/** Position of the response in the file. */
+		private final int position;
+		
+		/** Length of the response. */
+		private final int length;
+		
+		/** See <code>Entry.statusLineLength</code>. */
+		private final int statusLineLength;
+		
+		/** See <code>Entry.receivedAt</code>. */
+		private final long receivedAt;
+		
+		/** See <code>Entry.initialAge</code>. */
+		private final long initialAge;
+		
+		/** See <code>Entry.expiresAt</code>. */
+		private final long expiresAt;
+		
+		/**
+		 * Indicates whether the response was removed from the index (and 
+		 * only waits to be overwritten) or not.
+		 */
+		private boolean isRemoved = false;
+		
+		
+		/**
+		 * Creates a new <code>Location</code>.
+		 * 
+		 * @param url		The requested URL.
+		 * @param position	Position of the response in the file.
+		 * @param length	Length of the response.
+		 * @param entry		The response (meta data is copied).
+		 */
+		private Location(String url, int position, int length, Entry entry) {
+			
+			this.url = url;
+			this.position = position;
+			this.length = length;
+			this.statusLineLength = entry.statusLineLength;
+			this.receivedAt = entry.receivedAt;
+			this.initialAge = entry.initialAge;
+			this.expiresAt = entry.expiresAt;
+			
+		}
+		
+		
+		/**
+		 * Indicates whether the response is still fresh or not.
+		 * 
+		 * @param now	Current time (in ms).
+		 * 
+		 * @return		Whether the response is still fresh or not.
+		 */
+		private boolean isFresh(long now) {
+			
+			return now < expiresAt;
+			
+		}
+		
+	}
+
+}
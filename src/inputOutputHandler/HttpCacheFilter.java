@@ -0,0 +1,1320 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import userDatabase.User;
+
+
+/**
+ * Exit-side HTTP cache (used by last mix of cascade only, if 
+ * <code>PROXY_MODE</code> is "UPSTREAM" and <code>HTTP_CACHE_SIZE</code> is 
+ * larger than <code>0</code>).
+ * <p>
+ * Parses the data each channel sends to the proxy server (see 
+ * <code>filterRequestData()</code>) and receives from it (see 
+ * <code>readFromProxy()</code>) as a stream of HTTP/1.1 messages. Responses 
+ * to <code>GET</code> requests are stored in the <code>HttpCache</code>, if 
+ * their cache-control headers permit it (explicit freshness lifetime, no 
+ * <code>no-store</code>, <code>no-cache</code> or <code>private</code> 
+ * directive, no <code>Set-Cookie</code> or <code>Vary</code> header). 
+ * Cacheable requests are answered from the cache (without contacting the 
+ * proxy server), as long as no other request of the channel is waiting for 
+ * its response (to keep the order of the responses). Requests with 
+ * credentials (<code>Authorization</code> or <code>Cookie</code>) bypass the 
+ * cache, since the cache is shared by all users.
+ * <p>
+ * If a channel's stream can't be parsed (e. g. after a <code>CONNECT</code> 
+ * request or a response without length), the channel's data isn't parsed 
+ * any more (and bypasses the cache).
+ * <p>
+ * This class is thread-safe.
+ */
+final class HttpCacheFilter {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/** Maximum length of a request's or response's header (in byte). */
+	private static final int MAX_HEADER_LENGTH = 16384;
+	
+	/** Parser state: reading a header. */
+	private static final int HEADER = 0;
+	
+	/** Parser state: reading a body of known length. */
+	private static final int BODY = 1;
+	
+	/** Parser state: reading the size line of a chunk. */
+	private static final int CHUNK_SIZE = 2;
+	
+	/** Parser state: reading the data of a chunk. */
+	private static final int CHUNK_DATA = 3;
+	
+	/** Parser state: reading the line break after the data of a chunk. */
+	private static final int CHUNK_END = 4;
+	
+	/** Parser state: reading the trailer of a chunked body. */
+	private static final int TRAILER = 5;
+	
+	/** The cache the responses are stored in. */
+	private HttpCache cache = new HttpCache();
+	
+	/**
+	 * Reference on <code>InputOutputHandlerController</code> (notified about 
+	 * responses taken from the cache).
+	 */
+	private InputOutputHandlerController inputOutputHandler;
+	
+	/**
+	 * Parser state of each channel (removed automatically, when the channel 
+	 * isn't referenced any more).
+	 */
+	private Map<User, Exchange> exchanges = 
+		Collections.synchronizedMap(new WeakHashMap<User, Exchange>());
+	
+	/**
+	 * Buffer used to read data from the proxy server (used by the 
+	 * <code>ProxyConnector</code>'s thread only).
+	 */
+	private ByteBuffer readBuffer = ByteBuffer.allocate(16384);
+	
+	
+	/**
+	 * Creates a new <code>HttpCacheFilter</code> (with an empty cache).
+	 * 
+	 * @param inputOutputHandler	Reference on the controller (notified 
+	 * 								about responses taken from the cache).
+	 */
+	protected HttpCacheFilter(
+			InputOutputHandlerController inputOutputHandler
+			) {
+		
+		this.inputOutputHandler = inputOutputHandler;
+		
+	}
+
+	
+	/**
+	 * Parses the bypassed data (received from the bypassed channel) and 
+	 * answers cacheable requests from the cache, if possible. Returns the 
+	 * data, that shall be sent to the proxy server (all data except the 
+	 * requests answered from the cache).
+	 * 
+	 * @param channel	The channel the data was received from.
+	 * @param data		The data (any part of the channel's stream).
+	 * 
+	 * @return			The data, that shall be sent to the proxy server.
+	 */
+	protected byte[] filterRequestData(User channel, byte[] data) {
+		
+		Exchange exchange = getExchange(channel);
+		
+		synchronized (exchange) {
+			
+			if (	exchange.isPassThrough
+					&&
+					exchange.requestHeader.length() == 0
+					) {
+				
+				return data;
+				
+			}
+			
+			ByteArrayOutputStream dataToSend = 
+				new ByteArrayOutputStream(data.length);
+			
+			int i = 0;
+			
+			while (i < data.length && !exchange.isPassThrough) {
+				
+				if (exchange.remainingRequestBody > 0) {
+					
+					int length = 
+						(int)Math.min(	exchange.remainingRequestBody,
+										data.length - i
+										);
+					
+					dataToSend.write(data, i, length);
+					exchange.remainingRequestBody -= length;
+					i += length;
+					
+					continue;
+					
+				}
+				
+				StringBuilder header = exchange.requestHeader;
+				header.append((char)(data[i++] & 0xFF));
+				
+				if (isEndOfHeader(header)) {
+					
+					handleRequestHeader(channel, exchange, dataToSend);
+					
+				} else if (header.length() > MAX_HEADER_LENGTH) {
+					
+					exchange.setPassThrough();
+					
+				}
+				
+			}
+			
+			if (exchange.isPassThrough) { // send incomplete header as well
+				
+				StringBuilder header = exchange.requestHeader;
+				dataToSend.write(toBytes(header), 0, header.length());
+				header.setLength(0);
+				
+			}
+			
+			dataToSend.write(data, i, data.length - i);
+			
+			return dataToSend.toByteArray();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Reads as much data from the bypassed (non-blocking) connection to the 
+	 * bypassed channel's proxy read buffer as available (and fits in) and 
+	 * parses it (responses are stored in the cache, if permitted). 
+	 * Replaces <code>User.readFromProxy()</code>, if the cache is used.
+	 * 
+	 * @param channel		The channel the connection belongs to.
+	 * @param connection	Connection to the proxy server.
+	 * 
+	 * @return				Number of bytes read (<code>0</code>, if the 
+	 * 						proxy read buffer is full) or <code>-1</code> 
+	 * 						(connection closed by proxy server).
+	 * 
+	 * @throws IOException	If an I/O error occurres.
+	 */
+	protected int readFromProxy(User channel, ReadableByteChannel connection)
+			throws IOException {
+		
+		Exchange exchange = getExchange(channel);
+		
+		synchronized (exchange) { // see "serve()"
+			
+			readBuffer.clear();
+			
+			readBuffer.limit(
+					Math.min(	readBuffer.capacity(),
+								channel.getFreeSpaceInProxyReadBuffer()
+								)
+								);
+			
+			if (!readBuffer.hasRemaining()) {
+				
+				return 0;
+				
+			}
+			
+			int bytesRead = connection.read(readBuffer);
+			
+			if (bytesRead > 0) {
+				
+				byte[] data = new byte[bytesRead];
+				readBuffer.flip();
+				readBuffer.get(data);
+				
+				channel.putInProxyReadBuffer(data); // fits in (never blocks)
+				
+				if (!exchange.isPassThrough) {
+					
+					parseResponseData(exchange, data);
+					
+				}
+				
+			}
+			
+			return bytesRead;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Resets the parser state of the bypassed channel, since its connection 
+	 * to the proxy server was closed (requests sent on it won't be answered 
+	 * any more).
+	 * 
+	 * @param channel	The channel whose connection was closed.
+	 */
+	protected void connectionClosed(User channel) {
+		
+		Exchange exchange = exchanges.get(channel);
+		
+		if (exchange != null) {
+			
+			synchronized (exchange) {
+				
+				exchange.waitingRequests.clear();
+				exchange.resetResponse();
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Indicates whether the bypassed channel's connection to the proxy 
+	 * server is at a known message boundary: All requests passed to the 
+	 * proxy server were sent completely and all of their responses were 
+	 * received completely (nothing left, that could be delivered to another 
+	 * channel). Used to decide whether a connection may be reused (see 
+	 * <code>ProxyConnector</code>).
+	 * 
+	 * @param channel	The channel.
+	 * 
+	 * @return			Whether the channel's connection is at a known 
+	 * 					message boundary or not (<code>false</code>, if the 
+	 * 					channel's data isn't parsed).
+	 */
+	protected boolean isAtMessageBoundary(User channel) {
+		
+		Exchange exchange = exchanges.get(channel);
+		
+		if (exchange == null) {
+			
+			return false;
+			
+		}
+		
+		synchronized (exchange) {
+			
+			return	!exchange.isPassThrough
+					&&
+					exchange.requestHeader.length() == 0
+					&&
+					exchange.remainingRequestBody == 0
+					&&
+					exchange.waitingRequests.isEmpty()
+					&&
+					exchange.responseState == HEADER
+					&&
+					exchange.responseHeader.length() == 0;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Removes the parser state of the bypassed (released) channel.
+	 * 
+	 * @param channel	The released channel.
+	 */
+	protected void remove(User channel) {
+		
+		exchanges.remove(channel);
+		
+	}
+
+	
+	/**
+	 * Handles the (complete) request header of the bypassed 
+	 * <code>Exchange</code>: Either answers the request from the cache or 
+	 * adds it to <code>dataToSend</code> (and remembers it, to be able to 
+	 * handle its response).
+	 * 
+	 * @param channel		The channel the request was received from.
+	 * @param exchange		The channel's parser state.
+	 * @param dataToSend	Data, that shall be sent to the proxy server.
+	 */
+	private void handleRequestHeader(	User channel,
+										Exchange exchange,
+										ByteArrayOutputStream dataToSend
+										) {
+		
+		String header = exchange.requestHeader.toString();
+		byte[] headerBytes = toBytes(exchange.requestHeader);
+		exchange.requestHeader.setLength(0);
+		
+		String[] lines = header.split("\r?\n");
+		
+		if (lines.length == 0 || lines[0].length() == 0) { // empty line
+			
+			dataToSend.write(headerBytes, 0, headerBytes.length);
+			return;
+			
+		}
+		
+		String[] requestLine = lines[0].split(" ");
+		long contentLength = getContentLength(lines);
+		
+		if (	requestLine.length != 3
+				||
+				requestLine[0].equalsIgnoreCase("CONNECT") // tunnel
+				||
+				getField(lines, "Transfer-Encoding") != null
+				||
+				contentLength < 0
+				) { // can't parse stream any more
+			
+			dataToSend.write(headerBytes, 0, headerBytes.length);
+			exchange.setPassThrough();
+			return;
+			
+		}
+		
+		String method = requestLine[0].toUpperCase();
+		String url = getUrl(requestLine[1], getField(lines, "Host"));
+		String cacheControl = getLowerCaseField(lines, "Cache-Control");
+		String pragma = getLowerCaseField(lines, "Pragma");
+		
+		if (	url != null
+				&&
+				!method.equals("GET")
+				&&
+				!method.equals("HEAD")
+				) { // resource may be modified
+			
+			cache.remove(url);
+			
+		}
+		
+		boolean isCacheable = 
+			url != null
+			&&
+			method.equals("GET")
+			&&
+			requestLine[2].equals("HTTP/1.1")
+			&&
+			contentLength == 0
+			&&
+			getField(lines, "Authorization") == null
+			&&
+			getField(lines, "Cookie") == null
+			&&
+			getField(lines, "Range") == null
+			&&
+			!cacheControl.contains("no-store");
+		
+		boolean mayUseCache = 
+			isCacheable
+			&&
+			!cacheControl.contains("no-cache")
+			&&
+			!cacheControl.contains("max-age=0")
+			&&
+			!pragma.contains("no-cache");
+		
+		if (mayUseCache && serve(channel, exchange, url)) {
+			
+			return;
+			
+		}
+		
+		dataToSend.write(headerBytes, 0, headerBytes.length);
+		exchange.remainingRequestBody = contentLength;
+		
+		exchange.waitingRequests.add(
+				new WaitingRequest(	isCacheable ? url : null,
+									method.equals("HEAD")
+									)
+									);
+									
+	}
+
+	
+	/**
+	 * Puts the response stored for the bypassed URL in the bypassed 
+	 * channel's proxy read buffer, if available and no other request of the 
+	 * channel is waiting for its response. Must be called with the lock on 
+	 * <code>exchange</code> held (the lock also serializes writing to the 
+	 * proxy read buffer with <code>readFromProxy()</code>).
+	 * 
+	 * @param channel	The channel that requested the URL.
+	 * @param exchange	The channel's parser state.
+	 * @param url		The requested URL.
+	 * 
+	 * @return			Whether the request was answered from the cache or 
+	 * 					not.
+	 */
+	private boolean serve(User channel, Exchange exchange, String url) {
+		
+		if (!exchange.waitingRequests.isEmpty()) { // keep order
+			
+			return false;
+			
+		}
+		
+		HttpCache.Entry entry = cache.get(url);
+		
+		if (entry == null) {
+			
+			return false;
+			
+		}
+		
+		byte[] response = entry.getResponse();
+		
+		if (channel.getFreeSpaceInProxyReadBuffer() < response.length) {
+			
+			return false;
+			
+		}
+		
+		channel.putInProxyReadBuffer(response);
+		inputOutputHandler.proxyDataReceived(channel);
+		
+		LOGGER.finest("(HttpCacheFilter) Cache hit: " +url);
+		
+		return true;
+		
+	}
+
+	
+	/**
+	 * Parses the bypassed data (received from the proxy server) and stores 
+	 * complete responses in the cache (if permitted). Must be called with 
+	 * the lock on <code>exchange</code> held.
+	 * 
+	 * @param exchange	The channel's parser state.
+	 * @param data		The data (any part of the connection's stream).
+	 */
+	private void parseResponseData(Exchange exchange, byte[] data) {
+		
+		int i = 0;
+		
+		while (i < data.length && !exchange.isPassThrough) {
+			
+			if (	exchange.responseState == BODY
+					||
+					exchange.responseState == CHUNK_DATA
+					) {
+				
+				int length = 
+					(int)Math.min(	exchange.remainingResponseBody,
+									data.length - i
+									);
+				
+				exchange.copy(data, i, length);
+				exchange.remainingResponseBody -= length;
+				i += length;
+				
+				if (exchange.remainingResponseBody > 0) {
+					
+					continue;
+					
+				} else if (exchange.responseState == BODY) {
+					
+					finishResponse(exchange);
+					
+				} else {
+					
+					exchange.responseState = CHUNK_END;
+					
+				}
+				
+				continue;
+				
+			}
+			
+			byte b = data[i++];
+			
+			if (exchange.responseState == HEADER) {
+				
+				StringBuilder header = exchange.responseHeader;
+				header.append((char)(b & 0xFF));
+				
+				if (isEndOfHeader(header)) {
+					
+					handleResponseHeader(exchange);
+					
+				} else if (header.length() > MAX_HEADER_LENGTH) {
+					
+					exchange.setPassThrough();
+					
+				}
+				
+			} else { // chunked body: size line, line break or trailer
+				
+				exchange.copy(new byte[] {b}, 0, 1);
+				exchange.line.append((char)(b & 0xFF));
+				
+				if (b != '\n') {
+					
+					if (exchange.line.length() > MAX_HEADER_LENGTH) {
+						
+						exchange.setPassThrough();
+						
+					}
+					
+					continue;
+					
+				}
+				
+				String line = exchange.line.toString().trim();
+				exchange.line.setLength(0);
+				handleChunkLine(exchange, line);
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Handles a (complete) line of a chunked body (size line, line break 
+	 * after data or trailer). Must be called with the lock on 
+	 * <code>exchange</code> held.
+	 * 
+	 * @param exchange	The channel's parser state.
+	 * @param line		The line (trimmed).
+	 */
+	private void handleChunkLine(Exchange exchange, String line) {
+		
+		if (exchange.responseState == CHUNK_SIZE) {
+			
+			int extension = line.indexOf(';');
+			
+			try {
+				
+				long size = 
+					Long.parseLong(
+						extension == -1 ? line : line.substring(0, extension),
+						16
+						);
+				
+				exchange.remainingResponseBody = size;
+				exchange.responseState = size == 0 ? TRAILER : CHUNK_DATA;
+				
+			} catch (NumberFormatException e) {
+				
+				exchange.setPassThrough();
+				
+			}
+			
+		} else if (exchange.responseState == CHUNK_END) {
+			
+			exchange.responseState = CHUNK_SIZE;
+			
+		} else if (line.length() == 0) { // end of trailer
+			
+			finishResponse(exchange);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Handles the (complete) response header of the bypassed 
+	 * <code>Exchange</code>: Determines the length of the body and whether 
+	 * the response may be stored or not. Must be called with the lock on 
+	 * <code>exchange</code> held.
+	 * 
+	 * @param exchange	The channel's parser state.
+	 */
+	private void handleResponseHeader(Exchange exchange) {
+		
+		String header = exchange.responseHeader.toString();
+		String[] lines = header.split("\r?\n");
+		
+		if (lines.length == 0 || lines[0].length() == 0) { // empty line
+			
+			exchange.responseHeader.setLength(0);
+			return;
+			
+		}
+		
+		int status;
+		
+		try {
+			
+			status = Integer.parseInt(lines[0].split(" ")[1]);
+			
+		} catch (RuntimeException e) { // no valid status line
+			
+			exchange.setPassThrough();
+			return;
+			
+		}
+		
+		if (	exchange.waitingRequests.isEmpty() // unexpected response
+				||
+				status == 101 // switching protocols
+				) {
+			
+			exchange.setPassThrough();
+			return;
+			
+		} else if (status >= 100 && status < 200) { // interim response
+			
+			exchange.responseHeader.setLength(0);
+			return;
+			
+		}
+		
+		WaitingRequest request = exchange.waitingRequests.getFirst();
+		String transferEncoding = 
+			getLowerCaseField(lines, "Transfer-Encoding");
+		long contentLength = getContentLength(lines);
+		
+		if (request.isHead || status == 204 || status == 304) { // no body
+			
+			exchange.remainingResponseBody = 0;
+			exchange.responseState = BODY;
+			
+		} else if (transferEncoding.endsWith("chunked")) {
+			
+			exchange.responseState = CHUNK_SIZE;
+			
+		} else if (	transferEncoding.length() == 0
+					&&
+					getField(lines, "Content-Length") != null
+					&&
+					contentLength >= 0
+					) {
+			
+			exchange.remainingResponseBody = contentLength;
+			exchange.responseState = BODY;
+			
+		} else { // body ends when connection is closed
+			
+			exchange.setPassThrough();
+			return;
+			
+		}
+		
+		if (request.url != null) {
+			
+			prepareStoring(exchange, lines, status);
+			
+		}
+		
+		exchange.responseHeader.setLength(0);
+		
+		if (	exchange.responseState == BODY
+				&&
+				exchange.remainingResponseBody == 0
+				) {
+			
+			finishResponse(exchange);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Checks whether the response with the bypassed header may be stored 
+	 * and, if so, starts copying it (the header without <code>Age</code> and 
+	 * hop-by-hop headers). Must be called with the lock on 
+	 * <code>exchange</code> held.
+	 * 
+	 * @param exchange	The channel's parser state.
+	 * @param lines		The response header's lines.
+	 * @param status	The response's status code.
+	 */
+	private void prepareStoring(	Exchange exchange,
+									String[] lines,
+									int status
+									) {
+		
+		String cacheControl = getLowerCaseField(lines, "Cache-Control");
+		
+		if (	(status != 200 && status != 203 && status != 301
+				&& status != 404 && status != 410)
+				||
+				cacheControl.contains("no-store")
+				||
+				cacheControl.contains("no-cache")
+				||
+				cacheControl.contains("private")
+				||
+				getField(lines, "Set-Cookie") != null
+				||
+				getField(lines, "Vary") != null
+				) {
+			
+			return;
+			
+		}
+		
+		long now = System.currentTimeMillis();
+		long age = 0;
+		
+		try {
+			
+			String ageField = getField(lines, "Age");
+			age = ageField == null ? 0 : Long.parseLong(ageField.trim());
+			
+		} catch (NumberFormatException e) {
+			
+			return;
+			
+		}
+		
+		long lifetime = getFreshnessLifetime(lines, cacheControl, now);
+		
+		if (lifetime - age * 1000 <= 0) { // not fresh (or no lifetime)
+			
+			return;
+			
+		}
+		
+		StringBuilder storedHeader = new StringBuilder(lines[0]);
+		storedHeader.append("\r\n");
+		int statusLineLength = storedHeader.length();
+		
+		for (int i=1; i<lines.length; i++) {
+			
+			String name = lines[i].split(":", 2)[0].trim();
+			
+			if (	!name.equalsIgnoreCase("Age")
+					&&
+					!name.equalsIgnoreCase("Connection")
+					&&
+					!name.equalsIgnoreCase("Keep-Alive")
+					&&
+					!name.equalsIgnoreCase("Proxy-Connection")
+					) {
+				
+				storedHeader.append(lines[i]).append("\r\n");
+				
+			}
+			
+		}
+		
+		storedHeader.append("\r\n");
+		
+		exchange.storedResponse = new ByteArrayOutputStream();
+		
+		exchange.storedResponse.write(	toBytes(storedHeader),
+										0,
+										storedHeader.length()
+										);
+		
+		exchange.maxStoredResponseLength = cache.getMaxObjectSize();
+		exchange.statusLineLength = statusLineLength;
+		exchange.receivedAt = now;
+		exchange.initialAge = age;
+		exchange.expiresAt = now + lifetime - age * 1000;
+		
+	}
+
+	
+	/**
+	 * Finishes the current response of the bypassed <code>Exchange</code> 
+	 * (stores it in the cache, if permitted) and prepares parsing the next 
+	 * one. Must be called with the lock on <code>exchange</code> held.
+	 * 
+	 * @param exchange	The channel's parser state.
+	 */
+	private void finishResponse(Exchange exchange) {
+		
+		WaitingRequest request = exchange.waitingRequests.removeFirst();
+		
+		if (exchange.storedResponse != null) {
+			
+			HttpCache.Entry entry = 
+				new HttpCache.Entry(	exchange.storedResponse.toByteArray(),
+										exchange.statusLineLength,
+										exchange.receivedAt,
+										exchange.initialAge,
+										exchange.expiresAt
+										);
+			
+			cache.put(request.url, entry);
+			
+		}
+		
+		exchange.resetResponse();
+		
+	}
+
+	
+	/**
+	 * Returns the parser state of the bypassed channel (creates it, if not 
+	 * existing).
+	 * 
+	 * @param channel	The channel.
+	 * 
+	 * @return			The channel's parser state.
+	 */
+	private Exchange getExchange(User channel) {
+		
+		synchronized (exchanges) {
+			
+			Exchange exchange = exchanges.get(channel);
+			
+			if (exchange == null) {
+				
+				exchange = new Exchange();
+				exchanges.put(channel, exchange);
+				
+			}
+			
+			return exchange;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the freshness lifetime (in ms) specified by the bypassed 
+	 * response header (<code>s-maxage</code>, <code>max-age</code> or 
+	 * <code>Expires</code>).
+	 * 
+	 * @param lines			The response header's lines.
+	 * @param cacheControl	The response's <code>Cache-Control</code> header 
+	 * 						(lower case).
+	 * @param now			Current time (in ms).
+	 * 
+	 * @return				The freshness lifetime (in ms) or 
+	 * 						<code>-1</code> (not specified).
+	 */
+	private static long getFreshnessLifetime(	String[] lines,
+												String cacheControl,
+												long now
+												) {
+		
+		long maxAge = getDirective(cacheControl, "s-maxage");
+		
+		if (maxAge == -1) {
+			
+			maxAge = getDirective(cacheControl, "max-age");
+			
+		}
+		
+		if (maxAge != -1) {
+			
+			return maxAge * 1000;
+			
+		}
+		
+		String expires = getField(lines, "Expires");
+		
+		if (expires == null) {
+			
+			return -1;
+			
+		}
+		
+		SimpleDateFormat format = 
+			new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		
+		try {
+			
+			String date = getField(lines, "Date");
+			
+			long dateValue = 
+				date == null ? now : format.parse(date.trim()).getTime();
+			
+			return format.parse(expires.trim()).getTime() - dateValue;
+			
+		} catch (ParseException e) { // invalid date -> already expired
+			
+			return -1;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the (numeric) value of the bypassed directive of a 
+	 * <code>Cache-Control</code> header.
+	 * 
+	 * @param cacheControl	The <code>Cache-Control</code> header (lower 
+	 * 						case).
+	 * @param directive		Name of the directive.
+	 * 
+	 * @return				The directive's value or <code>-1</code> (not 
+	 * 						specified or invalid).
+	 */
+	private static long getDirective(String cacheControl, String directive) {
+		
+		for (String token: cacheControl.split(",")) {
+			
+			String[] nameAndValue = token.trim().split("=", 2);
+			
+			if (	nameAndValue.length == 2
+					&&
+					nameAndValue[0].equals(directive)
+					) {
+				
+				try {
+					
+					return Long.parseLong(
+							nameAndValue[1].replace("\"", "").trim()
+							);
+							
+				} catch (NumberFormatException e) {
+					
+					return -1;
+					
+				}
+				
+			}
+			
+		}
+		
+		return -1;
+		
+	}
+
+	
+	/**
+	 * Returns the value of the <code>Content-Length</code> header.
+	 * 
+	 * @param lines	The header's lines.
+	 * 
+	 * @return		The value, <code>0</code> (not specified) or 
+	 * 				<code>-1</code> (invalid).
+	 */
+	private static long getContentLength(String[] lines) {
+		
+		String contentLength = getField(lines, "Content-Length");
+		
+		if (contentLength == null) {
+			
+			return 0;
+			
+		}
+		
+		try {
+			
+			return Math.max(-1, Long.parseLong(contentLength.trim()));
+			
+		} catch (NumberFormatException e) {
+			
+			return -1;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the URL the bypassed request target refers to (only plain 
+	 * "http" URLs are cached).
+	 * 
+	 * @param target	The request target (absolute URL or path).
+	 * @param host		The request's <code>Host</code> header.
+	 * 
+	 * @return			The URL or <code>null</code> (not cacheable).
+	 */
+	private static String getUrl(String target, String host) {
+		
+		int fragment = target.indexOf('#');
+		
+		if (fragment != -1) {
+			
+			target = target.substring(0, fragment);
+			
+		}
+		
+		if (target.regionMatches(true, 0, "http://", 0, 7)) {
+			
+			return target;
+			
+		} else if (target.startsWith("/") && host != null) {
+			
+			return "http://" +host.trim() +target;
+			
+		} else {
+			
+			return null;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the value of the header field with the bypassed name (values 
+	 * of multiple fields are separated by commas).
+	 * 
+	 * @param lines	The header's lines (first line is skipped).
+	 * @param name	The field's name (case-insensitive).
+	 * 
+	 * @return		The field's value or <code>null</code> (no such field).
+	 */
+	private static String getField(String[] lines, String name) {
+		
+		String value = null;
+		
+		for (int i=1; i<lines.length; i++) {
+			
+			String[] nameAndValue = lines[i].split(":", 2);
+			
+			if (	nameAndValue.length == 2
+					&&
+					nameAndValue[0].trim().equalsIgnoreCase(name)
+					) {
+				
+				value = 
+					value == null
+					? nameAndValue[1].trim()
+					: value +", " +nameAndValue[1].trim();
+					
+			}
+			
+		}
+		
+		return value;
+		
+	}
+
+	
+	/**
+	 * Returns the value of the header field with the bypassed name in lower 
+	 * case (or an empty string, if there is no such field).
+	 * 
+	 * @param lines	The header's lines (first line is skipped).
+	 * @param name	The field's name (case-insensitive).
+	 * 
+	 * @return		The field's value (lower case).
+	 */
+	private static String getLowerCaseField(String[] lines, String name) {
+		
+		String value = getField(lines, name);
+		
+		return value == null ? "" : value.toLowerCase(Locale.US);
+		
+	}
+
+	
+	/**
+	 * Indicates whether the bypassed header is complete (ends with an empty 
+	 * line) or not.
+	 * 
+	 * @param header	The header (read so far).
+	 * 
+	 * @return			Whether the header is complete or not.
+	 */
+	private static boolean isEndOfHeader(StringBuilder header) {
+		
+		int length = header.length();
+		
+		if (length == 0 || header.charAt(length - 1) != '\n') {
+			
+			return false;
+			
+		} else if (length == 1 || (length == 2 && header.charAt(0) == '\r')) {
+			
+			return true; // empty line (e. g. between requests)
+			
+		} else if (header.charAt(length - 2) == '\n') {
+			
+			return true;
+			
+		} else {
+			
+			return	length >= 4
+					&&
+					header.charAt(length - 2) == '\r'
+					&&
+					header.charAt(length - 3) == '\n';
+					
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the bytes of the bypassed header (each character is a byte, 
+	 * ISO-8859-1).
+	 * 
+	 * @param header	The header.
+	 * 
+	 * @return			The header's bytes.
+	 */
+	private static byte[] toBytes(StringBuilder header) {
+		
+		byte[] result = new byte[header.length()];
+		
+		for (int i=0; i<result.length; i++) {
+			
+			result[i] = (byte)header.charAt(i);
+			
+		}
+		
+		return result;
+		
+	}
+
+	
+	/**
+	 * Parser state of a channel (the requests sent to the proxy server and 
+	 * the response being received).
+	 */
+	private static final class Exchange {
+		
+		/**
+		 * Indicates whether the channel's data can't be parsed any more 
+		 * (and bypasses the cache) or not.
+		 */
+		private boolean isPassThrough = false;
+		
+		/** Header of the request being received. */
+		private StringBuilder requestHeader = new StringBuilder();
+		
+		/** Bytes of the current request's body, that weren't received yet. */
+		private long remainingRequestBody = 0;
+		
+		/** Requests waiting for their response (oldest first). */
+		private LinkedList<WaitingRequest> waitingRequests = 
+			new LinkedList<WaitingRequest>();
+		
+		/** State of the response parser. */
+		private int responseState = HEADER;
+		
+		/** Header of the response being received. */
+		private StringBuilder responseHeader = new StringBuilder();
+		
+		/**
+		 * Bytes of the current response's body (or chunk), that weren't 
+		 * received yet.
+		 */
+		private long remainingResponseBody = 0;
+		
+		/** Line of a chunked body being received. */
+		private StringBuilder line = new StringBuilder();
+		
+		/**
+		 * Copy of the response being received (<code>null</code>, if it 
+		 * won't be stored).
+		 */
+		private ByteArrayOutputStream storedResponse;
+		
+		/** Maximum length of <code>storedResponse</code>. */
+		private int maxStoredResponseLength;
+		
+		/** See <code>HttpCache.Entry.statusLineLength</code>. */
+		private int statusLineLength;
+		
+		/** See <code>HttpCache.Entry.receivedAt</code>. */
+		private long receivedAt;
+		
+		/** See <code>HttpCache.Entry.initialAge</code>. */
+		private long initialAge;
+		
+		/** See <code>HttpCache.Entry.expiresAt</code>. */
+		private long expiresAt;
+		
+		
+		/**
+		 * Adds the bypassed bytes to <code>storedResponse</code> (if the 
+		 * response shall be stored). Stops copying, if the response gets too 
+		 * large.
+		 * 
+		 * @param data		The data.
+		 * @param offset	Index of the first byte to copy.
+		 * @param length	Number of bytes to copy.
+		 */
+		private void copy(byte[] data, int offset, int length) {
+			
+			if (storedResponse == null) {
+				
+				return;
+				
+			} else if (
+					storedResponse.size() + length > maxStoredResponseLength
+					) {
+				
+				storedResponse = null;
+				
+			} else {
+				
+				storedResponse.write(data, offset, length);
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Prepares parsing the next response.
+		 */
+		private void resetResponse() {
+			
+			responseState = HEADER;
+			responseHeader.setLength(0);
+			remainingResponseBody = 0;
+			line.setLength(0);
+			storedResponse = null;
+			
+		}
+		
+		
+		/**
+		 * Stops parsing the channel's data (it bypasses the cache from now 
+		 * on).
+		 */
+		private void setPassThrough() {
+			
+			isPassThrough = true;
+			waitingRequests.clear();
+			resetResponse();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * A request sent to the proxy server, that waits for its response.
+	 */
+	private static final class WaitingRequest {
+		
+		/** The requested URL (<code>null</code>, if not cacheable). */
+		private final String url;
+		
+		/**
+		 * Indicates whether the request's method is <code>HEAD</code> (the 
+		 * response has no body) or not.
+		 */
+		private final boolean isHead;
+		
+		
+		/**
+		 * Creates a new <code>WaitingRequest</code>.
+		 * 
+		 * @param url		The requested URL (<code>null</code>, if not 
+		 * 					cacheable).
+		 * @param isHead	Whether the request's method is 
+		 * 					<code>HEAD</code> or not.
+		 */
+		private WaitingRequest(String url, boolean isHead) {
+			
+			this.url = url;
+			this.isHead = isHead;
+			
+		}
+		
+	}
+
+}
@@ -0,0 +1,461 @@
+package inputOutputHandler;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import internalInformationPort.InternalInformationPortController;
+
+
+/**
+ * One end of an in-process (full-duplex) connection between two mixes 
+ * running in the same JVM (see property <code>INTER_MIX_TRANSPORT</code> and 
+ * <code>InProcessServerChannel</code>). Used by 
+ * <code>NextMixConnectionHandler</code> and 
+ * <code>PreviousMixConnectionHandler</code> instead of a 
+ * <code>SocketChannel</code>.
+ * <p>
+ * Written buffers are not copied, but handed to the other end through a 
+ * queue (the writer must not modify them afterwards). Reading copies the 
+ * data to the bypassed buffer (like reading from a socket), so the 
+ * <code>InterMixFrameDecoder</code> can be used unchanged.
+ * <p>
+ * Each direction holds at most <code>IN_PROCESS_BUFFER_SIZE</code> bytes 
+ * (written, but not yet taken by the reader). Writing blocks, until enough 
+ * space is available (like writing to a TCP connection with a full send 
+ * buffer), so a slow mix slows down its neighbors instead of making them 
+ * queue data without limit.
+ * <p>
+ * This class is thread-safe (one reading and any number of writing 
+ * threads; reading and writing don't block each other).
+ */
+final class InProcessChannel implements ByteChannel, GatheringByteChannel {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/** Marks the end of the stream (other end closed). */
+	private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+	
+	/**
+	 * Maximum number of bytes written, but not yet read, per direction (see 
+	 * property <code>IN_PROCESS_BUFFER_SIZE</code>).
+	 */
+	private static final int BUFFER_SIZE = 
+		Math.max(1, new Integer(getProperty("IN_PROCESS_BUFFER_SIZE")));
+	
+	/**
+	 * Time (in ms) a blocked writer waits for space before checking whether 
+	 * the connection was closed.
+	 */
+	private static final long CLOSE_CHECK_INTERVAL = 100;
+	
+	/** Buffers written by the other end, but not yet read. */
+	private final BlockingQueue<ByteBuffer> incoming;
+	
+	/** Buffers written by this end (the other end's <code>incoming</code>). */
+	private final BlockingQueue<ByteBuffer> outgoing;
+	
+	/** Free space (in byte) of <code>incoming</code>. */
+	private final Semaphore incomingSpace;
+	
+	/** Free space (in byte) of <code>outgoing</code>. */
+	private final Semaphore outgoingSpace;
+	
+	/** Lock held while reading (reading doesn't block writing). */
+	private final Object readLock = new Object();
+	
+	/** Lock held while writing. */
+	private final Object writeLock = new Object();
+	
+	/** The buffer currently read (<code>null</code>, if none). */
+	private ByteBuffer currentBuffer = null;
+	
+	/** Indicates whether the end of the stream was reached or not. */
+	private boolean isEndOfStream = false;
+	
+	/** Indicates whether this end is open or not. */
+	private volatile boolean isOpen = true;
+	
+	/** The other end of the connection. */
+	private InProcessChannel peer;
+	
+	
+	/**
+	 * Creates a new end of a connection, that reads from 
+	 * <code>incoming</code> and writes to <code>outgoing</code>.
+	 * 
+	 * @param incoming		Queue the other end writes to.
+	 * @param incomingSpace	Free space of <code>incoming</code>.
+	 * @param outgoing		Queue the other end reads from.
+	 * @param outgoingSpace	Free space of <code>outgoing</code>.
+	 * 
+	 * @see #createConnection()
+	 */
+	private InProcessChannel(	BlockingQueue<ByteBuffer> incoming,
+								Semaphore incomingSpace,
+								BlockingQueue<ByteBuffer> outgoing,
+								Semaphore outgoingSpace
+								) {
+		
+		this.incoming = incoming;
+		this.incomingSpace = incomingSpace;
+		this.outgoing = outgoing;
+		this.outgoingSpace = outgoingSpace;
+		
+	}
+
+	
+	/**
+	 * Creates a new connection and returns its two (connected) ends.
+	 * 
+	 * @return	The two ends of the new connection.
+	 */
+	protected static InProcessChannel[] createConnection() {
+		
+		BlockingQueue<ByteBuffer> firstToSecond = 
+			new LinkedBlockingQueue<ByteBuffer>();
+		
+		BlockingQueue<ByteBuffer> secondToFirst = 
+			new LinkedBlockingQueue<ByteBuffer>();
+		
+		Semaphore firstToSecondSpace = new Semaphore(BUFFER_SIZE);
+		Semaphore secondToFirstSpace = new Semaphore(BUFFER_SIZE);
+		
+		InProcessChannel first = 
+			new InProcessChannel(	secondToFirst,
+									secondToFirstSpace,
+									firstToSecond,
+									firstToSecondSpace
+									);
+		
+		InProcessChannel second = 
+			new InProcessChannel(	firstToSecond,
+									firstToSecondSpace,
+									secondToFirst,
+									secondToFirstSpace
+									);
+		
+		first.peer = second;
+		second.peer = first;
+		
+		return new InProcessChannel[] {first, second};
+		
+	}
+
+	
+	/**
+	 * Reads as many bytes as available (at least one) to the bypassed buffer. 
+	 * Blocks, until data is available.
+	 * 
+	 * @param destination	Buffer to read the data to.
+	 * 
+	 * @return				Number of bytes read or <code>-1</code> (end of 
+	 * 						stream).
+	 * 
+	 * @throws IOException	If this end is closed.
+	 */
+	@Override
+	public int read(ByteBuffer destination) throws IOException {
+		
+		synchronized (readLock) {
+			
+			if (!isOpen) {
+				
+				throw new ClosedChannelException();
+				
+			}
+			
+			if (isEndOfStream) {
+				
+				return -1;
+				
+			}
+			
+			int bytesRead = 0;
+			
+			while (destination.hasRemaining()) {
+				
+				if (currentBuffer == null || !currentBuffer.hasRemaining()) {
+					
+					// block only, if nothing was read yet
+					currentBuffer = 
+						(bytesRead == 0) ? take() : incoming.poll();
+					
+					if (currentBuffer == null) { // nothing more available
+						
+						break;
+						
+					} else if (currentBuffer == END_OF_STREAM) {
+						
+						isEndOfStream = true;
+						currentBuffer = null;
+						return (bytesRead == 0) ? -1 : bytesRead;
+						
+					}
+					
+					// buffer taken -> space available for the writer again
+					incomingSpace.release(getSize(currentBuffer));
+					
+				}
+				
+				int length = Math.min(	destination.remaining(),
+										currentBuffer.remaining()
+										);
+				
+				ByteBuffer part = currentBuffer.duplicate();
+				part.limit(part.position() + length);
+				destination.put(part);
+				currentBuffer.position(currentBuffer.position() + length);
+				bytesRead += length;
+				
+			}
+			
+			return bytesRead;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Hands the bypassed buffer to the other end (without copying it).
+	 * 
+	 * @param source	Buffer to write (must not be modified afterwards).
+	 * 
+	 * @return			Number of bytes written.
+	 * 
+	 * @throws IOException	If this end or the other end is closed.
+	 */
+	@Override
+	public int write(ByteBuffer source) throws IOException {
+		
+		return (int)write(new ByteBuffer[] {source}, 0, 1);
+		
+	}
+
+	
+	/**
+	 * Hands the bypassed buffers to the other end (without copying them).
+	 * 
+	 * @param sources	Buffers to write (must not be modified afterwards).
+	 * 
+	 * @return			Number of bytes written.
+	 * 
+	 * @throws IOException	If this end or the other end is closed.
+	 */
+	@Override
+	public long write(ByteBuffer[] sources) throws IOException {
+		
+		return write(sources, 0, sources.length);
+		
+	}
+
+	
+	/**
+	 * Hands the specified buffers to the other end (without copying them). 
+	 * Blocks, until the other end's buffer has enough space for each of 
+	 * them.
+	 * 
+	 * @param sources	Buffers to write (must not be modified afterwards).
+	 * @param offset	Index of the first buffer to write.
+	 * @param length	Number of buffers to write.
+	 * 
+	 * @return			Number of bytes written.
+	 * 
+	 * @throws IOException	If this end is closed or the other end was 
+	 * 						closed (like a broken TCP connection).
+	 */
+	@Override
+	public long write(	ByteBuffer[] sources,
+						int offset,
+						int length
+						) throws IOException {
+		
+		synchronized (writeLock) {
+			
+			checkOpen();
+			long bytesWritten = 0;
+			
+			for (int i=offset; i<offset+length; i++) {
+				
+				if (sources[i].hasRemaining()) {
+					
+					awaitSpace(getSize(sources[i]));
+					bytesWritten += sources[i].remaining();
+					outgoing.add(sources[i].slice());
+					sources[i].position(sources[i].limit());
+					
+				}
+				
+			}
+			
+			return bytesWritten;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Indicates whether this end is open or not.
+	 * 
+	 * @return	Whether this end is open or not.
+	 */
+	@Override
+	public boolean isOpen() {
+		
+		return isOpen;
+		
+	}
+
+	
+	/**
+	 * Closes this end. The other end will read the end of the stream (after 
+	 * all data written before).
+	 */
+	@Override
+	public void close() {
+		
+		if (isOpen) {
+			
+			isOpen = false;
+			outgoing.add(END_OF_STREAM);
+			incoming.add(END_OF_STREAM); // wake up own reader (if waiting)
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Throws an exception, if this end or the other end is closed.
+	 * 
+	 * @throws IOException	If this end is closed or the other end was 
+	 * 						closed.
+	 */
+	private void checkOpen() throws IOException {
+		
+		if (!isOpen) {
+			
+			throw new ClosedChannelException();
+			
+		} else if (!peer.isOpen) {
+			
+			throw new IOException("Connection closed by peer!");
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Blocks, until <code>outgoing</code> has the bypassed amount of free 
+	 * space, and reserves it.
+	 * 
+	 * @param size			Space needed (in byte).
+	 * 
+	 * @throws IOException	If this end or the other end is closed while 
+	 * 						waiting.
+	 */
+	private void awaitSpace(int size) throws IOException {
+		
+		while (true) {
+			
+			try {
+				
+				if (outgoingSpace.tryAcquire(	size,
+												CLOSE_CHECK_INTERVAL,
+												TimeUnit.MILLISECONDS
+												)) {
+					
+					return;
+					
+				}
+				
+			} catch (InterruptedException e) {
+				
+				LOGGER.severe(e.getMessage());
+				
+			}
+			
+			checkOpen();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the space (in byte) the bypassed buffer occupies in a queue 
+	 * (its remaining bytes, but at most <code>BUFFER_SIZE</code>, so a 
+	 * buffer larger than <code>BUFFER_SIZE</code> can be written as well).
+	 * 
+	 * @param buffer	The buffer.
+	 * 
+	 * @return			The space the buffer occupies.
+	 */
+	private static int getSize(ByteBuffer buffer) {
+		
+		return Math.min(buffer.remaining(), BUFFER_SIZE);
+		
+	}
+
+	
+	/**
+	 * Removes and returns the next buffer written by the other end. Blocks, 
+	 * until one is available.
+	 * 
+	 * @return	The next buffer written by the other end.
+	 */
+	private ByteBuffer take() {
+		
+		while (true) {
+			
+			try {
+				
+				return incoming.take();
+				
+			} catch (InterruptedException e) {
+				
+				LOGGER.severe(e.getMessage());
+				continue;
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+}
@@ -0,0 +1,144 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.net.BindException;
+import java.net.ConnectException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+
+
+/**
+ * Accepts in-process connections (see <code>InProcessChannel</code>) from 
+ * mixes running in the same JVM. Counterpart of a 
+ * <code>ServerSocketChannel</code>, used when property 
+ * <code>INTER_MIX_TRANSPORT</code> is set to <code>"IN_PROCESS"</code>.
+ * <p>
+ * Listeners are registered (by port number) in a JVM-wide registry. A mix 
+ * connects to the listener with the port number it would use for TCP (see 
+ * <code>connect()</code>), so the configuration of co-located mixes doesn't 
+ * change (except for <code>INTER_MIX_TRANSPORT</code>).
+ * <p>
+ * This class is thread-safe.
+ */
+final class InProcessServerChannel {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/** All bound listeners (by port number). */
+	private static final ConcurrentHashMap<Integer, InProcessServerChannel>
+		listeners = new ConcurrentHashMap<Integer, InProcessServerChannel>();
+	
+	/** Port number this listener is bound to. */
+	private final int PORT;
+	
+	/** Ends of connections established, but not yet accepted. */
+	private final BlockingQueue<InProcessChannel> pendingConnections = 
+		new LinkedBlockingQueue<InProcessChannel>();
+	
+	
+	/**
+	 * Creates a new listener for the bypassed port number.
+	 * 
+	 * @param port	Port number to listen on.
+	 * 
+	 * @see #bind(int)
+	 */
+	private InProcessServerChannel(int port) {
+		
+		this.PORT = port;
+		
+	}
+
+	
+	/**
+	 * Creates a new listener and binds it to the bypassed port number.
+	 * 
+	 * @param port	Port number to listen on.
+	 * 
+	 * @return		The new listener.
+	 * 
+	 * @throws BindException	If another listener is bound to the port.
+	 */
+	protected static InProcessServerChannel bind(int port)
+			throws BindException {
+		
+		InProcessServerChannel listener = new InProcessServerChannel(port);
+		
+		if (listeners.putIfAbsent(port, listener) != null) {
+			
+			throw new BindException("In-process port " +port +" in use!");
+			
+		}
+		
+		return listener;
+		
+	}
+
+	
+	/**
+	 * Connects to the listener bound to the bypassed port number.
+	 * 
+	 * @param port	Port number of the listener.
+	 * 
+	 * @return		The (connected) local end of the new connection.
+	 * 
+	 * @throws ConnectException	If no listener is bound to the port (yet).
+	 */
+	protected static InProcessChannel connect(int port)
+			throws ConnectException {
+		
+		InProcessServerChannel listener = listeners.get(port);
+		
+		if (listener == null) {
+			
+			throw new ConnectException(	"No in-process listener on port "
+										+port +"!"
+										);
+										
+		}
+		
+		InProcessChannel[] connection = InProcessChannel.createConnection();
+		listener.pendingConnections.add(connection[1]);
+		
+		return connection[0];
+		
+	}
+
+	
+	/**
+	 * Accepts a connection. Blocks, until a mix connects.
+	 * 
+	 * @return	The (connected) local end of the new connection.
+	 */
+	protected InProcessChannel accept() {
+		
+		while (true) {
+			
+			try {
+				
+				return pendingConnections.take();
+				
+			} catch (InterruptedException e) {
+				
+				LOGGER.severe(e.getMessage());
+				continue;
+				
+			}
+			
+		}
+		
+	}
+
+}
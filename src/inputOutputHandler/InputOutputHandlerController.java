@@ -5,13 +5,16 @@ import internalInformationPort.InternalInformationPortController;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Logger;
 
 import architectureInterface.InputOutputHandlerInterface;
 
 import outputStrategy.OutputStrategyController;
 
+import message.BatchSizeMessage;
 import message.Reply;
 import message.ReplyMessage;
 import message.Request;
@@ -32,16 +35,17 @@ import userDatabase.UserDatabaseController;
  * using the classes <code>ClientConnectionHandler</code>, 
  * <code>PreviousMixConnectionHandler</code>, 
  * <code>NextMixConnectionHandler</code> and 
- * <code>ProxyConnectionHandler</code> and stores them in a 
- * <code>ConcurrentLinkedQueue</code>.
+ * <code>ProxyConnectionHandler</code> and stores them in a (bounded) 
+ * <code>BlockingQueue</code> (<code>LinkedBlockingQueue</code> or 
+ * <code>RingBufferQueue</code>).
  * <p>
  * The process of accepting connections and receiving messages works 
  * in parallel to the mix operations. Therefore, the mix is capable of taking 
  * messages at any time (unless it is overloaded).
  * <p>
  * Sends (already mixed) messages to their destination using the same classes 
- * mentioned above. The mixed messages are stored in a 
- * <code>ConcurrentLinkedQueue</code>. The process of sending messages works in 
+ * mentioned above. The mixed messages are stored in a (bounded) 
+ * <code>BlockingQueue</code> as well. The process of sending messages works in 
  * parallel to the mix operations. Therefore, the mix is capable of mixing new 
  * messages while sending the old ones.
  * <p>
@@ -88,33 +92,78 @@ public final class InputOutputHandlerController implements
 	protected final boolean IS_LAST;
 	
 	/**
-	 * A <code>ConcurrentLinkedQueue</code>, that stores <code>Request</code>s 
-	 * until they are processed.
+	 * How connections with <code>Client</code>s are handled: 
+	 * <code>"NIO"</code> (non-blocking I/O, see 
+	 * <code>ClientConnectionHandler</code>) or 
+	 * <code>"THREAD_PER_CONNECTION"</code> (blocking I/O, see 
+	 * <code>BlockingClientConnectionHandler</code>).
 	 */
-	private ConcurrentLinkedQueue<Request> requestInputQueue = 
-		new ConcurrentLinkedQueue<Request>();
+	private final String CLIENT_IO_MODE;
 	
 	/**
-	 * A <code>ConcurrentLinkedQueue</code>, that stores already processed 
-	 * <code>Request</code>s until they are sent (to the next mix or server).
+	 * Maximum number of messages each of the queues below can store. When a 
+	 * queue is full, producers block (or drop messages, see 
+	 * <code>SHED_ON_FULL_QUEUE</code>) until space becomes available.
 	 */
-	private ConcurrentLinkedQueue<Request> requestOutputQueue = 
-		new ConcurrentLinkedQueue<Request>();
+	private final int QUEUE_CAPACITY;
 	
 	/**
-	 * A <code>ConcurrentLinkedQueue</code>, that stores <code>Reply</code>ies 
-	 * until they are processed.
+	 * Indicates whether just received messages are dropped (instead of 
+	 * blocking the receiving thread) when the <code>requestInputQueue</code> 
+	 * or <code>replyInputQueue</code> is full.
 	 */
-	private ConcurrentLinkedQueue<Reply> replyInputQueue = 
-		new ConcurrentLinkedQueue<Reply>();
+	private final boolean SHED_ON_FULL_QUEUE;
 	
 	/**
-	 * A <code>ConcurrentLinkedQueue</code>, that stores already processed 
+	 * Maximum number of messages taken from a queue at once by the threads 
+	 * sending messages (see <code>getProcessedRequests(int)</code> and 
+	 * <code>getProcessedReplies(int)</code>).
+	 */
+	protected final int QUEUE_DRAIN_LIMIT;
+	
+	/**
+	 * Implementation of the queues below: <code>"LINKED"</code> 
+	 * (<code>LinkedBlockingQueue</code>) or <code>"RING"</code> 
+	 * (<code>RingBufferQueue</code>).
+	 */
+	private final String QUEUE_IMPLEMENTATION;
+	
+	/**
+	 * Number of (parallel) connections the link with each neighbored mix 
+	 * consists of. Each connection has its own ciphers and its own 
+	 * output queue (see <code>requestOutputQueues</code> and 
+	 * <code>replyOutputQueues</code>). The messages of a channel are always 
+	 * sent via the same connection.
+	 */
+	protected final int NUMBER_OF_INTER_MIX_CONNECTIONS;
+	
+	/**
+	 * A (bounded) <code>BlockingQueue</code>, that stores 
+	 * <code>Request</code>s until they are processed.
+	 */
+	private final BlockingQueue<Request> requestInputQueue;
+	
+	/**
+	 * (Bounded) <code>BlockingQueue</code>s, that store already processed 
+	 * <code>Request</code>s until they are sent (to the next mix or server). 
+	 * One queue for each connection with the next mix (accessible by 
+	 * connection index) or a single queue (last mix).
+	 */
+	private final ArrayList<BlockingQueue<Request>> requestOutputQueues;
+	
+	/**
+	 * A (bounded) <code>BlockingQueue</code>, that stores 
+	 * <code>Reply</code>ies until they are processed.
+	 */
+	private final BlockingQueue<Reply> replyInputQueue;
+	
+	/**
+	 * (Bounded) <code>BlockingQueue</code>s, that store already processed 
 	 * <code>Reply</code>ies until they are sent (to the previous mix or 
-	 * client).
+	 * client). One queue for each connection with the previous mix 
+	 * (accessible by connection index) or a single queue (first mix).
 	 */
-	private ConcurrentLinkedQueue<Reply> replyOutputQueue = 
-		new ConcurrentLinkedQueue<Reply>();
+	private final ArrayList<BlockingQueue<Reply>> replyOutputQueues;
 	
 	/** 
 	 * Reference on <code>ClientConnectionHandler</code>. Used to exchange 
@@ -122,12 +171,6 @@ public final class InputOutputHandlerController implements
 	 */
 	private ClientConnectionHandler clientConnectionHandler;
 	
-	/** 
-	 * Reference on <code>PreviousMixConnectionHandler</code>. Used to exchange 
-	 * <code>Message</code>s with previous <code>Mix</code>.
-	 */
-	private PreviousMixConnectionHandler previousMixConnectionHandler;
-	
 	/**  
 	 * Reference on <code>ReplyDecision</code>. Used to determine reply size by 
 	 * last mix of cascade.
@@ -169,7 +212,37 @@ public final class InputOutputHandlerController implements
 		this.IS_FIRST = (NUMBER_OF_PREVIOUS_HOPS == 0) ? true : false;
 		this.IS_LAST = (NUMBER_OF_FURTHER_HOPS == 0) ? true : false;
 		
+		this.CLIENT_IO_MODE = getProperty("CLIENT_IO_MODE").trim();
+		
+		int queueCapacity = new Integer(getProperty("QUEUE_CAPACITY"));
+		this.QUEUE_CAPACITY = 
+			(queueCapacity <= 0) ? Integer.MAX_VALUE : queueCapacity;
+		
+		this.SHED_ON_FULL_QUEUE = 
+			getProperty("QUEUE_FULL_POLICY").trim().equalsIgnoreCase("SHED");
+		
+		this.QUEUE_DRAIN_LIMIT = 
+			Math.max(1, new Integer(getProperty("QUEUE_DRAIN_LIMIT")));
+		
+		this.QUEUE_IMPLEMENTATION = getProperty("QUEUE_IMPLEMENTATION").trim();
+		
+		int numberOfInterMixConnections = 
+			new Integer(getProperty("NUMBER_OF_INTER_MIX_CONNECTIONS"));
+		this.NUMBER_OF_INTER_MIX_CONNECTIONS = 
+			Math.max(1, numberOfInterMixConnections);
+		
+		this.requestInputQueue = this.<Request>createQueue();
+		this.replyInputQueue = this.<Reply>createQueue();
 		
+		this.requestOutputQueues = 
+			this.<Request>createQueues(
+					IS_LAST ? 1 : NUMBER_OF_INTER_MIX_CONNECTIONS
+					);
+		
+		this.replyOutputQueues = 
+			this.<Reply>createQueues(
+					IS_FIRST ? 1 : NUMBER_OF_INTER_MIX_CONNECTIONS
+					);
 		
 	}
 	
@@ -196,6 +269,13 @@ public final class InputOutputHandlerController implements
 		this.externalInformationPort = eip;
 		
 		this.replyDecision = new ReplyDecision(this);
+		
+		if (IS_LAST) {
+			
+			replyDecision.managePushProcess(userDatabase);
+			
+		}
+		
 		logInformation();
 		
 	}
@@ -211,53 +291,133 @@ public final class InputOutputHandlerController implements
 		// start connection handlers
 		if (IS_FIRST && IS_LAST) { // single mix
 			
-			clientConnectionHandler = 
-				new ClientConnectionHandler(this, userDatabase, outputStrategy);
-			
 			new ProxyConnectionHandler(this);
 			
-			clientConnectionHandler.acceptConnections();
+			acceptClientConnections();
 			
 		} else if (NUMBER_OF_PREVIOUS_HOPS == 0) { // first mix of cascade
 			
-			clientConnectionHandler = 
-				new ClientConnectionHandler(this, userDatabase, outputStrategy);
+			connectToNextMix();
 			
-			new NextMixConnectionHandler(	this, 
-											userDatabase, 
-											externalInformationPort
-											);
-			
-			clientConnectionHandler.acceptConnections();
+			acceptClientConnections();
 			
 		} else if (NUMBER_OF_FURTHER_HOPS == 0) { // last mix of cascade
 			
-			previousMixConnectionHandler = 
-				new PreviousMixConnectionHandler(	this, 
-													userDatabase, 
-													outputStrategy,
-													externalInformationPort
-													);
+			PreviousMixConnectionHandler[] previousMixConnectionHandlers = 
+				createPreviousMixConnectionHandlers();
 			
 			new ProxyConnectionHandler(this);
 			
-			previousMixConnectionHandler.acceptConnection();
+			acceptPreviousMixConnections(previousMixConnectionHandlers);
 			
 		} else { // "middle" mix of cascade (not last and not first)
 			
-			previousMixConnectionHandler = 
+			PreviousMixConnectionHandler[] previousMixConnectionHandlers = 
+				createPreviousMixConnectionHandlers();
+			
+			connectToNextMix();
+			
+			acceptPreviousMixConnections(previousMixConnectionHandlers);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Creates a <code>NextMixConnectionHandler</code> for each connection of 
+	 * the link with the next mix (see 
+	 * <code>NUMBER_OF_INTER_MIX_CONNECTIONS</code>).
+	 */
+	private void connectToNextMix() {
+		
+		for (int i=0; i<NUMBER_OF_INTER_MIX_CONNECTIONS; i++) {
+			
+			new NextMixConnectionHandler(	this,
+											userDatabase,
+											outputStrategy,
+											externalInformationPort,
+											i
+											);
+											
+		}
+		
+	}
+
+	
+	/**
+	 * Creates a <code>PreviousMixConnectionHandler</code> for each 
+	 * connection of the link with the previous mix (see 
+	 * <code>NUMBER_OF_INTER_MIX_CONNECTIONS</code>).
+	 * 
+	 * @return	The created <code>PreviousMixConnectionHandler</code>s 
+	 * 			(accessible by connection index).
+	 */
+	private PreviousMixConnectionHandler[]
+			createPreviousMixConnectionHandlers() {
+		
+		PreviousMixConnectionHandler[] previousMixConnectionHandlers = 
+			new PreviousMixConnectionHandler[NUMBER_OF_INTER_MIX_CONNECTIONS];
+		
+		for (int i=0; i<NUMBER_OF_INTER_MIX_CONNECTIONS; i++) {
+			
+			previousMixConnectionHandlers[i] = 
 				new PreviousMixConnectionHandler(	this, 
 													userDatabase, 
 													outputStrategy,
-													externalInformationPort
+													externalInformationPort,
+													i
 													);
 			
-			new NextMixConnectionHandler(	this, 
-											userDatabase, 
-											externalInformationPort
-											);
+		}
+		
+		return previousMixConnectionHandlers;
+		
+	}
+
+	
+	/**
+	 * Makes the bypassed <code>PreviousMixConnectionHandler</code>s listen 
+	 * for (and accept) the connections of the previous mix.
+	 * 
+	 * @param previousMixConnectionHandlers	The handlers (one for each 
+	 * 										connection of the link).
+	 */
+	private static void acceptPreviousMixConnections(
+			PreviousMixConnectionHandler[] previousMixConnectionHandlers
+			) {
+		
+		for (PreviousMixConnectionHandler handler
+				: previousMixConnectionHandlers) {
+			
+			handler.acceptConnection();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Starts the handler for connections with <code>Client</code>s specified 
+	 * by <code>CLIENT_IO_MODE</code>.
+	 * 
+	 * @see #CLIENT_IO_MODE
+	 */
+	private void acceptClientConnections() {
+		
+		if (CLIENT_IO_MODE.equalsIgnoreCase("THREAD_PER_CONNECTION")) {
+			
+			new BlockingClientConnectionHandler(	this,
+													userDatabase,
+													outputStrategy
+													).acceptConnections();
+													
+		} else { // NIO
 			
-			previousMixConnectionHandler.acceptConnection();
+			clientConnectionHandler = 
+				new ClientConnectionHandler(this, userDatabase, outputStrategy);
+			
+			clientConnectionHandler.acceptConnections();
 			
 		}
 		
@@ -331,31 +491,45 @@ public final class InputOutputHandlerController implements
 	
 	/**
 	 * Adds the bypassed (already mixed) <code>Request</code> to the 
-	 * <code>requestOutputQueue</code> (from where it will be sent to its 
-	 * destination).
+	 * <code>requestOutputQueue</code> of the connection its channel is 
+	 * assigned to (from where it will be sent to its destination). A 
+	 * <code>BatchSizeMessage</code> is added to the queues of all 
+	 * connections, so the next mix can assign the requests received via each 
+	 * connection to their round.
 	 * <p>
 	 * Returns immediately (asynchronous behavior), the process of sending 
-	 * itself may be deferred (e. g. if communication channel is busy).
+	 * itself may be deferred (e. g. if communication channel is busy). Blocks 
+	 * only, if the <code>requestOutputQueue</code> is full (backpressure).
 	 * <p>
-	 * Assures order (queuing strategy) and is thread-safe.
+	 * Assures order (queuing strategy) per channel and is thread-safe.
 	 * <p>
 	 * Used by component <code>OutputStrategy</code>.
 	 * 
 	 * @param request 	Already processed message, that shall be sent to the 
 	 * 					next communication partner.
 	 * 
-	 * @see #getProcessedRequest()
+	 * @see #getProcessedRequests(int, int)
 	 * @see #addRequests(Request[])
 	 */
 	@Override
 	public void addRequest(Request request) {
 		
-		synchronized (requestOutputQueue) {
-
-			requestOutputQueue.add(request);
+		if (request instanceof BatchSizeMessage) {
+			
+			for (BlockingQueue<Request> queue: requestOutputQueues) {
+				
+				put(queue, request);
+				
+			}
+			
+		} else {
 			
-			// notify waiting "getRequest()" about the newly received message
-			requestOutputQueue.notify();			
+			int connection = 
+				getConnectionIndex(	request.getNextMixChannelID(),
+									requestOutputQueues.size()
+									);
+			
+			put(requestOutputQueues.get(connection), request);
 			
 		}
 	
@@ -368,7 +542,8 @@ public final class InputOutputHandlerController implements
 	 * destination).
 	 * <p>
 	 * Returns immediately (asynchronous behavior), the process of sending 
-	 * itself may be deferred (e. g. if communication channel is busy).
+	 * itself may be deferred (e. g. if communication channel is busy). Blocks 
+	 * only, if the <code>requestOutputQueue</code> is full (backpressure).
 	 * <p>
 	 * Assures order (queuing strategy) and is thread-safe.
 	 * <p>
@@ -377,7 +552,7 @@ public final class InputOutputHandlerController implements
 	 * @param requests 	Already processed messages, that shall be sent to the 
 	 * 					next communication partner.
 	 * 
-	 * @see #getProcessedRequest()
+	 * @see #getProcessedRequests(int, int)
 	 * @see #addRequest(Request)
 	 */
 	@Override
@@ -407,36 +582,47 @@ public final class InputOutputHandlerController implements
 
 
 	/**
-	 * Returns an (already mixed) <code>Request</code> from the 
-	 * <code>requestOutputQueue</code>. If no requests are available, this 
-	 * method blocks until a new <code>Request</code> arrives.
+	 * Returns up to <code>maxNumberOfRequests</code> (already mixed) 
+	 * <code>Request</code>s from the <code>requestOutputQueue</code> (of the 
+	 * first connection) at once. If no requests are available, this method 
+	 * blocks until a new <code>Request</code> arrives.
 	 * <p>
 	 * Assures order (queuing strategy) and is thread-safe.
 	 * 
-	 * @return 	An (already mixed) <code>Request</code>.
-	 */
-	protected Request getProcessedRequest() {
-		
-		synchronized (requestOutputQueue) {
-			
-			Request request = null;
-			
-			while ((request = requestOutputQueue.poll()) == null) {
-					
-				try {
-						
-					// wait for new messages in the requestOutputQueue
-					// = wait for notification at "addRequest()"
-					requestOutputQueue.wait();
-						
-				} catch (InterruptedException e) {
-						
-					LOGGER.severe(e.getMessage());
-					continue;
-						
-				}
-					
-			}
+	 * @param maxNumberOfRequests	Maximum number of requests to return.
+	 * 
+	 * @return 	At least one (already mixed) <code>Request</code>.
+	 * 
+	 * @see #getProcessedRequests(int, int)
+	 */
+	protected Request[] getProcessedRequests(int maxNumberOfRequests) {
+		
+		return getProcessedRequests(0, maxNumberOfRequests);
+		
+	}
+
+	
+	/**
+	 * Returns up to <code>maxNumberOfRequests</code> (already mixed) 
+	 * <code>Request</code>s from the <code>requestOutputQueue</code> of the 
+	 * specified connection (with the next mix) at once. If no requests are 
+	 * available, this method blocks until a new <code>Request</code> arrives.
+	 * <p>
+	 * Assures order (queuing strategy) and is thread-safe.
+	 * 
+	 * @param connection			Index of the connection.
+	 * @param maxNumberOfRequests	Maximum number of requests to return.
+	 * 
+	 * @return 	At least one (already mixed) <code>Request</code>.
+	 */
+	protected Request[] getProcessedRequests(	int connection,
+												int maxNumberOfRequests
+												) {
+		
+		ArrayList<Request> requests = 
+			drain(requestOutputQueues.get(connection), maxNumberOfRequests);
+		
+		for (Request request: requests) {
 			
 			LOGGER.fine(	"(MIX" 
 							+POSITION_OF_MIX_IN_CASCADE 
@@ -444,37 +630,83 @@ public final class InputOutputHandlerController implements
 							+request.getChannelID() + ":" 
 							+request.getMessageID() + "."
 							);
-	
-			return request;
-
+							
 		}
+		
+		return requests.toArray(new Request[requests.size()]);
 
 	}
 	
 
+	/**
+	 * Notifies the <code>ReplyDecision</code> about new data in the bypassed 
+	 * <code>User</code>'s proxy read buffer (called by the 
+	 * <code>ProxyConnectionHandler</code>/<code>ProxyConnector</code>, 
+	 * whenever data was received from the proxy server).
+	 * 
+	 * @param channel	<code>User</code> data was received for.
+	 * 
+	 * @see ReplyDecision#dataAvailable(User)
+	 */
+	protected void proxyDataReceived(User channel) {
+		
+		replyDecision.dataAvailable(channel);
+		
+	}
+
+	
 	/**
 	 * Adds the bypassed (just received) <code>Request</code> to the 
 	 * <code>requestInputQueue</code> (from where it will be taken by 
 	 * component <code>MessageProcessor</code> via <code>getRequest()</code>).
 	 * <p>
+	 * If the <code>requestInputQueue</code> is full, this method either 
+	 * blocks or drops the bypassed request (see 
+	 * <code>SHED_ON_FULL_QUEUE</code>).
+	 * <p>
 	 * Assures order (queuing strategy) and is thread-safe.
 	 * 
 	 * @param request 	Just received message, that shall be added.
 	 */
 	protected void addUnprocessedRequest(Request request) {
 		
-		synchronized (requestInputQueue) {
+		if (SHED_ON_FULL_QUEUE) {
 			
-			requestInputQueue.add(request);
+			if (!requestInputQueue.offer(request)) {
+				
+				LOGGER.warning(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+								+" IOH) Request input queue full! Dropped "
+								+"request on channel "
+								+request.getChannelID()
+								);
+								
+			}
+			
+		} else {
+			
+			put(requestInputQueue, request);
 			
-			// notify waiting "getRequest()" about the newly received message
-			requestInputQueue.notify();
-	
 		}
 		
 	}
 	
 	
+	/**
+	 * Returns the number of <code>Request</code>s in the 
+	 * <code>requestInputQueue</code>, that weren't taken by component 
+	 * <code>MessageProcessor</code> yet (which performs the asymmetric 
+	 * decryption of <code>ChannelEstablishMessage</code>s). Used for 
+	 * admission control (see <code>AdmissionController</code>).
+	 * 
+	 * @return	The number of unprocessed <code>Request</code>s.
+	 */
+	protected int getNumberOfUnprocessedRequests() {
+		
+		return requestInputQueue.size();
+		
+	}
+
+	
 	/**
 	 * Returns a <code>Request</code> (previously received, unprocessed) from a 
 	 * communication partner (e. g. client or other mix). If no 
@@ -488,64 +720,37 @@ public final class InputOutputHandlerController implements
 	@Override
 	public Request getRequest() {
 		
-		synchronized (requestInputQueue) {
-			
-			Request request = null;
-			
-			// as long as the forwardInputQueue is empty
-			while ((request = requestInputQueue.poll()) == null) {
-					
-				try {
-						
-					// wait for new messages in the requestInputQueue
-					// = wait for notification at "addRequest()"
-					requestInputQueue.wait();
-						
-				} catch (InterruptedException e) {
-
-					LOGGER.severe(e.getMessage());
-					continue;
-						
-				}
-					
-			}
-			
-			return request;
-
-		}
+		return take(requestInputQueue);
 		
 	}
 
 	
 	/**
 	 * Adds the bypassed (already mixed) <code>Reply</code> to the 
-	 * <code>replyOutputQueue</code> (from where it will be sent to its 
-	 * destination).
+	 * <code>replyOutputQueue</code> of the connection its channel is assigned 
+	 * to (from where it will be sent to its destination).
 	 * <p>
 	 * Returns immediately (asynchronous behavior), the process of sending 
-	 * itself may be deferred (e. g. if communication channel is busy).
+	 * itself may be deferred (e. g. if communication channel is busy). Blocks 
+	 * only, if the <code>replyOutputQueue</code> is full (backpressure).
 	 * <p>
-	 * Assures order (queuing strategy) and is thread-safe.
+	 * Assures order (queuing strategy) per channel and is thread-safe.
 	 * <p>
 	 * Used by component <code>OutputStrategy</code>.
 	 * 
 	 * @param reply 	Already processed message, that shall be sent to the 
 	 * 					next communication partner.
 	 * 
-	 * @see #getProcessedReply()
+	 * @see #getProcessedReplies(int, int)
 	 * @see #addReplies(Reply[])
 	 */
 	@Override
 	public void addReply(Reply reply) {
 		
-		synchronized (replyOutputQueue) {
-
-			replyOutputQueue.add(reply);
-			
-			// notify waiting "getReply()" about the newly received message
-			replyOutputQueue.notify();			
-			
-		}
+		int connection = 
+			getConnectionIndex(reply.getChannelID(), replyOutputQueues.size());
+		
+		put(replyOutputQueues.get(connection), reply);
 	
 	}
 	
@@ -556,7 +761,8 @@ public final class InputOutputHandlerController implements
 	 * destination).
 	 * <p>
 	 * Returns immediately (asynchronous behavior), the process of sending 
-	 * itself may be deferred (e. g. if communication channel is busy).
+	 * itself may be deferred (e. g. if communication channel is busy). Blocks 
+	 * only, if the <code>replyOutputQueue</code> is full (backpressure).
 	 * <p>
 	 * Assures order (queuing strategy) and is thread-safe.
 	 * <p>
@@ -565,7 +771,7 @@ public final class InputOutputHandlerController implements
 	 * @param replies 	Already processed messages, that shall be sent to the 
 	 * 					next communication partner.
 	 * 
-	 * @see #getProcessedReply()
+	 * @see #getProcessedReplies(int, int)
 	 * @see #addReply(Reply)
 	 */
 	@Override
@@ -581,46 +787,56 @@ public final class InputOutputHandlerController implements
 	
 
 	/**
-	 * Returns an (already mixed) <code>Reply</code> from the 
-	 * <code>replyOutputQueue</code>. If no replies are available, this 
-	 * method blocks until a new <code>Reply</code> arrives.
+	 * Returns up to <code>maxNumberOfReplies</code> (already mixed) 
+	 * <code>Reply</code>ies from the <code>replyOutputQueue</code> (of the 
+	 * first connection) at once. If no replies are available, this method 
+	 * blocks until a new <code>Reply</code> arrives.
 	 * <p>
 	 * Assures order (queuing strategy) and is thread-safe.
 	 * 
-	 * @return 	An (already mixed) <code>Reply</code>.
-	 */
-	protected Reply getProcessedReply() {
-		
-		synchronized (replyOutputQueue) {
-			
-			Reply reply = null;
-			
-			// as long as the replyOutputQueue is empty
-			while ((reply = replyOutputQueue.poll()) == null) {
-					
-				try {
-						
-					// wait for new messages in the replyOutputQueue
-					// = wait for notification at "addReply()"
-					replyOutputQueue.wait();
-						
-				} catch (InterruptedException e) {
-						
-					LOGGER.severe(e.getMessage());
-					continue;
-						
-				}
-					
-			}
+	 * @param maxNumberOfReplies	Maximum number of replies to return.
+	 * 
+	 * @return 	At least one (already mixed) <code>Reply</code>.
+	 * 
+	 * @see #getProcessedReplies(int, int)
+	 */
+	protected Reply[] getProcessedReplies(int maxNumberOfReplies) {
+		
+		return getProcessedReplies(0, maxNumberOfReplies);
+		
+	}
+
+	
+	/**
+	 * Returns up to <code>maxNumberOfReplies</code> (already mixed) 
+	 * <code>Reply</code>ies from the <code>replyOutputQueue</code> of the 
+	 * specified connection (with the previous mix) at once. If no replies are 
+	 * available, this method blocks until a new <code>Reply</code> arrives.
+	 * <p>
+	 * Assures order (queuing strategy) and is thread-safe.
+	 * 
+	 * @param connection			Index of the connection.
+	 * @param maxNumberOfReplies	Maximum number of replies to return.
+	 * 
+	 * @return 	At least one (already mixed) <code>Reply</code>.
+	 */
+	protected Reply[] getProcessedReplies(	int connection,
+											int maxNumberOfReplies
+											) {
+		
+		ArrayList<Reply> replies = 
+			drain(replyOutputQueues.get(connection), maxNumberOfReplies);
+		
+		for (Reply reply: replies) {
 			
 			LOGGER.fine(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
 							+" IOH) Putting out reply on channel "
 							+reply.getChannelID()
 							);
-
-			return reply;
-
+							
 		}
+		
+		return replies.toArray(new Reply[replies.size()]);
 
 	}
 	
@@ -630,19 +846,32 @@ public final class InputOutputHandlerController implements
 	 * <code>replyInputQueue</code> (from where it will be taken by 
 	 * component <code>MessageProcessor</code> via <code>getReply()</code>).
 	 * <p>
+	 * If the <code>replyInputQueue</code> is full, this method either 
+	 * blocks or drops the bypassed reply (see 
+	 * <code>SHED_ON_FULL_QUEUE</code>).
+	 * <p>
 	 * Assures order (queuing strategy) and is thread-safe.
 	 * 
 	 * @param message 	Message just received, that shall be added.
 	 */
 	protected void addUnprocessedReply(ReplyMessage message) {
 		
-		synchronized (replyInputQueue) {
+		if (SHED_ON_FULL_QUEUE) {
+			
+			if (!replyInputQueue.offer(message)) {
+				
+				LOGGER.warning(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+								+" IOH) Reply input queue full! Dropped "
+								+"reply on channel "
+								+message.getChannelID()
+								);
+								
+			}
 			
-			replyInputQueue.add(message);
+		} else {
+			
+			put(replyInputQueue, message);
 			
-			// notify waiting "getReply()" about the newly received message
-			replyInputQueue.notify();
-	
 		}
 		
 	}
@@ -661,33 +890,181 @@ public final class InputOutputHandlerController implements
 	@Override
 	public Reply getReply() {
 		
-		synchronized (replyInputQueue) {
-			
-			Reply reply = null;
-			
-			// as long as the replyInputQueue is empty
-			while ((reply = (Reply) replyInputQueue.poll()) == null) {
-					
-				try {
-						
-					// wait for new messages in the replyInputQueue
-					// = wait for notification at "addReply()"
-					replyInputQueue.wait();
-						
-				} catch (InterruptedException e) {
-
-					LOGGER.severe(e.getMessage());
-					continue;
-						
-				}
-					
+		return take(replyInputQueue);
+		
+	}
+
+	
+	/**
+	 * Creates a new (empty) queue for the hand-off of messages between two 
+	 * stages of the mix, as specified by <code>QUEUE_IMPLEMENTATION</code> 
+	 * and <code>QUEUE_CAPACITY</code>.
+	 * 
+	 * @return	A new (empty) queue.
+	 */
+	private <E> BlockingQueue<E> createQueue() {
+		
+		if (QUEUE_IMPLEMENTATION.equalsIgnoreCase("RING")) {
+			
+			if (QUEUE_CAPACITY == Integer.MAX_VALUE) {
+				
+				LOGGER.severe(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+								+" IOH) QUEUE_IMPLEMENTATION \"RING\" "
+								+"requires a bounded QUEUE_CAPACITY!"
+								);
+				
+				System.exit(1);
+				
 			}
 			
-			return reply;
+			return new RingBufferQueue<E>(QUEUE_CAPACITY);
+			
+		} else if (QUEUE_IMPLEMENTATION.equalsIgnoreCase("LINKED")) {
+			
+			return new LinkedBlockingQueue<E>(QUEUE_CAPACITY);
+			
+		} else {
+			
+			LOGGER.severe(	"(MIX" +POSITION_OF_MIX_IN_CASCADE
+							+" IOH) Unknown QUEUE_IMPLEMENTATION: "
+							+QUEUE_IMPLEMENTATION
+							);
+			
+			System.exit(1);
+			return null;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Creates the bypassed number of (empty) queues (see 
+	 * <code>createQueue()</code>).
+	 * 
+	 * @param numberOfQueues	Number of queues to create.
+	 * 
+	 * @return					The new (empty) queues.
+	 */
+	private <E> ArrayList<BlockingQueue<E>> createQueues(int numberOfQueues) {
+		
+		ArrayList<BlockingQueue<E>> queues = 
+			new ArrayList<BlockingQueue<E>>(numberOfQueues);
+		
+		for (int i=0; i<numberOfQueues; i++) {
+			
+			queues.add(this.<E>createQueue());
+			
+		}
+		
+		return queues;
+		
+	}
+
+	
+	/**
+	 * Returns the index of the connection (with a neighbored mix) the 
+	 * channel with the bypassed identifier is assigned to. All messages of a 
+	 * channel are sent via the same connection (preserves their order).
+	 * 
+	 * @param channelID				Identifier of the channel.
+	 * @param numberOfConnections	Number of connections available.
+	 * 
+	 * @return						Index of the connection.
+	 */
+	private static int getConnectionIndex(	int channelID,
+											int numberOfConnections
+											) {
+		
+		return (channelID & Integer.MAX_VALUE) % numberOfConnections;
+		
+	}
+
+	
+	/**
+	 * Adds the bypassed element to the bypassed queue. If the queue is full, 
+	 * this method blocks until space becomes available.
+	 * 
+	 * @param queue		The queue to add the element to.
+	 * @param element	The element to add.
+	 */
+	private static <E> void put(BlockingQueue<E> queue, E element) {
+		
+		while (true) {
+			
+			try {
+				
+				queue.put(element);
+				return;
+				
+			} catch (InterruptedException e) {
+				
+				LOGGER.severe(e.getMessage());
+				continue;
+				
+			}
+			
+		}
+		
+	}
 
+	
+	/**
+	 * Removes and returns the first element of the bypassed queue. If the 
+	 * queue is empty, this method blocks until an element arrives.
+	 * 
+	 * @param queue	The queue to take the element from.
+	 * 
+	 * @return		The first element of the queue.
+	 */
+	private static <E> E take(BlockingQueue<E> queue) {
+		
+		while (true) {
+			
+			try {
+				
+				return queue.take();
+				
+			} catch (InterruptedException e) {
+				
+				LOGGER.severe(e.getMessage());
+				continue;
+				
+			}
+			
 		}
 		
 	}
+
+	
+	/**
+	 * Removes and returns up to <code>maxElements</code> elements of the 
+	 * bypassed queue at once (in order). If the queue is empty, this method 
+	 * blocks until an element arrives. Waiting threads are woken up once per 
+	 * call instead of once per element.
+	 * 
+	 * @param queue			The queue to drain.
+	 * @param maxElements	Maximum number of elements to return.
+	 * 
+	 * @return				At least one element of the queue.
+	 */
+	private static <E> ArrayList<E> drain(
+			BlockingQueue<E> queue,
+			int maxElements
+			) {
+		
+		ArrayList<E> elements = new ArrayList<E>(Math.max(1, maxElements));
+		elements.add(take(queue));
+		
+		if (maxElements > 1) {
+			
+			queue.drainTo(elements, maxElements - 1);
+			
+		}
+		
+		return elements;
+		
+	}
 	
 	
 	/**
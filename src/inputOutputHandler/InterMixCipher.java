@@ -0,0 +1,462 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.security.GeneralSecurityException;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+
+/**
+ * Cipher used to encrypt/decrypt the multiplex-headers (and frame headers, 
+ * see <code>InterMixFrame</code>) of messages sent between two neighbored 
+ * mixes in one direction. Two modes are supported (see property 
+ * <code>INTER_MIX_CIPHER_MODE</code>):
+ * <p>
+ * <code>"STREAM"</code>: A single <code>Cipher</code> (as specified by 
+ * <code>INTER_MIX_CRYPTOGRAPHY_ALGORITHM</code>, e. g. OFB), whose state 
+ * advances with each block. Blocks must be encrypted and decrypted strictly 
+ * in the order they are sent. The <code>Cipher</code> must be reset, when the 
+ * connection is lost.
+ * <p>
+ * <code>"COUNTER"</code>: Counter mode with explicit counters. The key stream 
+ * for a block is derived from the initialization vector, the direction 
+ * (requests or replies), the number of the frame the block is sent in and the 
+ * index of the record (message) within that frame. Therefore, blocks can be 
+ * encrypted and decrypted by several threads and in any order, and no 
+ * reset is needed after a reconnect (frame numbers are sent in plaintext, see 
+ * <code>InterMixFrame</code>). Frame numbers are never reused under the same 
+ * key: The sender starts counting at its creation time (in ms, shifted left 
+ * by <code>TIMESTAMP_SHIFT</code> bits), so a sender recreated with the same 
+ * key (e. g. when the previous mix was restarted and retrieved the key of 
+ * the running next mix again) continues above all numbers used before. The 
+ * receiver rejects frame numbers it has already seen or that are older than 
+ * the last <code>REPLAY_WINDOW_SIZE</code> frame numbers (see 
+ * <code>isFreshFrameNumber()</code>), so recorded frames can't be replayed.
+ * <p>
+ * This class is thread-safe in counter mode only.
+ */
+final class InterMixCipher {
+	
+	/** Direction of messages sent from the previous to the next mix. */
+	protected static final int REQUESTS = 0;
+	
+	/** Direction of messages sent from the next to the previous mix. */
+	protected static final int REPLIES = 1;
+	
+	/**
+	 * Number of bits the creation time is shifted to get the first frame 
+	 * number (allows 2^20 frames per ms before a recreated sender could 
+	 * reuse a frame number).
+	 */
+	private static final int TIMESTAMP_SHIFT = 20;
+	
+	/**
+	 * Number of frame numbers (below the highest one received) the receiver 
+	 * remembers (frames may arrive out of order when a link is striped over 
+	 * several connections).
+	 */
+	private static final int REPLAY_WINDOW_SIZE = 1024;
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Indicates whether this cipher works in counter mode or not. */
+	private final boolean IS_COUNTER_MODE;
+	
+	/** Block size of the underlying cipher. */
+	private final int BLOCK_SIZE;
+	
+	/**
+	 * Direction of the messages this cipher is used for (<code>REQUESTS</code> 
+	 * or <code>REPLIES</code>).
+	 */
+	private final int DIRECTION;
+	
+	/** Operation mode (<code>Cipher.ENCRYPT_MODE/DECRYPT_MODE</code>). */
+	private final int OPERATION_MODE;
+	
+	/** Key used for en-/decryption. */
+	private final SecretKey key;
+	
+	/** Initialization vector used for en-/decryption. */
+	private final IvParameterSpec iv;
+	
+	/** The (stateful) <code>Cipher</code> used in stream mode. */
+	private Cipher streamCipher;
+	
+	/**
+	 * The block ciphers used to generate the key stream in counter mode (one 
+	 * for each thread, since <code>Cipher</code>s aren't thread-safe).
+	 */
+	private ThreadLocal<Cipher> blockCiphers;
+	
+	/** Number of the next frame to send (counter mode only). */
+	private AtomicLong nextFrameNumber = 
+		new AtomicLong(System.currentTimeMillis() << TIMESTAMP_SHIFT);
+	
+	/** Highest frame number received (counter mode only). */
+	private long highestFrameNumber = -1;
+	
+	/**
+	 * Frame numbers received (bit <code>frameNumber % REPLAY_WINDOW_SIZE 
+	 * </code>) within the last <code>REPLAY_WINDOW_SIZE</code> frame numbers 
+	 * (counter mode only).
+	 */
+	private BitSet replayWindow = new BitSet(REPLAY_WINDOW_SIZE);
+	
+	
+	/**
+	 * Creates a new <code>InterMixCipher</code> in the mode specified by 
+	 * property <code>INTER_MIX_CIPHER_MODE</code>.
+	 * 
+	 * @param operationMode	<code>Cipher.ENCRYPT_MODE</code> or 
+	 * 						<code>Cipher.DECRYPT_MODE</code>.
+	 * @param key			Key used for en-/decryption.
+	 * @param iv			Initialization vector used for en-/decryption.
+	 * @param direction		Direction of the messages this cipher is used 
+	 * 						for (<code>REQUESTS</code> or 
+	 * 						<code>REPLIES</code>).
+	 * 
+	 * @throws GeneralSecurityException	If the cipher can't be set up.
+	 */
+	protected InterMixCipher(	int operationMode,
+								SecretKey key,
+								IvParameterSpec iv,
+								int direction
+								) throws GeneralSecurityException {
+		
+		String mode = getProperty("INTER_MIX_CIPHER_MODE").trim();
+		
+		if (mode.equalsIgnoreCase("COUNTER")) {
+			
+			this.IS_COUNTER_MODE = true;
+			
+		} else if (mode.equalsIgnoreCase("STREAM")) {
+			
+			this.IS_COUNTER_MODE = false;
+			
+		} else {
+			
+			throw new GeneralSecurityException(	"Unknown "
+												+"INTER_MIX_CIPHER_MODE: "
+												+mode
+												);
+												
+		}
+		
+		this.OPERATION_MODE = operationMode;
+		this.key = key;
+		this.iv = iv;
+		this.DIRECTION = direction;
+		
+		if (IS_COUNTER_MODE) {
+			
+			// fail early, if algorithm isn't available
+			this.BLOCK_SIZE = createBlockCipher().getBlockSize();
+			
+			if (BLOCK_SIZE < 16) {
+				
+				throw new GeneralSecurityException(	"Block size too "
+													+"small for counter mode!"
+													);
+													
+			}
+			
+			this.blockCiphers = new ThreadLocal<Cipher>() {
+				
+				@Override
+				protected Cipher initialValue() {
+					
+					try {
+						
+						return createBlockCipher();
+						
+					} catch (GeneralSecurityException e) {
+						
+						// algorithm was available in the constructor
+						throw new IllegalStateException(e);
+						
+					}
+					
+				}
+				
+			};
+			
+		} else {
+			
+			reset();
+			this.BLOCK_SIZE = streamCipher.getBlockSize();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Indicates whether this cipher works in counter mode or not (frames 
+	 * contain plaintext frame numbers in counter mode).
+	 * 
+	 * @return	Whether this cipher works in counter mode or not.
+	 */
+	protected boolean isCounterMode() {
+		
+		return IS_COUNTER_MODE;
+		
+	}
+
+	
+	/**
+	 * Returns the block size of the underlying cipher.
+	 * 
+	 * @return	The block size of the underlying cipher.
+	 */
+	protected int getBlockSize() {
+		
+		return BLOCK_SIZE;
+		
+	}
+
+	
+	/**
+	 * Returns the number of the next frame to send. Each number is returned 
+	 * only once (even after a reconnect or when the sender is recreated with 
+	 * the same key), so the key stream is never reused.
+	 * 
+	 * @return	The number of the next frame to send (<code>0</code> in 
+	 * 			stream mode).
+	 */
+	protected long getNextFrameNumber() {
+		
+		return IS_COUNTER_MODE ? nextFrameNumber.getAndIncrement() : 0;
+		
+	}
+
+	
+	/**
+	 * Indicates whether the bypassed (received) frame number is fresh, i. e. 
+	 * wasn't received before and isn't older than the last 
+	 * <code>REPLAY_WINDOW_SIZE</code> frame numbers, and marks it as 
+	 * received. Frames with a number that isn't fresh are replayed and must 
+	 * be discarded. Always <code>true</code> in stream mode (the state of the 
+	 * stream cipher prevents replays).
+	 * 
+	 * @param frameNumber	The received frame number.
+	 * 
+	 * @return				Whether the frame number is fresh or not.
+	 */
+	protected synchronized boolean isFreshFrameNumber(long frameNumber) {
+		
+		if (!IS_COUNTER_MODE) {
+			
+			return true;
+			
+		} else if (frameNumber < 0) { // highest bit is used for DIRECTION
+			
+			return false;
+			
+		} else if (frameNumber > highestFrameNumber) { // move window
+			
+			if (frameNumber - highestFrameNumber >= REPLAY_WINDOW_SIZE) {
+				
+				replayWindow.clear();
+				
+			} else {
+				
+				for (long i=highestFrameNumber+1; i<frameNumber; i++) {
+					
+					replayWindow.clear((int)(i % REPLAY_WINDOW_SIZE));
+					
+				}
+				
+			}
+			
+			highestFrameNumber = frameNumber;
+			
+		} else if (	highestFrameNumber - frameNumber >= REPLAY_WINDOW_SIZE
+					||
+					replayWindow.get((int)(frameNumber % REPLAY_WINDOW_SIZE))
+					) { // too old or received before
+			
+			return false;
+			
+		}
+		
+		replayWindow.set((int)(frameNumber % REPLAY_WINDOW_SIZE));
+		return true;
+		
+	}
+
+	
+	/**
+	 * Encrypts/decrypts the first <code>length</code> bytes of the bypassed 
+	 * data, which belong to the record with the bypassed index of the frame 
+	 * with the bypassed number. In stream mode, <code>frameNumber</code> and 
+	 * <code>recordIndex</code> are ignored and calls must be made in the order 
+	 * the data is sent.
+	 * 
+	 * @param data			The data to encrypt/decrypt.
+	 * @param length		Number of bytes to encrypt/decrypt.
+	 * @param frameNumber	Number of the frame the data is sent in.
+	 * @param recordIndex	Index of the record within the frame.
+	 * 
+	 * @return				The encrypted/decrypted bytes.
+	 */
+	protected byte[] crypt(	byte[] data,
+							int length,
+							long frameNumber,
+							int recordIndex
+							) {
+		
+		if (!IS_COUNTER_MODE) {
+			
+			return streamCipher.update(data, 0, length);
+			
+		}
+		
+		Cipher blockCipher = blockCiphers.get();
+		byte[] counterBlock = new byte[BLOCK_SIZE];
+		byte[] keyStream = new byte[BLOCK_SIZE];
+		byte[] result = new byte[length];
+		
+		for (int offset=0; offset<length; offset+=BLOCK_SIZE) {
+			
+			setCounter(	counterBlock,
+							frameNumber,
+							recordIndex,
+							offset / BLOCK_SIZE
+							);
+			
+			try {
+				
+				blockCipher.doFinal(counterBlock, 0, BLOCK_SIZE, keyStream, 0);
+				
+			} catch (GeneralSecurityException e) {
+				
+				// can't happen (block cipher without padding, full block)
+				throw new IllegalStateException(e);
+				
+			}
+			
+			int end = Math.min(length, offset + BLOCK_SIZE);
+			
+			for (int i=offset; i<end; i++) {
+				
+				result[i] = (byte)(data[i] ^ keyStream[i - offset]);
+				
+			}
+			
+		}
+		
+		return result;
+		
+	}
+
+	
+	/**
+	 * Resets this cipher. Must be called when the connection was lost, since 
+	 * the sender's and receiver's <code>Cipher</code>s might be out of sync in 
+	 * stream mode (has no effect in counter mode).
+	 * 
+	 * @throws GeneralSecurityException	If the cipher can't be set up.
+	 */
+	protected void reset() throws GeneralSecurityException {
+		
+		if (IS_COUNTER_MODE) {
+			
+			return;
+			
+		}
+		
+		streamCipher = 
+			Cipher.getInstance(
+					getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
+					getProperty("CRYPTO_PROVIDER")
+					);
+		
+		streamCipher.init(OPERATION_MODE, key, iv);
+		
+	}
+
+	
+	/**
+	 * Writes the counter for the specified block to the bypassed array: the 
+	 * initialization vector XOR (direction | frame number, record index, 
+	 * block index).
+	 * 
+	 * @param counterBlock	Array to write the counter to.
+	 * @param frameNumber	Number of the frame the block is sent in.
+	 * @param recordIndex	Index of the record within the frame.
+	 * @param blockIndex	Index of the block within the record.
+	 */
+	private void setCounter(	byte[] counterBlock,
+								long frameNumber,
+								int recordIndex,
+								int blockIndex
+								) {
+		
+		byte[] ivBytes = iv.getIV();
+		System.arraycopy(ivBytes, 0, counterBlock, 0, BLOCK_SIZE);
+		
+		long high = frameNumber | ((long)DIRECTION << 63);
+		long low = ((long)recordIndex << 32) | (blockIndex & 0xFFFFFFFFL);
+		
+		for (int i=0; i<8; i++) {
+			
+			counterBlock[BLOCK_SIZE - 16 + i] ^= (byte)(high >>> (56 - 8*i));
+			counterBlock[BLOCK_SIZE - 8 + i] ^= (byte)(low >>> (56 - 8*i));
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Creates a block cipher (ECB, no padding) for the key stream generation 
+	 * in counter mode.
+	 * 
+	 * @return	A block cipher initialized with <code>key</code>.
+	 * 
+	 * @throws GeneralSecurityException	If the cipher can't be set up.
+	 */
+	private Cipher createBlockCipher() throws GeneralSecurityException {
+		
+		Cipher blockCipher = 
+			Cipher.getInstance(
+					key.getAlgorithm() + "/ECB/NOPADDING",
+					getProperty("CRYPTO_PROVIDER")
+					);
+		
+		// key stream is always generated by encryption (counter mode)
+		blockCipher.init(Cipher.ENCRYPT_MODE, key);
+		
+		return blockCipher;
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+}
@@ -0,0 +1,307 @@
+package inputOutputHandler;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+
+import message.PaddingGenerator;
+
+import util.Util;
+
+
+/**
+ * Frame of several messages (records) transmitted between two neighbored 
+ * mixes at once.
+ * <p>
+ * A frame consists of an (encrypted) frame header of 
+ * <code>INTER_MIX_BLOCK_SIZE</code> byte, containing the number of records 
+ * and the length of all records in byte, followed by the records themselves 
+ * (in the format used for single messages before). Since the frame header is 
+ * encrypted with the same (stream) cipher as the records' multiplex-headers, 
+ * it must be encrypted before the records' multiplex-headers (see 
+ * <code>createHeader()</code>).
+ * <p>
+ * In counter mode (see <code>InterMixCipher</code>), the frame header is 
+ * preceded by the (plaintext) frame number, which the receiver needs to 
+ * decrypt the frame header and the records' multiplex-headers. The frame 
+ * header is encrypted as record <code>FRAME_HEADER_INDEX</code>.
+ * <p>
+ * The sender writes a whole frame with a single (gathering) 
+ * <code>write()</code>, the receiver accumulates it in a reused buffer (see 
+ * <code>InterMixFrameDecoder</code>) and parses the records directly from 
+ * that buffer (see <code>read()</code> and <code>skip()</code>).
+ */
+final class InterMixFrame {
+	
+	/** Maximum length of the records of a frame in byte. */
+	protected static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+	
+	/** Record index used to encrypt the frame header (counter mode). */
+	protected static final int FRAME_HEADER_INDEX = -1;
+	
+	/** Number of this frame (<code>0</code> in stream mode). */
+	private final long FRAME_NUMBER;
+	
+	/** Number of records contained in this frame. */
+	private final int NUMBER_OF_RECORDS;
+	
+	/**
+	 * The (not yet parsed) records of this frame (a view of the decoder's 
+	 * receive buffer, valid until the next frame is read).
+	 */
+	private final ByteBuffer records;
+	
+	
+	/**
+	 * Creates a new <code>InterMixFrame</code> with the bypassed (received) 
+	 * records.
+	 * 
+	 * @param frameNumber		Number of the frame.
+	 * @param numberOfRecords	Number of records contained in 
+	 * 							<code>records</code>.
+	 * @param records			The records of the frame.
+	 */
+	protected InterMixFrame(	long frameNumber,
+								int numberOfRecords,
+								ByteBuffer records
+								) {
+		
+		this.FRAME_NUMBER = frameNumber;
+		this.NUMBER_OF_RECORDS = numberOfRecords;
+		this.records = records;
+		
+	}
+
+	
+	/**
+	 * Returns the number of this frame (needed to decrypt the records' 
+	 * multiplex-headers in counter mode).
+	 * 
+	 * @return	Number of this frame (<code>0</code> in stream mode).
+	 */
+	protected long getFrameNumber() {
+		
+		return FRAME_NUMBER;
+		
+	}
+
+	
+	/**
+	 * Returns the number of records contained in this frame.
+	 * 
+	 * @return	Number of records contained in this frame.
+	 */
+	protected int getNumberOfRecords() {
+		
+		return NUMBER_OF_RECORDS;
+		
+	}
+
+	
+	/**
+	 * Reads the next <code>destination.length</code> bytes of this frame's 
+	 * records to the bypassed array.
+	 * 
+	 * @param destination	Array to read the bytes to.
+	 * 
+	 * @throws IOException	If the frame ends before (invalid frame).
+	 */
+	protected void read(byte[] destination) throws IOException {
+		
+		read(destination, 0, destination.length);
+		
+	}
+
+	
+	/**
+	 * Reads the next <code>length</code> bytes of this frame's records to the 
+	 * bypassed array (starting at <code>offset</code>).
+	 * 
+	 * @param destination	Array to read the bytes to.
+	 * @param offset		Index of <code>destination</code> to start at.
+	 * @param length		Number of bytes to read.
+	 * 
+	 * @throws IOException	If the frame ends before (invalid frame).
+	 */
+	protected void read(	byte[] destination,
+							int offset,
+							int length
+							) throws IOException {
+		
+		checkRemaining(length);
+		records.get(destination, offset, length);
+		
+	}
+
+	
+	/**
+	 * Reads the next four bytes of this frame's records as 
+	 * <code>int</code> (see <code>Util.byteArrayToInt()</code>).
+	 * 
+	 * @return				The <code>int</code> read.
+	 * 
+	 * @throws IOException	If the frame ends before (invalid frame).
+	 */
+	protected int readInt() throws IOException {
+		
+		byte[] intAsArray = new byte[4];
+		read(intAsArray);
+		
+		return Util.byteArrayToInt(intAsArray);
+		
+	}
+
+	
+	/**
+	 * Skips the next <code>length</code> bytes of this frame's records.
+	 * 
+	 * @param length		Number of bytes to skip.
+	 * 
+	 * @throws IOException	If the frame ends before (invalid frame).
+	 */
+	protected void skip(int length) throws IOException {
+		
+		checkRemaining(length);
+		records.position(records.position() + length);
+		
+	}
+
+	
+	/**
+	 * Returns the number of bytes of this frame's records not yet read.
+	 * 
+	 * @return	Number of bytes not yet read.
+	 */
+	protected int remaining() {
+		
+		return records.remaining();
+		
+	}
+
+	
+	/**
+	 * Checks whether the bypassed number of bytes can be read from this 
+	 * frame's records.
+	 * 
+	 * @param length		Number of bytes to read.
+	 * 
+	 * @throws IOException	If not (invalid frame).
+	 */
+	private void checkRemaining(int length) throws IOException {
+		
+		if (length < 0 || length > records.remaining()) {
+			
+			throw new IOException("Truncated frame!");
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Creates an (encrypted) frame header for a frame with the bypassed 
+	 * number of records and length. In stream mode, this method must be 
+	 * called before the records' multiplex-headers are encrypted with the 
+	 * bypassed cipher.
+	 * 
+	 * @param numberOfRecords	Number of records of the frame.
+	 * @param frameLength		Length of all records of the frame in byte.
+	 * @param cipher			Cipher used to encrypt multiplex-headers.
+	 * @param frameNumber		Number of the frame (see 
+	 * 							<code>InterMixCipher.getNextFrameNumber() 
+	 * 							</code>).
+	 * 
+	 * @return					The encrypted frame header.
+	 */
+	protected static ByteBuffer createHeader(	int numberOfRecords,
+												int frameLength,
+												InterMixCipher cipher,
+												long frameNumber
+												) {
+		
+		int blockSize = cipher.getBlockSize();
+		byte[] header = new byte[blockSize];
+		PaddingGenerator.nextBytes(header, 8, blockSize);
+		
+		System.arraycopy(	Util.intToByteArray(numberOfRecords),
+							0,
+							header,
+							0,
+							4
+							);
+		
+		System.arraycopy(	Util.intToByteArray(frameLength),
+							0,
+							header,
+							4,
+							4
+							);
+		
+		header = 
+			cipher.crypt(header, blockSize, frameNumber, FRAME_HEADER_INDEX);
+		
+		if (cipher.isCounterMode()) { // prepend (plaintext) frame number
+			
+			byte[] frameNumberAsArray = Util.longToByteArray(frameNumber);
+			header = Util.mergeArrays(frameNumberAsArray, header);
+			
+		}
+		
+		return ByteBuffer.wrap(header);
+		
+	}
+
+	
+	/**
+	 * Writes the bypassed buffers (a frame header and its records) to the 
+	 * bypassed channel with as few (gathering) <code>write()</code>s as 
+	 * possible (usually one). Channels not supporting gathering writes get 
+	 * one <code>write()</code> per buffer.
+	 * 
+	 * @param channel	The (blocking) channel to write to.
+	 * @param frame		Frame header and records.
+	 * 
+	 * @throws IOException	If an I/O error occurres.
+	 */
+	protected static void write(	ByteChannel channel,
+									ByteBuffer[] frame
+									) throws IOException {
+		
+		if (channel instanceof GatheringByteChannel) {
+			
+			GatheringByteChannel gatheringChannel = 
+				(GatheringByteChannel)channel;
+			
+			long remaining = 0;
+			
+			for (ByteBuffer buffer: frame) {
+				
+				remaining += buffer.remaining();
+				
+			}
+			
+			while (remaining > 0) {
+				
+				remaining -= gatheringChannel.write(frame);
+				
+			}
+			
+		} else {
+			
+			for (ByteBuffer buffer: frame) {
+				
+				while (buffer.hasRemaining()) {
+					
+					channel.write(buffer);
+					
+				}
+				
+			}
+			
+		}
+		
+	}
+
+}
@@ -0,0 +1,274 @@
+package inputOutputHandler;
+
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import util.Util;
+
+
+/**
+ * Reads <code>InterMixFrame</code>s from a (blocking or non-blocking) 
+ * channel.
+ * <p>
+ * Received data is accumulated in a single receive buffer, that is reused 
+ * for all frames of the connection (and only grown, if a frame doesn't fit). 
+ * Each <code>read()</code> of the channel stores as many bytes as available, 
+ * so short reads (a frame arriving in several TCP segments) and reads 
+ * containing the beginning of the next frame are handled correctly. The 
+ * records of a frame are not copied, but parsed directly from the receive 
+ * buffer (see <code>InterMixFrame</code>).
+ * <p>
+ * Decoding is incremental (a decrypted frame header is kept until the rest 
+ * of its frame is received), so the decoder never waits for data itself: 
+ * <code>read()</code> reads from the channel until a frame is complete 
+ * (used by the inter-mix handlers, which read each connection with a 
+ * dedicated thread), <code>tryRead()</code> reads at most once and returns 
+ * <code>null</code> if the frame is still incomplete (for non-blocking 
+ * channels, e. g. when driven by a <code>Selector</code>).
+ * <p>
+ * A new decoder must be created for each connection (data of a lost 
+ * connection must not be mixed up with data of a new one).
+ */
+final class InterMixFrameDecoder {
+	
+	/** Initial capacity of the receive buffer in byte. */
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+	
+	/** The channel frames are read from. */
+	private final ReadableByteChannel channel;
+	
+	/** Cipher used to decrypt the frame headers. */
+	private final InterMixCipher cipher;
+	
+	/**
+	 * Receive buffer (in "read mode": data between <code>position</code> 
+	 * and <code>limit</code> is received, but not yet decoded).
+	 */
+	private ByteBuffer buffer;
+	
+	/** Number of bytes needed to continue decoding the current frame. */
+	private int neededBytes;
+	
+	/** Indicates whether the current frame's header was decoded or not. */
+	private boolean isHeaderDecoded = false;
+	
+	/** Frame number of the current frame (counter mode only). */
+	private long frameNumber;
+	
+	/** Number of records of the current frame. */
+	private int numberOfRecords;
+	
+	/** Length of all records of the current frame in byte. */
+	private int frameLength;
+	
+	
+	/**
+	 * Creates a new <code>InterMixFrameDecoder</code> for the bypassed 
+	 * channel.
+	 * 
+	 * @param channel	The channel to read frames from.
+	 * @param cipher	Cipher used to decrypt the frame headers.
+	 */
+	protected InterMixFrameDecoder(	ReadableByteChannel channel,
+									InterMixCipher cipher
+									) {
+		
+		this.channel = channel;
+		this.cipher = cipher;
+		this.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		this.buffer.flip(); // (empty)
+		
+	}
+
+	
+	/**
+	 * Reads the next frame (blocks until the frame is received completely, 
+	 * if the channel is in blocking mode). The records of the previously 
+	 * returned frame must not be used afterwards.
+	 * 
+	 * @return				The received frame.
+	 * 
+	 * @throws IOException	If an I/O error occurres, the connection is 
+	 * 						closed or the frame header is invalid.
+	 */
+	protected InterMixFrame read() throws IOException {
+		
+		InterMixFrame frame;
+		
+		while ((frame = decode()) == null) {
+			
+			receive();
+			
+		}
+		
+		return frame;
+		
+	}
+
+	
+	/**
+	 * Returns the next frame, if it is received completely. Otherwise, reads 
+	 * from the channel (once) and returns <code>null</code>, if the frame is 
+	 * still incomplete. Never blocks on a non-blocking channel. The records 
+	 * of the previously returned frame must not be used afterwards.
+	 * 
+	 * @return				The received frame or <code>null</code>.
+	 * 
+	 * @throws IOException	If an I/O error occurres, the connection is 
+	 * 						closed or the frame header is invalid.
+	 */
+	protected InterMixFrame tryRead() throws IOException {
+		
+		InterMixFrame frame = decode();
+		
+		if (frame == null) {
+			
+			receive();
+			frame = decode();
+			
+		}
+		
+		return frame;
+		
+	}
+
+	
+	/**
+	 * Decodes the next frame from the receive buffer (decrypts its header 
+	 * first, if not done yet). Returns <code>null</code> (and sets 
+	 * <code>neededBytes</code>), if the frame isn't received completely.
+	 * 
+	 * @return				The decoded frame or <code>null</code>.
+	 * 
+	 * @throws IOException	If the frame header is invalid.
+	 */
+	private InterMixFrame decode() throws IOException {
+		
+		if (!isHeaderDecoded) {
+			
+			int blockSize = cipher.getBlockSize();
+			int headerLength = blockSize;
+			
+			if (cipher.isCounterMode()) { // plaintext frame number
+				
+				headerLength += 8;
+				
+			}
+			
+			if (buffer.remaining() < headerLength) {
+				
+				neededBytes = headerLength;
+				return null;
+				
+			}
+			
+			frameNumber = 0;
+			
+			if (cipher.isCounterMode()) {
+				
+				byte[] frameNumberAsArray = new byte[8];
+				buffer.get(frameNumberAsArray);
+				frameNumber = Util.byteArrayToLong(frameNumberAsArray);
+				
+				if (!cipher.isFreshFrameNumber(frameNumber)) {
+					
+					throw new IOException(	"Replayed frame (number "
+											+frameNumber +")!"
+											);
+											
+				}
+				
+			}
+			
+			byte[] header = new byte[blockSize];
+			buffer.get(header);
+			
+			header = 
+				cipher.crypt(	header,
+								blockSize,
+								frameNumber,
+								InterMixFrame.FRAME_HEADER_INDEX
+								);
+			
+			numberOfRecords = 
+				Util.byteArrayToInt(Arrays.copyOfRange(header, 0, 4));
+			
+			frameLength = 
+				Util.byteArrayToInt(Arrays.copyOfRange(header, 4, 8));
+			
+			if (	numberOfRecords < 0
+					||
+					frameLength < 0
+					||
+					frameLength > InterMixFrame.MAX_FRAME_LENGTH
+					) {
+				
+				throw new IOException("Invalid frame header!");
+				
+			}
+			
+			isHeaderDecoded = true;
+			
+		}
+		
+		if (buffer.remaining() < frameLength) {
+			
+			neededBytes = frameLength;
+			return null;
+			
+		}
+		
+		// records: view of the receive buffer (no copy)
+		ByteBuffer records = buffer.slice();
+		records.limit(frameLength);
+		buffer.position(buffer.position() + frameLength);
+		isHeaderDecoded = false;
+		
+		return new InterMixFrame(frameNumber, numberOfRecords, records);
+		
+	}
+
+	
+	/**
+	 * Reads from the channel once (makes room for at least 
+	 * <code>neededBytes</code> bytes in the receive buffer first, growing the 
+	 * buffer, if needed).
+	 * 
+	 * @throws IOException	If an I/O error occurres or the connection is 
+	 * 						closed.
+	 */
+	private void receive() throws IOException {
+		
+		if (buffer.capacity() < neededBytes) { // grow buffer
+			
+			ByteBuffer newBuffer = 
+				ByteBuffer.allocate(
+						Math.max(neededBytes, 2 * buffer.capacity())
+						);
+			
+			newBuffer.put(buffer);
+			buffer = newBuffer;
+			
+		} else { // move remaining data to beginning of buffer
+			
+			buffer.compact();
+			
+		}
+		
+		// buffer is in "write mode" now
+		int readBytes = channel.read(buffer);
+		buffer.flip();
+		
+		if (readBytes == -1) {
+			
+			throw new EOFException("Connection closed!");
+			
+		}
+		
+	}
+
+}
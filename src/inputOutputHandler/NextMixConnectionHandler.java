@@ -4,12 +4,12 @@ package inputOutputHandler;
 import internalInformationPort.InternalInformationPortController;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
@@ -18,7 +18,11 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 
+import outputStrategy.OutputStrategyController;
+
 import message.BatchSizeMessage;
+import message.DummyMessage;
+import message.PaddingGenerator;
 import message.ChannelEstablishMessage;
 import message.ChannelReleaseMessage;
 import message.ChannelMessage;
@@ -54,7 +58,7 @@ import externalInformationPort.Information;
  * <code>Request</code>s are taken from the 
  * <code>InputOutputHandlerController</code>'s 
  * <code>requestOutputQueue</code> 
- * (see <code>InputOutputHandlerController.getProcessedRequest()</code>).
+ * (see <code>InputOutputHandlerController.getProcessedRequests()</code>).
  * <p>
  * Note: Authentication is NOT implemented!
  * 
@@ -88,9 +92,31 @@ final class NextMixConnectionHandler extends Thread {
 	/** Address of the next mix (in the cascade). */
 	private final InetAddress NEXT_MIX_ADDRESS;
 	
-	/** Port number of the next mix (in the cascade). */
+	/**
+	 * Port number of the next mix (in the cascade) for the connection 
+	 * handled by this object.
+	 */
 	private final int NEXT_MIX_PORT;
 	
+	/**
+	 * Indicates whether the next mix runs in the same JVM and is connected 
+	 * in-process (see property <code>INTER_MIX_TRANSPORT</code> and 
+	 * <code>InProcessChannel</code>) or via TCP.
+	 */
+	private final boolean IS_IN_PROCESS_TRANSPORT;
+	
+	/**
+	 * Indicates whether the next mix runs on the same host and is connected 
+	 * via a Unix domain socket (see <code>UnixDomainSockets</code>) or not.
+	 */
+	private final boolean IS_UNIX_TRANSPORT;
+	
+	/**
+	 * Index of the connection (of the link with the next mix) handled by 
+	 * this object (see property <code>NUMBER_OF_INTER_MIX_CONNECTIONS</code>).
+	 */
+	private final int CONNECTION_INDEX;
+	
 	/** 
 	 * Port number of the next mix' <code>ExternalInformationProvider</code> 
 	 * component (used to receive key for enrypting/decrypting 
@@ -105,11 +131,17 @@ final class NextMixConnectionHandler extends Thread {
 	private UserDatabaseController userDatabase;
 	
 	/** 
+	 * Reference on component <code>OutputStrategy</code> (Used to add 
+	 * <code>DummyMessage</code>s substituting straggling replies).
+	 */
+	private OutputStrategyController outputStrategy;
+	
+	/**
 	 * Reference on <code>InputOutputHandlerController()</code> (Used to get 
 	 * processed replies and add unprocessed requests).
 	 * 
 	 * @see InputOutputHandlerController#addUnprocessedRequest(Request)
-	 * @see InputOutputHandlerController#getProcessedReply()
+	 * @see InputOutputHandlerController#getProcessedRequests(int, int)
 	 */
 	private InputOutputHandlerController inputOutputHandler;
 	
@@ -120,20 +152,24 @@ final class NextMixConnectionHandler extends Thread {
 	 */
 	private ExternalInformationPortController externalInformationPort;
 	
-	/** Socket for communicating with next mix. */
-	private Socket nextMixSocket;
-	
-	/** InputStream for communicating with next mix. */
-	private InputStream nextMixInputStream;
+	/**
+	 * Decoder used to read frames (of replies) from 
+	 * <code>nextMixChannel</code>.
+	 */
+	private InterMixFrameDecoder frameDecoder;
 	
-	/** OutputStream for communicating with next mix. */
-	private OutputStream nextMixOutputStream;
+	/**
+	 * (Blocking) channel for communicating with next mix (a 
+	 * <code>SocketChannel</code> or an <code>InProcessChannel</code>). Used 
+	 * to send frames of requests with gathering writes.
+	 */
+	private ByteChannel nextMixChannel;
 	
 	/** Cipher for encrypting multiplex-headers of requests. */
-	private Cipher interMixEncryptCipherWithNextMix;
+	private InterMixCipher interMixEncryptCipherWithNextMix;
 	
 	/** Cipher for decrypting multiplex-headers of replies. */
-	private Cipher interMixDecryptCipherWithNextMix;
+	private InterMixCipher interMixDecryptCipherWithNextMix;
 	
 	/** Key used to encrypt data between this mix and the next one. */
 	private SecretKey interMixKeyWithNextMix = null;
@@ -172,15 +208,24 @@ final class NextMixConnectionHandler extends Thread {
 	 * (see <code>InputOutputHandlerController.addUnprocessedReply()</code>).
 	 * <code>Request</code>s are taken from the 
 	 * <code>InputOutputHandlerController</code>'s 
-	 * <code>requestOutputQueue</code> 
-	 * (see <code>InputOutputHandlerController.getProcessedRequest()</code>).
+	 * <code>requestOutputQueue</code> of the bypassed connection 
+	 * (see <code>InputOutputHandlerController.getProcessedRequests()</code>).
 	 * <p>
 	 * Note: Authentication is NOT implemented!
+	 * 
+	 * @param outputStrategy	Reference on component 
+	 * 							<code>OutputStrategy</code> (Used to add 
+	 * 							<code>DummyMessage</code>s substituting 
+	 * 							straggling replies).
+	 * @param connection		Index of the connection (of the link with the 
+	 * 							next mix) to handle.
 	 */
 	protected NextMixConnectionHandler(
 			InputOutputHandlerController inputOutputHandler,
 			UserDatabaseController userDatabase,
-			ExternalInformationPortController externalInformationPort
+			OutputStrategyController outputStrategy,
+			ExternalInformationPortController externalInformationPort,
+			int connection
 			) {
 		
 		this.NEXT_MIX_ADDRESS = 
@@ -188,8 +233,19 @@ final class NextMixConnectionHandler extends Thread {
 					getProperty("NEXT_MIX_ADDRESS")
 					);
 		
+		this.CONNECTION_INDEX = connection;
+		
 		this.NEXT_MIX_PORT = 
-				new Integer(getProperty("NEXT_MIX_PORT"));
+				new Integer(getProperty("NEXT_MIX_PORT"))
+				+ connection
+				* new Integer(getProperty("INTER_MIX_CONNECTION_PORT_OFFSET"));
+		
+		this.IS_IN_PROCESS_TRANSPORT = 
+			getProperty("INTER_MIX_TRANSPORT").trim().equalsIgnoreCase(
+					"IN_PROCESS"
+					);
+		
+		this.IS_UNIX_TRANSPORT = UnixDomainSockets.isConfigured();
 		
 		this.NEXT_MIX_INFO_PORT = 
 			new Integer(getProperty("NEXT_MIX_INFO_PORT"));
@@ -201,6 +257,7 @@ final class NextMixConnectionHandler extends Thread {
 			new Integer(getProperty("INTER_MIX_BLOCK_SIZE"));
 		
 		this.userDatabase = userDatabase;
+		this.outputStrategy = outputStrategy;
 		this.inputOutputHandler = inputOutputHandler;
 		this.externalInformationPort = externalInformationPort;
 		
@@ -231,42 +288,86 @@ final class NextMixConnectionHandler extends Thread {
 	
 	
 	/**
-	 * Waits for <code>Reply</code>ies sent by next mix.
+	 * Waits for <code>Reply</code>ies sent by next mix (in frames, see 
+	 * <code>InterMixFrame</code>).
 	 */
 	private void handleReplies() {
 		
+		InterMixFrame repliesOfFrame = null;
+		long numberOfCurrentFrame = 0;
+		int numberOfRepliesOfFrame = 0;
+		int remainingRepliesOfFrame = 0;
+		
 		while (true) { // receive messages from next mix
 			
 			try {
 				
 				waitForConnection();
 				
-				byte[] lengthOfReplyAsByteArray = new byte[4];
-				nextMixInputStream.read(lengthOfReplyAsByteArray);
+				if (remainingRepliesOfFrame == 0) { // read next frame
+					
+					InterMixFrame frame = frameDecoder.read();
+					
+					repliesOfFrame = frame;
+					numberOfCurrentFrame = frame.getFrameNumber();
+					numberOfRepliesOfFrame = frame.getNumberOfRecords();
+					remainingRepliesOfFrame = numberOfRepliesOfFrame;
+					continue;
+					
+				}
 				
-				int lengthOfReply = 
-					Util.byteArrayToInt(lengthOfReplyAsByteArray);
+				int recordIndex = 
+					numberOfRepliesOfFrame - remainingRepliesOfFrame;
 				
-				if (lengthOfReply < 1) {
+				remainingRepliesOfFrame--;
+				
+				int lengthOfReply = repliesOfFrame.readInt();
+				
+				if (	lengthOfReply < INTER_MIX_BLOCK_SIZE
+						||
+						lengthOfReply > repliesOfFrame.remaining()
+						) {
 					
 					LOGGER.severe(	"(MIX" +POSITION_OF_MIX_IN_CASCADE 
 									+" IOH) Illegal size for reply message "
 									+"received!"
 									);
 					
-					nextMixSocket.close();
+					nextMixChannel.close();
+					remainingRepliesOfFrame = 0;
 					continue;
 					
 				}
 				
 				// read encrypted block, which contains the inter mix header
 				byte[] blockWithHeader = new byte[INTER_MIX_BLOCK_SIZE];
-				nextMixInputStream.read(blockWithHeader);
+				repliesOfFrame.read(blockWithHeader);
 				
 				// decrypt blockWithHeader
 				blockWithHeader = 
-					interMixDecryptCipherWithNextMix.
-						update(blockWithHeader);
+					interMixDecryptCipherWithNextMix.crypt(
+							blockWithHeader,
+							INTER_MIX_BLOCK_SIZE,
+							numberOfCurrentFrame,
+							recordIndex
+							);
+				
+				if (blockWithHeader[0] == DummyMessage.IDENTIFIER) {
+					// cover traffic -> discard (but count it as reply of the
+					// round, the next mix substituted a straggling reply)
+					
+					repliesOfFrame.skip(	lengthOfReply
+											-
+											INTER_MIX_BLOCK_SIZE
+											);
+					
+					// (same length as a reply without header: type, channel)
+					outputStrategy.addReply(
+							new DummyMessage(lengthOfReply - 5)
+							);
+					continue;
+					
+				}
 				
 				int channelIdentifier = 
 					Util.byteArrayToInt(
@@ -289,10 +390,10 @@ final class NextMixConnectionHandler extends Thread {
 									+"unknown channelID!"
 									);
 	
-					nextMixInputStream.skip(	lengthOfReply 
-												- 
-												INTER_MIX_BLOCK_SIZE
-												);
+					repliesOfFrame.skip(	lengthOfReply
+											-
+											INTER_MIX_BLOCK_SIZE
+											);
 					// "minus blockSize", because header is already read. 
 					// and the header's length is determined by blockSize
 			
@@ -300,19 +401,22 @@ final class NextMixConnectionHandler extends Thread {
 					
 				}
 				
-				if (channel.getHasMessageInCurrentReplyBatch()) {
+				boolean isPushed = 
+					(blockWithHeader[0] == ReplyMessage.PUSH_IDENTIFIER);
+				
+				if (!isPushed && channel.getHasMessageInCurrentReplyBatch()) {
 					// next Mix is trying to send multiple messages on one 
-					// channel!
+					// channel! (pushed replies are batched separately)
 					
 					LOGGER.severe(	"(MIX" +POSITION_OF_MIX_IN_CASCADE 
 									+" IOH) Next Mix is trying to send "
 									+"multiple replies on one channel!"
 									);
 					
-					nextMixInputStream.skip(	lengthOfReply 
-												- 
-												INTER_MIX_BLOCK_SIZE
-												);
+					repliesOfFrame.skip(	lengthOfReply
+											-
+											INTER_MIX_BLOCK_SIZE
+											);
 					// "minus blockSize", because header is already read. 
 					// and the header's length is determined by blockSize
 					
@@ -322,27 +426,49 @@ final class NextMixConnectionHandler extends Thread {
 				// channel existent and unused for this batch
 				// -> accept message
 				
-				byte[] restOfMessage = 
-					new byte[lengthOfReply - INTER_MIX_BLOCK_SIZE];
-				// "minus blockSize", because header is already read. 
-				// and the header's length is determined by blockSize
+				// header: type, channel (, push batch identifier and size)
+				int lengthOfHeader = isPushed ? 13 : 5;
 				
-				nextMixInputStream.read(restOfMessage);
+				// decode directly into the message (without intermediate
+				// arrays)
+				byte[] message = new byte[lengthOfReply - lengthOfHeader];
 				
-				byte[] message = 
-					Util.mergeArrays(
-						Arrays.copyOfRange(	blockWithHeader, 
-											5, 
-											INTER_MIX_BLOCK_SIZE), 
-						restOfMessage
-						);
+				System.arraycopy(	blockWithHeader,
+									lengthOfHeader,
+									message,
+									0,
+									INTER_MIX_BLOCK_SIZE - lengthOfHeader
+									);
+				
+				repliesOfFrame.read(	message,
+										INTER_MIX_BLOCK_SIZE - lengthOfHeader,
+										lengthOfReply - INTER_MIX_BLOCK_SIZE
+										);
+				// "minus blockSize", because header is already read.
+				// and the header's length is determined by blockSize
 				
 				ReplyMessage replyMessage = 
 					new ReplyMessage(message, channel);
 				
+				if (isPushed) {
+					
+					replyMessage.setRoundID(
+							Util.byteArrayToInt(
+								Arrays.copyOfRange(blockWithHeader, 5, 9)
+								)
+							);
+					
+					replyMessage.setPushBatchSize(
+							Util.byteArrayToInt(
+								Arrays.copyOfRange(blockWithHeader, 9, 13)
+								)
+							);
+							
+				}
+				
 				LOGGER.finer(	"(MIX" +POSITION_OF_MIX_IN_CASCADE 
 								+" IOH) Accepted message from " 
-								+nextMixSocket.getInetAddress() 
+								+NEXT_MIX_ADDRESS
 								+": " 
 								+replyMessage
 								);
@@ -351,6 +477,7 @@ final class NextMixConnectionHandler extends Thread {
 				
 			} catch (IOException e) {
 				
+				remainingRepliesOfFrame = 0;
 				waitForConnection();
 				continue;
 				
@@ -368,17 +495,17 @@ final class NextMixConnectionHandler extends Thread {
 		
 		synchronized (handleRepliesIsWaitingForConnection) {
 			
-			if (	nextMixSocket == null 
+			if (	nextMixChannel == null
 					|| 
-					!nextMixSocket.isConnected()
+					!nextMixChannel.isOpen()
 					) {
 				
 				// wait for connection
 				handleRepliesIsWaitingForConnection.set(true);
 				
-				while (	nextMixSocket == null 
+				while (	nextMixChannel == null
 						|| 
-						!nextMixSocket.isConnected()
+						!nextMixChannel.isOpen()
 						) {
 					
 					try {
@@ -406,9 +533,12 @@ final class NextMixConnectionHandler extends Thread {
 
 
 	/**
-	 * Sends processed messages (Requests) to next mix.
+	 * Sends processed messages (Requests) to next mix. All messages available 
+	 * (up to <code>QUEUE_DRAIN_LIMIT</code>) are taken at once and sent as 
+	 * one <code>InterMixFrame</code> (with a single gathering write).
 	 * 
-	 * @see InputOutputHandlerController#getProcessedRequest()
+	 * @see InputOutputHandlerController#getProcessedRequests(int, int)
+	 * @see InterMixFrame
 	 */
 	@Override
 	public void run() {
@@ -419,27 +549,61 @@ final class NextMixConnectionHandler extends Thread {
 		// new messages are available)
 		while (true) {
 				
-			// wait for next message
-			Request request = inputOutputHandler.getProcessedRequest();
+			// wait for next messages
+			Request[] requests = 
+				inputOutputHandler.getProcessedRequests(
+						CONNECTION_INDEX,
+						inputOutputHandler.QUEUE_DRAIN_LIMIT
+						);
+			
+			byte[][] messagesToSend = new byte[requests.length][];
+			int frameLength = 0;
 			
-			if (request.getChannel() != null) {
+			for (int i=0; i<requests.length; i++) {
 				
-				request.getChannel().setTimestampOfLastActivity();
+				if (requests[i].getChannel() != null) {
+					
+					requests[i].getChannel().setTimestampOfLastActivity();
+					
+				}
 				
+				messagesToSend[i] = 
+					Util.mergeArrays(	generateInterMixHeader(requests[i]),
+										getPayload(requests[i])
+										);
+				
+				// (length after encryption, see "encryptInterMixHeader()")
+				frameLength += 
+					Math.max(messagesToSend[i].length, INTER_MIX_BLOCK_SIZE);
+					
 			}
 			
-			byte[] messageToSend = 
-				Util.mergeArrays(	generateInterMixHeader(request), 
-									getPayload(request)
-									);
+			// frame header must be encrypted first (stream cipher)
+			ByteBuffer[] frame = new ByteBuffer[requests.length + 1];
+			
+			long frameNumber = 
+				interMixEncryptCipherWithNextMix.getNextFrameNumber();
 			
-			messageToSend = encryptInterMixHeader(messageToSend);
+			frame[0] = 
+				InterMixFrame.createHeader(	requests.length,
+											frameLength,
+											interMixEncryptCipherWithNextMix,
+											frameNumber
+											);
+			
+			for (int i=0; i<requests.length; i++) {
+				
+				byte[] messageToSend = 
+					encryptInterMixHeader(messagesToSend[i], frameNumber, i);
+				
+				frame[i+1] = ByteBuffer.wrap(messageToSend);
+					
+			}
 			
 			// send data
 			try {
 				
-				nextMixOutputStream.write(messageToSend);
-				nextMixOutputStream.flush();
+				InterMixFrame.write(nextMixChannel, frame);
 					
 			} catch (IOException e) {
 					
@@ -474,7 +638,17 @@ final class NextMixConnectionHandler extends Thread {
 						+")"
 						);
 		
-		if (nextMixSocket != null) { // connection lost => reset ciphers
+		if (nextMixChannel != null) { // connection lost => reset ciphers
+			
+			try {
+				
+				nextMixChannel.close(); // release old connection
+				
+			} catch (IOException e) {
+				
+				LOGGER.fine(e.getMessage());
+				
+			}
 			
 			resetInterMixCiphers();
 			
@@ -486,17 +660,14 @@ final class NextMixConnectionHandler extends Thread {
 				
 				synchronized (handleRepliesIsWaitingForConnection) {
 					
-					nextMixSocket = new Socket();
-					nextMixSocket.setKeepAlive(true);// permanent connection
+					// assigned when connected (see "waitForConnection()")
+					nextMixChannel = openChannel();
 					
-					SocketAddress receiverAddress = 
-						new InetSocketAddress(	NEXT_MIX_ADDRESS, 
-												NEXT_MIX_PORT
-												);
-					
-					nextMixSocket.connect(receiverAddress);
-					nextMixOutputStream = nextMixSocket.getOutputStream();
-					nextMixInputStream = nextMixSocket.getInputStream();
+					frameDecoder = 
+						new InterMixFrameDecoder(
+								nextMixChannel,
+								interMixDecryptCipherWithNextMix
+								);
 					
 					// notify "handleReplies()" and exit loop, since no 
 					// IOException has occurred (= connection is 
@@ -539,6 +710,53 @@ final class NextMixConnectionHandler extends Thread {
 						+NEXT_MIX_PORT
 						+") established."
 						);
+						
+	}
+
+	
+	/**
+	 * Opens a (permanent) connection to the next mix, either in-process, via 
+	 * a Unix domain socket or via TCP (see property 
+	 * <code>INTER_MIX_TRANSPORT</code>).
+	 * 
+	 * @return	The connected channel.
+	 * 
+	 * @throws IOException	If the connection can't be established (e. g. 
+	 * 						next mix not started yet).
+	 */
+	private ByteChannel openChannel() throws IOException {
+		
+		if (IS_IN_PROCESS_TRANSPORT) {
+			
+			return InProcessServerChannel.connect(NEXT_MIX_PORT);
+			
+		} else if (IS_UNIX_TRANSPORT) {
+			
+			return UnixDomainSockets.connect(
+					UnixDomainSockets.getPath(NEXT_MIX_PORT)
+					);
+			
+		}
+		
+		SocketChannel socketChannel = SocketChannel.open();
+		
+		try {
+			
+			socketChannel.socket().setKeepAlive(true);// permanent connection
+			
+			SocketAddress receiverAddress = 
+				new InetSocketAddress(NEXT_MIX_ADDRESS, NEXT_MIX_PORT);
+			
+			socketChannel.connect(receiverAddress);
+			
+			return socketChannel;
+			
+		} catch (IOException e) {
+			
+			socketChannel.close();
+			throw e;
+			
+		}
 		
 	}
 	
@@ -579,6 +797,10 @@ final class NextMixConnectionHandler extends Thread {
 			
 			interMixHeader[0] = ChannelReleaseMessage.IDENTIFIER;
 			
+		} else if (request instanceof DummyMessage) {
+			
+			interMixHeader[0] = DummyMessage.IDENTIFIER;
+			
 		} else { // BatchSizeMessage
 			
 			BatchSizeMessage bsm = (BatchSizeMessage)request;
@@ -592,6 +814,13 @@ final class NextMixConnectionHandler extends Thread {
 								4
 								);
 			
+			// append round identifier (fits in the first block, since a
+			// BatchSizeMessage has no payload)
+			interMixHeader = 
+				Util.mergeArrays(	interMixHeader,
+									Util.intToByteArray(bsm.getRoundID())
+									);
+									
 		}
 		
 		return interMixHeader;
@@ -625,6 +854,10 @@ final class NextMixConnectionHandler extends Thread {
 			
 			payload = fcm.getPayload().getBytePayload();
 			
+		} else if (request instanceof DummyMessage) {
+			
+			payload = ((DummyMessage)request).getByteMessage();
+			
 		} else {
 			
 			payload = new byte[0];
@@ -640,27 +873,35 @@ final class NextMixConnectionHandler extends Thread {
 	 * Encrypts the block containing the multiplex-header of the bypassed 
 	 * message.
 	 * 
-	 * @param message	Message with plaintext multiplex-header.
+	 * @param message		Message with plaintext multiplex-header.
+	 * @param frameNumber	Number of the frame the message is sent in.
+	 * @param recordIndex	Index of the message within the frame.
 	 * 
-	 * @return			Message with encrypted multiplex-header.
+	 * @return				Message with encrypted multiplex-header.
 	 */
-	private byte[] encryptInterMixHeader(byte[] message) {
+	private byte[] encryptInterMixHeader(	byte[] message,
+											long frameNumber,
+											int recordIndex
+											) {
 		
 		if (message.length < INTER_MIX_BLOCK_SIZE) {
 			
-			byte[] padding = 
-				new byte[INTER_MIX_BLOCK_SIZE - message.length];
+			int lengthOfUnpaddedMessage = message.length;
+			message = Arrays.copyOf(message, INTER_MIX_BLOCK_SIZE);
 			
-			Arrays.fill(padding, (byte)120);
-			message = Util.mergeArrays(message, padding);
+			PaddingGenerator.nextBytes(	message,
+										lengthOfUnpaddedMessage,
+										INTER_MIX_BLOCK_SIZE
+										);
 			
 		}
 		
 		byte[] blockForEncryption = 
-			interMixEncryptCipherWithNextMix.update(	message, 
-														0, 
-														INTER_MIX_BLOCK_SIZE
-														);
+			interMixEncryptCipherWithNextMix.crypt(	message,
+													INTER_MIX_BLOCK_SIZE,
+													frameNumber,
+													recordIndex
+													);
 		
 		return Util.mergeArrays(blockForEncryption, 
 							 	Arrays.copyOfRange(	message, 
@@ -691,14 +932,16 @@ final class NextMixConnectionHandler extends Thread {
 				(SecretKey) externalInformationPort.
 					getInformation(	NEXT_MIX_ADDRESS,
 									NEXT_MIX_INFO_PORT, 
-									Information.INTER_MIX_KEY
+									Information.INTER_MIX_KEY,
+									Util.intToByteArray(CONNECTION_INDEX)
 									);
 			
 			interMixIVWithNextMix = 
 				(IvParameterSpec) externalInformationPort.
 					getInformation(	NEXT_MIX_ADDRESS,
 									NEXT_MIX_INFO_PORT, 
-									Information.INTER_MIX_IV
+									Information.INTER_MIX_IV,
+									Util.intToByteArray(CONNECTION_INDEX)
 									);
 			
 		} catch (InformationRetrieveException e) {
@@ -718,27 +961,18 @@ final class NextMixConnectionHandler extends Thread {
 		try {
 			
 			this.interMixEncryptCipherWithNextMix = 
-				Cipher.getInstance(
-					getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-					getProperty("CRYPTO_PROVIDER")
-					);
-					
-			this.interMixEncryptCipherWithNextMix.init(	
-				Cipher.ENCRYPT_MODE,
-				interMixKeyWithNextMix,
-				interMixIVWithNextMix
-				);
+				new InterMixCipher(	Cipher.ENCRYPT_MODE,
+									interMixKeyWithNextMix,
+									interMixIVWithNextMix,
+									InterMixCipher.REQUESTS
+									);
 				
-			this.interMixDecryptCipherWithNextMix = Cipher.getInstance(
-				getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-				getProperty("CRYPTO_PROVIDER")
-				);
-					
-			this.interMixDecryptCipherWithNextMix.init(	
-				Cipher.DECRYPT_MODE,
-				interMixKeyWithNextMix,
-				interMixIVWithNextMix
-				);
+			this.interMixDecryptCipherWithNextMix = 
+				new InterMixCipher(	Cipher.DECRYPT_MODE,
+									interMixKeyWithNextMix,
+									interMixIVWithNextMix,
+									InterMixCipher.REPLIES
+									);
 			
 		} catch (Exception e) {
 			
@@ -763,28 +997,8 @@ final class NextMixConnectionHandler extends Thread {
 		
 		try {
 			
-			this.interMixEncryptCipherWithNextMix = 
-				Cipher.getInstance(
-					getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-					getProperty("CRYPTO_PROVIDER")
-					);
-					
-			this.interMixEncryptCipherWithNextMix.init(	
-				Cipher.ENCRYPT_MODE,
-				interMixKeyWithNextMix,
-				interMixIVWithNextMix
-				);
-				
-			this.interMixDecryptCipherWithNextMix = Cipher.getInstance(
-				getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-				getProperty("CRYPTO_PROVIDER")
-				);
-					
-			this.interMixDecryptCipherWithNextMix.init(	
-				Cipher.DECRYPT_MODE,
-				interMixKeyWithNextMix,
-				interMixIVWithNextMix
-				);
+			this.interMixEncryptCipherWithNextMix.reset();
+			this.interMixDecryptCipherWithNextMix.reset();
 			
 		} catch (Exception e) {
 			
@@ -4,11 +4,12 @@ package inputOutputHandler;
 import internalInformationPort.InternalInformationPortController;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
@@ -22,6 +23,8 @@ import keyGenerator.KeyGeneratorController;
 import outputStrategy.OutputStrategyController;
 
 import message.BatchSizeMessage;
+import message.DummyMessage;
+import message.PaddingGenerator;
 import message.ChannelEstablishMessage;
 import message.ChannelEstablishMessagePart;
 import message.ChannelReleaseMessage;
@@ -69,6 +72,25 @@ final class PreviousMixConnectionHandler extends Thread {
 	/** Port number this <code>PreviousMixConnectionHandler</code> runs on. */
 	private final int PORT; 
 	
+	/**
+	 * Indicates whether the previous mix runs in the same JVM and connects 
+	 * in-process (see property <code>INTER_MIX_TRANSPORT</code> and 
+	 * <code>InProcessChannel</code>) or via TCP.
+	 */
+	private final boolean IS_IN_PROCESS_TRANSPORT;
+	
+	/**
+	 * Indicates whether the previous mix runs on the same host and connects 
+	 * via a Unix domain socket (see <code>UnixDomainSockets</code>) or not.
+	 */
+	private final boolean IS_UNIX_TRANSPORT;
+	
+	/**
+	 * Index of the connection (of the link with the previous mix) handled by 
+	 * this object (see property <code>NUMBER_OF_INTER_MIX_CONNECTIONS</code>).
+	 */
+	private final int CONNECTION_INDEX;
+	
 	/** 
 	 * Address this <code>PreviousMixConnectionHandler</code>'s socket shall be 
 	 * bound to.
@@ -103,20 +125,39 @@ final class PreviousMixConnectionHandler extends Thread {
 	/** Indicates whether this mix is the lost of the cascade or not. */
 	private final boolean IS_LAST;
 	
-	/** Socket for communicating with previous mix. */
-	private Socket previousMixSocket;
+	/**
+	 * Decoder used to read frames (of requests) from 
+	 * <code>previousMixChannel</code>.
+	 */
+	private InterMixFrameDecoder frameDecoder;
 	
-	/** InputStream for communicating with previous mix. */
-	private InputStream previousMixInputStream;
+	/**
+	 * (Blocking) channel for communicating with previous mix (a 
+	 * <code>SocketChannel</code> or an <code>InProcessChannel</code>). Used 
+	 * to send frames of replies with gathering writes.
+	 */
+	private ByteChannel previousMixChannel;
+	
+	/** The frame currently received (containing the requests to parse). */
+	private InterMixFrame requestsOfFrame;
+	
+	/** Number of requests of the current frame not yet parsed. */
+	private int remainingRequestsOfFrame = 0;
+	
+	/** Number of requests of the frame currently received. */
+	private int numberOfRequestsOfFrame = 0;
 	
-	/** OutputStream for communicating with previous mix. */
-	private OutputStream previousMixOutputStream;
+	/**
+	 * Number of the frame currently received (see 
+	 * <code>InterMixFrame</code>).
+	 */
+	private long numberOfCurrentFrame = 0;
 	
 	/** Cipher for encrypting multiplex-headers of replies. */
-	private Cipher interMixEncryptCipherWithPreviousMix;
+	private InterMixCipher interMixEncryptCipherWithPreviousMix;
 	
 	/** Cipher for decrypting multiplex-headers of requests. */
-	private Cipher interMixDecryptCipherWithPreviousMix;
+	private InterMixCipher interMixDecryptCipherWithPreviousMix;
 	
 	/** Key used to encrypt data between this mix and its predecessor. */
 	private SecretKey interMixKeyWithPreviousMix = null;
@@ -138,15 +179,24 @@ final class PreviousMixConnectionHandler extends Thread {
 	private AtomicBoolean handleRepliesIsWaitingForConnection = 
 		new AtomicBoolean(false);
 	
-	/** ServerSocket used to accept the previous mix' connection attempt. */
-	private ServerSocket serverSocket;
+	/**
+	 * <code>ServerSocketChannel</code> used to accept the previous mix' 
+	 * connection attempt.
+	 */
+	private ServerSocketChannel serverSocketChannel;
+	
+	/**
+	 * Used instead of <code>serverSocketChannel</code> to accept the previous 
+	 * mix' connection attempt, if it runs in the same JVM.
+	 */
+	private InProcessServerChannel inProcessServerChannel;
 	
 	/** 
 	 * Reference on <code>InputOutputHandlerController()</code> (Used to get 
 	 * processed replies and add unprocessed requests).
 	 * 
 	 * @see InputOutputHandlerController#addUnprocessedRequest(message.Request)
-	 * @see InputOutputHandlerController#getProcessedReply()
+	 * @see InputOutputHandlerController#getProcessedReplies(int, int)
 	 */
 	private InputOutputHandlerController inputOutputHandler;
 	
@@ -169,6 +219,13 @@ final class PreviousMixConnectionHandler extends Thread {
 	 */
 	private ExternalInformationPortController externalInformationPort;
 	
+	/**
+	 * Identifier of the round (= request batch of the cascade's first mix) 
+	 * messages currently received from the previous mix belong to (taken 
+	 * from the latest <code>BatchSizeMessage</code>).
+	 */
+	private int currentRoundID = 0;
+	
 	
 	/**
 	 * Constructs a new <code>PreviousMixConnectionHandler</code> which handles 
@@ -186,7 +243,8 @@ final class PreviousMixConnectionHandler extends Thread {
 	 * (see <code>InputOutputHandlerController.addUnprocessedRequest()</code>).
 	 * <code>Reply</code>ies are taken from the 
 	 * <code>InputOutputHandlerController</code>'s <code>replyOutputQueue</code> 
-	 * (see <code>InputOutputHandlerController.getProcessedReply()</code>).
+	 * of the bypassed connection 
+	 * (see <code>InputOutputHandlerController.getProcessedReplies()</code>).
 	 * <p>
 	 * Adds/removes user to/from <code>UserDatabase</code>.
 	 * <p>
@@ -206,12 +264,15 @@ final class PreviousMixConnectionHandler extends Thread {
 	 * 									(Used to provide the cryptographic key 
 	 * 									used to encrypt/decrypt 
 	 * 									multiplex-headers to the previous mix. 
+	 * @param connection			Index of the connection (of the link with 
+	 * 								the previous mix) to handle.
 	 */
 	protected PreviousMixConnectionHandler(
 			InputOutputHandlerController inputOutputHandler,
 			UserDatabaseController userDatabase,
 			OutputStrategyController outputStrategy,
-			ExternalInformationPortController externalInformationPort
+			ExternalInformationPortController externalInformationPort,
+			int connection
 			) {
 		
 		this.BIND_ADDRESS = 
@@ -219,7 +280,19 @@ final class PreviousMixConnectionHandler extends Thread {
 					getProperty("BIND_ADDRESS")
 					);
 			
-		this.PORT = new Integer(getProperty("PORT")); 
+		this.CONNECTION_INDEX = connection;
+		
+		this.PORT = 
+			new Integer(getProperty("PORT"))
+			+ connection
+			* new Integer(getProperty("INTER_MIX_CONNECTION_PORT_OFFSET"));
+		
+		this.IS_IN_PROCESS_TRANSPORT = 
+			getProperty("INTER_MIX_TRANSPORT").trim().equalsIgnoreCase(
+					"IN_PROCESS"
+					);
+		
+		this.IS_UNIX_TRANSPORT = UnixDomainSockets.isConfigured();
 		
 		this.PREVIOUS_MIX_ADDRESS = 
 			InputOutputHandlerController.tryToGenerateInetAddress(
@@ -263,10 +336,32 @@ final class PreviousMixConnectionHandler extends Thread {
 		
 		try {
 			
-			serverSocket = new ServerSocket(PORT, 1, BIND_ADDRESS);
+			if (IS_IN_PROCESS_TRANSPORT) {
+				
+				inProcessServerChannel = InProcessServerChannel.bind(PORT);
+				
+			} else if (IS_UNIX_TRANSPORT) {
+				
+				serverSocketChannel = 
+					UnixDomainSockets.bind(UnixDomainSockets.getPath(PORT));
+					
+			} else {
+				
+				serverSocketChannel = ServerSocketChannel.open();
+				
+				serverSocketChannel.socket().bind(
+						new InetSocketAddress(BIND_ADDRESS, PORT),
+						1
+						);
+						
+			}
 				
 			LOGGER.info(	"(MIX" +POSITION_OF_MIX_IN_CASCADE +" IOH) " 
 							+"Listening on port " +PORT
+							+(IS_IN_PROCESS_TRANSPORT ? " (in-process)" : "")
+							+(IS_UNIX_TRANSPORT
+								? " (" +UnixDomainSockets.getPath(PORT) +")"
+								: "")
 							);
 			
 			LOGGER.config(	"(MIX" +POSITION_OF_MIX_IN_CASCADE +") Bound to: " 
@@ -312,20 +407,59 @@ final class PreviousMixConnectionHandler extends Thread {
 		
 		while (true) { // send replies to previous mix
 			
-			// wait for next message
-			Reply reply = inputOutputHandler.getProcessedReply();
+			// wait for next messages
+			Reply[] replies = 
+				inputOutputHandler.getProcessedReplies(
+						CONNECTION_INDEX,
+						inputOutputHandler.QUEUE_DRAIN_LIMIT
+						);
 			
-			byte[] messageToSend = addInterMixHeader(reply);
+			byte[][] messagesToSend = new byte[replies.length][];
+			int frameLength = 0;
 			
-			// send message
-			try {
+			for (int i=0; i<replies.length; i++) {
+				
+				messagesToSend[i] = addInterMixHeader(replies[i]);
 				
-				byte[] lengthHeader = 
-					Util.intToByteArray(messageToSend.length);
+				// length header and message (length after encryption, see
+				// "encryptInterMixHeader()")
+				frameLength += 
+					4
+					+ Math.max(messagesToSend[i].length, INTER_MIX_BLOCK_SIZE);
 				
-				previousMixOutputStream.write(lengthHeader);
-				previousMixOutputStream.write(messageToSend);
-				previousMixOutputStream.flush();
+			}
+			
+			// frame header must be encrypted first (stream cipher)
+			// (a length header and a message per reply)
+			ByteBuffer[] frame = new ByteBuffer[2*replies.length + 1];
+			
+			long frameNumber = 
+				interMixEncryptCipherWithPreviousMix.getNextFrameNumber();
+			
+			frame[0] = 
+				InterMixFrame.createHeader(
+						replies.length,
+						frameLength,
+						interMixEncryptCipherWithPreviousMix,
+						frameNumber
+						);
+			
+			for (int i=0; i<replies.length; i++) {
+				
+				byte[] messageToSend = 
+					encryptInterMixHeader(messagesToSend[i], frameNumber, i);
+				
+				frame[2*i + 1] = 
+					ByteBuffer.wrap(Util.intToByteArray(messageToSend.length));
+				
+				frame[2*i + 2] = ByteBuffer.wrap(messageToSend);
+				
+			}
+			
+			// send messages (with a single gathering write)
+			try {
+				
+				InterMixFrame.write(previousMixChannel, frame);
 					
 			} catch (IOException e) {
 					
@@ -354,17 +488,17 @@ final class PreviousMixConnectionHandler extends Thread {
 		
 		synchronized (handleRepliesIsWaitingForConnection) {
 			
-			if (	previousMixSocket == null 
+			if (	previousMixChannel == null
 					|| 
-					!previousMixSocket.isConnected()
+					!previousMixChannel.isOpen()
 					) {
 				
 				// wait for connection
 				handleRepliesIsWaitingForConnection.set(true);
 				
-				while (	previousMixSocket == null 
+				while (	previousMixChannel == null
 						|| 
-						!previousMixSocket.isConnected()
+						!previousMixChannel.isOpen()
 						) {
 					
 					try {
@@ -392,36 +526,103 @@ final class PreviousMixConnectionHandler extends Thread {
 	
 	
 	/**
-	 * Adds an (encrypted) header to a <code>Reply</code> containing 
+	 * Adds a (plaintext) header to a <code>Reply</code> containing 
 	 * an identifier for the suiting channel (the identifier is unique for any 
-	 * neighboured mixes).
+	 * neighboured mixes). Pushed <code>ReplyMessage</code>s additionally 
+	 * contain the identifier and size of their push batch. The header must be 
+	 * encrypted with <code>encryptInterMixHeader()</code> before sending.
 	 * 
 	 * @param reply	<code>Reply</code> without header.
 	 * 
-	 * @return <code>Reply</code> with header.
+	 * @return <code>Reply</code> with (plaintext) header.
 	 */
 	private byte[] addInterMixHeader(Reply reply) {
 		
 		byte[] messageToSend = reply.getByteMessage();
-		byte[] interMixHeader = new byte[5];
+		
+		boolean isPushed = 
+			(reply instanceof ReplyMessage)
+			&&
+			((ReplyMessage)reply).isPushed();
+		
+		byte[] interMixHeader = new byte[isPushed ? 13 : 5];
 		
 		byte[] channelIdentifier = 
 			Util.intToByteArray(reply.getChannelID());
 		
 		System.arraycopy(channelIdentifier, 0, interMixHeader, 1, 4);
-		interMixHeader[0] = ReplyMessage.IDENTIFIER;
 		
-		messageToSend = 
-			Util.mergeArrays(interMixHeader, messageToSend);
+		if (isPushed) {
 			
+			interMixHeader[0] = ReplyMessage.PUSH_IDENTIFIER;
+			
+			System.arraycopy(	Util.intToByteArray(reply.getRoundID()),
+								0,
+								interMixHeader,
+								5,
+								4
+								);
+			
+			System.arraycopy(	Util.intToByteArray(
+									((ReplyMessage)reply).getPushBatchSize()),
+								0,
+								interMixHeader,
+								9,
+								4
+								);
+								
+		} else {
+			
+			interMixHeader[0] = 
+				(reply instanceof DummyMessage)
+				? DummyMessage.IDENTIFIER
+				: ReplyMessage.IDENTIFIER;
+				
+		}
+		
+		return Util.mergeArrays(interMixHeader, messageToSend);
+		
+	}
+
+	
+	/**
+	 * Encrypts the block containing the multiplex-header of the bypassed 
+	 * message.
+	 * 
+	 * @param messageToSend	Message with plaintext multiplex-header.
+	 * @param frameNumber	Number of the frame the message is sent in.
+	 * @param recordIndex	Index of the message within the frame.
+	 * 
+	 * @return				Message with encrypted multiplex-header (padded 
+	 * 						to <code>INTER_MIX_BLOCK_SIZE</code>, if 
+	 * 						shorter).
+	 */
+	private byte[] encryptInterMixHeader(	byte[] messageToSend,
+											long frameNumber,
+											int recordIndex
+											) {
+		
+		if (messageToSend.length < INTER_MIX_BLOCK_SIZE) {
+			
+			int lengthOfUnpaddedMessage = messageToSend.length;
+			messageToSend = Arrays.copyOf(messageToSend, INTER_MIX_BLOCK_SIZE);
+			
+			PaddingGenerator.nextBytes(	messageToSend,
+										lengthOfUnpaddedMessage,
+										INTER_MIX_BLOCK_SIZE
+										);
+										
+		}
+		
 		// encrypt block with interMixHeader
-		interMixHeader = 
-			interMixEncryptCipherWithPreviousMix.update(messageToSend, 
-														0, 
-														INTER_MIX_BLOCK_SIZE
+		byte[] blockWithHeader = 
+			interMixEncryptCipherWithPreviousMix.crypt(	messageToSend,
+														INTER_MIX_BLOCK_SIZE,
+														frameNumber,
+														recordIndex
 														);
 		
-		return Util.mergeArrays(interMixHeader, 
+		return Util.mergeArrays(blockWithHeader,
 								Arrays.copyOfRange(	messageToSend, 
 													INTER_MIX_BLOCK_SIZE, 
 													messageToSend.length
@@ -432,7 +633,8 @@ final class PreviousMixConnectionHandler extends Thread {
 
 
 	/**
-	 * Receives messages from previous mix and passes them to the 
+	 * Receives messages from previous mix (in frames, see 
+	 * <code>InterMixFrame</code>) and passes them to the 
 	 * <code>InputOutputHandler</code>.
 	 * 
 	 * @see InputOutputHandlerController#addUnprocessedRequest(message.Request)
@@ -445,13 +647,31 @@ final class PreviousMixConnectionHandler extends Thread {
 		while (true) { // receive messages from previous mix
 			
 			try {
+				
+				if (remainingRequestsOfFrame == 0) { // read next frame
+					
+					InterMixFrame frame = frameDecoder.read();
 					
+					requestsOfFrame = frame;
+					numberOfCurrentFrame = frame.getFrameNumber();
+					numberOfRequestsOfFrame = frame.getNumberOfRecords();
+					remainingRequestsOfFrame = numberOfRequestsOfFrame;
+					continue;
+					
+				}
+				
+				int recordIndex = 
+					numberOfRequestsOfFrame - remainingRequestsOfFrame;
+				
+				remainingRequestsOfFrame--;
+				
 				User user = null;
 				byte[] blockWithHeader = new byte[INTER_MIX_BLOCK_SIZE];
-				previousMixInputStream.read(blockWithHeader);
+				requestsOfFrame.read(blockWithHeader);
 				
 				// decrypt blockWithHeader
-				blockWithHeader = decryptBlockWithHeader(blockWithHeader);
+				blockWithHeader = 
+					decryptBlockWithHeader(blockWithHeader, recordIndex);
 				
 				int channelIdentifier = 
 					Util.byteArrayToInt(Arrays.copyOfRange(blockWithHeader, 1, 5));
@@ -488,7 +708,8 @@ final class PreviousMixConnectionHandler extends Thread {
 						readChannelEstablishMessage(	blockWithHeader, 
 														newChannel
 														);
-						
+					
+					cem.setRoundID(currentRoundID);
 					inputOutputHandler.addUnprocessedRequest(cem);
 					
 				} else if (	messageIdentifier 
@@ -533,6 +754,7 @@ final class PreviousMixConnectionHandler extends Thread {
 						ChannelMessage fm = 
 							readChannelMessage(blockWithHeader, user);
 						
+						fm.setRoundID(currentRoundID);
 						inputOutputHandler.addUnprocessedRequest(fm);
 						
 					}
@@ -551,6 +773,7 @@ final class PreviousMixConnectionHandler extends Thread {
 							ChannelReleaseMessage channelReleaseMessage = 
 								new ChannelReleaseMessage(user);
 							
+							channelReleaseMessage.setRoundID(currentRoundID);
 							userDatabase.removeUser(channelIdentifier);
 							
 							outputStrategy.
@@ -602,9 +825,32 @@ final class PreviousMixConnectionHandler extends Thread {
 					byte[] sizeAsArray = 
 						Arrays.copyOfRange(blockWithHeader, 1, 5);
 					
-					//change the batch size for the batch outputstrategy
-					outputStrategy.addRequest(new BatchSizeMessage(
-							Util.byteArrayToInt(sizeAsArray)));
+					byte[] roundAsArray = 
+						Arrays.copyOfRange(blockWithHeader, 5, 9);
+					
+					// all following messages belong to the announced round
+					currentRoundID = Util.byteArrayToInt(roundAsArray);
+					
+					// change the batch size for the batch outputstrategy
+					// (the message is sent via each connection of the link,
+					// but must be added only once)
+					if (CONNECTION_INDEX == 0) {
+						
+						outputStrategy.addRequest(new BatchSizeMessage(
+								Util.byteArrayToInt(sizeAsArray),
+								currentRoundID
+								));
+								
+					}
+							
+				} else if (	messageIdentifier
+							== 
+							DummyMessage.IDENTIFIER
+							) {
+					// cover traffic (same size as a ChannelMessage) -> discard
+					
+					skipChannelMessage();
+					continue;
 					
 				} else { // invalid identifier
 					
@@ -644,7 +890,17 @@ final class PreviousMixConnectionHandler extends Thread {
 	 */
 	private void waitForIncomingConnection() {
 		
-		if (previousMixSocket != null) { // connection lost => reset ciphers
+		if (previousMixChannel != null) { // connection lost => reset ciphers
+			
+			try {
+				
+				previousMixChannel.close(); // release old connection
+				
+			} catch (IOException e) {
+				
+				LOGGER.fine(e.getMessage());
+				
+			}
 			
 			resetInterMixCiphers();
 			
@@ -661,12 +917,15 @@ final class PreviousMixConnectionHandler extends Thread {
 						
 				synchronized (handleRepliesIsWaitingForConnection) {
 					
-					previousMixSocket = serverSocket.accept();
-					previousMixSocket.setKeepAlive(true);
-					previousMixInputStream = previousMixSocket.getInputStream();
+					previousMixChannel = acceptChannel();
+					
+					frameDecoder = 
+						new InterMixFrameDecoder(
+								previousMixChannel,
+								interMixDecryptCipherWithPreviousMix
+								);
 					
-					previousMixOutputStream = 
-						previousMixSocket.getOutputStream();
+					remainingRequestsOfFrame = 0;
 							
 					LOGGER.info(	"(MIX" +POSITION_OF_MIX_IN_CASCADE 
 									+" IOH) Connection established."
@@ -696,6 +955,37 @@ final class PreviousMixConnectionHandler extends Thread {
 		}
 		
 	}
+
+	
+	/**
+	 * Accepts the previous mix' connection, either in-process, via a Unix 
+	 * domain socket or via TCP (see property 
+	 * <code>INTER_MIX_TRANSPORT</code>). Blocks, until the previous mix 
+	 * connects.
+	 * 
+	 * @return	The connected channel.
+	 * 
+	 * @throws IOException	If the connection can't be accepted.
+	 */
+	private ByteChannel acceptChannel() throws IOException {
+		
+		if (IS_IN_PROCESS_TRANSPORT) {
+			
+			return inProcessServerChannel.accept();
+			
+		}
+		
+		SocketChannel socketChannel = serverSocketChannel.accept();
+		
+		if (!IS_UNIX_TRANSPORT) { // no socket options for Unix domain sockets
+			
+			socketChannel.socket().setKeepAlive(true);
+			
+		}
+		
+		return socketChannel;
+		
+	}
 	
 	
 	/**
@@ -703,12 +993,21 @@ final class PreviousMixConnectionHandler extends Thread {
 	 * 
 	 * @param blockWithHeader	Block of the <code>Request</code> containing 
 	 * 							the multiplex-header.
+	 * @param recordIndex		Index of the <code>Request</code> within the 
+	 * 							current frame.
 	 * 
 	 * @return					Decrypted multiplex-header.
 	 */
-	private byte[] decryptBlockWithHeader(byte[] blockWithHeader) {
-		
-		return interMixDecryptCipherWithPreviousMix.update(blockWithHeader);
+	private byte[] decryptBlockWithHeader(	byte[] blockWithHeader,
+											int recordIndex
+											) {
+		
+		return interMixDecryptCipherWithPreviousMix.crypt(
+				blockWithHeader,
+				blockWithHeader.length,
+				numberOfCurrentFrame,
+				recordIndex
+				);
 		
 	}
 	
@@ -746,12 +1045,6 @@ final class PreviousMixConnectionHandler extends Thread {
 			// create new channel
 			User newChannel = new User(userIdentifier);
 			
-			if (IS_LAST) { // last mix of cascade
-				
-				newChannel.initializeProxyBuffers();
-				
-			}
-			
 			userDatabase.addUser(newChannel);
 			return newChannel;
 			
@@ -779,7 +1072,7 @@ final class PreviousMixConnectionHandler extends Thread {
 			// already read (they are located in 
 			// "blockWithHeader[5-INTER_MIX_BLOCK_SIZE]")
 		
-		previousMixInputStream.skip(restOfMessageLength);
+		requestsOfFrame.skip(restOfMessageLength);
 		
 	}
 	
@@ -802,7 +1095,7 @@ final class PreviousMixConnectionHandler extends Thread {
 			// already read (they are located in 
 			// "blockWithHeader[5-INTER_MIX_BLOCK_SIZE]")
 		
-		previousMixInputStream.skip(restOfMessageLength);
+		requestsOfFrame.skip(restOfMessageLength);
 		
 	}
 
@@ -826,9 +1119,6 @@ final class PreviousMixConnectionHandler extends Thread {
 			byte[] blockWithHeader, 
 			User user) throws IOException {
 		
-		byte[] firstPartOfMessage = 
-			Arrays.copyOfRange(blockWithHeader, 5, INTER_MIX_BLOCK_SIZE);
-		
 		int restOfMessageLength = 
 			ChannelEstablishMessagePart.getMessageLength(
 					NUMBER_OF_FURTHER_HOPS
@@ -840,11 +1130,21 @@ final class PreviousMixConnectionHandler extends Thread {
 			// already read (they are located in 
 			// "blockWithHeader[5-INTER_MIX_BLOCK_SIZE]")
 		
-		byte[] restOfMessage = new byte[restOfMessageLength];
-		previousMixInputStream.read(restOfMessage);
-			
+		// decode directly into the message (without intermediate arrays)
 		byte[] completeMessage = 
-			Util.mergeArrays(firstPartOfMessage, restOfMessage);
+			new byte[INTER_MIX_BLOCK_SIZE - 5 + restOfMessageLength];
+		
+		System.arraycopy(	blockWithHeader,
+							5,
+							completeMessage,
+							0,
+							INTER_MIX_BLOCK_SIZE - 5
+							);
+		
+		requestsOfFrame.read(	completeMessage,
+								INTER_MIX_BLOCK_SIZE - 5,
+								restOfMessageLength
+								);
 			
 		return new ChannelEstablishMessage(	completeMessage, 
 											user, 
@@ -873,9 +1173,6 @@ final class PreviousMixConnectionHandler extends Thread {
 			User user) throws IOException {
 		
 		
-		byte[] firstPartOfMessage = 
-			Arrays.copyOfRange(blockWithHeader, 5, INTER_MIX_BLOCK_SIZE);
-		
 		int restOfMessageLength = 
 			ChannelMessagePart.getMessageLength(
 					NUMBER_OF_FURTHER_HOPS
@@ -887,11 +1184,21 @@ final class PreviousMixConnectionHandler extends Thread {
 			// already read (they are located in 
 			// "blockWithHeader[5-INTER_MIX_BLOCK_SIZE]")
 			
-		byte[] restOfMessage = new byte[restOfMessageLength];
-		previousMixInputStream.read(restOfMessage);
-			
+		// decode directly into the message (without intermediate arrays)
 		byte[] completeMessage = 
-			Util.mergeArrays(firstPartOfMessage, restOfMessage);
+			new byte[INTER_MIX_BLOCK_SIZE - 5 + restOfMessageLength];
+		
+		System.arraycopy(	blockWithHeader,
+							5,
+							completeMessage,
+							0,
+							INTER_MIX_BLOCK_SIZE - 5
+							);
+		
+		requestsOfFrame.read(	completeMessage,
+								INTER_MIX_BLOCK_SIZE - 5,
+								restOfMessageLength
+								);
 		
 		return new ChannelMessage(	completeMessage, 
 									user, 
@@ -956,37 +1263,30 @@ final class PreviousMixConnectionHandler extends Thread {
 		interMixIVWithPreviousMix = getInterMixIV(keyGenerator);
 		
 		externalInformationPort.setInterMixKeyWithPreviousMix(
+				CONNECTION_INDEX,
 				interMixKeyWithPreviousMix
 				);
 		
 		externalInformationPort.setInterMixIVWithPreviousMix(
+				CONNECTION_INDEX,
 				interMixIVWithPreviousMix
 				);
 		
 		try {
 			
 			this.interMixEncryptCipherWithPreviousMix = 
-				Cipher.getInstance(
-					getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-					getProperty("CRYPTO_PROVIDER")
-					);
-			
-			this.interMixEncryptCipherWithPreviousMix.init(	
-				Cipher.ENCRYPT_MODE,
-				interMixKeyWithPreviousMix,
-				interMixIVWithPreviousMix
-				);
-			
-			this.interMixDecryptCipherWithPreviousMix = Cipher.getInstance(
-				getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-				getProperty("CRYPTO_PROVIDER")
-				);
+				new InterMixCipher(	Cipher.ENCRYPT_MODE,
+									interMixKeyWithPreviousMix,
+									interMixIVWithPreviousMix,
+									InterMixCipher.REPLIES
+									);
 			
-			this.interMixDecryptCipherWithPreviousMix.init(	
-				Cipher.DECRYPT_MODE,
-				interMixKeyWithPreviousMix,
-				interMixIVWithPreviousMix
-				);
+			this.interMixDecryptCipherWithPreviousMix = 
+				new InterMixCipher(	Cipher.DECRYPT_MODE,
+									interMixKeyWithPreviousMix,
+									interMixIVWithPreviousMix,
+									InterMixCipher.REQUESTS
+									);
 				
 		} catch (Exception e) {
 			
@@ -1011,28 +1311,8 @@ final class PreviousMixConnectionHandler extends Thread {
 		
 		try {
 			
-			this.interMixEncryptCipherWithPreviousMix = 
-				Cipher.getInstance(
-					getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-					getProperty("CRYPTO_PROVIDER")
-					);
-					
-			this.interMixEncryptCipherWithPreviousMix.init(	
-				Cipher.ENCRYPT_MODE,
-				interMixKeyWithPreviousMix,
-				interMixIVWithPreviousMix
-				);
-				
-			this.interMixDecryptCipherWithPreviousMix = Cipher.getInstance(
-				getProperty("INTER_MIX_CRYPTOGRAPHY_ALGORITHM"),
-				getProperty("CRYPTO_PROVIDER")
-				);
-					
-			this.interMixDecryptCipherWithPreviousMix.init(	
-				Cipher.DECRYPT_MODE,
-				interMixKeyWithPreviousMix,
-				interMixIVWithPreviousMix
-				);
+			this.interMixEncryptCipherWithPreviousMix.reset();
+			this.interMixDecryptCipherWithPreviousMix.reset();
 			
 		} catch (Exception e) {
 			
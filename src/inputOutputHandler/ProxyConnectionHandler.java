@@ -1,18 +1,25 @@
 package inputOutputHandler;
 
 
+import internalInformationPort.InternalInformationPortController;
 import message.ChannelEstablishMessage;
 import message.ChannelMessage;
 import message.Request;
+import userDatabase.User;
 
 
 /**
  * Handles communication with a proxy server.
  * <p>
- * Not implemented! Currently any <code>Request</code> data is echoed. 
- * Nevertheless, suiting (synchronized) buffers (and methods for manipulation) 
- * are already present in <code>userDatabase.User</code> ensuring simple 
- * integration.
+ * Depending on property <code>PROXY_MODE</code>, any <code>Request</code> 
+ * data is either echoed (<code>"ECHO"</code>, for testing) or sent to the 
+ * proxy server specified by <code>PROXY_ADDRESS</code> and 
+ * <code>PROXY_PORT</code> (<code>"UPSTREAM"</code>, see 
+ * <code>ProxyConnector</code>). The data is exchanged via the (synchronized) 
+ * buffers of <code>userDatabase.User</code>.
+ * <p>
+ * In mode <code>"UPSTREAM"</code>, HTTP responses can be cached (see 
+ * <code>HttpCacheFilter</code> and property <code>HTTP_CACHE_SIZE</code>).
  * 
  * @see userDatabase.User#putInProxyWriteBuffer(byte[])
  * @see userDatabase.User#putInProxyReadBuffer(byte[])
@@ -29,19 +36,37 @@ final class ProxyConnectionHandler extends Thread {
 	 * Reference on <code>InputOutputHandlerController()</code> (Used to get 
 	 * processed requests which shall be submitted to the proxy).
 	 * 
-	 * @see InputOutputHandlerController#getProcessedRequest()
+	 * @see InputOutputHandlerController#getProcessedRequests(int)
 	 */
 	private InputOutputHandlerController inputOutputHandler;
 	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/**
+	 * Connector used to send data to the proxy server (<code>null</code>, if 
+	 * data is echoed).
+	 */
+	private ProxyConnector proxyConnector;
+	
+	/**
+	 * Exit-side HTTP cache (<code>null</code>, if not used, see 
+	 * <code>HTTP_CACHE_SIZE</code>).
+	 */
+	private HttpCacheFilter httpCacheFilter;
+	
 	
 	/**
 	 * Generates a new <code>ProxyConnectionHandler</code>, which handles 
 	 * communication with a proxy server.
 	 * <p>
-	 * Not implemented! Currently any <code>Request</code> data is echoed. 
-	 * Nevertheless, suiting (synchronized) buffers (and methods for manipulation) 
-	 * are already present in <code>userDatabase.User</code> ensuring simple 
-	 * integration.
+	 * Depending on property <code>PROXY_MODE</code>, any <code>Request</code> 
+	 * data is either echoed or sent to the proxy server (see 
+	 * <code>ProxyConnector</code>).
 	 * 
 	 * @see userDatabase.User#putInProxyWriteBuffer(byte[])
 	 * @see userDatabase.User#putInProxyReadBuffer(byte[])
@@ -56,6 +81,27 @@ final class ProxyConnectionHandler extends Thread {
 
 		this.inputOutputHandler = inputOutputHandler;
 		
+		String mode = 
+			internalInformationPort.getProperty("PROXY_MODE").trim();
+		
+		if (mode.equalsIgnoreCase("UPSTREAM")) {
+			
+			long cacheSize = 
+				new Long(internalInformationPort.getProperty(
+						"HTTP_CACHE_SIZE"
+						));
+			
+			if (cacheSize > 0) {
+				
+				this.httpCacheFilter = new HttpCacheFilter(inputOutputHandler);
+				
+			}
+			
+			this.proxyConnector = 
+				new ProxyConnector(inputOutputHandler, httpCacheFilter);
+			
+		}
+		
 		start();
 		
 	}
@@ -72,31 +118,79 @@ final class ProxyConnectionHandler extends Thread {
 		
 		while (true) {
 			
-			Request request = inputOutputHandler.getProcessedRequest();
-					// blocking method
-			
-			request.getChannel().setTimestampOfLastActivity();
+			Request[] requests = 
+				inputOutputHandler.getProcessedRequests(
+						inputOutputHandler.QUEUE_DRAIN_LIMIT
+						); // blocking method
 			
-			// write data to suiting buffer
-			if (request instanceof ChannelEstablishMessage) {
+			for (Request request: requests) {
 				
-				ChannelEstablishMessage crm = 
-					(ChannelEstablishMessage)request;
+				request.getChannel().setTimestampOfLastActivity();
 				
-				byte[] dataToSend = crm.getPayload().getMessage();
-				request.getChannel().putInProxyWriteBuffer(dataToSend);
+				// write data to suiting buffer
+				if (request instanceof ChannelEstablishMessage) {
+					
+					ChannelEstablishMessage crm = 
+						(ChannelEstablishMessage)request;
+					
+					byte[] dataToSend = crm.getPayload().getMessage();
+					send(request.getChannel(), dataToSend);
+					
+				} else { // ForwardChannelMessage
+					
+					ChannelMessage fcm = (ChannelMessage)request;
+					
+					byte[] dataToSend = fcm.getPayload().getMessage();
+					send(request.getChannel(), dataToSend);
+					
+				}
 				
-			} else { // ForwardChannelMessage
-				
-				ChannelMessage fcm = (ChannelMessage)request;
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Puts the bypassed data in the bypassed <code>User</code>'s proxy write 
+	 * buffer and notifies the <code>ProxyConnector</code> (or echoes the 
+	 * data, if no <code>ProxyConnector</code> is used). Requests answered by 
+	 * the <code>httpCacheFilter</code> aren't sent.
+	 * 
+	 * @param channel	<code>User</code> the data belongs to.
+	 * @param data		Data, that shall be sent to the proxy server.
+	 */
+	private void send(User channel, byte[] data) {
+		
+		if (httpCacheFilter != null) {
+			
+			data = httpCacheFilter.filterRequestData(channel, data);
+			
+			if (data.length == 0) { // answered from cache
 				
-				byte[] dataToSend = fcm.getPayload().getMessage();
-				request.getChannel().putInProxyWriteBuffer(dataToSend);
+				return;
 				
 			}
 			
 		}
 		
+		channel.putInProxyWriteBuffer(data);
+		
+		if (proxyConnector != null) {
+			
+			proxyConnector.addWriteRequest(channel);
+			
+		} else { // echo
+			
+			channel.putInProxyReadBuffer(
+					channel.getFromProxyWriteBuffer(data.length)
+					);
+			
+			inputOutputHandler.proxyDataReceived(channel);
+					
+		}
+		
 	}
 
 }
@@ -0,0 +1,703 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import userDatabase.User;
+
+
+/**
+ * Connects the channels (<code>User</code>s) of the last mix of the cascade 
+ * to the proxy server specified by <code>PROXY_ADDRESS</code> and 
+ * <code>PROXY_PORT</code> (see property <code>PROXY_MODE</code>).
+ * <p>
+ * All connections are handled by a single thread with a 
+ * <code>Selector</code> (non-blocking I/O). Each channel gets its own 
+ * connection to the proxy server, which is opened when the channel's first 
+ * data is sent. Data is written directly from the channel's proxy write 
+ * buffer and read directly to its proxy read buffer (see 
+ * <code>User.writeToProxy()</code> and <code>User.readFromProxy()</code>).
+ * <p>
+ * Backpressure: Reading from a connection is suspended (by removing 
+ * <code>OP_READ</code> from its interest set), as long as the channel's 
+ * proxy read buffer is full (i. e. the replies aren't sent fast enough). 
+ * Write interest is only set, while data is waiting to be sent.
+ * <p>
+ * When a channel is released, its connection is closed. Optionally (see 
+ * property <code>PROXY_CONNECTION_POOL_SIZE</code>), it is kept open 
+ * (keep-alive) and put in a pool of idle connections, which are reused for 
+ * new channels (saves the connection setup). Since the proxy server can 
+ * link all channels using the same connection, pooling is disabled by 
+ * default. A connection is only pooled, if it is at a known message 
+ * boundary (see <code>HttpCacheFilter.isAtMessageBoundary()</code>), so 
+ * neither data of the old channel's requests nor responses to them can 
+ * reach the new channel. Therefore, pooling requires the 
+ * <code>HttpCacheFilter</code> (which parses the data). An idle connection 
+ * receiving data is closed.
+ * <p>
+ * If an <code>HttpCacheFilter</code> is used, data is read through it (see 
+ * <code>HttpCacheFilter.readFromProxy()</code>), to store responses.
+ */
+final class ProxyConnector extends Thread {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/**
+	 * Maximum time (in ms) the selector waits for events, while connections 
+	 * must be checked for released channels or resumable reads.
+	 */
+	private static final long MAINTENANCE_INTERVAL = 50;
+	
+	/** Address and port of the proxy server. */
+	private final InetSocketAddress PROXY_ADDRESS;
+	
+	/** Maximum number of idle (pooled) connections. */
+	private final int POOL_SIZE;
+	
+	/** <code>Selector</code> used for non-blocking I/O. */
+	private final Selector selector;
+	
+	/**
+	 * <code>User</code>s with new data to be sent (added by other threads, 
+	 * see <code>addWriteRequest()</code>).
+	 */
+	private LinkedList<User> writeRequests = new LinkedList<User>();
+	
+	/**
+	 * Connections of all active channels (accessed by this thread only).
+	 */
+	private HashMap<User, SelectionKey> connections = 
+		new HashMap<User, SelectionKey>();
+	
+	/** Idle connections, that can be reused (accessed by this thread only). */
+	private LinkedList<SelectionKey> idleConnections = 
+		new LinkedList<SelectionKey>();
+	
+	/**
+	 * Connections, that don't read at the moment, since the channel's proxy 
+	 * read buffer is full (accessed by this thread only).
+	 */
+	private ArrayList<SelectionKey> suspendedConnections = 
+		new ArrayList<SelectionKey>();
+	
+	/** Buffer used to detect data received on idle connections. */
+	private ByteBuffer discardBuffer = ByteBuffer.allocate(1);
+	
+	/**
+	 * Reference on the <code>InputOutputHandlerController</code> (notified 
+	 * about data received from the proxy server).
+	 */
+	private InputOutputHandlerController inputOutputHandler;
+	
+	/**
+	 * Exit-side HTTP cache (<code>null</code>, if not used).
+	 */
+	private HttpCacheFilter httpCacheFilter;
+	
+	
+	/**
+	 * Creates a new <code>ProxyConnector</code> and starts its thread.
+	 * 
+	 * @param inputOutputHandler	Reference on the controller (notified 
+	 * 								about data received from the proxy 
+	 * 								server).
+	 * @param httpCacheFilter		Exit-side HTTP cache (<code>null</code>, 
+	 * 								if not used).
+	 */
+	protected ProxyConnector(
+			InputOutputHandlerController inputOutputHandler,
+			HttpCacheFilter httpCacheFilter
+			) {
+		
+		this.inputOutputHandler = inputOutputHandler;
+		this.httpCacheFilter = httpCacheFilter;
+		
+		InetAddress proxyAddress = 
+			InputOutputHandlerController.tryToGenerateInetAddress(
+					getProperty("PROXY_ADDRESS")
+					);
+		
+		this.PROXY_ADDRESS = 
+			new InetSocketAddress(	proxyAddress,
+									new Integer(getProperty("PROXY_PORT"))
+									);
+		
+		int poolSize = new Integer(getProperty("PROXY_CONNECTION_POOL_SIZE"));
+		
+		if (poolSize > 0 && httpCacheFilter == null) {
+			
+			LOGGER.warning(	"(ProxyConnector) Connection pooling requires "
+							+"the HTTP cache (HTTP_CACHE_SIZE > 0) to find "
+							+"message boundaries! Pooling disabled."
+							);
+			
+			poolSize = 0;
+			
+		}
+		
+		this.POOL_SIZE = poolSize;
+		
+		Selector newSelector = null;
+		
+		try {
+			
+			newSelector = Selector.open();
+			
+		} catch (IOException e) {
+			
+			LOGGER.severe(	"(ProxyConnector) Couldn't open selector! "
+							+e.getMessage()
+							);
+			
+			System.exit(1);
+			
+		}
+		
+		this.selector = newSelector;
+		
+		LOGGER.config(	"(ProxyConnector) Proxy server: " +PROXY_ADDRESS
+						+", pool size: " +POOL_SIZE
+						);
+		
+		start();
+		
+	}
+
+	
+	/**
+	 * Notifies this <code>ProxyConnector</code> about new data in the bypassed 
+	 * <code>User</code>'s proxy write buffer.
+	 * 
+	 * @param channel	<code>User</code> with data to be sent.
+	 */
+	protected void addWriteRequest(User channel) {
+		
+		synchronized (writeRequests) {
+			
+			writeRequests.add(channel);
+			
+		}
+		
+		selector.wakeup();
+		
+	}
+
+	
+	/**
+	 * Handles connect, read and write events (non-blocking I/O).
+	 */
+	@Override
+	public void run() {
+		
+		while (true) {
+			
+			try {
+				
+				registerWriteRequests();
+				
+				boolean needsMaintenance = 
+					!connections.isEmpty() || !suspendedConnections.isEmpty();
+				
+				selector.select(needsMaintenance ? MAINTENANCE_INTERVAL : 0);
+				
+				Iterator<SelectionKey> selectedKeys = 
+					selector.selectedKeys().iterator();
+				
+				while (selectedKeys.hasNext()) {
+					
+					SelectionKey key = selectedKeys.next();
+					selectedKeys.remove();
+					
+					if (!key.isValid()) {
+						
+						continue;
+						
+					} else if (key.isConnectable()) {
+						
+						handleConnect(key);
+						
+					} else {
+						
+						if (key.isReadable()) {
+							
+							handleRead(key);
+							
+						}
+						
+						if (key.isValid() && key.isWritable()) {
+							
+							handleWrite(key);
+							
+						}
+						
+					}
+					
+				}
+				
+				resumeSuspendedConnections();
+				releaseConnectionsOfRemovedChannels();
+				
+			} catch (IOException e) {
+				
+				LOGGER.fine(e.getMessage());
+				continue;
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Sets write interest for the connections of all <code>User</code>s from 
+	 * <code>writeRequests</code> (opens or assigns connections for new 
+	 * channels).
+	 */
+	private void registerWriteRequests() {
+		
+		synchronized (writeRequests) {
+			
+			for (User channel: writeRequests) {
+				
+				if (channel.isReleased()) {
+					
+					continue;
+					
+				}
+				
+				SelectionKey key = connections.get(channel);
+				
+				if (key == null) { // new channel
+					
+					key = assignConnection(channel);
+					
+				}
+				
+				if (	key != null
+						&&
+						key.isValid()
+						&&
+						(key.interestOps() & SelectionKey.OP_CONNECT) == 0
+						) {
+					
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+					
+				}
+				
+			}
+			
+			writeRequests.clear();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Assigns a connection to the proxy server to the bypassed channel. An 
+	 * idle connection is reused, if available. Otherwise, a new connection is 
+	 * opened (non-blocking).
+	 * 
+	 * @param channel	The channel needing a connection.
+	 * 
+	 * @return			The connection's <code>SelectionKey</code> or 
+	 * 					<code>null</code> (connection failed).
+	 */
+	private SelectionKey assignConnection(User channel) {
+		
+		while (!idleConnections.isEmpty()) { // try to reuse connection
+			
+			SelectionKey key = idleConnections.removeFirst();
+			
+			if (key.isValid()) {
+				
+				key.attach(channel);
+				key.interestOps(SelectionKey.OP_READ);
+				connections.put(channel, key);
+				
+				return key;
+				
+			}
+			
+		}
+		
+		SocketChannel socketChannel = null;
+		
+		try {
+			
+			socketChannel = SocketChannel.open();
+			socketChannel.configureBlocking(false);
+			socketChannel.socket().setKeepAlive(true);
+			socketChannel.socket().setTcpNoDelay(true);
+			
+			SelectionKey key;
+			
+			if (socketChannel.connect(PROXY_ADDRESS)) { // connected instantly
+				
+				key = socketChannel.register(	selector,
+												SelectionKey.OP_READ,
+												channel
+												);
+												
+			} else {
+				
+				key = socketChannel.register(	selector,
+												SelectionKey.OP_CONNECT,
+												channel
+												);
+												
+			}
+			
+			connections.put(channel, key);
+			
+			return key;
+			
+		} catch (IOException e) {
+			
+			LOGGER.warning(	"(ProxyConnector) Couldn't connect to proxy "
+							+"server " +PROXY_ADDRESS +"! " +e.getMessage()
+							);
+			
+			close(socketChannel);
+			
+			return null;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Finishes a connection attempt. Sets read interest (and write interest, 
+	 * if data is waiting to be sent).
+	 * 
+	 * @param key	The connection's <code>SelectionKey</code>.
+	 */
+	private void handleConnect(SelectionKey key) {
+		
+		User channel = (User)key.attachment();
+		
+		try {
+			
+			((SocketChannel)key.channel()).finishConnect();
+			
+			int interestOps = SelectionKey.OP_READ;
+			
+			if (channel.availableDataInProxyWriteBuffer() > 0) {
+				
+				interestOps |= SelectionKey.OP_WRITE;
+				
+			}
+			
+			key.interestOps(interestOps);
+			
+		} catch (IOException e) {
+			
+			LOGGER.warning(	"(ProxyConnector) Couldn't connect to proxy "
+							+"server " +PROXY_ADDRESS +"! " +e.getMessage()
+							);
+			
+			closeConnection(key);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Reads data from the proxy server to the channel's proxy read buffer. 
+	 * Suspends reading, if the buffer is full.
+	 * 
+	 * @param key	The connection's <code>SelectionKey</code>.
+	 */
+	private void handleRead(SelectionKey key) {
+		
+		SocketChannel socketChannel = (SocketChannel)key.channel();
+		User channel = (User)key.attachment();
+		
+		try {
+			
+			if (channel == null) { // idle connection -> close on any data
+				
+				discardBuffer.clear();
+				
+				if (socketChannel.read(discardBuffer) != 0) {
+					// closed or unexpected data (no known boundary any more)
+					
+					idleConnections.remove(key);
+					close(socketChannel);
+					
+				}
+				
+				return;
+				
+			} else if (channel.isReleased()) {
+				
+				return; // see "releaseConnectionsOfRemovedChannels()"
+				
+			}
+			
+			int bytesRead = 
+				httpCacheFilter == null
+				? channel.readFromProxy(socketChannel)
+				: httpCacheFilter.readFromProxy(channel, socketChannel);
+			
+			if (bytesRead == -1) {
+				
+				// proxy server closed connection (new one on next write)
+				closeConnection(key);
+				return;
+				
+			} else if (bytesRead > 0) {
+				
+				inputOutputHandler.proxyDataReceived(channel);
+				
+			}
+			
+			if (channel.getFreeSpaceInProxyReadBuffer() == 0) {
+				
+				// backpressure: stop reading until replies are sent
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+				suspendedConnections.add(key);
+				
+			}
+			
+		} catch (IOException e) {
+			
+			LOGGER.fine(e.getMessage());
+			
+			if (channel == null) {
+				
+				idleConnections.remove(key);
+				close(socketChannel);
+				
+			} else {
+				
+				closeConnection(key);
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Writes data from the channel's proxy write buffer to the proxy server. 
+	 * Removes write interest, when all data is sent.
+	 * 
+	 * @param key	The connection's <code>SelectionKey</code>.
+	 */
+	private void handleWrite(SelectionKey key) {
+		
+		User channel = (User)key.attachment();
+		
+		if (channel == null || channel.isReleased()) {
+			
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			return;
+			
+		}
+		
+		try {
+			
+			channel.writeToProxy((SocketChannel)key.channel());
+			
+			if (channel.availableDataInProxyWriteBuffer() == 0) {
+				
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+				
+			}
+			
+		} catch (IOException e) {
+			
+			LOGGER.fine(e.getMessage());
+			closeConnection(key);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Resumes reading on suspended connections, whose channel's proxy read 
+	 * buffer has free space again.
+	 */
+	private void resumeSuspendedConnections() {
+		
+		Iterator<SelectionKey> iterator = suspendedConnections.iterator();
+		
+		while (iterator.hasNext()) {
+			
+			SelectionKey key = iterator.next();
+			User channel = (User)key.attachment();
+			
+			if (!key.isValid() || channel == null || channel.isReleased()) {
+				
+				iterator.remove();
+				
+			} else if (channel.getFreeSpaceInProxyReadBuffer() > 0) {
+				
+				key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+				iterator.remove();
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Detaches the connections of released channels and puts them in the 
+	 * pool of idle connections, if pooling is enabled and they are at a 
+	 * known message boundary. Closes them otherwise (or if the pool is full 
+	 * or they aren't established).
+	 */
+	private void releaseConnectionsOfRemovedChannels() {
+		
+		Iterator<Map.Entry<User, SelectionKey>> iterator = 
+			connections.entrySet().iterator();
+		
+		while (iterator.hasNext()) {
+			
+			Map.Entry<User, SelectionKey> entry = iterator.next();
+			
+			if (!entry.getKey().isReleased()) {
+				
+				continue;
+				
+			}
+			
+			iterator.remove();
+			SelectionKey key = entry.getValue();
+			SocketChannel socketChannel = (SocketChannel)key.channel();
+			
+			boolean isReusable = // POOL_SIZE > 0 -> httpCacheFilter exists
+				idleConnections.size() < POOL_SIZE
+				&&
+				key.isValid()
+				&&
+				socketChannel.isConnected()
+				&&
+				httpCacheFilter.isAtMessageBoundary(entry.getKey());
+			
+			if (httpCacheFilter != null) {
+				
+				httpCacheFilter.remove(entry.getKey());
+				
+			}
+			
+			if (isReusable) {
+				
+				key.attach(null);
+				key.interestOps(SelectionKey.OP_READ);
+				suspendedConnections.remove(key);
+				idleConnections.add(key);
+				
+			} else {
+				
+				suspendedConnections.remove(key);
+				close(socketChannel);
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Closes the bypassed (active) connection and removes it from 
+	 * <code>connections</code>.
+	 * 
+	 * @param key	The connection's <code>SelectionKey</code>.
+	 */
+	private void closeConnection(SelectionKey key) {
+		
+		User channel = (User)key.attachment();
+		
+		if (channel != null && connections.get(channel) == key) {
+			
+			connections.remove(channel);
+			
+			if (httpCacheFilter != null) {
+				
+				httpCacheFilter.connectionClosed(channel);
+				
+			}
+			
+		}
+		
+		suspendedConnections.remove(key);
+		close((SocketChannel)key.channel());
+		
+	}
+
+	
+	/**
+	 * Closes the bypassed <code>SocketChannel</code> (if not 
+	 * <code>null</code>) and ignores errors.
+	 * 
+	 * @param socketChannel	The <code>SocketChannel</code> to close.
+	 */
+	private static void close(SocketChannel socketChannel) {
+		
+		if (socketChannel == null) {
+			
+			return;
+			
+		}
+		
+		try {
+			
+			socketChannel.close();
+			
+		} catch (IOException e) {
+			
+			LOGGER.fine(e.getMessage());
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+}
@@ -3,10 +3,24 @@ package inputOutputHandler;
 
 import internalInformationPort.InternalInformationPortController;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import userDatabase.User;
+import userDatabase.UserDatabaseController;
 
 import message.Payload;
 import message.ReplyMessage;
@@ -31,6 +45,22 @@ import networkClock.NetworkClockController;
  * "Optimal time" means the best point of time for returning the data 
  * available which again is a tradeoff and depends on situational conditions 
  * and therefore can't be generalized.
+ * <p>
+ * Decisions are event-driven: The proxy side reports new data for a channel 
+ * (see <code>dataAvailable()</code>), which updates the counters of the 
+ * channel's pending decision. A decision is made as soon as enough data is 
+ * available or its timeout is reached (both timed by a single, shared 
+ * <code>Timer</code>, but executed by the threads of 
+ * <code>decisionExecutor</code>, since passing the replies to the 
+ * <code>InputOutputHandlerController</code> may block).
+ * <p>
+ * Additionally, an exponentially weighted history of the amount of data each 
+ * channel (and the whole cascade) receives from the proxy server per decision 
+ * is kept. When a decision starts, it is used to predict the amount of data 
+ * each channel will have at the timeout and thereby the "optimal size" of the 
+ * replies. The decision is 
+ * made as soon as the predicted size is reached (waiting longer wouldn't 
+ * make the replies larger, but only delay them).
  * 
  * @author Karl-Peter Fuchs
  */
@@ -84,27 +114,102 @@ final class ReplyDecision {
 	 */
 	private final float MIN_FILLED_CHANNELS;
 	
-	/** Amount of time between validations of the traffic situation. */
-	private final long VOLUME_DECISSION_CHECK_RATE;
-	
 	/** 
+	 * Number of reply size classes the channels of a batch are partitioned 
+	 * into (according to the amount of data available). Each class gets its 
+	 * own "optimal size". "1" means "same size for all replies".
+	 */
+	private final int NUMBER_OF_REPLY_SIZE_CLASSES;
+	
+	/**
+	 * Amount of data (in byte) available for a channel, that makes the last 
+	 * mix push a reply batch to all idle channels (channels without a 
+	 * pending <code>Request</code>) on its own schedule. "0" means "replies 
+	 * are only sent as answer to a request round" (server push disabled).
+	 */
+	private final int PUSH_THRESHOLD;
+	
+	/**
+	 * Minimum amount of time between two push batches in ms (should exceed 
+	 * the time a batch needs to pass the cascade, so pushed replies of a 
+	 * channel can't overtake each other).
+	 */
+	private final long PUSH_INTERVAL;
+	
+	/**
 	 * Tradeoff-indicator between padding and the total amount of (available) 
 	 * data actually sent.
 	 */
 	private double g;
 	
-	/** 
-	 * Timestamp of the first validation (of the traffic situation) for the 
-	 * current decision.
+	/**
+	 * Timer shared by all decisions (times decisions, timeouts and push 
+	 * batches). Its tasks only hand the work over to 
+	 * <code>decisionExecutor</code> and therefore never block (a blocked 
+	 * task would delay all other timeouts).
 	 */
-	private long batchBegin;
+	private final Timer timer = new Timer("ReplyDecision");
 	
-	/** 
-	 * Indicates whether the first validation (of the traffic situation) for 
-	 * the current decision has already taken place or not (used to calculate 
-	 * timeout condition).
+	/**
+	 * Executes the decisions and push batches scheduled by 
+	 * <code>timer</code>. Generating the replies may block (e. g. when the 
+	 * queue of unprocessed replies is full), so each blocked decision gets 
+	 * its own thread.
+	 */
+	private final ExecutorService decisionExecutor = 
+		Executors.newCachedThreadPool(
+				
+				new ThreadFactory() {
+					
+					public Thread newThread(Runnable task) {
+						
+						return new Thread(task, "ReplyDecision");
+						
+					}
+					
+				}
+				
+				);
+	
+	/** The pending decision (request batch) of each observed channel. */
+	private ConcurrentHashMap<User, PendingBatch> pendingBatches = 
+		new ConcurrentHashMap<User, PendingBatch>();
+	
+	/**
+	 * Reference on component <code>UserDatabase</code> (used to find the 
+	 * idle channels for push batches, <code>null</code>, if server push is 
+	 * disabled).
+	 */
+	private UserDatabaseController userDatabase;
+	
+	/** Indicates whether a push batch is scheduled or not. */
+	private AtomicBoolean isPushScheduled = new AtomicBoolean(false);
+	
+	/** Timestamp of the last push batch. */
+	private volatile long lastPush = 0;
+	
+	/**
+	 * Weight of the newest sample in the (exponentially weighted) history 
+	 * of read volumes. "0" means "no history, no predicted decisions".
+	 */
+	private final double HISTORY_WEIGHT;
+	
+	/**
+	 * Read history of each channel (removed automatically, when the channel 
+	 * isn't referenced any more).
+	 */
+	private Map<User, ReadHistory> readHistories = 
+		Collections.synchronizedMap(new WeakHashMap<User, ReadHistory>());
+	
+	/**
+	 * Exponentially weighted average amount of data (in byte) received per 
+	 * channel and decision by all channels of the cascade (used for channels 
+	 * without history, <code>-1</code> if no history is available yet).
 	 */
-	private boolean isNewDecision = true;
+	private volatile double cascadeReadVolume = -1;
+	
+	/** Identifier of the next push batch. */
+	private int pushBatchID = 0;
 	
 
 	/**
@@ -135,15 +240,21 @@ final class ReplyDecision {
 	
 		this.inputOutputHandler = inputOutputHandler;
 		
-		this.VOLUME_DECISSION_CHECK_RATE = 
-			new Long(getProperty("VOLUME_DECISSION_CHECK_RATE"));
-		
 		this.MIN_FILLED_CHANNELS = 
 			new Float(getProperty("MIN_FILLED_CHANNELS"));
 		
 		this.MIN_VOLUME_PER_CHANNEL = 
 			new Integer(getProperty("MIN_VOLUME_PER_CHANNEL"));
 		
+		this.NUMBER_OF_REPLY_SIZE_CLASSES = 
+			Math.max(
+				1,
+				new Integer(getProperty("NUMBER_OF_REPLY_SIZE_CLASSES"))
+				);
+		
+		this.PUSH_THRESHOLD = new Integer(getProperty("PUSH_THRESHOLD"));
+		this.PUSH_INTERVAL = new Long(getProperty("PUSH_INTERVAL"));
+		
 		MAX_REPLY_LENGTH =
 			new Integer(getProperty("MAX_REPLY_LENGTH")) 
 			- 
@@ -155,70 +266,266 @@ final class ReplyDecision {
 			new Integer(getProperty("SYMMETRIC_CYPHER_BLOCK_SIZE"));
 		
 		g = new Double(getProperty("G"));
+		
+		HISTORY_WEIGHT = 
+			Math.max(
+				0d,
+				Math.min(1d, new Double(getProperty("REPLY_HISTORY_WEIGHT")))
+				);
+				
 	}
 	
 	
 	/**
 	 * Decides about the optimal reply size and time depending on the current 
 	 * traffic situation for the bypassed channels/users.
+	 * <p>
+	 * Can be called again before the previous decision is made (several 
+	 * rounds in the cascade at the same time), since each decision has its 
+	 * own counters and timeout.
+	 * <p>
+	 * The decision is published (see <code>pendingBatches</code>) before it 
+	 * is started, so no data event can get lost in between. Events arriving 
+	 * before the start are ignored (the data is counted by 
+	 * <code>PendingBatch.start()</code>).
 	 * 
 	 * @param channels	The channels/users to be observed.
 	 */
-	protected void manageReplyProcess(final User[] channels) {
+	protected void manageReplyProcess(User[] channels) {
+		
+		PendingBatch batch = new PendingBatch(channels);
+		
+		for (User channel: channels) {
+			
+			pendingBatches.put(channel, batch);
+			
+		}
+		
+		batch.start();
+		
+	}
+
+	
+	/**
+	 * Must be called whenever new data from the proxy server was added to the 
+	 * bypassed channel's proxy read buffer. Updates the counters of the 
+	 * channel's pending decision (or triggers a push batch, if the channel is 
+	 * idle and has <code>PUSH_THRESHOLD</code> bytes available).
+	 * <p>
+	 * Returns immediately (decisions are executed by 
+	 * <code>decisionExecutor</code>).
+	 * 
+	 * @param channel	The channel/user data was added for.
+	 */
+	protected void dataAvailable(User channel) {
+		
+		PendingBatch batch = pendingBatches.get(channel);
 		
-		new Thread(
+		if (batch != null) {
+			
+			batch.update(channel);
+			
+		} else if (	userDatabase != null
+					&&
+					channel.availableDataInProxyReadBuffer() >= PUSH_THRESHOLD
+					) {
+			
+			schedulePush();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Makes the last mix push reply batches on its own schedule (independent 
+	 * from request rounds) whenever at least one idle channel (channel 
+	 * without a pending <code>Request</code>) has 
+	 * <code>PUSH_THRESHOLD</code> bytes available. Each push batch contains 
+	 * a reply for every idle channel (channels without data get padding 
+	 * only), so pushing doesn't reveal which channel received data.
+	 * <p>
+	 * Does nothing if server push is disabled (<code>PUSH_THRESHOLD</code> 
+	 * is "0").
+	 * 
+	 * @param userDatabase	Reference on component <code>UserDatabase</code> 
+	 * 						(used to find the channels/users to be observed).
+	 * 
+	 * @see #PUSH_THRESHOLD
+	 */
+	protected void managePushProcess(UserDatabaseController userDatabase) {
+		
+		if (PUSH_THRESHOLD <= 0) { // server push disabled
+			
+			return;
+			
+		}
+		
+		this.userDatabase = userDatabase;
+		
+	}
+	
+	
+	/**
+	 * Schedules a push batch (if none is scheduled yet), but not earlier than 
+	 * <code>PUSH_INTERVAL</code> ms after the last one.
+	 */
+	private void schedulePush() {
+		
+		if (!isPushScheduled.compareAndSet(false, true)) { // already scheduled
+			
+			return;
+			
+		}
+		
+		long delay = Math.max(0, lastPush + PUSH_INTERVAL - clock.getTime());
+		
+		timer.schedule(
 				
-				new Runnable() {
-									
+				new TimerTask() {
+					
 					public void run() {
-
-						generateReplyBatch(channels);
-							
-					}
+						
+						execute(
+								
+								new Runnable() {
 									
-				}
+									public void run() {
+										
+										pushReplies();
+										
+									}
+									
+								}
+								
+								);
 						
-			).start();
+					}
+					
+				},
+				
+				delay
+				
+				);
+		
+	}
+
+	
+	/**
+	 * Pushes a reply batch to all idle channels/users (channels without a 
+	 * pending <code>Request</code>), if one of them has 
+	 * <code>PUSH_THRESHOLD</code> bytes available. Executed by 
+	 * <code>decisionExecutor</code> (see <code>schedulePush()</code>).
+	 */
+	private void pushReplies() {
+		
+		synchronized (this) { // don't interfere with a round's replies
+			
+			User[] channels = getIdleChannels(userDatabase);
+			int[] bytesReadSoFar = getVolumeForEachChannel(channels);
+			
+			if (isPushThresholdReached(bytesReadSoFar)) {
+				
+				LOGGER.finer(	"(ReplyDecision) Pushing replies to "
+								+channels.length +" channel(s)."
+								);
+				
+				processMessages(	getReplySizes(bytesReadSoFar, null),
+									channels,
+									pushBatchID++
+									);
+				
+				lastPush = clock.getTime();
+				
+			}
+			
+			isPushScheduled.set(false);
+			
+			// data left, that didn't fit in the replies (no event will come)
+			checkPushThreshold(getIdleChannels(userDatabase));
+			
+		}
 		
 	}
+
 	
+	/**
+	 * Schedules a push batch, if server push is enabled and one of the 
+	 * bypassed channels has <code>PUSH_THRESHOLD</code> bytes available.
+	 * 
+	 * @param channels	The channels/users to be checked.
+	 */
+	private void checkPushThreshold(User[] channels) {
+		
+		if (	userDatabase != null
+				&&
+				isPushThresholdReached(getVolumeForEachChannel(channels))
+				) {
+			
+			schedulePush();
+			
+		}
+		
+	}
+
 	
 	/**
-	 * Decides about the optimal reply size and time depending on the current 
-	 * traffic situation for the bypassed channels/users.
+	 * Returns all channels/users with an established channel and without a 
+	 * pending <code>Request</code> (= without a reply decision in progress).
 	 * 
-	 * @param channels	The channels/users to be observed.
+	 * @param userDatabase	Reference on component <code>UserDatabase</code>.
+	 * 
+	 * @return				All idle channels/users.
 	 */
-	private void generateReplyBatch(User[] channels) {
+	private User[] getIdleChannels(UserDatabaseController userDatabase) {
 		
-		int replySize;
-		int[] bytesReadSoFar;
+		ArrayList<User> idleChannels = new ArrayList<User>();
 		
-		while (true) {
+		for (User channel: userDatabase.getActiveUsers()) {
 			
-			try {
-				
-				Thread.sleep(VOLUME_DECISSION_CHECK_RATE);
+			if (	channel != null // (may be removed concurrently)
+					&&
+					channel.getIsChannelEstablished()
+					&&
+					!channel.getHasMessageInCurrentBatch()
+					) {
 				
-			} catch (InterruptedException e) {
-				
-				LOGGER.severe(e.getMessage());
-				continue;
+				idleChannels.add(channel);
 				
 			}
 			
-			bytesReadSoFar = getVolumeForEachChannel(channels);
+		}
+		
+		return idleChannels.toArray(new User[idleChannels.size()]);
+		
+	}
+
+	
+	/**
+	 * Indicates whether at least one channel has 
+	 * <code>PUSH_THRESHOLD</code> bytes available or not.
+	 * 
+	 * @param bytesReadSoFar	Amount of data currently available in each 
+	 * 							channel.
+	 * 
+	 * @return					Whether a push batch shall be sent or not.
+	 * 
+	 * @see #PUSH_THRESHOLD
+	 */
+	private boolean isPushThresholdReached(int[] bytesReadSoFar) {
+		
+		for (int dataInChannel: bytesReadSoFar) {
 			
-			if (shallMixReply(bytesReadSoFar)) {
+			if (dataInChannel >= PUSH_THRESHOLD) {
 				
-				replySize = getWeightedMedian(bytesReadSoFar);
-				processMessages(replySize, channels);
-				break;
+				return true;
 				
 			}
 			
 		}
 		
+		return false;
+		
 	}
 	
 	
@@ -247,107 +554,346 @@ final class ReplyDecision {
 	
 	
 	/**
-	 * Decides whether it's time to reply or not ("true" when timeout reached 
-	 * or <code>isEnoughDataAvailable() == true</code>).
+	 * Decides about the "optimal size" of each channel's reply (in byte).
+	 * <p>
+	 * The channels are partitioned into <code>NUMBER_OF_REPLY_SIZE_CLASSES 
+	 * </code> classes of (almost) equal size according to the amount of 
+	 * data available (channels with little data in the first class, channels 
+	 * with lots of data in the last one). The "optimal size" is calculated 
+	 * for each class separately (see <code>getWeightedMedian()</code>), so 
+	 * replies have only a few discrete lengths, but less padding is needed.
+	 * <p>
+	 * The class bounds are found by selection (see <code>select()</code>) 
+	 * instead of sorting all volumes.
 	 * 
 	 * @param bytesReadSoFar	Amount of data currently available in each 
-	 * 							channel.
+	 * 							channel (in byte).
+	 * @param sizeClasses		Filled with the size class of each channel 
+	 * 							(index of the class, first class "0"), if 
+	 * 							not <code>null</code>.
+	 * 
+	 * @return					"Optimal size" for each channel (in byte).
 	 * 
-	 * @return					Whether it's time to reply or not.
+	 * @see #NUMBER_OF_REPLY_SIZE_CLASSES
 	 */
-	private boolean shallMixReply(int[] bytesReadSoFar) {
+	private int[] getReplySizes(int[] bytesReadSoFar, int[] sizeClasses) {
 		
-		if (isNewDecision) {
+		int[] volumes = Arrays.copyOf(bytesReadSoFar, bytesReadSoFar.length);
+		
+		int numberOfClasses = 
+			Math.min(NUMBER_OF_REPLY_SIZE_CLASSES, volumes.length);
+		
+		int[] upperBounds = new int[numberOfClasses];
+		int[] classSizes = new int[numberOfClasses];
+		
+		for (int i=0; i<numberOfClasses; i++) {
+			
+			int from = (i * volumes.length) / numberOfClasses;
+			int to = ((i + 1) * volumes.length) / numberOfClasses;
 			
-			batchBegin = clock.getTime();
-			isNewDecision = false;
+			// volumes[from..to-1] <= volumes[to-1] <= volumes[to..]
+			select(volumes, to - 1, from, volumes.length);
+			upperBounds[i] = volumes[to - 1];
 			
+			classSizes[i] = getWeightedMedian(volumes, from, to);
+				
 		}
-
-		if ((clock.getTime() - batchBegin) >= TIMEOUT) { // timeout reached
+		
+		int[] replySizes = new int[bytesReadSoFar.length];
+		
+		for (int i=0; i<bytesReadSoFar.length; i++) {
+			
+			int sizeClass = 0;
 			
-			isNewDecision = true;
-			return true;
+			while (bytesReadSoFar[i] > upperBounds[sizeClass]) {
+				
+				sizeClass++;
+				
+			}
 			
-		} else { // timeout not yet reached
+			replySizes[i] = classSizes[sizeClass];
 			
-			return isEnoughDataAvailable(bytesReadSoFar) ? true : false;
+			if (sizeClasses != null) {
+				
+				sizeClasses[i] = sizeClass;
+				
+			}
 			
 		}
 		
+		return replySizes;
+		
 	}
-	
+
 	
 	/**
-	 * Decides whether "enough" data is available for replying or not. "Enough" 
-	 * means <code>MIN_VOLUME_PER_CHANNEL</code> data in 
-	 * <code>MIN_FILLED_CHANNELS</code> channels available.
+	 * Decides about the "optimal size" of the reply batch (or of a reply size 
+	 * class) (in byte). Only the (one or two) needed order statistics are 
+	 * determined (by selection, see <code>select()</code>).
 	 * 
 	 * @param bytesReadSoFar	Amount of data currently available in each 
-	 * 							channel.
+	 * 							channel (in byte). Reordered by this method.
+	 * @param from				Index of the first channel of the class.
+	 * @param to				Index after the last channel of the class.
 	 * 
-	 * @return					"Enough" data available or not.
-	 * 
-	 * @see #MIN_FILLED_CHANNELS
-	 * @see #MIN_VOLUME_PER_CHANNEL
+	 * @return					"Optimal size" (in byte).
 	 */
-	private boolean isEnoughDataAvailable(int[] bytesReadSoFar) {
+	private int getWeightedMedian(int[] bytesReadSoFar, int from, int to) {
+		
+		double b;
+		double a;
+		double z = to - from;
+		double lnFloor;
+		double lnCeil;
 		
-		int numberOfChannelsReady = 0;
+		a = g * (z - 1.0f) + 1.0f;
 		
-		int neededNumberOfChannelsReady = 
-			Math.round((float)bytesReadSoFar.length * MIN_FILLED_CHANNELS);
+		int floorIndex = from + (int) Math.floor(a) - 1;
+		int ceilIndex = from + (int) Math.ceil(a) - 1;
 		
-		for (int dataInChannel: bytesReadSoFar) {
+		select(bytesReadSoFar, floorIndex, from, to);
+		lnFloor = (double) bytesReadSoFar[floorIndex];
+		lnCeil = lnFloor;
+		
+		if (ceilIndex != floorIndex) { // next order statistic = minimum above
+			
+			int minimum = bytesReadSoFar[ceilIndex];
 			
-			if (dataInChannel >= MIN_VOLUME_PER_CHANNEL) {
+			for (int i=ceilIndex+1; i<to; i++) {
 				
-				numberOfChannelsReady++;
+				minimum = Math.min(minimum, bytesReadSoFar[i]);
 				
-				if (numberOfChannelsReady == neededNumberOfChannelsReady) {
+			}
+			
+			lnCeil = (double) minimum;
+			
+		}
+
+		b =	(a - Math.floor(a)) * (lnCeil - lnFloor) + lnFloor;
+		
+		return adjustBlockSizeToCryptographicBlockSize((int) Math.round(b));
+		
+	}
+
+	
+	/**
+	 * Reorders the range <code>[from, to)</code> of the bypassed array, so 
+	 * that <code>values[k]</code> is the element that would be at index 
+	 * <code>k</code> after sorting the range, the elements before are less or 
+	 * equal and the elements after are greater or equal (quickselect with 
+	 * median-of-three pivot; linear time on average).
+	 * 
+	 * @param values	The array to reorder.
+	 * @param k			Index of the order statistic to select.
+	 * @param from		Index of the first element of the range.
+	 * @param to		Index after the last element of the range.
+	 */
+	private static void select(int[] values, int k, int from, int to) {
+		
+		int left = from;
+		int right = to - 1;
+		
+		while (right > left) {
+			
+			int middle = (left + right) >>> 1;
+			
+			// median of three
+			int low = Math.min(values[left], values[middle]);
+			int high = Math.max(values[left], values[middle]);
+			int pivot = Math.max(low, Math.min(high, values[right]));
+			
+			int i = left;
+			int j = right;
+			
+			while (i <= j) {
+				
+				while (values[i] < pivot) {
+					
+					i++;
+					
+				}
+				
+				while (values[j] > pivot) {
 					
-					return true;
+					j--;
 					
 				}
 				
+				if (i <= j) {
+					
+					int temp = values[i];
+					values[i] = values[j];
+					values[j] = temp;
+					i++;
+					j--;
+					
+				}
+				
+			}
+			
+			// [left..j] <= pivot, [i..right] >= pivot, (j..i) == pivot
+			if (k <= j) {
+				
+				right = j;
+				
+			} else if (k >= i) {
+				
+				left = i;
+				
+			} else {
+				
+				return;
+				
 			}
 			
 		}
 		
-		return false;
-		
 	}
 	
 	
 	/**
-	 * Decides about the "optimal size" of the reply batch (in byte). 
+	 * Predicts the "optimal size" of each channel's reply at the timeout of 
+	 * a decision, from the data currently available and the read history 
+	 * (see <code>readHistories</code>): Each channel is expected to receive 
+	 * as much data per decision as on average.
 	 * 
 	 * @param bytesReadSoFar	Amount of data currently available in each 
 	 * 							channel (in byte).
+	 * @param channels			The channels/users of the decision.
+	 * @param sizeClasses		Filled with the predicted size class of each 
+	 * 							channel (see <code>getReplySizes()</code>).
 	 * 
-	 * @return					"Optimal size" (in byte).
+	 * @return					Predicted "optimal size" for each channel 
+	 * 							(in byte) or <code>null</code> (no history).
 	 */
-	private int getWeightedMedian(int[] bytesReadSoFar) {
+	private int[] predictReplySizes(	int[] bytesReadSoFar,
+										User[] channels,
+										int[] sizeClasses
+										) {
 		
-		double b;
-		double a;
-		double z = bytesReadSoFar.length;
-		double lnFloor;
-		double lnCeil;
+		double defaultVolume = cascadeReadVolume;
 		
-		Arrays.sort(bytesReadSoFar);
+		if (HISTORY_WEIGHT <= 0 || defaultVolume < 0) { // no history
+			
+			return null;
+			
+		}
 		
-		a = g * (z - 1.0f) + 1.0f;
+		int[] predictedVolumes = new int[channels.length];
 		
-		lnFloor = (double) bytesReadSoFar[(int) Math.floor(a) - 1];
-		lnCeil = (double) bytesReadSoFar[(int) Math.ceil(a) - 1];
+		synchronized (readHistories) {
+			
+			for (int i=0; i<channels.length; i++) {
+				
+				ReadHistory history = readHistories.get(channels[i]);
+				
+				// data received since the last decision counts as well
+				double predictedVolume = 
+					history == null
+					? bytesReadSoFar[i] + defaultVolume
+					: Math.max(	bytesReadSoFar[i],
+								history.leftover + history.volume
+								);
+				
+				predictedVolumes[i] = 
+					(int)Math.min(	MAX_REPLY_LENGTH,
+									Math.round(predictedVolume)
+									);
+									
+			}
+			
+		}
+		
+		return getReplySizes(predictedVolumes, sizeClasses);
+		
+	}
 
-		b =	(a - Math.floor(a)) * (lnCeil - lnFloor) + lnFloor;
+	
+	/**
+	 * Adds the amount of data each channel received for a decision to the 
+	 * history (see <code>readHistories</code> and 
+	 * <code>cascadeReadVolume</code>). Data received after the previous 
+	 * decision of a channel counts as well.
+	 * 
+	 * @param channels			The channels/users of the decision.
+	 * @param startVolumes		Amount of data available in each channel 
+	 * 							when the decision started (in byte).
+	 * @param bytesReadSoFar	Amount of data available in each channel 
+	 * 							when the decision is made (in byte).
+	 * @param replySizes		Size of each channel's reply (in byte).
+	 */
+	private void updateReadHistories(	User[] channels,
+										int[] startVolumes,
+										int[] bytesReadSoFar,
+										int[] replySizes
+										) {
 		
-		return adjustBlockSizeToCryptographicBlockSize((int) Math.round(b));
+		if (HISTORY_WEIGHT <= 0 || channels.length == 0) {
+			
+			return;
+			
+		}
+		
+		double sum = 0;
+		
+		synchronized (readHistories) {
+			
+			for (int i=0; i<channels.length; i++) {
+				
+				ReadHistory history = readHistories.get(channels[i]);
+				
+				int previousVolume = 
+					history == null
+					? startVolumes[i]
+					: Math.min(startVolumes[i], history.leftover);
+				
+				int volume = Math.max(0, bytesReadSoFar[i] - previousVolume);
+				
+				if (history == null) {
+					
+					history = new ReadHistory(volume);
+					readHistories.put(channels[i], history);
+					
+				} else {
+					
+					history.volume = average(history.volume, volume);
+					
+				}
+				
+				history.leftover = 
+					Math.max(0, bytesReadSoFar[i] - replySizes[i]);
+				
+				sum += volume;
+				
+			}
+			
+		}
 		
+		double volume = sum / channels.length;
+		
+		cascadeReadVolume = 
+			cascadeReadVolume < 0
+			? volume
+			: average(cascadeReadVolume, volume);
+			
 	}
+
 	
+	/**
+	 * Returns the exponentially weighted average of the bypassed history and 
+	 * sample (see <code>HISTORY_WEIGHT</code>).
+	 * 
+	 * @param history	The previous average.
+	 * @param sample	The newest sample.
+	 * 
+	 * @return			The new average.
+	 */
+	private double average(double history, double sample) {
+		
+		return HISTORY_WEIGHT * sample + (1d - HISTORY_WEIGHT) * history;
+		
+	}
+
 	
 	/**
 	 * Adjusts the "optimal size" to the <code>CIPHER_BLOCK_SIZE</code> (only 
@@ -391,20 +937,40 @@ final class ReplyDecision {
 	}
 	
 	
+	/**
+	 * Generates <code>Reply</code>ies (answering a request round) and passes 
+	 * them to the <code>InputOutputHandlerController</code>.
+	 * 
+	 * @param replySizes	Size the reply for each channel shall have.
+	 * 
+	 * @param channels		Channels/users to send replies to.
+	 */
+	private synchronized void processMessages(	int[] replySizes,
+												User[] channels
+												) {
+		
+		processMessages(replySizes, channels, -1);
+		
+	}
+
+	
 	/**
 	 * Generates <code>Reply</code>ies and passes them to the 
 	 * <code>InputOutputHandlerController</code>.
 	 * 
-	 * @param replySize	Size the replies shall have.
-	 * 
-	 * @param channels	Channels/users to send replies to.
+	 * @param replySizes	Size the reply for each channel shall have.
+	 * @param channels		Channels/users to send replies to.
+	 * @param pushBatchID	Identifier of the push batch the replies belong to 
+	 * 						or "-1", if they answer a request round.
 	 */
-	private void processMessages(int replySize, User[] channels) {
+	private void processMessages(	int[] replySizes,
+									User[] channels,
+									int pushBatchID
+									) {
 		
 		for (int i=0; i<channels.length; i++) {
 			
-			// read as much data as possible
-			byte[] data = channels[i].getFromProxyReadBuffer(replySize);
+			int replySize = replySizes[i];
 			
 			// generate ReplyMessage
 			Payload replyPayload = 
@@ -412,14 +978,32 @@ final class ReplyDecision {
 					new byte[replySize + Payload.getHeaderLength()]
 					);
 			
-			replyPayload.setMessage(data, replySize);
+			// read as much data as possible (directly to the payload)
+			int dataLength = 
+				channels[i].getFromProxyReadBuffer(
+						replyPayload.getBytePayload(),
+						Payload.getHeaderLength(),
+						replySize
+						);
+			
+			replyPayload.setMessageLength(dataLength);
 			
 			ReplyMessage replyMessage = 
 				new ReplyMessage(	replyPayload.getBytePayload(), 
 									channels[i]
 									);
 			
-			channels[i].setHasMessageInCurrentBatch(false);
+			if (pushBatchID >= 0) { // pushed reply
+				
+				replyMessage.setRoundID(pushBatchID);
+				replyMessage.setPushBatchSize(channels.length);
+				
+			} else {
+				
+				channels[i].setHasMessageInCurrentBatch(false);
+				
+			}
+			
 			inputOutputHandler.addUnprocessedReply(replyMessage);
 			
 		}
@@ -427,6 +1011,19 @@ final class ReplyDecision {
 	}
 
 	
+	/**
+	 * Hands the bypassed task over to <code>decisionExecutor</code> (called 
+	 * by the tasks of <code>timer</code>, which mustn't block).
+	 * 
+	 * @param task	The decision or push batch to execute.
+	 */
+	private void execute(Runnable task) {
+		
+		decisionExecutor.execute(task);
+		
+	}
+
+	
 	/**
 	 * Simply used to shorten method calls (calls 
 	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
@@ -442,4 +1039,415 @@ final class ReplyDecision {
 		
 	}
 	
+	
+	/**
+	 * Pending decision for the channels/users of a request batch. Counts the 
+	 * channels with at least <code>MIN_VOLUME_PER_CHANNEL</code> bytes 
+	 * available (updated on each proxy read event, see 
+	 * <code>update()</code>) and makes the decision (exactly once) as soon as 
+	 * <code>MIN_FILLED_CHANNELS</code> channels are filled, the predicted 
+	 * reply sizes are reached or the timeout is reached.
+	 * <p>
+	 * The predicted reply sizes count as reached, when each (predicted) size 
+	 * class has enough channels with their predicted size available, that the 
+	 * class' "optimal size" can't get smaller than predicted (e. g. one 
+	 * channel of the class for <code>G</code> = 1.0 or half of its channels 
+	 * for <code>G</code> = 0.5).
+	 */
+	private final class PendingBatch {
+		
+		/** The channels/users of the batch. */
+		private final User[] CHANNELS;
+		
+		/** Number of filled channels needed before replying is allowed. */
+		private final int NEEDED_NUMBER_OF_FILLED_CHANNELS;
+		
+		/** Channels with <code>MIN_VOLUME_PER_CHANNEL</code> bytes or more. */
+		private HashSet<User> filledChannels = new HashSet<User>();
+		
+		/** Indicates whether <code>start()</code> was called or not. */
+		private boolean isStarted = false;
+		
+		/** Indicates whether the decision is scheduled (or made) or not. */
+		private boolean isDecisionScheduled = false;
+		
+		/** Indicates whether the decision is made or not. */
+		private boolean isDecided = false;
+		
+		/** Amount of data available in each channel at start time. */
+		private int[] startVolumes;
+		
+		/**
+		 * Predicted reply size of each channel (<code>null</code>, if no 
+		 * prediction is available).
+		 */
+		private HashMap<User, Integer> predictedSizes;
+		
+		/** Predicted size class of each channel (index of the class). */
+		private HashMap<User, Integer> predictedSizeClasses;
+		
+		/** Channels with their predicted reply size available. */
+		private HashSet<User> predictedChannels = new HashSet<User>();
+		
+		/**
+		 * Number of channels with their predicted reply size available for 
+		 * each size class.
+		 */
+		private int[] numberOfPredictedChannels;
+		
+		/**
+		 * Number of channels of each size class, that must have their 
+		 * predicted reply size available, before the class' predicted size 
+		 * counts as reached.
+		 */
+		private int[] neededNumberOfPredictedChannels;
+		
+		/** Number of size classes, whose predicted size isn't reached yet. */
+		private int unreachedSizeClasses;
+		
+		/** Makes the decision (see <code>decide()</code>). */
+		private final Runnable decision = new Runnable() {
+			
+			public void run() {
+				
+				decide();
+				
+			}
+			
+		};
+		
+		/** Hands the decision over when the timeout is reached. */
+		private final TimerTask timeoutTask = new TimerTask() {
+			
+			public void run() {
+				
+				execute(decision);
+				
+			}
+			
+		};
+		
+		
+		/**
+		 * Creates a new <code>PendingBatch</code> for the bypassed 
+		 * channels/users. Call <code>start()</code> to start observing them.
+		 * 
+		 * @param channels	The channels/users of the batch.
+		 */
+		private PendingBatch(User[] channels) {
+			
+			this.CHANNELS = channels;
+			
+			this.NEEDED_NUMBER_OF_FILLED_CHANNELS = 
+				Math.round((float)channels.length * MIN_FILLED_CHANNELS);
+				
+		}
+		
+		
+		/**
+		 * Counts the data already available and starts the timeout (or 
+		 * schedules the decision, if enough data is available already).
+		 */
+		private synchronized void start() {
+			
+			startVolumes = getVolumeForEachChannel(CHANNELS);
+			predict();
+			isStarted = true;
+			
+			for (User channel: CHANNELS) {
+				
+				update(channel);
+				
+			}
+			
+			if (!isDecisionScheduled) {
+				
+				if (isEnoughDataAvailable()) {
+					
+					scheduleDecision();
+					
+				} else {
+					
+					timer.schedule(timeoutTask, TIMEOUT);
+					
+				}
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Updates the counters for the bypassed channel (called, when new 
+		 * data is available for it). Schedules the decision, if enough 
+		 * channels are filled now. Ignored before <code>start()</code> (which 
+		 * counts the data available at start time itself).
+		 * 
+		 * @param channel	The channel/user data was added for.
+		 */
+		private synchronized void update(User channel) {
+			
+			if (!isStarted || isDecisionScheduled) {
+				
+				return;
+				
+			}
+			
+			int availableData = channel.availableDataInProxyReadBuffer();
+			
+			if (	availableData >= MIN_VOLUME_PER_CHANNEL
+					&&
+					filledChannels.add(channel)
+					&&
+					isEnoughDataAvailable()
+					) {
+				
+				scheduleDecision();
+				
+			} else if (	predictedSizes != null
+						&&
+						getReplySize(availableData)
+						>= 
+						predictedSizes.get(channel)
+						&&
+						predictedChannels.add(channel)
+						&&
+						isPredictedSizeReached(channel)
+						) { // predicted size reached
+				
+				scheduleDecision();
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Predicts the reply size and size class of each channel (see 
+		 * <code>predictReplySizes()</code>) and determines how many channels 
+		 * of each size class must reach their predicted size. Predictions 
+		 * below <code>MIN_VOLUME_PER_CHANNEL</code> (i. e. hardly any data 
+		 * expected) aren't used.
+		 */
+		private void predict() {
+			
+			int[] sizeClasses = new int[CHANNELS.length];
+			int[] sizes = 
+				predictReplySizes(startVolumes, CHANNELS, sizeClasses);
+			
+			if (sizes == null) {
+				
+				return;
+				
+			}
+			
+			int maximum = 0;
+			
+			for (int size: sizes) {
+				
+				maximum = Math.max(maximum, size);
+				
+			}
+			
+			if (maximum < MIN_VOLUME_PER_CHANNEL) { // hardly any data expected
+				
+				return;
+				
+			}
+			
+			int numberOfClasses = 
+				Math.min(NUMBER_OF_REPLY_SIZE_CLASSES, CHANNELS.length);
+			
+			int[] classSizes = new int[numberOfClasses];
+			
+			for (int sizeClass: sizeClasses) {
+				
+				classSizes[sizeClass]++;
+				
+			}
+			
+			numberOfPredictedChannels = new int[numberOfClasses];
+			neededNumberOfPredictedChannels = new int[numberOfClasses];
+			unreachedSizeClasses = 0;
+			
+			for (int i=0; i<numberOfClasses; i++) {
+				
+				int z = classSizes[i];
+				
+				if (z > 0) { // (classes with equal bounds may stay empty)
+					
+					// channels above the g-quantile of the class
+					double a = g * (z - 1.0d) + 1.0d;
+					
+					neededNumberOfPredictedChannels[i] = 
+						z - (int)Math.floor(a) + 1;
+					
+					unreachedSizeClasses++;
+					
+				}
+				
+			}
+			
+			predictedSizes = new HashMap<User, Integer>();
+			predictedSizeClasses = new HashMap<User, Integer>();
+			
+			for (int i=0; i<CHANNELS.length; i++) {
+				
+				predictedSizes.put(CHANNELS[i], sizes[i]);
+				predictedSizeClasses.put(CHANNELS[i], sizeClasses[i]);
+				
+			}
+			
+		}
+		
+		
+		/**
+		 * Counts the bypassed channel (that has its predicted reply size 
+		 * available now) for its size class.
+		 * 
+		 * @param channel	The channel/user, whose predicted size is reached.
+		 * 
+		 * @return			Whether the predicted size of every size class 
+		 * 					is reached now or not.
+		 */
+		private boolean isPredictedSizeReached(User channel) {
+			
+			int sizeClass = predictedSizeClasses.get(channel);
+			numberOfPredictedChannels[sizeClass]++;
+			
+			if (	numberOfPredictedChannels[sizeClass]
+					== 
+					neededNumberOfPredictedChannels[sizeClass]
+					) {
+				
+				unreachedSizeClasses--;
+				
+			}
+			
+			return unreachedSizeClasses == 0;
+			
+		}
+		
+		
+		/**
+		 * Returns the size of a reply for the bypassed amount of data (as 
+		 * the predicted sizes, adjusted to the 
+		 * <code>CIPHER_BLOCK_SIZE</code>).
+		 * 
+		 * @param availableData	Amount of data available (in byte).
+		 * 
+		 * @return				The reply size (in byte).
+		 */
+		private int getReplySize(int availableData) {
+			
+			return adjustBlockSizeToCryptographicBlockSize(
+					Math.min(availableData, MAX_REPLY_LENGTH)
+					);
+			
+		}
+		
+		
+		/**
+		 * Indicates whether enough channels are filled to reply or not.
+		 * 
+		 * @return	Whether enough channels are filled to reply or not.
+		 */
+		private boolean isEnoughDataAvailable() {
+			
+			return filledChannels.size() >= NEEDED_NUMBER_OF_FILLED_CHANNELS;
+			
+		}
+		
+		
+		/**
+		 * Cancels the timeout and makes <code>decisionExecutor</code> 
+		 * execute the decision immediately (the event's thread isn't 
+		 * blocked).
+		 */
+		private void scheduleDecision() {
+			
+			isDecisionScheduled = true;
+			timeoutTask.cancel();
+			execute(decision);
+			
+		}
+		
+		
+		/**
+		 * Decides about the reply size for each channel and generates the 
+		 * <code>Reply</code>ies (executed by <code>decisionExecutor</code>, 
+		 * at most once).
+		 */
+		private void decide() {
+			
+			int[] volumesAtStart;
+			
+			synchronized (this) {
+				
+				if (isDecided) {
+					
+					return;
+					
+				}
+				
+				isDecided = true;
+				isDecisionScheduled = true;
+				volumesAtStart = startVolumes;
+				
+			}
+			
+			for (User channel: CHANNELS) {
+				
+				pendingBatches.remove(channel, this);
+				
+			}
+			
+			int[] bytesReadSoFar = getVolumeForEachChannel(CHANNELS);
+			int[] replySizes = getReplySizes(bytesReadSoFar, null);
+			
+			updateReadHistories(	CHANNELS,
+									volumesAtStart,
+									bytesReadSoFar,
+									replySizes
+									);
+			
+			processMessages(replySizes, CHANNELS);
+			
+			// data left, that didn't fit in the replies (no event will come)
+			checkPushThreshold(CHANNELS);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Read history of a channel. Must be accessed with the lock on 
+	 * <code>readHistories</code> held.
+	 */
+	private static final class ReadHistory {
+		
+		/**
+		 * Exponentially weighted average amount of data (in byte) received 
+		 * per decision.
+		 */
+		private double volume;
+		
+		/** Data left (not replied) after the last decision (in byte). */
+		private int leftover = 0;
+		
+		
+		/**
+		 * Creates a new <code>ReadHistory</code>.
+		 * 
+		 * @param volume	Amount of data received for the first decision.
+		 */
+		private ReadHistory(double volume) {
+			
+			this.volume = volume;
+			
+		}
+		
+	}
+
 }
@@ -0,0 +1,284 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import userDatabase.User;
+
+
+/**
+ * Stores <code>Reply</code>ies that don't fit in a channel's 
+ * <code>clientWriteBuffer</code> (the <code>Client</code> doesn't receive 
+ * them fast enough) until they can be sent. Used by 
+ * <code>ClientConnectionHandler</code> and 
+ * <code>BlockingClientConnectionHandler</code> instead of dropping such 
+ * replies (which would break the channel's stream).
+ * <p>
+ * The queue of each channel is bounded (see property 
+ * <code>MAX_PENDING_REPLIES_PER_CHANNEL</code>) and all queued replies are 
+ * charged against a mix-wide memory budget (see 
+ * <code>REPLY_OVERFLOW_BUDGET</code>). When a reply can't be queued, 
+ * property <code>REPLY_OVERFLOW_POLICY</code> decides what happens (see 
+ * <code>add()</code>).
+ * <p>
+ * This class is thread-safe.
+ */
+final class ReplyOverflowQueue {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Maximum number of replies queued for a single channel. */
+	private final int MAX_REPLIES_PER_CHANNEL;
+	
+	/** Maximum number of bytes queued for all channels together. */
+	private final long BUDGET;
+	
+	/**
+	 * Indicates whether the slowest channel shall be closed when a reply 
+	 * can't be queued (<code>true</code>) or the reply shall be dropped 
+	 * (<code>false</code>).
+	 */
+	private final boolean IS_CLOSING_SLOWEST_CHANNEL;
+	
+	/** Queued (framed) replies of each channel (oldest first). */
+	private HashMap<User, LinkedList<byte[]>> queues = 
+		new HashMap<User, LinkedList<byte[]>>();
+	
+	/** Number of bytes queued for each channel. */
+	private HashMap<User, Long> queuedBytes = new HashMap<User, Long>();
+	
+	/** Number of bytes queued for all channels together. */
+	private long usedBudget = 0;
+	
+	
+	/**
+	 * Creates a new (empty) <code>ReplyOverflowQueue</code> (with the limits 
+	 * and policy specified in the property file).
+	 */
+	protected ReplyOverflowQueue() {
+		
+		this.MAX_REPLIES_PER_CHANNEL = 
+			new Integer(getProperty("MAX_PENDING_REPLIES_PER_CHANNEL"));
+		
+		this.BUDGET = new Long(getProperty("REPLY_OVERFLOW_BUDGET"));
+		
+		this.IS_CLOSING_SLOWEST_CHANNEL = 
+			!getProperty("REPLY_OVERFLOW_POLICY").trim(
+					).equalsIgnoreCase("DROP_REPLY");
+					
+	}
+
+	
+	/**
+	 * Indicates whether replies are queued for the bypassed channel or not. 
+	 * If so, new replies must be queued as well (to keep their order).
+	 * 
+	 * @param channel	The channel to check.
+	 * 
+	 * @return			Whether replies are queued for the channel or not.
+	 */
+	protected synchronized boolean hasPendingReplies(User channel) {
+		
+		return queues.containsKey(channel);
+		
+	}
+
+	
+	/**
+	 * Queues the bypassed (framed) reply for the bypassed channel, if the 
+	 * channel's queue isn't full and the budget isn't exhausted.
+	 * <p>
+	 * Otherwise, the reply is not queued. Depending on property 
+	 * <code>REPLY_OVERFLOW_POLICY</code> (see 
+	 * <code>isClosingSlowestChannel()</code>), the caller must either drop 
+	 * the reply or close the channel returned by 
+	 * <code>removeSlowestChannel()</code> and try again.
+	 * 
+	 * @param channel	The channel the reply belongs to.
+	 * @param reply		The reply (including its length header).
+	 * 
+	 * @return			Whether the reply was queued or not.
+	 */
+	protected synchronized boolean add(User channel, byte[] reply) {
+		
+		LinkedList<byte[]> queue = queues.get(channel);
+		
+		if (	(queue != null && queue.size() >= MAX_REPLIES_PER_CHANNEL)
+				||
+				usedBudget + reply.length > BUDGET
+				) { // not enough space
+			
+			return false;
+			
+		}
+		
+		if (queue == null) {
+			
+			queue = new LinkedList<byte[]>();
+			queues.put(channel, queue);
+			queuedBytes.put(channel, 0L);
+			
+		}
+		
+		queue.add(reply);
+		queuedBytes.put(channel, queuedBytes.get(channel) + reply.length);
+		usedBudget += reply.length;
+		
+		return true;
+		
+	}
+
+	
+	/**
+	 * Indicates whether the slowest channel shall be closed when a reply 
+	 * can't be queued (<code>REPLY_OVERFLOW_POLICY</code> is 
+	 * "CLOSE_SLOWEST") or the reply shall be dropped ("DROP_REPLY").
+	 * 
+	 * @return	Whether the slowest channel shall be closed or not.
+	 */
+	protected boolean isClosingSlowestChannel() {
+		
+		return IS_CLOSING_SLOWEST_CHANNEL;
+		
+	}
+
+	
+	/**
+	 * Determines the channel to close, since a reply for the bypassed 
+	 * channel couldn't be queued, and removes its replies: The bypassed 
+	 * channel itself, if its queue is full, or the channel with the most 
+	 * bytes queued (budget exhausted).
+	 * 
+	 * @param channel	The channel whose reply couldn't be queued.
+	 * 
+	 * @return			The channel to close.
+	 */
+	protected synchronized User removeSlowestChannel(User channel) {
+		
+		LinkedList<byte[]> queue = queues.get(channel);
+		User slowestChannel = channel;
+		
+		if (queue == null || queue.size() < MAX_REPLIES_PER_CHANNEL) {
+			// budget exhausted -> find channel with most bytes queued
+			
+			long maximum = -1;
+			
+			for (Map.Entry<User, Long> entry: queuedBytes.entrySet()) {
+				
+				if (entry.getValue() > maximum) {
+					
+					maximum = entry.getValue();
+					slowestChannel = entry.getKey();
+					
+				}
+				
+			}
+			
+		}
+		
+		remove(slowestChannel);
+		return slowestChannel;
+		
+	}
+
+	
+	/**
+	 * Moves as many queued replies of the bypassed channel to the bypassed 
+	 * buffer as fit in (oldest first, whole replies only). The caller must 
+	 * hold the lock on <code>destination</code>.
+	 * 
+	 * @param channel		The channel whose replies shall be moved.
+	 * @param destination	The channel's <code>clientWriteBuffer</code>.
+	 * 
+	 * @return				Number of replies moved.
+	 */
+	protected synchronized int moveTo(User channel, ByteBuffer destination) {
+		
+		LinkedList<byte[]> queue = queues.get(channel);
+		int movedReplies = 0;
+		
+		while (	queue != null
+				&&
+				!queue.isEmpty()
+				&&
+				destination.remaining() >= queue.getFirst().length
+				) {
+			
+			byte[] reply = queue.removeFirst();
+			destination.put(reply);
+			queuedBytes.put(channel, queuedBytes.get(channel) - reply.length);
+			usedBudget -= reply.length;
+			movedReplies++;
+			
+		}
+		
+		if (queue != null && queue.isEmpty()) {
+			
+			queues.remove(channel);
+			queuedBytes.remove(channel);
+			
+		}
+		
+		return movedReplies;
+		
+	}
+
+	
+	/**
+	 * Removes all replies queued for the bypassed channel (e. g. since it 
+	 * was closed).
+	 * 
+	 * @param channel	The channel whose replies shall be removed.
+	 */
+	protected synchronized void remove(User channel) {
+		
+		queues.remove(channel);
+		Long bytes = queuedBytes.remove(channel);
+		
+		if (bytes != null) {
+			
+			usedBudget -= bytes;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the number of bytes queued for all channels together.
+	 * 
+	 * @return	The number of bytes queued.
+	 */
+	protected synchronized long getUsedBudget() {
+		
+		return usedBudget;
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+}
@@ -0,0 +1,846 @@
+package inputOutputHandler;
+
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Bounded, lock-free <code>BlockingQueue</code> based on a preallocated ring 
+ * of slots (multiple producers, multiple consumers). Used by 
+ * <code>InputOutputHandlerController</code> as an alternative to 
+ * <code>LinkedBlockingQueue</code> for the hand-off of messages between 
+ * the mix' stages (see property <code>QUEUE_IMPLEMENTATION</code>).
+ * <p>
+ * Each slot has a sequence number, which tells producers whether the slot is 
+ * free (for the current lap) and consumers whether it is published. Producers 
+ * and consumers claim positions with a compare-and-set on 
+ * <code>tail</code> and <code>head</code> respectively. Therefore, adding or 
+ * removing an element requires no lock. Threads waiting for an element (or 
+ * free slot) spin shortly, then yield and finally block on a 
+ * <code>Condition</code> (so an idle mix doesn't consume CPU time). The 
+ * other side takes the lock to signal them only, if a thread is blocked 
+ * (see <code>waitingConsumers</code> and <code>waitingProducers</code>).
+ * <p>
+ * The lag of the consuming stage (number of published, but not yet consumed 
+ * elements) can be read with <code>size()</code> at any time.
+ * <p>
+ * <code>iterator()</code> returns a weakly consistent iterator (like the 
+ * iterators of <code>java.util.concurrent</code>'s queues). Elements removed 
+ * with the iterator (or <code>remove(Object)</code>) are replaced by a 
+ * marker (<code>REMOVED</code>), which is skipped by consumers (and counted 
+ * by <code>size()</code> until then).
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @param <E>	Type of the elements stored.
+ */
+final class RingBufferQueue<E> extends AbstractQueue<E> implements
+		BlockingQueue<E> {
+	
+	/** Number of retries a waiting thread spins before yielding. */
+	private static final int SPIN_TRIES = 100;
+	
+	/** Number of retries a waiting thread yields before blocking. */
+	private static final int YIELD_TRIES = 100;
+	
+	/** Marks a slot whose element was removed by an iterator. */
+	private static final Object REMOVED = new Object();
+	
+	/** Number of slots (a power of two). */
+	private final int CAPACITY;
+	
+	/** Used to map positions to slots (<code>CAPACITY - 1</code>). */
+	private final int MASK;
+	
+	/**
+	 * The slots (preallocated). Contain elements of type <code>E</code> or 
+	 * <code>REMOVED</code>.
+	 */
+	private final AtomicReferenceArray<Object> slots;
+	
+	/**
+	 * Sequence number of each slot. A slot is free for the producer of 
+	 * position <code>p</code>, if its sequence is <code>p</code>, and 
+	 * published for the consumer of position <code>p</code>, if its sequence 
+	 * is <code>p + 1</code>.
+	 */
+	private final AtomicLongArray sequences;
+	
+	/** Next position to consume. */
+	private final PaddedAtomicLong head = new PaddedAtomicLong();
+	
+	/** Next position to publish. */
+	private final PaddedAtomicLong tail = new PaddedAtomicLong();
+	
+	/** Lock used by blocked threads only. */
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	/** Signaled, when an element was published (and consumers wait). */
+	private final Condition notEmpty = lock.newCondition();
+	
+	/** Signaled, when a slot was freed (and producers wait). */
+	private final Condition notFull = lock.newCondition();
+	
+	/** Number of consumers blocked on <code>notEmpty</code>. */
+	private final AtomicInteger waitingConsumers = new AtomicInteger();
+	
+	/** Number of producers blocked on <code>notFull</code>. */
+	private final AtomicInteger waitingProducers = new AtomicInteger();
+	
+	
+	/**
+	 * Creates a new (empty) <code>RingBufferQueue</code> with (at least) the 
+	 * bypassed capacity (rounded up to the next power of two).
+	 * 
+	 * @param capacity	Minimum number of elements the queue can store.
+	 */
+	protected RingBufferQueue(int capacity) {
+		
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			
+			throw new IllegalArgumentException(	"Illegal capacity: "
+												+capacity
+												);
+												
+		}
+		
+		int ringSize = 1;
+		
+		while (ringSize < capacity) {
+			
+			ringSize <<= 1;
+			
+		}
+		
+		this.CAPACITY = ringSize;
+		this.MASK = ringSize - 1;
+		this.slots = new AtomicReferenceArray<Object>(ringSize);
+		this.sequences = new AtomicLongArray(ringSize);
+		
+		for (int i=0; i<ringSize; i++) {
+			
+			sequences.set(i, i);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Adds the bypassed element, if a slot is free.
+	 * 
+	 * @param element	The element to add.
+	 * 
+	 * @return			Whether the element was added or not (queue full).
+	 */
+	@Override
+	public boolean offer(E element) {
+		
+		if (element == null) {
+			
+			throw new NullPointerException();
+			
+		}
+		
+		while (true) {
+			
+			long position = tail.get();
+			int index = (int)position & MASK;
+			long difference = sequences.get(index) - position;
+			
+			if (difference == 0) { // slot free
+				
+				if (tail.compareAndSet(position, position + 1)) {
+					
+					slots.set(index, element);
+					sequences.set(index, position + 1); // publish
+					signalWaiting(waitingConsumers, notEmpty);
+					return true;
+					
+				}
+				
+			} else if (difference < 0) { // slot not consumed yet -> full
+				
+				return false;
+				
+			} // else: position claimed by another producer -> retry
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Removes and returns the first element, if one is available.
+	 * 
+	 * @return	The first element or <code>null</code> (queue empty).
+	 */
+	@Override
+	public E poll() {
+		
+		while (true) {
+			
+			long position = head.get();
+			int index = (int)position & MASK;
+			long difference = sequences.get(index) - (position + 1);
+			
+			if (difference == 0) { // slot published
+				
+				if (head.compareAndSet(position, position + 1)) {
+					
+					// getAndSet: an iterator can't remove the element now
+					Object element = slots.getAndSet(index, null);
+					sequences.set(index, position + CAPACITY); // free slot
+					signalWaiting(waitingProducers, notFull);
+					
+					if (element != REMOVED) {
+						
+						return cast(element);
+						
+					} // else: removed by an iterator -> next position
+					
+				}
+				
+			} else if (difference < 0) { // slot not published yet -> empty
+				
+				return null;
+				
+			} // else: position claimed by another consumer -> retry
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns (without removing) the first element, if one is available.
+	 * 
+	 * @return	The first element or <code>null</code> (queue empty).
+	 */
+	@Override
+	public E peek() {
+		
+		Iterator<E> iterator = iterator();
+		return iterator.hasNext() ? iterator.next() : null;
+		
+	}
+
+	
+	/**
+	 * Adds the bypassed element. If the queue is full, this method blocks 
+	 * until a slot becomes free.
+	 * 
+	 * @param element	The element to add.
+	 * 
+	 * @throws InterruptedException	If interrupted while waiting.
+	 */
+	@Override
+	public void put(E element) throws InterruptedException {
+		
+		int tries = 0;
+		
+		while (!offer(element)) {
+			
+			if (tries < SPIN_TRIES + YIELD_TRIES) {
+				
+				tries = waitForRetry(tries);
+				
+			} else {
+				
+				awaitSpace(element, false, 0);
+				return;
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Adds the bypassed element. If the queue is full, this method blocks 
+	 * until a slot becomes free or the bypassed timeout is reached.
+	 * 
+	 * @param element	The element to add.
+	 * @param timeout	Maximum time to wait.
+	 * @param unit		Unit of <code>timeout</code>.
+	 * 
+	 * @return			Whether the element was added or not (timeout).
+	 * 
+	 * @throws InterruptedException	If interrupted while waiting.
+	 */
+	@Override
+	public boolean offer(E element, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int tries = 0;
+		
+		while (!offer(element)) {
+			
+			long remainingNanos = deadline - System.nanoTime();
+			
+			if (remainingNanos <= 0) {
+				
+				return false;
+				
+			} else if (tries < SPIN_TRIES + YIELD_TRIES) {
+				
+				tries = waitForRetry(tries);
+				
+			} else {
+				
+				return awaitSpace(element, true, remainingNanos);
+				
+			}
+			
+		}
+		
+		return true;
+		
+	}
+
+	
+	/**
+	 * Removes and returns the first element. If the queue is empty, this 
+	 * method blocks until an element is published.
+	 * 
+	 * @return	The first element.
+	 * 
+	 * @throws InterruptedException	If interrupted while waiting.
+	 */
+	@Override
+	public E take() throws InterruptedException {
+		
+		int tries = 0;
+		E element;
+		
+		while ((element = poll()) == null) {
+			
+			if (tries < SPIN_TRIES + YIELD_TRIES) {
+				
+				tries = waitForRetry(tries);
+				
+			} else {
+				
+				return awaitElement(false, 0);
+				
+			}
+			
+		}
+		
+		return element;
+		
+	}
+
+	
+	/**
+	 * Removes and returns the first element. If the queue is empty, this 
+	 * method blocks until an element is published or the bypassed timeout is 
+	 * reached.
+	 * 
+	 * @param timeout	Maximum time to wait.
+	 * @param unit		Unit of <code>timeout</code>.
+	 * 
+	 * @return			The first element or <code>null</code> (timeout).
+	 * 
+	 * @throws InterruptedException	If interrupted while waiting.
+	 */
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int tries = 0;
+		E element;
+		
+		while ((element = poll()) == null) {
+			
+			long remainingNanos = deadline - System.nanoTime();
+			
+			if (remainingNanos <= 0) {
+				
+				return null;
+				
+			} else if (tries < SPIN_TRIES + YIELD_TRIES) {
+				
+				tries = waitForRetry(tries);
+				
+			} else {
+				
+				return awaitElement(true, remainingNanos);
+				
+			}
+			
+		}
+		
+		return element;
+		
+	}
+
+	
+	/**
+	 * Removes all available elements and adds them to the bypassed 
+	 * collection.
+	 * 
+	 * @param collection	The collection to add the elements to.
+	 * 
+	 * @return				Number of elements transferred.
+	 */
+	@Override
+	public int drainTo(Collection<? super E> collection) {
+		
+		return drainTo(collection, Integer.MAX_VALUE);
+		
+	}
+
+	
+	/**
+	 * Removes up to <code>maxElements</code> available elements and adds them 
+	 * to the bypassed collection (in order).
+	 * 
+	 * @param collection	The collection to add the elements to.
+	 * @param maxElements	Maximum number of elements to transfer.
+	 * 
+	 * @return				Number of elements transferred.
+	 */
+	@Override
+	public int drainTo(Collection<? super E> collection, int maxElements) {
+		
+		if (collection == this) {
+			
+			throw new IllegalArgumentException();
+			
+		}
+		
+		int transferred = 0;
+		E element;
+		
+		while (transferred < maxElements && (element = poll()) != null) {
+			
+			collection.add(element);
+			transferred++;
+			
+		}
+		
+		return transferred;
+		
+	}
+
+	
+	/**
+	 * Returns the number of published, but not yet consumed elements (i. e. 
+	 * the lag of the consuming stage; includes elements removed by an 
+	 * iterator, but not yet skipped by a consumer).
+	 * 
+	 * @return	The number of elements in this queue.
+	 */
+	@Override
+	public int size() {
+		
+		long consumed = head.get();
+		long published = tail.get();
+		
+		return (int)Math.max(0, Math.min(CAPACITY, published - consumed));
+		
+	}
+
+	
+	/**
+	 * Returns the number of free slots.
+	 * 
+	 * @return	The number of free slots.
+	 */
+	@Override
+	public int remainingCapacity() {
+		
+		return CAPACITY - size();
+		
+	}
+
+	
+	/**
+	 * Returns a weakly consistent iterator over the elements of this queue 
+	 * (in order). The iterator never throws a 
+	 * <code>ConcurrentModificationException</code>. It returns the elements 
+	 * published before its creation, that are not consumed before it reaches 
+	 * them, and may (but doesn't have to) return elements published 
+	 * afterwards. <code>Iterator.remove()</code> is supported.
+	 * 
+	 * @return	An iterator over the elements of this queue.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		
+		return new RingIterator();
+		
+	}
+
+	
+	/**
+	 * Returns a simple String representation of this object.
+	 * 
+	 * @return	A simple String representation of this object.
+	 */
+	@Override
+	public String toString() {
+		
+		return "RingBufferQueue (" +size() +"/" +CAPACITY +" elements)";
+		
+	}
+
+	
+	/**
+	 * Waits before the next retry of a thread that found the queue full or 
+	 * empty: spins first, then yields (the caller blocks afterwards, see 
+	 * <code>awaitElement()</code> and <code>awaitSpace()</code>).
+	 * 
+	 * @param tries	Number of retries so far.
+	 * 
+	 * @return		The incremented number of retries.
+	 * 
+	 * @throws InterruptedException	If the waiting thread was interrupted.
+	 */
+	private static int waitForRetry(int tries) throws InterruptedException {
+		
+		if (Thread.interrupted()) {
+			
+			throw new InterruptedException();
+			
+		}
+		
+		if (tries >= SPIN_TRIES) {
+			
+			Thread.yield();
+			
+		}
+		
+		return tries + 1;
+		
+	}
+
+	
+	/**
+	 * Blocks (on <code>notEmpty</code>), until an element is available, and 
+	 * removes it.
+	 * 
+	 * @param isTimed	Whether to give up after <code>nanos</code> or not.
+	 * @param nanos		Maximum time to wait (if <code>isTimed</code>).
+	 * 
+	 * @return			The first element or <code>null</code> (timeout).
+	 * 
+	 * @throws InterruptedException	If interrupted while waiting.
+	 */
+	private E awaitElement(boolean isTimed, long nanos)
+			throws InterruptedException {
+		
+		lock.lockInterruptibly();
+		
+		try {
+			
+			// register before checking again (producers read the counter
+			// after publishing, so either they signal or we see the element)
+			waitingConsumers.incrementAndGet();
+			E element;
+			
+			while ((element = poll()) == null) {
+				
+				if (!isTimed) {
+					
+					notEmpty.await();
+					
+				} else if (nanos <= 0) {
+					
+					return null;
+					
+				} else {
+					
+					nanos = notEmpty.awaitNanos(nanos);
+					
+				}
+				
+			}
+			
+			return element;
+			
+		} finally {
+			
+			waitingConsumers.decrementAndGet();
+			lock.unlock();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Blocks (on <code>notFull</code>), until a slot is free, and adds the 
+	 * bypassed element.
+	 * 
+	 * @param element	The element to add.
+	 * @param isTimed	Whether to give up after <code>nanos</code> or not.
+	 * @param nanos		Maximum time to wait (if <code>isTimed</code>).
+	 * 
+	 * @return			Whether the element was added or not (timeout).
+	 * 
+	 * @throws InterruptedException	If interrupted while waiting.
+	 */
+	private boolean awaitSpace(E element, boolean isTimed, long nanos)
+			throws InterruptedException {
+		
+		lock.lockInterruptibly();
+		
+		try {
+			
+			// register before checking again (see awaitElement())
+			waitingProducers.incrementAndGet();
+			
+			while (!offer(element)) {
+				
+				if (!isTimed) {
+					
+					notFull.await();
+					
+				} else if (nanos <= 0) {
+					
+					return false;
+					
+				} else {
+					
+					nanos = notFull.awaitNanos(nanos);
+					
+				}
+				
+			}
+			
+			return true;
+			
+		} finally {
+			
+			waitingProducers.decrementAndGet();
+			lock.unlock();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Wakes up the threads blocked on the bypassed condition, if there are 
+	 * any (costs a single volatile read otherwise).
+	 * 
+	 * @param waitingThreads	Number of threads blocked on 
+	 * 							<code>condition</code>.
+	 * @param condition			The condition to signal.
+	 */
+	private void signalWaiting(	AtomicInteger waitingThreads,
+								Condition condition
+								) {
+		
+		if (waitingThreads.get() > 0) {
+			
+			lock.lock();
+			
+			try {
+				
+				condition.signalAll();
+				
+			} finally {
+				
+				lock.unlock();
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Casts the bypassed slot content (not <code>REMOVED</code>) to the 
+	 * element type.
+	 * 
+	 * @param element	Content of a slot.
+	 * 
+	 * @return			The element.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E> E cast(Object element) {
+		
+		return (E)element;
+		
+	}
+
+	
+	/**
+	 * Weakly consistent iterator (see <code>iterator()</code>). Visits the 
+	 * positions between <code>head</code> and <code>tail</code> (read when 
+	 * the iterator is created) and returns the elements still published.
+	 */
+	private final class RingIterator implements Iterator<E> {
+		
+		/** Next position to check. */
+		private long position;
+		
+		/** Position after the last one to check. */
+		private final long end;
+		
+		/** The element returned by the next call of <code>next()</code>. */
+		private Object nextElement;
+		
+		/** Position of <code>nextElement</code>. */
+		private long nextElementPosition;
+		
+		/** The element last returned by <code>next()</code>. */
+		private Object lastElement;
+		
+		/** Position of <code>lastElement</code>. */
+		private long lastElementPosition;
+		
+		
+		/**
+		 * Creates a new iterator starting at the current <code>head</code>.
+		 */
+		private RingIterator() {
+			
+			this.position = head.get();
+			this.end = tail.get();
+			advance();
+			
+		}
+		
+		
+		/**
+		 * Indicates whether there is another element or not.
+		 * 
+		 * @return	Whether there is another element or not.
+		 */
+		@Override
+		public boolean hasNext() {
+			
+			return nextElement != null;
+			
+		}
+		
+		
+		/**
+		 * Returns the next element.
+		 * 
+		 * @return	The next element.
+		 * 
+		 * @throws NoSuchElementException	If there is no further element.
+		 */
+		@Override
+		public E next() {
+			
+			if (nextElement == null) {
+				
+				throw new NoSuchElementException();
+				
+			}
+			
+			lastElement = nextElement;
+			lastElementPosition = nextElementPosition;
+			advance();
+			
+			return cast(lastElement);
+			
+		}
+		
+		
+		/**
+		 * Removes the element last returned by <code>next()</code> from the 
+		 * queue (if it wasn't consumed in the meantime).
+		 * 
+		 * @throws IllegalStateException	If <code>next()</code> wasn't 
+		 * 									called before.
+		 */
+		@Override
+		public void remove() {
+			
+			if (lastElement == null) {
+				
+				throw new IllegalStateException();
+				
+			}
+			
+			int index = (int)lastElementPosition & MASK;
+			
+			if (sequences.get(index) == lastElementPosition + 1) {
+				// still published -> replace with marker (fails, if a
+				// consumer took the element in the meantime)
+				
+				slots.compareAndSet(index, lastElement, REMOVED);
+				
+			}
+			
+			lastElement = null;
+			
+		}
+		
+		
+		/**
+		 * Finds the next position (before <code>end</code>) with a 
+		 * published element and stores it in <code>nextElement</code> 
+		 * (<code>null</code>, if there is none).
+		 */
+		private void advance() {
+			
+			nextElement = null;
+			
+			for (; position<end && nextElement==null; position++) {
+				
+				int index = (int)position & MASK;
+				
+				if (sequences.get(index) != position + 1) { // consumed
+					
+					continue;
+					
+				}
+				
+				Object element = slots.get(index);
+				
+				if (	element != null
+						&&
+						element != REMOVED
+						&&
+						sequences.get(index) == position + 1 // not reused
+						) {
+					
+					nextElement = element;
+					nextElementPosition = position;
+					
+				}
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * <code>AtomicLong</code> padded to a cache line, so <code>head</code> 
+	 * and <code>tail</code> (written by different threads) don't share one 
+	 * (false sharing).
+	 */
+	@SuppressWarnings("unused")
+	private static final class PaddedAtomicLong extends AtomicLong {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private long p1, p2, p3, p4, p5, p6, p7;
+		
+	}
+
+}
@@ -0,0 +1,288 @@
+package inputOutputHandler;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Logger;
+
+
+/**
+ * Opens Unix domain socket channels for connections between mixes running 
+ * on the same host (see property <code>INTER_MIX_TRANSPORT</code>). Used by 
+ * <code>NextMixConnectionHandler</code> and 
+ * <code>PreviousMixConnectionHandler</code> instead of TCP on the loopback 
+ * interface (saves the TCP/IP stack for each message).
+ * <p>
+ * Unix domain socket channels require Java 16 or later. Since this project 
+ * must still compile for older versions, the API is accessed via 
+ * reflection. <code>isAvailable()</code> returns <code>false</code> on older 
+ * JVMs (or operating systems not supporting Unix domain sockets), in which 
+ * case TCP is used instead.
+ * <p>
+ * The socket file of a mix is derived from its port number (see 
+ * <code>getPath()</code>), so no additional addresses need to be 
+ * configured.
+ */
+final class UnixDomainSockets {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/** <code>StandardProtocolFamily.UNIX</code> (<code>null</code>, if n/a). */
+	private static Object unixProtocolFamily;
+	
+	/** <code>SocketChannel.open(ProtocolFamily)</code>. */
+	private static Method openSocketChannel;
+	
+	/** <code>ServerSocketChannel.open(ProtocolFamily)</code>. */
+	private static Method openServerSocketChannel;
+	
+	/** <code>ServerSocketChannel.bind(SocketAddress)</code>. */
+	private static Method bind;
+	
+	/** <code>UnixDomainSocketAddress.of(String)</code>. */
+	private static Method createAddress;
+	
+	static {
+		
+		try {
+			
+			Class<?> protocolFamilyClass = 
+				Class.forName("java.net.ProtocolFamily");
+			
+			Object family = 
+				Class.forName("java.net.StandardProtocolFamily"
+						).getField("UNIX").get(null);
+			
+			openSocketChannel = 
+				SocketChannel.class.getMethod("open", protocolFamilyClass);
+			
+			openServerSocketChannel = 
+				ServerSocketChannel.class.getMethod(	"open",
+														protocolFamilyClass
+														);
+			
+			bind = 
+				ServerSocketChannel.class.getMethod(	"bind",
+														SocketAddress.class
+														);
+			
+			createAddress = 
+				Class.forName("java.net.UnixDomainSocketAddress"
+						).getMethod("of", String.class);
+			
+			// fails, if the operating system doesn't support the family
+			((SocketChannel)openSocketChannel.invoke(null, family)).close();
+			
+			unixProtocolFamily = family;
+			
+		} catch (Exception e) { // Java < 16 or not supported by OS
+			
+			unixProtocolFamily = null;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Empty constructor. Never used since all methods are static.
+	 */
+	private UnixDomainSockets() {
+	
+	}
+
+	
+	/**
+	 * Indicates whether Unix domain socket channels are supported by this JVM 
+	 * (and operating system) or not.
+	 * 
+	 * @return	Whether Unix domain socket channels are supported or not.
+	 */
+	protected static boolean isAvailable() {
+		
+		return unixProtocolFamily != null;
+		
+	}
+
+	
+	/**
+	 * Indicates whether Unix domain sockets shall be used for the connections 
+	 * to the neighbored mixes (<code>INTER_MIX_TRANSPORT</code> is set to 
+	 * <code>"UNIX"</code> and they are available). Logs a warning, if they 
+	 * shall be used, but are not available (TCP is used then).
+	 * 
+	 * @return	Whether Unix domain sockets shall be used or not.
+	 */
+	protected static boolean isConfigured() {
+		
+		String transport = 
+			internalInformationPort.getProperty("INTER_MIX_TRANSPORT").trim();
+		
+		if (!transport.equalsIgnoreCase("UNIX")) {
+			
+			return false;
+			
+		} else if (!isAvailable()) {
+			
+			LOGGER.warning(	"Unix domain sockets not supported (Java 16+ "
+							+"required)! Using TCP instead."
+							);
+			
+			return false;
+			
+		} else {
+			
+			return true;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the path of the socket file for the bypassed port number: 
+	 * <code>UNIX_SOCKET_DIRECTORY/mix-PORT.sock</code> (the system's 
+	 * temporary directory, if <code>UNIX_SOCKET_DIRECTORY</code> is empty).
+	 * 
+	 * @param port	Port number the mix (connection) would use for TCP.
+	 * 
+	 * @return		Path of the socket file.
+	 */
+	protected static String getPath(int port) {
+		
+		String directory = 
+			internalInformationPort.getProperty("UNIX_SOCKET_DIRECTORY").trim();
+		
+		if (directory.equals("")) {
+			
+			directory = System.getProperty("java.io.tmpdir");
+			
+		}
+		
+		return new File(directory, "mix-" +port +".sock").getPath();
+		
+	}
+
+	
+	/**
+	 * Opens a (blocking) channel connected to the Unix domain socket with the 
+	 * bypassed path.
+	 * 
+	 * @param path	Path of the socket file.
+	 * 
+	 * @return		The connected channel.
+	 * 
+	 * @throws IOException	If the connection can't be established (e. g. 
+	 * 						no mix listening yet).
+	 */
+	protected static SocketChannel connect(String path) throws IOException {
+		
+		SocketChannel channel = 
+			(SocketChannel)invoke(openSocketChannel, null, unixProtocolFamily);
+		
+		try {
+			
+			channel.connect((SocketAddress)invoke(createAddress, null, path));
+			return channel;
+			
+		} catch (IOException e) {
+			
+			channel.close();
+			throw e;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Opens a (blocking) server channel bound to the Unix domain socket with 
+	 * the bypassed path. An existing (stale) socket file is deleted first.
+	 * 
+	 * @param path	Path of the socket file.
+	 * 
+	 * @return		The bound server channel.
+	 * 
+	 * @throws IOException	If the channel can't be bound.
+	 */
+	protected static ServerSocketChannel bind(String path) throws IOException {
+		
+		File socketFile = new File(path);
+		
+		if (socketFile.exists() && !socketFile.delete()) {
+			
+			throw new IOException("Couldn't delete " +path +"!");
+			
+		}
+		
+		socketFile.deleteOnExit();
+		
+		ServerSocketChannel channel = 
+			(ServerSocketChannel)invoke(	openServerSocketChannel,
+											null,
+											unixProtocolFamily
+											);
+		
+		invoke(bind, channel, invoke(createAddress, null, path));
+		
+		return channel;
+		
+	}
+
+	
+	/**
+	 * Invokes the bypassed method and unwraps <code>IOException</code>s.
+	 * 
+	 * @param method	The method to invoke.
+	 * @param target	The object to invoke the method on (<code>null</code> 
+	 * 					for static methods).
+	 * @param argument	The (only) argument of the method.
+	 * 
+	 * @return			The result of the method.
+	 * 
+	 * @throws IOException	If the method throws one.
+	 */
+	private static Object invoke(	Method method,
+									Object target,
+									Object argument
+									) throws IOException {
+		
+		try {
+			
+			return method.invoke(target, argument);
+			
+		} catch (InvocationTargetException e) {
+			
+			if (e.getCause() instanceof IOException) {
+				
+				throw (IOException)e.getCause();
+				
+			}
+			
+			throw new IOException(e.getCause().toString());
+			
+		} catch (IllegalAccessException e) {
+			
+			// can't happen (public methods of public classes)
+			throw new IllegalStateException(e);
+			
+		}
+		
+	}
+
+}
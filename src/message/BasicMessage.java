@@ -29,6 +29,24 @@ public interface BasicMessage {
 	public void setMessageID(int newIdentifier);
 	
 	
+	/**
+	 * Must return the identifier of the round (= request batch of the 
+	 * cascade's first mix) this message belongs to.
+	 * 
+	 * @return	Identifier of the round this message belongs to.
+	 */
+	public int getRoundID();
+	
+	
+	/**
+	 * Must set the identifier of the round (= request batch of the cascade's 
+	 * first mix) this message belongs to to the bypassed value.
+	 * 
+	 * @param newRoundID	Identifier of the round this message belongs to.
+	 */
+	public void setRoundID(int newRoundID);
+	
+	
 	/**
 	 * Must return an identifier for the channel/user this message belongs to.
 	 * 
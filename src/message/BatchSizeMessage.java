@@ -5,7 +5,8 @@ package message;
  * <code>InternalMessage</code> used for communication between two
  * <code>OutputStrategy</code> components, located on neighbored mixes. 
  * Transmits the batch size (the first mix used for the batch it is about to 
- * send) to the second mix.
+ * send) and the identifier of the round the batch belongs to to the second 
+ * mix.
  * 
  * @author Karl-Peter Fuchs
  */
@@ -29,16 +30,18 @@ public class BatchSizeMessage extends Message implements Request,
 	
 	/**
 	 * Creates a new <code>BatchSizeMessage</code> containing the bypassed 
-	 * <code>batchSize</code>.
+	 * <code>batchSize</code> and <code>roundID</code>.
 	 * 
 	 * @param batchSize	Batch size the sending mix used for the upcoming batch 
 	 * 					(= batch he will send after this message)
+	 * @param roundID	Identifier of the round the upcoming batch belongs to.
 	 */
-	public BatchSizeMessage(int batchSize) {
+	public BatchSizeMessage(int batchSize, int roundID) {
 		
 		super(new byte[0]);
 		
 		this.batchSize = batchSize;
+		super.setRoundID(roundID);
 		
 	}
 
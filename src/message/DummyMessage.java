@@ -0,0 +1,69 @@
+package message;
+
+
+/**
+ * <code>InternalMessage</code> used as cover traffic between two neighbored 
+ * mixes. Substitutes a message of a straggling channel, so the 
+ * <code>OutputStrategy</code> component can complete a batch before its 
+ * timeout without changing the number (and size) of messages sent. Contains 
+ * random data only and is discarded by the receiving mix (the inter-mix 
+ * header, which contains the message's type, is encrypted).
+ * <p>
+ * Can be used as <code>Request</code> and <code>Reply</code>.
+ */
+public final class DummyMessage extends Message implements Request, Reply,
+		InternalMessage {
+	
+	/**
+	 * Identifier for this type of message. Necessary since messages are 
+	 * transmitted as byte streams which don't support the 
+	 * <code>instanceOf</code> operator.
+	 */
+	public static final byte IDENTIFIER = (byte)240;
+	
+	
+	/**
+	 * Creates a new <code>DummyMessage</code> containing the bypassed number 
+	 * of random bytes.
+	 * 
+	 * @param length	Length of the message in byte (should be the length of 
+	 * 					the messages it is sent along with).
+	 */
+	public DummyMessage(int length) {
+		
+		super(	Padder.addPadding(new byte[0], length),
+				null,
+				0,
+				length
+				);
+				
+	}
+
+	
+	/**
+	 * Returns a simple String representation of this object.
+	 * 
+	 * @return	A simple String representation of this object.
+	 */
+	@Override
+	public String toString() {
+		
+		return "DummyMessage (" +getByteMessage().length +" byte).\n";
+		
+	}
+
+	
+	/**
+	 * Returns the message id -2222 (all <code>DummyMessages</code> have the 
+	 * same id).
+	 * 
+	 * @return	-2222.
+	 */
+	@Override
+	public int getMessageID() {
+		
+		return -2222;
+		
+	}
+
+}
@@ -41,6 +41,13 @@ public abstract class Message implements BasicMessage, Comparable<Message> {
 	/** Identifier for this message. */
 	private int messageID;
 	
+	/**
+	 * Identifier of the round (= request batch of the cascade's first mix) 
+	 * this message belongs to. Used by component <code>OutputStrategy</code> 
+	 * to allow several rounds in the cascade at the same time.
+	 */
+	private int roundID;
+	
 	/** 
 	 * Reference on component <code>NetworkClock</code> (used to set variable 
 	 * <code>timeOfReceival</code>).
@@ -209,6 +216,34 @@ public abstract class Message implements BasicMessage, Comparable<Message> {
 	}
 	
 	
+	/**
+	 * Returns the identifier of the round (= request batch of the cascade's 
+	 * first mix) this message belongs to.
+	 * 
+	 * @return	Identifier of the round this message belongs to.
+	 */
+	@Override
+	public int getRoundID() {
+		
+		return this.roundID;
+		
+	}
+
+	
+	/**
+	 * Sets the identifier of the round (= request batch of the cascade's 
+	 * first mix) this message belongs to to the bypassed value.
+	 * 
+	 * @param newRoundID	Identifier of the round this message belongs to.
+	 */
+	@Override
+	public void setRoundID(int newRoundID) {
+		
+		this.roundID = newRoundID;
+		
+	}
+
+	
 	/** 
 	 * Only a certain part of the message array must be transmitted to 
 	 * the cascade's next mix (Some parts (e. g. the session key for the 
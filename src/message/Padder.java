@@ -1,24 +1,19 @@
 package message;
 
 
-import java.security.SecureRandom;
 import java.util.Arrays;
 
 
 /**
  * Adds or removes padding to / from a message (Padding is used to guarantee a 
  * constant message length and therefore prevent linkability). Uses a 
- * pseudo-random number Generator (<code>SecureRandom</code>) for generating 
- * padding.
+ * deterministic random bit generator (<code>PaddingGenerator</code>) for 
+ * generating padding.
  * <p>
  * This class is thread-safe.
  */
 final class Padder {
 	
-	/** Random number generator for padding. */
-	private static SecureRandom secureRandom = new SecureRandom();
-	
-	
 	/**
 	 * Empty constructor. Never used since all methods are static.
 	 */
@@ -43,15 +38,11 @@ final class Padder {
 
 			int lengthOfUnpaddedData = data.length;
 			data = Arrays.copyOf(data, desiredLength);
-			byte[] padding = new byte[desiredLength - lengthOfUnpaddedData];
-			secureRandom.nextBytes(padding);
 			
-			System.arraycopy(	padding,
-								0, 
-								data, 
-								lengthOfUnpaddedData, 
-								padding.length
-								);
+			PaddingGenerator.nextBytes(	data,
+										lengthOfUnpaddedData,
+										desiredLength
+										);
 			
 		}
 		
@@ -59,6 +50,21 @@ final class Padder {
 	}
 	
 	
+	/**
+	 * Fills the specified range of the bypassed array with padding (in 
+	 * place).
+	 * 
+	 * @param data	Array to be padded.
+	 * @param from	Index of the first byte of padding.
+	 * @param to	Index after the last byte of padding.
+	 */
+	protected static void addPadding(byte[] data, int from, int to) {
+		
+		PaddingGenerator.nextBytes(data, from, to);
+		
+	}
+
+	
 	/**
 	 * Removes padding from the bypassed array. If <code>lengthOfUnpaddedData
 	 * </code> is smaller than the bypassed array, no actions are performed 
@@ -0,0 +1,211 @@
+package message;
+
+
+import internalInformationPort.InternalInformationPortController;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+
+/**
+ * Deterministic random bit generator used to generate padding. Padding is 
+ * generated for every message (and every reply of every channel in each 
+ * round), so <code>SecureRandom</code> (synchronized and slow for bulk data) 
+ * is only used to seed this generator.
+ * <p>
+ * Each thread has its own generator (see <code>nextBytes()</code>), which 
+ * produces the keystream of AES in counter mode (with a random key and 
+ * initial counter). The generator is reseeded (new key and counter from 
+ * <code>SecureRandom</code>) after <code>PADDING_RESEED_INTERVAL</code> 
+ * bytes.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class PaddingGenerator {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/** Name of the algorithm used to generate the keystream. */
+	private final static String ALGORITHM = "AES/CTR/NoPadding";
+	
+	/** Length of the key (and initial counter) in byte. */
+	private final static int SEED_LENGTH = 16;
+	
+	/** Number of bytes generated before the generator is reseeded. */
+	private final static long RESEED_INTERVAL = 
+		Math.max(1L, new Long(getProperty("PADDING_RESEED_INTERVAL")));
+	
+	/** Random number generator used to seed the generators. */
+	private static SecureRandom secureRandom = new SecureRandom();
+	
+	/** The generator of each thread. */
+	private static ThreadLocal<PaddingGenerator> generators = 
+		new ThreadLocal<PaddingGenerator>() {
+			
+			@Override
+			protected PaddingGenerator initialValue() {
+				
+				return new PaddingGenerator();
+				
+			}
+			
+		};
+	
+	/** <code>Cipher</code> generating the keystream. */
+	private Cipher cipher;
+	
+	/** Number of bytes generated since the last reseed. */
+	private long generatedBytes;
+	
+	
+	/**
+	 * Creates a new (seeded) <code>PaddingGenerator</code>. Used by 
+	 * <code>generators</code> only.
+	 */
+	private PaddingGenerator() {
+		
+		try {
+			
+			this.cipher = Cipher.getInstance(	ALGORITHM,
+												getProperty("CRYPTO_PROVIDER")
+												);
+												
+		} catch (Exception e) {
+			
+			LOGGER.severe(	"(PaddingGenerator) Couldn't initialize "
+							+ALGORITHM +"! " +e.getMessage()
+							);
+			
+			System.exit(1);
+			
+		}
+		
+		reseed();
+		
+	}
+
+	
+	/**
+	 * Fills the specified range of the bypassed array with random bytes (in 
+	 * place), using the calling thread's generator.
+	 * 
+	 * @param data	Array to be filled.
+	 * @param from	Index of the first byte to fill.
+	 * @param to	Index after the last byte to fill.
+	 */
+	public static void nextBytes(byte[] data, int from, int to) {
+		
+		if (to > from) {
+			
+			generators.get().generate(data, from, to);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Fills the specified range of the bypassed array with the next bytes of 
+	 * the keystream (by encrypting zeros in place). Reseeds the generator 
+	 * first, if necessary.
+	 * 
+	 * @param data	Array to be filled.
+	 * @param from	Index of the first byte to fill.
+	 * @param to	Index after the last byte to fill.
+	 */
+	private void generate(byte[] data, int from, int to) {
+		
+		if (generatedBytes >= RESEED_INTERVAL) {
+			
+			reseed();
+			
+		}
+		
+		Arrays.fill(data, from, to, (byte)0);
+		
+		try {
+			
+			// counter mode: output length equals input length (no buffering)
+			cipher.update(data, from, to - from, data, from);
+			
+		} catch (Exception e) {
+			
+			LOGGER.severe(	"(PaddingGenerator) Couldn't generate padding! "
+							+e.getMessage()
+							);
+			
+			System.exit(1);
+			
+		}
+		
+		generatedBytes += to - from;
+		
+	}
+
+	
+	/**
+	 * Initializes <code>cipher</code> with a new key and initial counter 
+	 * (generated by <code>secureRandom</code>).
+	 */
+	private void reseed() {
+		
+		byte[] seed = new byte[2 * SEED_LENGTH];
+		
+		synchronized (secureRandom) {
+			
+			secureRandom.nextBytes(seed);
+			
+		}
+		
+		try {
+			
+			cipher.init(Cipher.ENCRYPT_MODE,
+						new SecretKeySpec(seed, 0, SEED_LENGTH, "AES"),
+						new IvParameterSpec(seed, SEED_LENGTH, SEED_LENGTH)
+						);
+						
+		} catch (Exception e) {
+			
+			LOGGER.severe(	"(PaddingGenerator) Couldn't reseed "
+							+ALGORITHM +"! " +e.getMessage()
+							);
+			
+			System.exit(1);
+			
+		}
+		
+		Arrays.fill(seed, (byte)0);
+		generatedBytes = 0;
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
+}
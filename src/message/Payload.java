@@ -99,6 +99,34 @@ public class Payload {
 	}
 	
 	
+	/**
+	 * Sets the length header of this <code>Payload</code> to the bypassed 
+	 * value and fills the space behind the message with padding. Used when 
+	 * the message was copied to <code>bytePayload</code> directly (at offset 
+	 * <code>getHeaderLength()</code>), e. g. from a <code>User</code>'s proxy 
+	 * buffer (saves the copies made by 
+	 * <code>setMessage(byte[], int)</code>).
+	 * 
+	 * @param messageLength	Length of the message already embedded in 
+	 * 						<code>bytePayload</code>.
+	 */
+	public void setMessageLength(int messageLength) {
+		
+		System.arraycopy(	Util.intToByteArray(messageLength),
+							0,
+							bytePayload,
+							0,
+							getHeaderLength()
+							);
+		
+		Padder.addPadding(	bytePayload,
+							getHeaderLength() + messageLength,
+							bytePayload.length
+							);
+							
+	}
+
+	
 	/**
 	 * Returns the length of the header used by this class for any 
 	 * <code>Payload</code> (Used to calculate message sizes).
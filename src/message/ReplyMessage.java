@@ -2,6 +2,7 @@ package message;
 
 
 import userDatabase.User;
+import util.Util;
 
 
 /**
@@ -19,6 +20,30 @@ public final class ReplyMessage extends Message implements Reply,
 	 */
 	public static final byte IDENTIFIER = (byte)200;
 	
+	/**
+	 * Identifier for <code>ReplyMessage</code>s pushed by the last mix (not 
+	 * answering a <code>Request</code>, see <code>isPushed()</code>).
+	 */
+	public static final byte PUSH_IDENTIFIER = (byte)201;
+	
+	/**
+	 * Flag set in the length header of pushed replies sent to a 
+	 * <code>Client</code> (most significant bit, since lengths are never 
+	 * negative), so the client can tell them from the reply to its own 
+	 * <code>Request</code>.
+	 * 
+	 * @see #generateLengthHeader(Reply)
+	 */
+	public static final int PUSH_FLAG = 0x80000000;
+	
+	/**
+	 * Number of <code>ReplyMessage</code>s of the push batch this message 
+	 * belongs to ("0" means "not pushed", i. e. answers a 
+	 * <code>Request</code>). The push batch is identified by the message's 
+	 * round identifier.
+	 */
+	private int pushBatchSize = 0;
+	
 
 	/**
 	 * Constructs a new <code>ReplyMessage</code> with the submitted content 
@@ -40,7 +65,75 @@ public final class ReplyMessage extends Message implements Reply,
 		super.setPayloadRange(0, byteMesssage.length);
 		
 	}
+
 	
+	/**
+	 * Indicates whether this message was pushed by the last mix on its own 
+	 * schedule (server push) or answers a <code>Request</code>.
+	 * 
+	 * @return	Whether this message was pushed or not.
+	 */
+	public boolean isPushed() {
+		
+		return pushBatchSize != 0;
+		
+	}
+
+	
+	/**
+	 * Returns the number of <code>ReplyMessage</code>s of the push batch 
+	 * this message belongs to ("0" if not pushed).
+	 * 
+	 * @return	Number of <code>ReplyMessage</code>s of the push batch.
+	 */
+	public int getPushBatchSize() {
+		
+		return pushBatchSize;
+		
+	}
+
+	
+	/**
+	 * Marks this message as part of a push batch with the bypassed number of 
+	 * messages (the push batch itself is identified by the round identifier, 
+	 * see <code>setRoundID(int)</code>).
+	 * 
+	 * @param pushBatchSize	Number of <code>ReplyMessage</code>s of the push 
+	 * 						batch.
+	 */
+	public void setPushBatchSize(int pushBatchSize) {
+		
+		this.pushBatchSize = pushBatchSize;
+		
+	}
+	
+	
+	/**
+	 * Generates the length header the bypassed <code>Reply</code> is sent to 
+	 * its <code>Client</code> with (the reply's length, with 
+	 * <code>PUSH_FLAG</code> set for pushed replies).
+	 * 
+	 * @param reply	The reply to send.
+	 * 
+	 * @return		The length header (4 bytes).
+	 */
+	public static byte[] generateLengthHeader(Reply reply) {
+		
+		int lengthHeader = reply.getByteMessage().length;
+		
+		if (	reply instanceof ReplyMessage
+				&&
+				((ReplyMessage)reply).isPushed()
+				) {
+			
+			lengthHeader |= PUSH_FLAG;
+			
+		}
+		
+		return Util.intToByteArray(lengthHeader);
+		
+	}
+
 	
 	/**
 	 * Returns the message id -2222 (all <code>ReplyMessage</code> s have the 
@@ -278,7 +278,9 @@ public class MessageProcessorController {
 			while (true) { // process messages
 
 				Request request = inputOutputHandler.getRequest();
-					// blocks until request is available
+					// blocks until request is available; taken one at a 
+					// time, so a burst of (asymmetrically encrypted) 
+					// ChannelEstablishMessages is spread over all threads
 				
 				request = (Request)recoder.recode(request);
 
@@ -3,6 +3,16 @@ package outputStrategy;
 
 import ifaceloading.OutputStrategyLoader;
 import inputOutputHandler.InputOutputHandlerController;
+import internalInformationPort.InternalInformationPortController;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
 import message.Reply;
 import message.Request;
 import architectureInterface.OutputStrategyInterface;
@@ -18,16 +28,53 @@ import architectureInterface.OutputStrategyInterface;
  * output criterion is fulfilled, the collected messages are bypassed to the 
  * <code>InputOutputHandler</code> (component), which sends them to their 
  * destination.
+ * <p>
+ * The strategy itself is not implemented here, but taken from the registry 
+ * of available output strategies (see <code>OutputStrategyLoader</code>) 
+ * according to the property <code>OUTPUT_STRATEGY</code>. It can be replaced 
+ * at runtime (see <code>switchOutputStrategy(String)</code>), e. g. by an 
+ * administrator via JMX (see <code>OutputStrategyControllerMBean</code>).
  * 
  * @author Karl-Peter Fuchs
  */
-public class OutputStrategyController implements OutputStrategyInterface {
+public class OutputStrategyController
+		implements OutputStrategyInterface, OutputStrategyControllerMBean {
+	
+	/**
+	 * Reference on component <code>InternalInformationPort</code>. 
+	 * Used to display and/or log data and read general settings.
+	 */
+	private static InternalInformationPortController internalInformationPort = 
+		new InternalInformationPortController();
+	
+	/** Logger used to log and display information. */
+	private final static Logger LOGGER = internalInformationPort.getLogger();
+	
+	/**
+	 * Number of <code>OutputStrategyController</code>s registered with the 
+	 * platform <code>MBeanServer</code> so far (several mixes may run in the 
+	 * same virtual machine, e. g. in the test environment).
+	 */
+	private static AtomicInteger numberOfMBeans = new AtomicInteger(0);
+	
+	/**
+	 * Directory or jar file to load output strategies from (additionally to 
+	 * the class path).
+	 */
+	private final String OUTPUT_STRATEGY_PATH;
 	
-	//TODO: Beschreibung hinzufgen; hier kann spter auch eine andere Klasse eingebunden werden
-	//private BatchController batchController;
-	private OutputStrategyInterface outputStrategyIF;
+	/** The output strategy all messages are currently bypassed to. */
+	private volatile OutputStrategyInterface outputStrategyIF;
 	
-	/** 
+	/**
+	 * Lock used to replace <code>outputStrategyIF</code> at runtime. Adding 
+	 * messages requires the read lock, replacing the strategy the write lock 
+	 * (so no message can end up in a strategy that is already drained).
+	 */
+	private ReentrantReadWriteLock outputStrategyLock = 
+		new ReentrantReadWriteLock();
+	
+	/**
 	 * Reference on component <code>InputOutputHandler</code>. 
 	 * Used to bypass collected messages, when output criterion fulfilled.
 	 */
@@ -35,23 +82,154 @@ public class OutputStrategyController implements OutputStrategyInterface {
 	
 	
 	/**
-	 * Initialization method for this component. Makes this component ready 
-	 * for accepting messages.
+	 * Generates a new <code>OutputStrategy</code> component.
+	 * <p>
+	 * Component can't be used before calling 
+	 * <code>initialize(InputOutputHandlerController)</code>.
+	 * 
+	 * @see #initialize(InputOutputHandlerController)
+	 */
+	public OutputStrategyController() {
+		
+		this.OUTPUT_STRATEGY_PATH = getProperty("OUTPUT_STRATEGY_PATH");
+		
+	}
+
+	
+	/**
+	 * Initialization method for this component. Loads the output strategy 
+	 * specified in the property file and makes this component ready for 
+	 * accepting messages.
 	 * 
 	 * @param inputOutputHandler	Reference on component 
 	 * 								<code>InputOutputHandler</code> (used to 
 	 * 								send messages after output).
 	 */
+	@Override
 	public void initialize(InputOutputHandlerController inputOutputHandler) {
-		//TODO: get info about inputoutputHandler
-		System.out.println(inputOutputHandler.toString());
 		
-		//TODO: relativen Pfad einfhren
-		outputStrategyIF = OutputStrategyLoader.getClass( "/Users/daniel/Programmierung/Master/mixPlatformComponents/bin/", "outputStrategy.BatchController" );
+		this.inputOutputHandler = inputOutputHandler;
+		
+		OutputStrategyInterface outputStrategy = 
+			OutputStrategyLoader.getOutputStrategy(
+					getProperty("OUTPUT_STRATEGY"),
+					OUTPUT_STRATEGY_PATH
+					);
 		
-		//batchController = new BatchController();
+		if (outputStrategy == null) {
+			
+			LOGGER.severe(	"(OutputStrategy) Couldn't load output strategy! "
+							+"Available: "
+							+Arrays.toString(OutputStrategyLoader.
+								getAvailableOutputStrategies(
+									OUTPUT_STRATEGY_PATH)
+								)
+							);
+			
+			System.exit(1);
+			
+		}
 		
-		this.inputOutputHandler = inputOutputHandler;
+		outputStrategy.initialize(inputOutputHandler);
+		this.outputStrategyIF = outputStrategy;
+		
+		registerMBean();
+		
+	}
+
+	
+	/**
+	 * Registers this <code>OutputStrategyController</code> with the platform 
+	 * <code>MBeanServer</code>, so administrators can switch the output 
+	 * strategy at runtime (see <code>OutputStrategyControllerMBean</code>).
+	 */
+	private void registerMBean() {
+		
+		try {
+			
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					this,
+					new ObjectName(	"mix:type=OutputStrategy,id="
+									+numberOfMBeans.getAndIncrement()
+									)
+					);
+					
+		} catch (Exception e) { // switching at runtime not possible
+			
+			LOGGER.warning(	"(OutputStrategy) Couldn't register MBean! "
+							+e.getMessage()
+							);
+							
+		}
+		
+	}
+
+	
+	/**
+	 * Replaces the output strategy currently used by the one with the 
+	 * bypassed name, without restarting the mix.
+	 * <p>
+	 * The new strategy is loaded and initialized first. Afterwards, adding 
+	 * messages is blocked shortly, the current strategy is drained (all 
+	 * messages collected so far are put out), the number of channels it 
+	 * expects messages from and the state of its rounds (current round, 
+	 * announced batch sizes, rounds whose replies are still missing and 
+	 * requests of upcoming rounds, see <code>RoundState</code>) are handed 
+	 * over to the new strategy and all further messages are bypassed to the 
+	 * new strategy. Therefore, neither messages, channels nor rounds are 
+	 * dropped.
+	 * 
+	 * @param name	(Fully qualified or simple) class name of the output 
+	 * 				strategy to switch to.
+	 * 
+	 * @return		Whether the output strategy was replaced or not (e. g. 
+	 * 				because no strategy with the bypassed name is 
+	 * 				registered).
+	 */
+	@Override
+	public boolean switchOutputStrategy(String name) {
+		
+		OutputStrategyInterface newOutputStrategy = 
+			OutputStrategyLoader.getOutputStrategy(name, OUTPUT_STRATEGY_PATH);
+		
+		if (newOutputStrategy == null) {
+			
+			LOGGER.warning(	"(OutputStrategy) Couldn't switch to output "
+							+"strategy " +name +"!"
+							);
+			
+			return false;
+			
+		}
+		
+		newOutputStrategy.initialize(inputOutputHandler);
+		
+		outputStrategyLock.writeLock().lock();
+		
+		try {
+			
+			OutputStrategyInterface oldOutputStrategy = outputStrategyIF;
+			oldOutputStrategy.putOutBatch();
+			
+			newOutputStrategy.setNumberOfChannels(
+					oldOutputStrategy.getNumberOfChannels()
+					);
+			
+			newOutputStrategy.setRoundState(oldOutputStrategy.getRoundState());
+			
+			this.outputStrategyIF = newOutputStrategy;
+			
+		} finally {
+			
+			outputStrategyLock.writeLock().unlock();
+			
+		}
+		
+		LOGGER.info(	"(OutputStrategy) Switched to output strategy "
+						+newOutputStrategy.getClass().getName()
+						);
+		
+		return true;
 		
 	}
 
@@ -68,9 +246,21 @@ public class OutputStrategyController implements OutputStrategyInterface {
 	 */
 	@Override
 	public void addRequest(Request request) {
-		outputStrategyIF.addRequest(request);
+		
+		outputStrategyLock.readLock().lock();
+		
+		try {
+			
+			outputStrategyIF.addRequest(request);
+			
+		} finally {
+			
+			outputStrategyLock.readLock().unlock();
+			
+		}
+		
 	}
-	
+
 	
 	/**
 	 * Can be used to add a <code>Reply</code>, that shall be put out 
@@ -84,12 +274,182 @@ public class OutputStrategyController implements OutputStrategyInterface {
 	 */
 	@Override
 	public void addReply(Reply reply) {
-		outputStrategyIF.addReply(reply);
+		
+		outputStrategyLock.readLock().lock();
+		
+		try {
+			
+			outputStrategyIF.addReply(reply);
+			
+		} finally {
+			
+			outputStrategyLock.readLock().unlock();
+			
+		}
+		
 	}
 
+	
+	/**
+	 * Puts out all messages collected by the underlying output strategy so 
+	 * far immediately.
+	 */
 	@Override
-	public void initialize() {
-		// TODO Auto-generated method stub
+	public void putOutBatch() {
+		
+		outputStrategyLock.readLock().lock();
+		
+		try {
+			
+			outputStrategyIF.putOutBatch();
+			
+		} finally {
+			
+			outputStrategyLock.readLock().unlock();
+			
+		}
 		
 	}
+
+	
+	/**
+	 * Returns the number of channels the underlying output strategy currently 
+	 * expects messages from.
+	 * 
+	 * @return	Number of channels the underlying output strategy currently 
+	 * 			expects messages from.
+	 */
+	@Override
+	public int getNumberOfChannels() {
+		
+		outputStrategyLock.readLock().lock();
+		
+		try {
+			
+			return outputStrategyIF.getNumberOfChannels();
+			
+		} finally {
+			
+			outputStrategyLock.readLock().unlock();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Makes the underlying output strategy expect messages from the bypassed 
+	 * number of channels.
+	 * 
+	 * @param numberOfChannels	Number of channels the underlying output 
+	 * 							strategy shall expect messages from.
+	 */
+	@Override
+	public void setNumberOfChannels(int numberOfChannels) {
+		
+		outputStrategyLock.readLock().lock();
+		
+		try {
+			
+			outputStrategyIF.setNumberOfChannels(numberOfChannels);
+			
+		} finally {
+			
+			outputStrategyLock.readLock().unlock();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the state of the underlying output strategy's rounds.
+	 * 
+	 * @return	State of the underlying output strategy's rounds.
+	 */
+	@Override
+	public RoundState getRoundState() {
+		
+		outputStrategyLock.readLock().lock();
+		
+		try {
+			
+			return outputStrategyIF.getRoundState();
+			
+		} finally {
+			
+			outputStrategyLock.readLock().unlock();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Makes the underlying output strategy continue the rounds of the 
+	 * bypassed state.
+	 * 
+	 * @param roundState	State of the rounds to continue.
+	 */
+	@Override
+	public void setRoundState(RoundState roundState) {
+		
+		outputStrategyLock.readLock().lock();
+		
+		try {
+			
+			outputStrategyIF.setRoundState(roundState);
+			
+		} finally {
+			
+			outputStrategyLock.readLock().unlock();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the class name of the output strategy currently used.
+	 * 
+	 * @return	Class name of the output strategy currently used.
+	 */
+	@Override
+	public String getOutputStrategy() {
+		
+		return outputStrategyIF.getClass().getName();
+		
+	}
+
+	
+	/**
+	 * Returns the class names of all registered output strategies.
+	 * 
+	 * @return	Class names of all registered output strategies.
+	 */
+	@Override
+	public String[] getAvailableOutputStrategies() {
+		
+		return OutputStrategyLoader.getAvailableOutputStrategies(
+				OUTPUT_STRATEGY_PATH
+				);
+		
+	}
+
+	
+	/**
+	 * Simply used to shorten method calls (calls 
+	 * <code>internalInformationPort.getProperty(key)</code>). Returns the 
+	 * property with the specified key from the property file.
+	 * 
+	 * @param key	The property key.
+	 * 
+	 * @return		The property with the specified key in the property file.
+	 */
+	private static String getProperty(String key) {
+		
+		return internalInformationPort.getProperty(key);
+		
+	}
+
 }
@@ -0,0 +1,42 @@
+package outputStrategy;
+
+
+/**
+ * Management interface of the <code>OutputStrategyController</code> 
+ * (registered with the platform <code>MBeanServer</code>). Allows 
+ * administrators to replace the output strategy of a running mix (e. g. 
+ * with <code>jconsole</code>).
+ * 
+ * @see OutputStrategyController#switchOutputStrategy(String)
+ */
+public interface OutputStrategyControllerMBean {
+	
+	
+	/**
+	 * Returns the class name of the output strategy currently used.
+	 * 
+	 * @return	Class name of the output strategy currently used.
+	 */
+	public String getOutputStrategy();
+	
+	
+	/**
+	 * Returns the class names of all registered output strategies.
+	 * 
+	 * @return	Class names of all registered output strategies.
+	 */
+	public String[] getAvailableOutputStrategies();
+	
+	
+	/**
+	 * Replaces the output strategy currently used by the one with the 
+	 * bypassed name.
+	 * 
+	 * @param name	(Fully qualified or simple) class name of the output 
+	 * 				strategy to switch to.
+	 * 
+	 * @return		Whether the output strategy was replaced or not.
+	 */
+	public boolean switchOutputStrategy(String name);
+	
+}
@@ -0,0 +1,193 @@
+package outputStrategy;
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+import message.Request;
+
+
+/**
+ * State of the rounds (= request batches) of an output strategy. Handed over 
+ * to the new output strategy, when the output strategy is replaced at 
+ * runtime (see <code>OutputStrategyController.switchOutputStrategy()</code>), 
+ * so the new strategy continues the rounds of the old one (instead of 
+ * starting with round "0" and without knowing the replies still expected).
+ * 
+ * @see architectureInterface.OutputStrategyInterface#getRoundState()
+ */
+public final class RoundState {
+	
+	/** Identifier of the round the next request batch belongs to. */
+	private final int currentRoundID;
+	
+	/**
+	 * Number of messages each upcoming round's batch will contain (according 
+	 * to the previous mix), accessible by round identifier.
+	 */
+	private final SortedMap<Integer, Integer> batchSizes;
+	
+	/**
+	 * Rounds already put out, whose replies haven't been put out yet (oldest 
+	 * round first).
+	 */
+	private final List<Round> roundsInFlight;
+	
+	/** <code>Request</code>s belonging to an upcoming round. */
+	private final List<Request> deferredRequests;
+	
+	
+	/**
+	 * Creates a new <code>RoundState</code>.
+	 * 
+	 * @param currentRoundID	Identifier of the round the next request batch 
+	 * 							belongs to.
+	 * @param batchSizes		Number of messages each upcoming round's batch 
+	 * 							will contain, accessible by round identifier.
+	 * @param roundsInFlight	Rounds already put out, whose replies haven't 
+	 * 							been put out yet (oldest round first).
+	 * @param deferredRequests	<code>Request</code>s belonging to an 
+	 * 							upcoming round.
+	 */
+	public RoundState(	int currentRoundID,
+						SortedMap<Integer, Integer> batchSizes,
+						List<Round> roundsInFlight,
+						List<Request> deferredRequests
+						) {
+		
+		this.currentRoundID = currentRoundID;
+		this.batchSizes = Collections.unmodifiableSortedMap(batchSizes);
+		this.roundsInFlight = Collections.unmodifiableList(roundsInFlight);
+		
+		this.deferredRequests = 
+			Collections.unmodifiableList(deferredRequests);
+			
+	}
+
+	
+	/**
+	 * Returns the identifier of the round the next request batch belongs to.
+	 * 
+	 * @return	Identifier of the round the next request batch belongs to.
+	 */
+	public int getCurrentRoundID() {
+		
+		return currentRoundID;
+		
+	}
+
+	
+	/**
+	 * Returns the number of messages each upcoming round's batch will 
+	 * contain (according to the previous mix), accessible by round 
+	 * identifier.
+	 * 
+	 * @return	Number of messages each upcoming round's batch will contain.
+	 */
+	public SortedMap<Integer, Integer> getBatchSizes() {
+		
+		return batchSizes;
+		
+	}
+
+	
+	/**
+	 * Returns the rounds already put out, whose replies haven't been put out 
+	 * yet (oldest round first).
+	 * 
+	 * @return	Rounds already put out, whose replies haven't been put out 
+	 * 			yet.
+	 */
+	public List<Round> getRoundsInFlight() {
+		
+		return roundsInFlight;
+		
+	}
+
+	
+	/**
+	 * Returns the <code>Request</code>s belonging to an upcoming round.
+	 * 
+	 * @return	<code>Request</code>s belonging to an upcoming round.
+	 */
+	public List<Request> getDeferredRequests() {
+		
+		return deferredRequests;
+		
+	}
+
+	
+	/**
+	 * A round already put out, whose replies haven't been put out yet.
+	 */
+	public static final class Round {
+		
+		/** Identifier of the round. */
+		private final int roundID;
+		
+		/** Number of channels with a <code>Request</code> in the round. */
+		private final int numberOfChannels;
+		
+		/** Number of <code>Reply</code>ies not received yet. */
+		private final int missingReplies;
+		
+		
+		/**
+		 * Creates a new <code>Round</code>.
+		 * 
+		 * @param roundID			Identifier of the round.
+		 * @param numberOfChannels	Number of channels with a 
+		 * 							<code>Request</code> in the round.
+		 * @param missingReplies	Number of <code>Reply</code>ies not 
+		 * 							received yet.
+		 */
+		public Round(int roundID, int numberOfChannels, int missingReplies) {
+			
+			this.roundID = roundID;
+			this.numberOfChannels = numberOfChannels;
+			this.missingReplies = missingReplies;
+			
+		}
+		
+		
+		/**
+		 * Returns the identifier of the round.
+		 * 
+		 * @return	Identifier of the round.
+		 */
+		public int getRoundID() {
+			
+			return roundID;
+			
+		}
+		
+		
+		/**
+		 * Returns the number of channels with a <code>Request</code> in the 
+		 * round.
+		 * 
+		 * @return	Number of channels with a <code>Request</code> in the 
+		 * 			round.
+		 */
+		public int getNumberOfChannels() {
+			
+			return numberOfChannels;
+			
+		}
+		
+		
+		/**
+		 * Returns the number of <code>Reply</code>ies not received yet.
+		 * 
+		 * @return	Number of <code>Reply</code>ies not received yet.
+		 */
+		public int getMissingReplies() {
+			
+			return missingReplies;
+			
+		}
+		
+	}
+
+}
@@ -0,0 +1,234 @@
+package userDatabase;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+
+
+/**
+ * Pool of direct <code>ByteBuffer</code>s used for the <code>User</code>s' 
+ * client and proxy buffers. Instead of allocating a direct buffer for each 
+ * <code>User</code> (which is freed on garbage collection only), buffers are 
+ * cut from larger direct memory blocks ("slabs") and reused once released.
+ * <p>
+ * There is one size class for each requested capacity (only a few different 
+ * capacities are used, see <code>User</code>). A new slab is allocated when 
+ * no free buffer of the requested class is left. Buffers are leased from the 
+ * oldest slab with free buffers, so the newer slabs run empty when the 
+ * number of <code>User</code>s decreases. A slab, whose buffers are all 
+ * released, is removed from the pool (its memory is freed by the garbage 
+ * collector, since no reference is left), unless it is the only idle slab 
+ * of its size class (so a single <code>User</code> connecting and 
+ * disconnecting repeatedly doesn't allocate a new slab each time).
+ * <p>
+ * Released buffers are overwritten with zeros, so a buffer's next 
+ * <code>User</code> can't read data of the previous one.
+ * <p>
+ * Buffers are only leased and released when <code>User</code>s are added 
+ * or removed, so all methods simply synchronize on the pool.
+ */
+final class BufferPool {
+	
+	/** Zeros used to overwrite released buffers. */
+	private final static byte[] ZEROS = new byte[4096];
+	
+	/** Size of the direct memory blocks buffers are cut from in byte. */
+	private final int SLAB_SIZE;
+	
+	/** Slabs of each size class (capacity), oldest first. */
+	private HashMap<Integer, LinkedList<Slab>> sizeClasses = 
+		new HashMap<Integer, LinkedList<Slab>>();
+	
+	/**
+	 * The slab each buffer (of a slab still in the pool) was cut from. Note: 
+	 * <code>ByteBuffer.equals()</code> compares contents, so buffers are 
+	 * compared by identity.
+	 */
+	private IdentityHashMap<ByteBuffer, Slab> slabOfBuffer = 
+		new IdentityHashMap<ByteBuffer, Slab>();
+	
+	
+	/**
+	 * Creates a new (empty) <code>BufferPool</code>, which allocates direct 
+	 * memory in blocks ("slabs") of the bypassed size.
+	 * 
+	 * @param slabSize	Size of the direct memory blocks buffers are cut from 
+	 * 					in byte.
+	 */
+	protected BufferPool(int slabSize) {
+		
+		this.SLAB_SIZE = slabSize;
+		
+	}
+
+	
+	/**
+	 * Returns an (empty) direct <code>ByteBuffer</code> with the bypassed 
+	 * capacity. Must be returned with <code>release(ByteBuffer)</code> when 
+	 * no longer needed.
+	 * 
+	 * @param capacity	Capacity of the requested buffer in byte.
+	 * 
+	 * @return			A cleared buffer with the bypassed capacity.
+	 */
+	protected synchronized ByteBuffer lease(int capacity) {
+		
+		LinkedList<Slab> slabs = sizeClasses.get(capacity);
+		
+		if (slabs == null) {
+			
+			slabs = new LinkedList<Slab>();
+			sizeClasses.put(capacity, slabs);
+			
+		}
+		
+		for (Slab slab: slabs) { // oldest slab with free buffers
+			
+			if (!slab.freeBuffers.isEmpty()) {
+				
+				return slab.lease();
+				
+			}
+			
+		}
+		
+		// no free buffer left -> allocate new slab
+		Slab slab = new Slab(capacity);
+		slabs.add(slab);
+		
+		return slab.lease();
+		
+	}
+
+	
+	/**
+	 * Overwrites the bypassed buffer (leased with <code>lease(int)</code>) 
+	 * with zeros and returns it to the pool. Frees the buffer's slab, if all 
+	 * of its buffers are released now and another slab of its size class is 
+	 * idle as well. The buffer must not be used afterwards. Buffers not 
+	 * leased from this pool are ignored (and not modified).
+	 * 
+	 * @param buffer	The buffer to return.
+	 */
+	protected synchronized void release(ByteBuffer buffer) {
+		
+		Slab slab = slabOfBuffer.get(buffer);
+		
+		if (slab == null) { // not leased from this pool
+			
+			return;
+			
+		}
+		
+		buffer.clear();
+		
+		while (buffer.hasRemaining()) {
+			
+			buffer.put(ZEROS, 0, Math.min(ZEROS.length, buffer.remaining()));
+			
+		}
+		
+		buffer.clear();
+		slab.freeBuffers.add(buffer);
+		
+		if (slab.isIdle()) {
+			
+			LinkedList<Slab> slabs = sizeClasses.get(buffer.capacity());
+			
+			for (Slab otherSlab: slabs) {
+				
+				if (otherSlab != slab && otherSlab.isIdle()) {
+					// keep one idle slab only
+					
+					slabs.remove(slab);
+					
+					for (ByteBuffer freeBuffer: slab.freeBuffers) {
+						
+						slabOfBuffer.remove(freeBuffer);
+						
+					}
+					
+					return;
+					
+				}
+				
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Block of direct memory, cut into buffers of the same capacity. Must be 
+	 * accessed with the lock on the <code>BufferPool</code> held.
+	 */
+	private final class Slab {
+		
+		/** Number of buffers the slab was cut into. */
+		private final int NUMBER_OF_BUFFERS;
+		
+		/** Buffers of this slab, that aren't leased currently. */
+		private ArrayList<ByteBuffer> freeBuffers;
+		
+		
+		/**
+		 * Allocates a new slab and cuts it into (free) buffers of the 
+		 * bypassed capacity.
+		 * 
+		 * @param capacity	Capacity of the buffers to cut in byte.
+		 */
+		private Slab(int capacity) {
+			
+			this.NUMBER_OF_BUFFERS = Math.max(1, SLAB_SIZE / capacity);
+			this.freeBuffers = new ArrayList<ByteBuffer>(NUMBER_OF_BUFFERS);
+			
+			ByteBuffer slab = 
+				ByteBuffer.allocateDirect(NUMBER_OF_BUFFERS * capacity);
+			
+			for (int i=0; i<NUMBER_OF_BUFFERS; i++) {
+				
+				slab.limit((i + 1) * capacity);
+				slab.position(i * capacity);
+				
+				ByteBuffer buffer = slab.slice();
+				freeBuffers.add(buffer);
+				slabOfBuffer.put(buffer, this);
+				
+			}
+			
+		}
+
+		
+		/**
+		 * Indicates whether all buffers of this slab are free or not.
+		 * 
+		 * @return	Whether all buffers of this slab are free or not.
+		 */
+		private boolean isIdle() {
+			
+			return freeBuffers.size() == NUMBER_OF_BUFFERS;
+			
+		}
+		
+		
+		/**
+		 * Removes a free buffer from this slab and returns it.
+		 * 
+		 * @return	A cleared buffer of this slab.
+		 */
+		private ByteBuffer lease() {
+			
+			ByteBuffer buffer = freeBuffers.remove(freeBuffers.size() - 1);
+			buffer.clear();
+			
+			return buffer;
+			
+		}
+		
+	}
+
+}
@@ -0,0 +1,459 @@
+package userDatabase;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Byte ring buffer for exactly one producing and one consuming 
+ * thread (single-producer/single-consumer). Used by <code>User</code> for 
+ * the buffers between the last mix and the proxy server (see 
+ * <code>User.putInProxyReadBuffer()</code> etc.).
+ * <p>
+ * The producer only advances <code>writePosition</code>, the consumer only 
+ * <code>readPosition</code>. Both are volatile, so producer and consumer 
+ * never wait for each other (no shared monitor and no 
+ * <code>wait()</code>/<code>notify()</code>) to exchange data. Since 
+ * the positions wrap around, reading never compacts the buffer (unlike 
+ * <code>ByteBuffer.compact()</code>). Data is copied in (at most two) bulk 
+ * transfers per call.
+ * <p>
+ * Capacity signals: <code>getFreeSpace()</code> and 
+ * <code>getAvailableData()</code> can be called by any thread. A producer 
+ * waiting for free space (see <code>awaitFreeSpace()</code>) is unparked by 
+ * the consumer, as soon as data was removed.
+ * <p>
+ * Release: When the <code>User</code> is removed, the buffer is returned to 
+ * the <code>BufferPool</code> (see <code>release()</code>) and reused by 
+ * other <code>User</code>s, while the producer or consumer might still hold 
+ * a reference on the ring. Therefore, each side accesses the buffer only 
+ * with its own lock held (<code>producerLock</code> or 
+ * <code>consumerLock</code>, uncontended except during release) and checks 
+ * <code>isReleased</code> first. A released ring is empty and drops data 
+ * added.
+ * <p>
+ * Note: Each method is documented with the side (producer or consumer) 
+ * allowed to call it. Calling it from the other side is not thread-safe.
+ */
+final class ProxyRingBuffer {
+	
+	/** Number of bytes the ring can store. */
+	private final int CAPACITY;
+	
+	/** The (leased) buffer the ring is stored in. */
+	private final ByteBuffer buffer;
+	
+	/** View on <code>buffer</code> used by the producer only. */
+	private final ByteBuffer producerView;
+	
+	/** View on <code>buffer</code> used by the consumer only. */
+	private final ByteBuffer consumerView;
+	
+	/** Total number of bytes added so far (written by producer only). */
+	private volatile long writePosition = 0;
+	
+	/** Total number of bytes removed so far (written by consumer only). */
+	private volatile long readPosition = 0;
+	
+	/** Producer waiting for free space (<code>null</code>, if none). */
+	private volatile Thread waitingProducer = null;
+	
+	/** Lock held by the producer while accessing <code>buffer</code>. */
+	private final Object producerLock = new Object();
+	
+	/** Lock held by the consumer while accessing <code>buffer</code>. */
+	private final Object consumerLock = new Object();
+	
+	/** Indicates whether <code>buffer</code> was returned to the pool. */
+	private volatile boolean isReleased = false;
+	
+	
+	/**
+	 * Creates a new (empty) <code>ProxyRingBuffer</code>, stored in the 
+	 * bypassed buffer (its whole capacity is used).
+	 * 
+	 * @param buffer	The buffer to store the ring in (e. g. leased from 
+	 * 					<code>BufferPool</code>).
+	 */
+	protected ProxyRingBuffer(ByteBuffer buffer) {
+		
+		this.buffer = buffer;
+		this.CAPACITY = buffer.capacity();
+		this.producerView = buffer.duplicate();
+		this.consumerView = buffer.duplicate();
+		
+	}
+
+	
+	/**
+	 * Returns the number of bytes available for the consumer. May be called 
+	 * by any thread.
+	 * 
+	 * @return	Number of bytes available.
+	 */
+	protected int getAvailableData() {
+		
+		return isReleased ? 0 : (int)(writePosition - readPosition);
+		
+	}
+
+	
+	/**
+	 * Returns the number of bytes the producer can add without waiting. May 
+	 * be called by any thread.
+	 * 
+	 * @return	Number of bytes free.
+	 */
+	protected int getFreeSpace() {
+		
+		return CAPACITY - getAvailableData();
+		
+	}
+
+	
+	/**
+	 * Indicates whether the ring was released (see <code>release()</code>) 
+	 * or not. May be called by any thread.
+	 * 
+	 * @return	Whether the ring was released or not.
+	 */
+	protected boolean isReleased() {
+		
+		return isReleased;
+		
+	}
+
+	
+	/**
+	 * Returns the buffer the ring is stored in to the bypassed pool (waits 
+	 * until neither producer nor consumer accesses it) and wakes up a 
+	 * waiting producer. The ring can't be used afterwards. May be called by 
+	 * any thread.
+	 * 
+	 * @param bufferPool	The pool <code>buffer</code> was leased from.
+	 */
+	protected void release(BufferPool bufferPool) {
+		
+		synchronized (producerLock) {
+			
+			synchronized (consumerLock) {
+				
+				if (isReleased) {
+					
+					return;
+					
+				}
+				
+				isReleased = true;
+				bufferPool.release(buffer);
+				
+			}
+			
+		}
+		
+		Thread producer = waitingProducer;
+		
+		if (producer != null) {
+			
+			LockSupport.unpark(producer);
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Adds as many bytes of the specified range as fit in (producer only). 
+	 * Never blocks (but for a concurrent <code>release()</code>).
+	 * 
+	 * @param source	Array containing the data to add.
+	 * @param offset	Index of the first byte to add.
+	 * @param length	Number of bytes to add.
+	 * 
+	 * @return			Number of bytes added.
+	 */
+	protected int put(byte[] source, int offset, int length) {
+		
+		synchronized (producerLock) {
+			
+			if (isReleased) {
+				
+				return 0;
+				
+			}
+			
+			long position = writePosition;
+			int bytesToAdd = 
+				Math.min(length, CAPACITY - (int)(position - readPosition));
+			
+			int bytesAdded = 0;
+			
+			while (bytesAdded < bytesToAdd) { // at most two parts
+				
+				long next = position + bytesAdded;
+				int part = 
+					prepare(producerView, next, bytesToAdd - bytesAdded);
+				
+				producerView.put(source, offset + bytesAdded, part);
+				bytesAdded += part;
+				
+			}
+			
+			writePosition = position + bytesAdded; // publish
+			return bytesAdded;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Reads as many bytes from the bypassed (non-blocking) channel as 
+	 * available and fit in (producer only).
+	 * 
+	 * @param channel	The channel to read from.
+	 * 
+	 * @return			Number of bytes read (<code>0</code>, if the ring is 
+	 * 					full or released) or <code>-1</code> (end of 
+	 * 					stream).
+	 * 
+	 * @throws IOException	If an I/O error occurres.
+	 */
+	protected int readFrom(ReadableByteChannel channel) throws IOException {
+		
+		synchronized (producerLock) {
+			
+			if (isReleased) {
+				
+				return 0;
+				
+			}
+			
+			long position = writePosition;
+			int bytesRead = 0;
+			
+			while (true) { // at most two parts (wrap-around)
+				
+				int freeSpace = CAPACITY - (int)(position - readPosition);
+				
+				if (freeSpace == 0) {
+					
+					break;
+					
+				}
+				
+				int part = prepare(producerView, position, freeSpace);
+				int result = channel.read(producerView);
+				
+				if (result == -1) {
+					
+					if (bytesRead == 0) {
+						
+						return -1;
+						
+					}
+					
+					break;
+					
+				}
+				
+				position += result;
+				writePosition = position; // publish
+				bytesRead += result;
+				
+				if (result < part) { // no more data available
+					
+					break;
+					
+				}
+				
+			}
+			
+			return bytesRead;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Waits until the consumer removed data (if the ring is full) or the 
+	 * ring was released (producer only). Doesn't hold 
+	 * <code>producerLock</code> while waiting.
+	 */
+	protected void awaitFreeSpace() {
+		
+		waitingProducer = Thread.currentThread();
+		
+		// re-check after registering (consumer might have removed data)
+		while (getFreeSpace() == 0 && !isReleased) {
+			
+			LockSupport.park(this);
+			
+		}
+		
+		waitingProducer = null;
+		
+	}
+
+	
+	/**
+	 * Removes up to <code>limit</code> bytes and copies them to the bypassed 
+	 * array (consumer only).
+	 * 
+	 * @param destination	Array to copy the data to.
+	 * @param offset		Index in <code>destination</code> to copy the 
+	 * 						first byte to.
+	 * @param limit			Maximum number of bytes to remove.
+	 * 
+	 * @return				Number of bytes removed.
+	 */
+	protected int get(byte[] destination, int offset, int limit) {
+		
+		synchronized (consumerLock) {
+			
+			if (isReleased) {
+				
+				return 0;
+				
+			}
+			
+			long position = readPosition;
+			int bytesToRemove = 
+				Math.min(limit, (int)(writePosition - position));
+			
+			int bytesRemoved = 0;
+			
+			while (bytesRemoved < bytesToRemove) { // at most two parts
+				
+				long next = position + bytesRemoved;
+				int part = 
+					prepare(consumerView, next, bytesToRemove - bytesRemoved);
+				
+				consumerView.get(destination, offset + bytesRemoved, part);
+				bytesRemoved += part;
+				
+			}
+			
+			readPosition = position + bytesRemoved; // free space
+			signalFreeSpace(bytesRemoved);
+			
+			return bytesRemoved;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Writes as many bytes to the bypassed (non-blocking) channel as it 
+	 * accepts and removes them (consumer only).
+	 * 
+	 * @param channel	The channel to write to.
+	 * 
+	 * @return			Number of bytes written (<code>0</code>, if the ring 
+	 * 					is empty or released).
+	 * 
+	 * @throws IOException	If an I/O error occurres.
+	 */
+	protected int writeTo(WritableByteChannel channel) throws IOException {
+		
+		synchronized (consumerLock) {
+			
+			if (isReleased) {
+				
+				return 0;
+				
+			}
+			
+			long position = readPosition;
+			int bytesWritten = 0;
+			
+			try {
+				
+				while (true) { // at most two parts (wrap-around)
+					
+					int available = (int)(writePosition - position);
+					
+					if (available == 0) {
+						
+						break;
+						
+					}
+					
+					int part = prepare(consumerView, position, available);
+					int result = channel.write(consumerView);
+					position += result;
+					bytesWritten += result;
+					
+					if (result < part) { // channel doesn't accept more
+						
+						break;
+						
+					}
+					
+				}
+				
+			} finally {
+				
+				readPosition = position; // free space
+				signalFreeSpace(bytesWritten);
+				
+			}
+			
+			return bytesWritten;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Sets position and limit of the bypassed view to the contiguous part of 
+	 * the ring starting at the bypassed (total) position.
+	 * 
+	 * @param view		The view to prepare.
+	 * @param position	Total position of the first byte of the part.
+	 * @param maximum	Maximum length of the part.
+	 * 
+	 * @return			Length of the part.
+	 */
+	private int prepare(ByteBuffer view, long position, int maximum) {
+		
+		int index = (int)(position % CAPACITY);
+		int length = Math.min(maximum, CAPACITY - index);
+		
+		view.limit(index + length);
+		view.position(index);
+		
+		return length;
+		
+	}
+
+	
+	/**
+	 * Unparks the producer, if it waits for free space and data was removed.
+	 * 
+	 * @param bytesRemoved	Number of bytes just removed.
+	 */
+	private void signalFreeSpace(int bytesRemoved) {
+		
+		if (bytesRemoved > 0) {
+			
+			Thread producer = waitingProducer;
+			
+			if (producer != null) {
+				
+				LockSupport.unpark(producer);
+				
+			}
+			
+		}
+		
+	}
+
+}
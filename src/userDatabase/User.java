@@ -3,9 +3,11 @@ package userDatabase;
 
 import internalInformationPort.InternalInformationPortController;
 
-import java.nio.BufferOverflowException;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.SecureRandom;
 import java.util.logging.Logger;
 
@@ -57,6 +59,29 @@ public final class User {
 		);
 	
 	/** 
+	 * Capacity of the buffers used to communicate with proxy server in byte.
+	 */
+	private static int PROXY_BUFFER_CAPACITY = 
+		new Integer(
+			internalInformationPort.getProperty(
+				"PROXY_BUFFER_SIZE")
+		)
+		-
+		Payload.getHeaderLength();
+	
+	/**
+	 * Pool the client and proxy buffers of all <code>User</code>s are leased 
+	 * from (on first use) and returned to (see <code>releaseBuffers()</code>).
+	 */
+	private static BufferPool bufferPool = 
+		new BufferPool(
+			new Integer(
+				internalInformationPort.getProperty(
+					"BUFFER_POOL_SLAB_SIZE")
+			)
+		);
+	
+	/**
 	 * Random number generator used to generate 
 	 * <code>IDENTIFIER_FOR_NEXT_MIX</code>.
 	 * 
@@ -90,7 +115,8 @@ public final class User {
 	/** 
 	 * <code>ByteBuffer</code> used to cache fragments of a message received 
 	 * from the <code>User</code>'s <code>Client</code>. Needed for 
-	 * non-blocking I/O.
+	 * non-blocking I/O. Leased from <code>bufferPool</code> on first use 
+	 * (like the other buffers).
 	 * 
 	 * @see inputOutputHandler.ClientConnectionHandler
 	 */
@@ -105,19 +131,20 @@ public final class User {
 	private ByteBuffer clientWriteBuffer;
 	
 	/** 
-	 * <code>ByteBuffer</code> used to cache data received from proxy server. 
-	 * Needed for non-blocking I/O.
+	 * Ring buffer used to cache data received from proxy server. Filled by 
+	 * the thread communicating with the proxy server and emptied by the 
+	 * thread generating <code>Reply</code>ies (see 
+	 * <code>ProxyRingBuffer</code>). Needed for non-blocking I/O.
 	 */
-	private ByteBuffer proxyReadBuffer;
+	private volatile ProxyRingBuffer proxyReadBuffer;
 	
 	/** 
-	 * <code>ByteBuffer</code> used to cache messages that shall be sent to 
-	 * this <code>User</code>'s <code>Client</code>. Needed for non-blocking 
-	 * I/O.
-	 * 
-	 * @see inputOutputHandler.ClientConnectionHandler
+	 * Ring buffer used to cache data that shall be sent to the proxy server. 
+	 * Filled by the thread processing <code>Request</code>s and emptied by 
+	 * the thread communicating with the proxy server (see 
+	 * <code>ProxyRingBuffer</code>). Needed for non-blocking I/O.
 	 */
-	private ByteBuffer proxyWriteBuffer;
+	private volatile ProxyRingBuffer proxyWriteBuffer;
 	
 	/** <code>SecretKey</code> used for message authentication codes. */
 	private SecretKey macKey;
@@ -140,6 +167,13 @@ public final class User {
 	 */
 	private boolean hasMessageInCurrentReplyBatch = false;
 	
+	/**
+	 * Identifier of the round (= request batch) this <code>User</code>'s 
+	 * latest <code>Request</code> was put out in (used to assign 
+	 * <code>Reply</code>ies to rounds).
+	 */
+	private int roundOfLastRequest = -1;
+	
 	/**
 	 * <code>Cipher</code> used to encrypt this <code>User</code>'s 
 	 * <code>Reply</code>ies.
@@ -154,11 +188,12 @@ public final class User {
 	private Cipher decryptCipher;
 
 	/**
-	 * Indicates whether <code>putInProxyReadBuffer(byte[])</code> is waiting 
-	 * for free space in <code>proxyReadBuffer</code> or not (used for 
-	 * synchronization).
+	 * Indicates whether this <code>User</code> was removed (and its buffers 
+	 * returned to the pool) or not.
+	 * 
+	 * @see #releaseBuffers()
 	 */
-	private boolean isPutInProxyReadBufferWaiting = false;
+	private volatile boolean isReleased = false;
 	
 
 	/**
@@ -418,18 +453,59 @@ public final class User {
 		this.hasMessageInCurrentReplyBatch = newValue;
 		
 	}
+
+	
+	/**
+	 * Returns the identifier of the round (= request batch) this 
+	 * <code>User</code>'s latest <code>Request</code> was put out in (used to 
+	 * assign <code>Reply</code>ies to rounds).
+	 * 
+	 * @return	Identifier of the round this <code>User</code>'s latest 
+	 * 			<code>Request</code> was put out in.
+	 */
+	public int getRoundOfLastRequest() {
+		
+		return this.roundOfLastRequest;
+		
+	}
+
+	
+	/**
+	 * Sets the identifier of the round (= request batch) this 
+	 * <code>User</code>'s latest <code>Request</code> was put out in to the 
+	 * bypassed value.
+	 * 
+	 * @param roundID	Identifier of the round this <code>User</code>'s 
+	 * 					latest <code>Request</code> was put out in.
+	 */
+	public void setRoundOfLastRequest(int roundID) {
+		
+		this.roundOfLastRequest = roundID;
+		
+	}
 	
 	
 	/**
 	 * Returns this <code>User</code>'s <code>ByteBuffer</code> used for 
 	 * caching fragments of a message received from the corresponding 
 	 * <code>Client</code>. Needed for non-blocking I/O.
+	 * <p>
+	 * The buffer may be released (and reused by another <code>User</code>) 
+	 * at any time. Therefore, it may only be accessed with its lock held and 
+	 * after checking <code>isReleased()</code> (see 
+	 * <code>releaseBuffers()</code>).
 	 * 
 	 * @return	This <code>User</code>'s <code>ByteBuffer</code> used for 
 	 * 			caching fragments of a message received from the corresponding 
 	 * 			<code>Client</code>.
 	 */
-	public ByteBuffer getClientReadBuffer() {
+	public synchronized ByteBuffer getClientReadBuffer() {
+		
+		if (clientReadBuffer == null) {
+			
+			clientReadBuffer = leaseBuffer(MAX_REPLY_LENGTH);
+			
+		}
 		
 		return this.clientReadBuffer;
 		
@@ -440,12 +516,23 @@ public final class User {
 	 * Returns this <code>User</code>'s <code>ByteBuffer</code> used for 
 	 * caching messages that shall be sent to the corresponding 
 	 * <code>Client</code>. Needed for non-blocking I/O.
+	 * <p>
+	 * The buffer may be released (and reused by another <code>User</code>) 
+	 * at any time. Therefore, it may only be accessed with its lock held and 
+	 * after checking <code>isReleased()</code> (see 
+	 * <code>releaseBuffers()</code>).
 	 * 
 	 * @return	This <code>User</code>'s <code>ByteBuffer</code> used for 
 	 * 			caching messages that shall be sent to the corresponding 
 	 * 			<code>Client</code>.
 	 */
-	public ByteBuffer getClientWriteBuffer() {
+	public synchronized ByteBuffer getClientWriteBuffer() {
+		
+		if (clientWriteBuffer == null) {
+			
+			clientWriteBuffer = leaseBuffer(MAX_REQUEST_LENGTH);
+			
+		}
 		
 		return this.clientWriteBuffer;
 		
@@ -471,70 +558,24 @@ public final class User {
 	 * <code>proxyReadBuffer</code>, from where it will be taken to generate 
 	 * <code>Reply</code>ies.
 	 * <p>
-	 * Blocks until all data is written.
+	 * Blocks until all data is written (waits for the thread generating 
+	 * <code>Reply</code>ies to make space, if the buffer is full) or this 
+	 * <code>User</code> is removed (data is dropped then).
 	 * 
 	 * @param data Data for this <code>User</code>, received from proxy server.
 	 */
 	public void putInProxyReadBuffer(byte[] data) {
 
-		synchronized (proxyReadBuffer) {
+		ProxyRingBuffer buffer = getProxyReadBuffer();
+		int bytesAdded = buffer.put(data, 0, data.length);
 
-			if (proxyReadBuffer.remaining() < data.length) { // not enough space
+		while (bytesAdded < data.length && !buffer.isReleased()) {
+			// not enough space
 
-				// use "data"-array as ByteBuffer
-				ByteBuffer tempBuffer = ByteBuffer.wrap(data);
-				tempBuffer.position(data.length);
-				tempBuffer.flip();
-				
-				while (true) {
-					
-					int freeSpace = proxyReadBuffer.remaining();
-					int neededSpace = tempBuffer.remaining();
-					
-					if (freeSpace < neededSpace) {	// not enough space 
-													// -> write fragment
-						
-						byte[] fragment = new byte[freeSpace];
-						tempBuffer.get(fragment);
-						proxyReadBuffer.put(fragment);
-						
-						
-						// wait for free space
-						isPutInProxyReadBufferWaiting = true;
-						
-						while(proxyReadBuffer.remaining() == 0) {
-							
-							try {
-								
-								proxyReadBuffer.wait();
-								
-							} catch (InterruptedException e) {
-
-								LOGGER.fine(e.getMessage());
-								continue;
-								
-							}
-							
-						}
-						
-						isPutInProxyReadBufferWaiting = false;
-						
-					} else { // enough space -> last fragment
-						
-						byte[] lastFragment = new byte[neededSpace];
-						tempBuffer.get(lastFragment);
-						proxyReadBuffer.put(lastFragment);
-						break;
-						
-					}
-					
-				}
-				
-			} else { // enough space
-				
-				proxyReadBuffer.put(data);
-				
-			}
+			buffer.awaitFreeSpace();
+
+			bytesAdded += 
+				buffer.put(data, bytesAdded, data.length - bytesAdded);
 
 		}
 
@@ -550,32 +591,45 @@ public final class User {
 	 * @param limit	Maximum number of bytes to be returned.
 	 * 
 	 * @return		The requested data.
+	 * 
+	 * @see #getFromProxyReadBuffer(byte[], int, int)
 	 */
 	public byte[] getFromProxyReadBuffer(int limit) {
 
-		synchronized (proxyReadBuffer) {
+		ProxyRingBuffer buffer = getProxyReadBuffer();
 
-			int numberOfBytesToBeRead = 
-				(proxyReadBuffer.position() > limit) 
-				? limit
-				: proxyReadBuffer.position();
+		byte[] result = 
+			new byte[Math.min(limit, buffer.getAvailableData())];
 
-			byte[] result = new byte[numberOfBytesToBeRead];
+		buffer.get(result, 0, result.length);
 
-			proxyReadBuffer.flip();
-			proxyReadBuffer.get(result);
-			proxyReadBuffer.compact();
-			
-			if (isPutInProxyReadBufferWaiting) {
-				
-				proxyReadBuffer.notify();
-				
-			}
-			
-			return result;
-
-		}
+		return result;
+		
+	}
 
+	
+	/**
+	 * Used to read data from <code>proxyReadBuffer</code>, which contains 
+	 * data received from proxy server for this <code>User</code>, directly 
+	 * to the bypassed array (e. g. the <code>Payload</code> of a 
+	 * <code>Reply</code>), without an intermediate copy.
+	 * <p>
+	 * Reads as much bytes as available (until <code>limit</code>).
+	 * 
+	 * @param destination	Array to copy the data to.
+	 * @param offset		Index in <code>destination</code> to copy the 
+	 * 						first byte to.
+	 * @param limit			Maximum number of bytes to be read.
+	 * 
+	 * @return				Number of bytes read.
+	 */
+	public int getFromProxyReadBuffer(	byte[] destination,
+										int offset,
+										int limit
+										) {
+		
+		return getProxyReadBuffer().get(destination, offset, limit);
+		
 	}
 
 	
@@ -592,13 +646,9 @@ public final class User {
 	 * 			<code>proxyReadBuffer</code>
 	 */
 	public int availableDataInProxyReadBuffer() {
-
-		synchronized (proxyReadBuffer) {
-
-			return proxyReadBuffer.position();
-
-		}
-
+		
+		return getProxyReadBuffer().getAvailableData();
+		
 	}
 
 	
@@ -607,38 +657,34 @@ public final class User {
 	 * data in this <code>User</code>'s <code>proxyWriteBuffer</code>, from 
 	 * where it will be sent to the corresponding proxy server.
 	 * <p>
-	 * Blocks until all data is written.
+	 * Never blocks: If the data doesn't fit in, it is dropped (the receiver 
+	 * doesn't receive data fast enough).
 	 * 
 	 * @param data	Data, that shall be sent to proxy server.
 	 */
 	public void putInProxyWriteBuffer(byte[] data) {
-
-		synchronized (proxyWriteBuffer) {
-
-			try {
-				
-				proxyWriteBuffer.put(data);
-				
-			} catch (BufferOverflowException e) {
-				// receiver/proxy is too slow
-				
-				LOGGER.info(	"Receiver of channel " +IDENTIFIER 
-								+" doesn't receive data fast enough!"
-								);
-				
-			}
-
-		}
 		
-		// TODO: remove (=ECHO)
-		putInProxyReadBuffer(getFromProxyWriteBuffer(data.length));
+		ProxyRingBuffer buffer = getProxyWriteBuffer();
 		
+		if (buffer.getFreeSpace() < data.length) {
+			// receiver/proxy is too slow
+			
+			LOGGER.info(	"Receiver of channel " +IDENTIFIER
+							+" doesn't receive data fast enough!"
+							);
+							
+		} else {
+			
+			buffer.put(data, 0, data.length);
+
+		}
+
 	}
-	
+
 	
 	/**
 	 * Used to read data from <code>proxyWriteBuffer</code>, which contains 
-	 * data that shall be sent to the proxy server. 
+	 * data that shall be sent to the proxy server.
 	 * <p>
 	 * Reads as much bytes as available (until <code>limit</code>).
 	 * 
@@ -648,22 +694,14 @@ public final class User {
 	 */
 	public byte[] getFromProxyWriteBuffer(int limit) {
 
-		synchronized (proxyWriteBuffer) {
+		ProxyRingBuffer buffer = getProxyWriteBuffer();
 
-			int numberOfBytesToBeRead = 
-				(proxyWriteBuffer.position() > limit) 
-				? limit
-				: proxyWriteBuffer.position();
+		byte[] result = 
+			new byte[Math.min(limit, buffer.getAvailableData())];
 
-			byte[] result = new byte[numberOfBytesToBeRead];
+		buffer.get(result, 0, result.length);
 
-			proxyWriteBuffer.flip();
-			proxyWriteBuffer.get(result);
-			proxyWriteBuffer.compact();
-			
-			return result;
-
-		}
+		return result;
 
 	}
 
@@ -671,7 +709,7 @@ public final class User {
 	/**
 	 * Returns the number of bytes currently available in 
 	 * <code>proxyWriteBuffer</code>, which contains data that shall be sent to 
-	 * the proxy server. 
+	 * the proxy server.
 	 * <p>
 	 * Assures that AT LEAST <code>@return</code> bytes can be read from 
 	 * <code>proxyWriteBuffer</code> until next call of 
@@ -682,19 +720,85 @@ public final class User {
 	 */
 	public int availableDataInProxyWriteBuffer() {
 
-		synchronized (proxyWriteBuffer) {
+		return getProxyWriteBuffer().getAvailableData();
 
-			return proxyWriteBuffer.position();
+	}
 
-		}
+	
+	/**
+	 * Reads as much data from the bypassed (non-blocking) channel to 
+	 * <code>proxyReadBuffer</code> as available (and fits in). Unlike 
+	 * <code>putInProxyReadBuffer(byte[])</code>, this method never blocks and 
+	 * needs no intermediate copy.
+	 * 
+	 * @param channel	Channel of the connection to the proxy server.
+	 * 
+	 * @return			Number of bytes read (<code>0</code>, if 
+	 * 					<code>proxyReadBuffer</code> is full) or 
+	 * 					<code>-1</code> (connection closed by proxy server).
+	 * 
+	 * @throws IOException	If an I/O error occurres.
+	 * 
+	 * @see #getFreeSpaceInProxyReadBuffer()
+	 */
+	public int readFromProxy(ReadableByteChannel channel) throws IOException {
+		
+		return getProxyReadBuffer().readFrom(channel);
+		
+	}
 
+	
+	/**
+	 * Returns the number of bytes that can currently be added to 
+	 * <code>proxyReadBuffer</code> without blocking.
+	 * 
+	 * @return	Number of bytes free in <code>proxyReadBuffer</code>.
+	 */
+	public int getFreeSpaceInProxyReadBuffer() {
+		
+		return getProxyReadBuffer().getFreeSpace();
+		
+	}
+
+	
+	/**
+	 * Writes as much data from <code>proxyWriteBuffer</code> to the bypassed 
+	 * (non-blocking) channel as it accepts. Data not written remains in 
+	 * <code>proxyWriteBuffer</code>.
+	 * 
+	 * @param channel	Channel of the connection to the proxy server.
+	 * 
+	 * @return			Number of bytes written.
+	 * 
+	 * @throws IOException	If an I/O error occurres.
+	 */
+	public int writeToProxy(WritableByteChannel channel) throws IOException {
+		
+		return getProxyWriteBuffer().writeTo(channel);
+		
 	}
+
 	
+	/**
+	 * Indicates whether this <code>User</code> was removed (and its buffers 
+	 * returned to the pool) or not. Used by threads holding references on 
+	 * <code>User</code>s to detect released channels.
+	 * 
+	 * @return	Whether this <code>User</code> was removed or not.
+	 */
+	public boolean isReleased() {
+		
+		return isReleased;
+		
+	}
+
 	
 	/**
-	 * Allocates space for the buffers used to communicate with this 
+	 * Sets the <code>SocketChannel</code> used to communicate with this 
 	 * <code>User</code>'s corresponding <code>Client</code> (needed for 
-	 * non-blocking I/O).
+	 * non-blocking I/O). The buffers themselves are leased on first use (see 
+	 * <code>getClientReadBuffer()</code> and 
+	 * <code>getClientWriteBuffer()</code>).
 	 * <p>
 	 * Used by first mix of cascade only.
 	 * 
@@ -705,33 +809,185 @@ public final class User {
 		
 		this.socketChannel = socketChannel;
 		
-		this.clientReadBuffer = 
-			ByteBuffer.allocateDirect(MAX_REPLY_LENGTH);
+	}
+
+	
+	/**
+	 * Returns the ring buffer used to cache data received from proxy server 
+	 * (leased on first use). Used by last mix of cascade only.
+	 * 
+	 * @return	The buffer used to cache data received from proxy server.
+	 */
+	private ProxyRingBuffer getProxyReadBuffer() {
+		
+		ProxyRingBuffer buffer = proxyReadBuffer;
+		
+		if (buffer == null) { // lock only on first use
+			
+			synchronized (this) {
+				
+				if (proxyReadBuffer == null) {
+					
+					proxyReadBuffer = createProxyBuffer();
+					
+				}
+				
+				buffer = proxyReadBuffer;
+				
+			}
+			
+		}
+		
+		return buffer;
+		
+	}
+
+	
+	/**
+	 * Returns the ring buffer used to cache data that shall be sent to proxy 
+	 * server (leased on first use). Used by last mix of cascade only.
+	 * 
+	 * @return	The buffer used to cache data that shall be sent to proxy 
+	 * 			server.
+	 */
+	private ProxyRingBuffer getProxyWriteBuffer() {
+		
+		ProxyRingBuffer buffer = proxyWriteBuffer;
+		
+		if (buffer == null) { // lock only on first use
+			
+			synchronized (this) {
+				
+				if (proxyWriteBuffer == null) {
+					
+					proxyWriteBuffer = createProxyBuffer();
+						
+				}
+				
+				buffer = proxyWriteBuffer;
+				
+			}
+			
+		}
+		
+		return buffer;
+		
+	}
+
+	
+	/**
+	 * Returns a new ring buffer with capacity 
+	 * <code>PROXY_BUFFER_CAPACITY</code> or, if this <code>User</code> was 
+	 * released already, a released (empty) one, so late calls are ignored 
+	 * (no consumer would empty it). Must be called with the lock on this 
+	 * <code>User</code> held.
+	 * 
+	 * @return	A new ring buffer.
+	 */
+	private ProxyRingBuffer createProxyBuffer() {
+		
+		if (isReleased) {
+			
+			ProxyRingBuffer buffer = 
+				new ProxyRingBuffer(ByteBuffer.allocate(0));
+			
+			buffer.release(bufferPool); // not from pool -> just marked
+			return buffer;
+			
+		}
 		
-		this.clientWriteBuffer = 
-			ByteBuffer.allocateDirect(MAX_REQUEST_LENGTH);
+		return new ProxyRingBuffer(bufferPool.lease(PROXY_BUFFER_CAPACITY));
 		
 	}
+
 	
+	/**
+	 * Returns a buffer with the bypassed capacity from 
+	 * <code>bufferPool</code> or, if this <code>User</code> was released 
+	 * already, a (non-pooled) heap buffer, since it would never be returned. 
+	 * Must be called with the lock on this <code>User</code> held.
+	 * 
+	 * @param capacity	Capacity of the requested buffer in byte.
+	 * 
+	 * @return			A buffer with the bypassed capacity.
+	 */
+	private ByteBuffer leaseBuffer(int capacity) {
+		
+		return	isReleased
+				? ByteBuffer.allocate(capacity)
+				: bufferPool.lease(capacity);
+				
+	}
+
 	
 	/**
-	 * Allocates space for the buffers used to communicate with this 
-	 * <code>User</code>'s corresponding <code>proxy server</code> (needed for 
-	 * non-blocking I/O).
+	 * Returns all buffers leased by this <code>User</code> to the pool. Must 
+	 * be called when this <code>User</code> is removed (the buffers are 
+	 * reused by other <code>User</code>s).
+	 * <p>
+	 * Other threads may still hold references on the buffers. Therefore, 
+	 * <code>isReleased</code> is set first and each buffer is returned with 
+	 * its own lock held (the lock of a client buffer or the locks of a 
+	 * <code>ProxyRingBuffer</code>). Since each thread accessing a buffer 
+	 * holds the same lock and checks <code>isReleased()</code> first, no 
+	 * buffer is accessed after it was returned (and leased by another 
+	 * <code>User</code>). The (released) proxy ring buffers are kept, so 
+	 * late calls are ignored instead of leasing new buffers.
 	 * <p>
-	 * Used by last mix of cascade only.
+	 * Note: The lock on this <code>User</code> isn't held while waiting for 
+	 * the lock of a buffer (its holder might call a synchronized getter).
+	 * 
+	 * @see UserDatabaseController#removeUser(int)
 	 */
-	public void initializeProxyBuffers() {
+	protected void releaseBuffers() {
 		
-		int bufferCapacity = 
-			new Integer(internalInformationPort.getProperty(
-					"PROXY_BUFFER_SIZE")
-				)
-			-
-			Payload.getHeaderLength();
-
-		this.proxyReadBuffer = ByteBuffer.allocateDirect(bufferCapacity);
-		this.proxyWriteBuffer = ByteBuffer.allocateDirect(bufferCapacity);
+		ByteBuffer[] clientBuffers;
+		ProxyRingBuffer[] proxyBuffers;
+		
+		synchronized (this) {
+			
+			if (isReleased) {
+				
+				return;
+				
+			}
+			
+			isReleased = true;
+			
+			clientBuffers = 
+				new ByteBuffer[] {clientReadBuffer, clientWriteBuffer};
+			
+			proxyBuffers = 
+				new ProxyRingBuffer[] {proxyReadBuffer, proxyWriteBuffer};
+			
+			clientReadBuffer = null;
+			clientWriteBuffer = null;
+			
+		}
+		
+		for (ByteBuffer buffer: clientBuffers) {
+			
+			if (buffer != null) {
+				
+				synchronized (buffer) { // wait for current user of buffer
+					
+					bufferPool.release(buffer);
+					
+				}
+				
+			}
+			
+		}
+		
+		for (ProxyRingBuffer buffer: proxyBuffers) {
+			
+			if (buffer != null) {
+				
+				buffer.release(bufferPool);
+				
+			}
+			
+		}
 		
 	}
 	
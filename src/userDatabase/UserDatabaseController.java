@@ -197,7 +197,8 @@ public class UserDatabaseController implements UserDatabaseInterface {
 
 
 	/**
-	 * Removes the <code>User</code> with the bypassed identifier.
+	 * Removes the <code>User</code> with the bypassed identifier and returns 
+	 * its buffers to the pool (see <code>User.releaseBuffers()</code>).
 	 * 
 	 * @param identifier	Identifier of the <code>User</code> to be removed 
 	 * 						from the internal database.
@@ -218,6 +219,7 @@ public class UserDatabaseController implements UserDatabaseInterface {
 			
 			nextMixUserIDs.remove(channel.getIdentifierForNextMix());
 			localUserIDs.remove(identifier);
+			channel.releaseBuffers();
 			
 		}
 		
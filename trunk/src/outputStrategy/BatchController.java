@@ -3,15 +3,23 @@ package outputStrategy;
 import inputOutputHandler.InputOutputHandlerController;
 import internalInformationPort.InternalInformationPortController;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.logging.Logger;
 
 import message.BatchSizeMessage;
 import message.ChannelEstablishMessage;
 import message.ChannelMessage;
+import message.ChannelMessagePart;
+import message.DummyMessage;
 import message.Message;
 import message.Reply;
+import message.ReplyMessage;
 import message.Request;
 import userDatabase.User;
 import architectureInterface.OutputStrategyInterface;
@@ -30,6 +38,13 @@ public class BatchController implements OutputStrategyInterface {
 	/** Data structure used to store replies before output. */
 	private Batch replyBatch;
 	
+	/**
+	 * Data structure used to store pushed replies (see 
+	 * <code>ReplyMessage.isPushed()</code>) before output. Pushed replies 
+	 * don't belong to a round and are therefore batched separately.
+	 */
+	private Batch pushBatch;
+	
 	/** 
 	 * Reference on component <code>InternalInformationPort</code>. 
 	 * Used to display and/or log data and read general settings.
@@ -67,35 +82,85 @@ public class BatchController implements OutputStrategyInterface {
 	/** Timer used to detect <code>TIMEOUT</code> for replies. */
 	private Timer replyTimeoutTimer = new Timer();
 	
+	/** Timer used to detect <code>TIMEOUT</code> for pushed replies. */
+	private Timer pushTimeoutTimer = new Timer();
+	
+	/**
+	 * Amount of time, after which messages missing in a batch are 
+	 * substituted by <code>DummyMessage</code>s and the batch is put out 
+	 * (instead of waiting for stragglers until <code>TIMEOUT</code>). 
+	 * Disabled, if not smaller than <code>TIMEOUT</code>.
+	 * 
+	 * @see message.DummyMessage
+	 */
+	private final long STRAGGLER_DEADLINE;
+	
+	/** Timer used to detect <code>STRAGGLER_DEADLINE</code> for requests. */
+	private Timer requestStragglerTimer = new Timer();
+	
+	/** Timer used to detect <code>STRAGGLER_DEADLINE</code> for replies. */
+	private Timer replyStragglerTimer = new Timer();
+	
+	/**
+	 * Number of further mixes between this mix and the receiver (used to 
+	 * calculate the size of <code>DummyMessage</code>s substituting 
+	 * <code>ChannelMessage</code>s).
+	 */
+	private final int NUMBER_OF_FURTHER_HOPS;
+	
 	/** Logger used to log and display information. */
 	private final static Logger LOGGER = internalInformationPort.getLogger();
 
 	
 	/**
-	 * Minimum number of <code>ReplyMessages</code>s that must be collected, 
-	 * before putting out the reply batch. Will be adjusted 
-	 * automatically.
-	 * 
-	 * @see #replyBatch
+	 * Maximum number of rounds (= request batches), whose replies haven't 
+	 * been put out yet, the first mix may have in the cascade at the same 
+	 * time. "1" means "synchronous batch".
 	 */
-	private int neededReplyMessages = 0; // will be set dynamically
+	private final int MAX_ROUNDS_IN_FLIGHT;
 	
 	/** 
-	 * Indicates whether the batch sent lastly has already been answered.
-	 * <p>
-	 * Note: Synchronous batch.
+	 * Identifier of the round (= request batch of the cascade's first mix) 
+	 * the messages in <code>requestBatch</code> belong to.
 	 */
-	private boolean isReplyBatchPending = false;
+	private int requestRoundID = 0;
 	
 	/** 
-	 * Number of messages the upcoming batch will contain (according to the 
-	 * <code>OutputStrategy</code> component on this mix' predecessor).
+	 * Number of messages each upcoming round's batch will contain (according 
+	 * to the <code>OutputStrategy</code> component on this mix' 
+	 * predecessor), accessible by round identifier.
 	 * <p>
 	 * Used for batch synchronization.
 	 * 
 	 * @see message.BatchSizeMessage
 	 */
-	private int batchSize;
+	private TreeMap<Integer, Integer> batchSizes = 
+		new TreeMap<Integer, Integer>();
+	
+	/**
+	 * <code>Request</code>s belonging to a round after 
+	 * <code>requestRoundID</code> (possible, since messages are processed in 
+	 * parallel). Added to <code>requestBatch</code>, when their round is due.
+	 */
+	private LinkedList<Request> deferredRequests = new LinkedList<Request>();
+	
+	/**
+	 * Rounds (= request batches) already put out, whose replies haven't been 
+	 * put out yet, accessible by round identifier (oldest round first).
+	 * 
+	 * @see #MAX_ROUNDS_IN_FLIGHT
+	 */
+	private ConcurrentSkipListMap<Integer, RoundInFlight> roundsInFlight = 
+		new ConcurrentSkipListMap<Integer, RoundInFlight>();
+	
+	/**
+	 * Number of pushed replies not received yet for each push batch with 
+	 * replies in <code>pushBatch</code>, accessible by push batch identifier.
+	 * 
+	 * @see message.ReplyMessage#getPushBatchSize()
+	 */
+	private TreeMap<Integer, Integer> missingPushedReplies = 
+		new TreeMap<Integer, Integer>();
 	
 	/**
 	 * Minimum number of <code>ChannelEstablishMessage</code>s that must be 
@@ -137,6 +202,30 @@ public class BatchController implements OutputStrategyInterface {
 	 */
 	private int numberOfChannelReleaseMessages = 0;
 	
+	/**
+	 * Number of <code>ChannelMessage</code>s missing in the current request 
+	 * batch when <code>STRAGGLER_DEADLINE</code> was reached (= number of 
+	 * <code>DummyMessage</code>s to send along with it).
+	 */
+	private int numberOfSubstitutedRequests = 0;
+	
+	/**
+	 * Number of <code>Reply</code>ies substituted in the current reply batch 
+	 * (= number of <code>DummyMessage</code>s to add to it before output): 
+	 * Replies missing when <code>STRAGGLER_DEADLINE</code> was reached and 
+	 * replies the next mix has substituted itself.
+	 */
+	private int numberOfSubstitutedReplies = 0;
+	
+	/**
+	 * Length of the <code>Reply</code>ies in the current reply batch in byte 
+	 * (used as length for <code>DummyMessage</code>s substituting missing 
+	 * replies). Taken from the <code>DummyMessage</code>s of the next mix 
+	 * (which have the length of its replies), as long as no reply is 
+	 * received. "0" means "length unknown".
+	 */
+	private int lengthOfReplies = 0;
+	
 	/**
 	 * Generates a new <code>OutputStrategy</code> component, which collects 
 	 * messages until an output criterion is fulfilled (certain number of 
@@ -174,6 +263,15 @@ public class BatchController implements OutputStrategyInterface {
 		
 		this.TIMEOUT = new Long(getProperty("BATCH_TIMEOUT"));
 		
+		this.STRAGGLER_DEADLINE = 
+			Math.round(TIMEOUT * new Double(getProperty("STRAGGLER_DEADLINE")));
+		
+		this.NUMBER_OF_FURTHER_HOPS = 
+			new Integer(getProperty("NUMBER_OF_FURTHER_MIXES"));
+		
+		this.MAX_ROUNDS_IN_FLIGHT = 
+			Math.max(1, new Integer(getProperty("MAX_ROUNDS_IN_FLIGHT")));
+			
 	}
 	
 	
@@ -185,6 +283,7 @@ public class BatchController implements OutputStrategyInterface {
 	 * 								<code>InputOutputHandler</code> (used to 
 	 * 								send messages after output).
 	 */
+	@Override
 	public void initialize(InputOutputHandlerController inputOutputHandler) {
 		
 		LOGGER.fine("Batchcontroller... initializing");
@@ -204,6 +303,13 @@ public class BatchController implements OutputStrategyInterface {
 						BELONGS_TO_LAST_MIX,
 						inputOutputHandler
 						);
+		
+		this.pushBatch = 
+			new Batch(	INITIAL_BUFFER_SIZE,
+						false,
+						BELONGS_TO_LAST_MIX,
+						inputOutputHandler
+						);
 	
 	}
 
@@ -212,11 +318,36 @@ public class BatchController implements OutputStrategyInterface {
 
 		synchronized (requestBatch) {
 			
+			if (request instanceof BatchSizeMessage) {
+				
+				BatchSizeMessage batchSizeMessage = (BatchSizeMessage)request;
+				
+				setBatchSize(	batchSizeMessage.getRoundID(),
+								batchSizeMessage.getBatchSize()
+								);
+				
+				return;
+				
+			}
+			
+			if (	!BELONGS_TO_FIRST_MIX
+					&&
+					request.getRoundID() > requestRoundID
+					) {
+				// message of an upcoming round (overtook messages of the
+				// current round during processing)
+				
+				deferredRequests.add(request);
+				return;
+				
+			}
+			
 			User channel = request.getChannel();
 			
 			// indicate that a message for this channel has been added to the 
 			// current batch
 			channel.setHasMessageInCurrentBatch(true);
+			channel.setRoundOfLastRequest(requestRoundID);
 			requestBatch.addMessage((Message)request);
 			
 			// increment suiting message-counter
@@ -243,6 +374,18 @@ public class BatchController implements OutputStrategyInterface {
 												TIMEOUT
 												);
 				
+				if (BELONGS_TO_FIRST_MIX && STRAGGLER_DEADLINE < TIMEOUT) {
+					// only the first mix knows which channels are expected
+					
+					requestStragglerTimer = new Timer();
+					
+					requestStragglerTimer.schedule(
+							new StragglerTask(requestBatch),
+							STRAGGLER_DEADLINE
+							);
+							
+				}
+				
 			}
 			
 			if (isOutputCriterionForRequestBatchFulfilled()) {
@@ -258,18 +401,61 @@ public class BatchController implements OutputStrategyInterface {
 
 	@Override
 	public void addReply(Reply reply) {
+		
+		if (reply instanceof ReplyMessage && ((ReplyMessage)reply).isPushed()) {
+			
+			addPushedReply((ReplyMessage)reply);
+			return;
+			
+		}
 
 		synchronized (replyBatch) {
 			
-			User channel = reply.getChannel();
-			isReplyBatchPending = false;
-			
-			// indicate that a message for this channel has been added to the 
-			// current batch
-			channel.setHasMessageInCurrentReplyBatch(true);
-			replyBatch.addMessage((Message) reply);
+			if (reply instanceof DummyMessage) {
+				// the next mix substituted a straggling reply -> counts as
+				// reply of the oldest round still waiting for replies
+				
+				for (RoundInFlight round: roundsInFlight.values()) {
+					
+					if (round.missingReplies > 0) {
+						
+						round.missingReplies--;
+						break;
+						
+					}
+					
+				}
+				
+				numberOfSubstitutedReplies++;
+				
+				if (lengthOfReplies == 0) { // no reply received yet
+					
+					lengthOfReplies = reply.getByteMessage().length;
+					
+				}
+				
+			} else {
+				
+				User channel = reply.getChannel();
+				
+				// indicate that a message for this channel has been added to
+				// the current batch
+				channel.setHasMessageInCurrentReplyBatch(true);
+				replyBatch.addMessage((Message) reply);
+				lengthOfReplies = reply.getByteMessage().length;
+				
+				RoundInFlight round = 
+					roundsInFlight.get(channel.getRoundOfLastRequest());
+				
+				if (round != null) { // (else: late reply of a finished round)
+					
+					round.missingReplies--;
+					
+				}
+				
+			}
 			
-			if (replyBatch.size() == 1) { // first message of batch
+			if (getSizeOfReplyBatch() == 1) { // first message of batch
 				
 				replyTimeoutTimer = new Timer();
 				
@@ -277,6 +463,17 @@ public class BatchController implements OutputStrategyInterface {
 												TIMEOUT
 												);
 				
+				if (STRAGGLER_DEADLINE < TIMEOUT) {
+					
+					replyStragglerTimer = new Timer();
+					
+					replyStragglerTimer.schedule(
+							new StragglerTask(replyBatch),
+							STRAGGLER_DEADLINE
+							);
+							
+				}
+				
 			}
 			
 			if (isOutputCriterionForReplyBatchFulfilled()) {
@@ -291,17 +488,288 @@ public class BatchController implements OutputStrategyInterface {
 	}
 	
 	
+	/**
+	 * Adds a pushed reply (not belonging to a round) to 
+	 * <code>pushBatch</code>. The batch is put out as soon as all replies of 
+	 * the push batches it contains replies of are received (or on 
+	 * <code>TIMEOUT</code>).
+	 * 
+	 * @param reply	The pushed reply.
+	 * 
+	 * @see message.ReplyMessage#isPushed()
+	 */
+	private void addPushedReply(ReplyMessage reply) {
+		
+		synchronized (pushBatch) {
+			
+			Integer missingReplies = missingPushedReplies.get(reply.getRoundID());
+			
+			if (missingReplies == null) { // first reply of this push batch
+				
+				missingReplies = reply.getPushBatchSize();
+				
+			}
+			
+			missingPushedReplies.put(reply.getRoundID(), missingReplies - 1);
+			pushBatch.addMessage(reply);
+			
+			if (pushBatch.size() == 1) { // first message of batch
+				
+				pushTimeoutTimer = new Timer();
+				
+				pushTimeoutTimer.schedule(	new BatchOutputTask(pushBatch),
+											TIMEOUT
+											);
+											
+			}
+			
+			for (int missing: missingPushedReplies.values()) {
+				
+				if (missing > 0) { // output criterion not fulfilled
+					
+					return;
+					
+				}
+				
+			}
+			
+			pushTimeoutTimer.cancel();
+			putOutPushBatch();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Puts out collected messages in <code>pushBatch</code>.
+	 */
+	private void putOutPushBatch() {
+		
+		synchronized (pushBatch) {
+			
+			pushBatch.putOutBatch();
+			missingPushedReplies.clear();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Puts out all batches immediately (no matter whether their output 
+	 * criteria are fulfilled or not) and cancels the pending timeouts. 
+	 * <p>
+	 * Used to drain this <code>BatchController</code> before it is replaced 
+	 * at runtime. Requests of upcoming rounds stay deferred and rounds, whose 
+	 * replies are still missing, stay in flight (both are handed over with 
+	 * <code>getRoundState()</code>).
+	 */
+	@Override
+	public void putOutBatch() {
+		
+		synchronized (requestBatch) {
+			
+			requestTimeoutTimer.cancel();
+			requestStragglerTimer.cancel();
+			
+			if (requestBatch.size() != 0) {
+				
+				// don't add requests of the next round to the drained batch
+				LinkedList<Request> requests = deferredRequests;
+				deferredRequests = new LinkedList<Request>();
+				
+				putOutRequestBatch();
+				
+				requests.addAll(deferredRequests);
+				deferredRequests = requests;
+				
+			}
+			
+		}
+		
+		synchronized (replyBatch) {
+			
+			replyTimeoutTimer.cancel();
+			replyStragglerTimer.cancel();
+			
+			if (getSizeOfReplyBatch() != 0) {
+				
+				addSubstitutedReplies();
+				replyBatch.putOutBatch();
+				removeAnsweredRounds();
+				
+			}
+			
+		}
+		
+		synchronized (pushBatch) {
+			
+			pushTimeoutTimer.cancel();
+			
+			if (pushBatch.size() != 0) {
+				
+				putOutPushBatch();
+				
+			}
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Returns the number of channels messages are expected from in the 
+	 * upcoming request batch (= <code>neededForwardChannelMessages</code>).
+	 * 
+	 * @return	Number of channels messages are expected from.
+	 */
+	@Override
+	public int getNumberOfChannels() {
+		
+		synchronized (requestBatch) {
+			
+			return neededForwardChannelMessages;
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Makes this <code>BatchController</code> expect messages from the 
+	 * bypassed number of channels.
+	 * 
+	 * @param numberOfChannels	Number of channels messages are expected from.
+	 */
+	@Override
+	public void setNumberOfChannels(int numberOfChannels) {
+		
+		synchronized (requestBatch) {
+			
+			neededForwardChannelMessages = numberOfChannels;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the identifier of the current round, the announced batch sizes 
+	 * of upcoming rounds, the rounds in flight and the deferred requests. 
+	 * This <code>BatchController</code> must not be used afterwards.
+	 * 
+	 * @return	State of the rounds of this <code>BatchController</code>.
+	 */
+	@Override
+	public RoundState getRoundState() {
+		
+		synchronized (replyBatch) {
+			
+			synchronized (requestBatch) {
+				
+				ArrayList<RoundState.Round> rounds = 
+					new ArrayList<RoundState.Round>(roundsInFlight.size());
+				
+				for (Map.Entry<Integer, RoundInFlight> round:
+						roundsInFlight.entrySet()) {
+					
+					rounds.add(new RoundState.Round(
+							round.getKey(),
+							round.getValue().numberOfChannels,
+							round.getValue().missingReplies
+							));
+							
+				}
+				
+				return new RoundState(
+						requestRoundID,
+						new TreeMap<Integer, Integer>(batchSizes),
+						rounds,
+						new ArrayList<Request>(deferredRequests)
+						);
+						
+			}
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Continues the rounds of the bypassed state (of the output strategy this 
+	 * <code>BatchController</code> replaces): Replies of the rounds in flight 
+	 * are counted as usual and deferred requests are added when their round 
+	 * is due.
+	 * 
+	 * @param roundState	State of the rounds to continue.
+	 */
+	@Override
+	public void setRoundState(RoundState roundState) {
+		
+		synchronized (replyBatch) {
+			
+			for (RoundState.Round round: roundState.getRoundsInFlight()) {
+				
+				RoundInFlight roundInFlight = 
+					new RoundInFlight(round.getNumberOfChannels());
+				
+				roundInFlight.missingReplies = round.getMissingReplies();
+				roundsInFlight.put(round.getRoundID(), roundInFlight);
+				
+			}
+			
+		}
+		
+		synchronized (requestBatch) {
+			
+			requestRoundID = roundState.getCurrentRoundID();
+			batchSizes.putAll(roundState.getBatchSizes());
+			
+			for (Request request: roundState.getDeferredRequests()) {
+				
+				addRequest(request);
+				
+			}
+			
+		}
+		
+	}
+	
+	
 	/** 
-	 * Number of messages the upcoming batch will contain (according to the 
-	 * <code>OutputStrategy</code> component on this mix' predecessor).
+	 * Sets the number of messages the batch of the specified round will 
+	 * contain (according to the <code>OutputStrategy</code> component on 
+	 * this mix' predecessor).
 	 * <p>
 	 * Used for batch synchronization.
 	 * 
+	 * @param roundID	Identifier of the round the batch belongs to.
+	 * @param newSize	Number of messages the batch will contain.
+	 * 
 	 * @see message.BatchSizeMessage
 	 */
-	public void setBatchSize(int newSize) {
+	public void setBatchSize(int roundID, int newSize) {
 		
-		this.batchSize = newSize;
+		synchronized (requestBatch) {
+			
+			if (batchSizes.isEmpty() && requestBatch.size() == 0) {
+				// first round announced (or all previous rounds put out)
+				
+				requestRoundID = Math.max(requestRoundID, roundID);
+				
+			}
+			
+			batchSizes.put(roundID, newSize);
+			
+			if (isOutputCriterionForRequestBatchFulfilled()) {
+				
+				requestTimeoutTimer.cancel();
+				putOutRequestBatch();
+				
+			}
+			
+		}
 		
 	}
 	
@@ -333,11 +801,11 @@ public class BatchController implements OutputStrategyInterface {
 				
 				boolean enoughForwardChannelMessages = 
 					(	numberOfForwardChannelMessages >= 
-							neededForwardChannelMessages)
+							getNumberOfExpectedChannels())
 					? true 
 					: false;
 				
-				return (	!isReplyBatchPending
+				return (	roundsInFlight.size() < MAX_ROUNDS_IN_FLIGHT
 							&&
 							enoughChannelEstablishMessages
 							&&
@@ -346,13 +814,18 @@ public class BatchController implements OutputStrategyInterface {
 				
 			} else {
 				
-				return (	numberOfChannelEstablishMessages 
-							+ 
-							numberOfForwardChannelMessages
-							+ 
-							numberOfChannelReleaseMessages
+				Integer batchSize = batchSizes.get(requestRoundID);
+				
+				return (	batchSize != null
+							&&
+							(	numberOfChannelEstablishMessages
+								+
+								numberOfForwardChannelMessages
+								+
+								numberOfChannelReleaseMessages
 							
-						) == batchSize;
+							) >= batchSize
+							);
 				
 			}
 			
@@ -368,11 +841,107 @@ public class BatchController implements OutputStrategyInterface {
 		
 		synchronized (replyBatch) {
 			
+			replyStragglerTimer.cancel();
+			addSubstitutedReplies();
 			replyBatch.putOutBatch();
 			
+			// the oldest round is answered now (or its timeout is reached),
+			// younger rounds may be answered completely as well
+			if (!roundsInFlight.isEmpty()) {
+				
+				roundsInFlight.pollFirstEntry();
+				
+			}
+			
+			removeAnsweredRounds();
+			
+		}
+		
+		if (BELONGS_TO_FIRST_MIX) {
+			// a complete request batch may have waited for a free round
+			
+			synchronized (requestBatch) {
+				
+				if (isOutputCriterionForRequestBatchFulfilled()) {
+					
+					requestTimeoutTimer.cancel();
+					putOutRequestBatch();
+					
+				}
+				
+			}
+			
+		}
+		
+	}
+
+	/**
+	 * Adds a <code>DummyMessage</code> for each substituted reply (see 
+	 * <code>numberOfSubstitutedReplies</code>) to <code>replyBatch</code>, 
+	 * so the cover traffic is put out with (and like) the batch's replies. 
+	 * The first mix sends replies to the clients directly, so no cover 
+	 * traffic is needed there. No cover traffic is generated, as long as the 
+	 * length of replies is unknown (see <code>lengthOfReplies</code>).
+	 */
+	private void addSubstitutedReplies() {
+		
+		synchronized (replyBatch) {
+			
+			if (!BELONGS_TO_FIRST_MIX && lengthOfReplies > 0) {
+				
+				for (int i=0; i<numberOfSubstitutedReplies; i++) {
+					
+					replyBatch.addMessage(new DummyMessage(lengthOfReplies));
+					
+				}
+				
+			}
+			
+			numberOfSubstitutedReplies = 0;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Returns the number of replies in the current reply batch (including 
+	 * substituted replies).
+	 * 
+	 * @return	Number of replies in the current reply batch.
+	 */
+	private int getSizeOfReplyBatch() {
+		
+		synchronized (replyBatch) {
+			
+			return replyBatch.size() + numberOfSubstitutedReplies;
+			
 		}
 		
 	}
+
+	
+	/**
+	 * Removes the oldest rounds from <code>roundsInFlight</code>, as long as 
+	 * all of their replies are received.
+	 */
+	private void removeAnsweredRounds() {
+		
+		synchronized (replyBatch) {
+			
+			while (	!roundsInFlight.isEmpty()
+					&&
+					roundsInFlight.firstEntry().getValue().missingReplies <= 0
+					) {
+				
+				roundsInFlight.pollFirstEntry();
+				
+			}
+			
+		}
+		
+	}
+
 	
 	/**
 	 * Indicates whether the output criterion for <code>replyBatch</code> is 
@@ -383,13 +952,14 @@ public class BatchController implements OutputStrategyInterface {
 	 */
 	private boolean isOutputCriterionForReplyBatchFulfilled() {
 		
-		if (replyBatch.size() == 0) {
+		if (getSizeOfReplyBatch() == 0 || roundsInFlight.isEmpty()) {
+			// (replies of unknown rounds are put out on timeout)
 			
 			return false;
 			
 		} else {
 			
-			return (replyBatch.size() >= neededReplyMessages);
+			return roundsInFlight.firstEntry().getValue().missingReplies <= 0;
 			
 		}
 		
@@ -404,8 +974,11 @@ public class BatchController implements OutputStrategyInterface {
 		
 		synchronized (requestBatch) {
 			
+			requestStragglerTimer.cancel();
+			
 			if (!BELONGS_TO_LAST_MIX) {
 				// send BatchSizeMessage to next mix for batch synchronization
+				// (DummyMessages aren't counted, since they are discarded)
 				
 				int batchSizeForNextMix = 
 					numberOfForwardChannelMessages
@@ -413,13 +986,34 @@ public class BatchController implements OutputStrategyInterface {
 					+ numberOfChannelReleaseMessages;
 				
 				BatchSizeMessage batchSizeMessage = 
-					new BatchSizeMessage(batchSizeForNextMix);
+					new BatchSizeMessage(batchSizeForNextMix, requestRoundID);
 				
 				inputOutputHandler.
 						addRequest(batchSizeMessage);
 				
+				// send cover traffic for straggling channels
+				for (int i=0; i<numberOfSubstitutedRequests; i++) {
+					
+					inputOutputHandler.addRequest(
+							new DummyMessage(
+								ChannelMessagePart.PAYLOAD.getLength(
+									NUMBER_OF_FURTHER_HOPS)
+									)
+							);
+							
+				}
+				
 			}
 			
+			// replies can only be expected for channels with a message in
+			// this batch (not for straggling or released channels)
+			roundsInFlight.put(	requestRoundID,
+								new RoundInFlight(
+									numberOfForwardChannelMessages
+									+ numberOfChannelEstablishMessages
+									)
+								);
+			
 			if (BELONGS_TO_FIRST_MIX) {
 				
 				// calculate (expected) number of messages for next batch
@@ -428,28 +1022,145 @@ public class BatchController implements OutputStrategyInterface {
 					+ numberOfChannelEstablishMessages
 					- numberOfChannelReleaseMessages;
 				
-				neededReplyMessages = neededForwardChannelMessages;
-				
-			} else { // not first mix
-				
-				neededReplyMessages = 
-					batchSize - numberOfChannelReleaseMessages;
-				
 			}
 			
 			// reset message counters
 			numberOfChannelEstablishMessages = 0;
 			numberOfForwardChannelMessages = 0;
 			numberOfChannelReleaseMessages = 0;
-			
-			isReplyBatchPending = true;
+			numberOfSubstitutedRequests = 0;
 			
 			requestBatch.putOutBatch();
 			
+			// prepare next round
+			batchSizes.remove(requestRoundID);
+			
+			requestRoundID = 
+				batchSizes.isEmpty()
+				? requestRoundID + 1
+				: batchSizes.firstKey();
+			
+			if (!deferredRequests.isEmpty()) {
+				
+				LinkedList<Request> requests = deferredRequests;
+				deferredRequests = new LinkedList<Request>();
+				
+				for (Request request: requests) {
+					
+					addRequest(request);
+					
+				}
+				
+			}
+			
 		}
 		
 	}
+
+	
+	/**
+	 * Returns the number of channels messages are expected from in the 
+	 * current request batch (first mix only). Channels with a 
+	 * <code>Request</code> in a round still in flight can't send a new one 
+	 * before receiving their <code>Reply</code>.
+	 * 
+	 * @return	Number of channels messages are expected from in the current 
+	 * 			request batch.
+	 */
+	private int getNumberOfExpectedChannels() {
+		
+		int channelsInFlight = 0;
+		
+		for (RoundInFlight round: roundsInFlight.values()) {
+			
+			channelsInFlight += round.numberOfChannels;
+			
+		}
+		
+		return neededForwardChannelMessages - channelsInFlight;
+		
+	}
+	
 	
+	/**
+	 * Completes the current request batch before <code>TIMEOUT</code>, if 
+	 * <code>ChannelMessage</code>s of some channels are still missing when 
+	 * <code>STRAGGLER_DEADLINE</code> is reached (first mix only). Each 
+	 * missing message is substituted by a <code>DummyMessage</code> of the 
+	 * same size, so the next mix receives the usual number of messages. The 
+	 * straggling channels' messages will be part of the next batch.
+	 */
+	private void substituteStragglingRequests() {
+		
+		synchronized (requestBatch) {
+			
+			int missingMessages = 
+				getNumberOfExpectedChannels() - numberOfForwardChannelMessages;
+			
+			if (	requestBatch.size() == 0
+					||
+					roundsInFlight.size() >= MAX_ROUNDS_IN_FLIGHT
+					||
+					missingMessages <= 0
+					) {
+				// nothing to substitute (yet) -> wait for TIMEOUT
+				
+				return;
+				
+			}
+			
+			LOGGER.fine(	"(MessageBuffer) Request-Straggler-Deadline "
+							+"reached! Substituting " +missingMessages
+							+" message(s)."
+							);
+			
+			requestTimeoutTimer.cancel();
+			numberOfSubstitutedRequests = missingMessages;
+			putOutRequestBatch();
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Completes the current reply batch before <code>TIMEOUT</code>, if 
+	 * replies for some channels are still missing when 
+	 * <code>STRAGGLER_DEADLINE</code> is reached. Each missing reply is 
+	 * substituted by a <code>DummyMessage</code> of the same size, that is 
+	 * put out as part of the batch (except on the first mix, where replies 
+	 * are sent to the clients directly). The previous mix counts the 
+	 * <code>DummyMessage</code>s as replies of the round, so it doesn't wait 
+	 * for the straggling replies either. Replies arriving late will be part 
+	 * of the next batch.
+	 */
+	private void substituteStragglingReplies() {
+		
+		synchronized (replyBatch) {
+			
+			int missingMessages = 
+				roundsInFlight.isEmpty()
+				? 0
+				: roundsInFlight.firstEntry().getValue().missingReplies;
+			
+			if (getSizeOfReplyBatch() == 0 || missingMessages <= 0) {
+				
+				return;
+				
+			}
+			
+			LOGGER.fine(	"(MessageBuffer) Reply-Straggler-Deadline "
+							+"reached! Substituting " +missingMessages
+							+" message(s)."
+							);
+			
+			replyTimeoutTimer.cancel();
+			numberOfSubstitutedReplies += missingMessages;
+			putOutReplyBatch();
+			
+		}
+		
+	}
 
 	
 	/**
@@ -477,11 +1188,16 @@ public class BatchController implements OutputStrategyInterface {
 
 		/**
 		 * Indicates whether this <code>OutputTask</code> is linked with 
-		 * <code>requestBatch</code> or not (= linked with 
-		 * <code>replyBatch</code>).
+		 * <code>requestBatch</code> or not.
 		 */
 		private boolean isRequestTimer;
 		
+		/**
+		 * Indicates whether this <code>OutputTask</code> is linked with 
+		 * <code>pushBatch</code> or not.
+		 */
+		private boolean isPushTimer;
+		
 		
 		/**
 		 * Creates a new <code>OutputTask</code> for the specified 
@@ -492,6 +1208,7 @@ public class BatchController implements OutputStrategyInterface {
 		protected BatchOutputTask(Batch batch) {
 			
 			isRequestTimer = (batch == requestBatch) ? true : false;
+			isPushTimer = (batch == pushBatch) ? true : false;
 			
 		}
 		
@@ -508,6 +1225,12 @@ public class BatchController implements OutputStrategyInterface {
 				requestTimeoutTimer.cancel();
 				putOutRequestBatch();
 				
+			} else if (isPushTimer) {
+				
+				LOGGER.fine("(MessageBuffer) Push-Timeout reached!");
+				pushTimeoutTimer.cancel();
+				putOutPushBatch();
+				
 			} else {
 				
 				LOGGER.fine("(MessageBuffer) Reply-Timeout reached!");
@@ -520,5 +1243,86 @@ public class BatchController implements OutputStrategyInterface {
 		
 	}
 	
+	
+	/**
+	 * Reply accounting for a round (= request batch), that has been put out, 
+	 * but whose replies haven't been put out yet.
+	 */
+	private final static class RoundInFlight {
+		
+		/** Number of channels with a <code>Request</code> in this round. */
+		private final int numberOfChannels;
+		
+		/** Number of <code>Reply</code>ies not received yet. */
+		private int missingReplies;
+		
+		
+		/**
+		 * Creates a new <code>RoundInFlight</code> expecting replies for the 
+		 * bypassed number of channels.
+		 * 
+		 * @param numberOfChannels	Number of channels with a 
+		 * 							<code>Request</code> in this round.
+		 */
+		private RoundInFlight(int numberOfChannels) {
+			
+			this.numberOfChannels = numberOfChannels;
+			this.missingReplies = numberOfChannels;
+			
+		}
+		
+	}
+
+	
+	/**
+	 * Simple <code>TimerTask</code>, which substitutes straggling messages of 
+	 * the batch it is linked to and puts it out.
+	 * 
+	 * @see BatchController#STRAGGLER_DEADLINE
+	 */
+	final class StragglerTask extends TimerTask {
+		
+		/**
+		 * Indicates whether this <code>StragglerTask</code> is linked with 
+		 * <code>requestBatch</code> or not (= linked with 
+		 * <code>replyBatch</code>).
+		 */
+		private boolean isRequestTimer;
+		
+		
+		/**
+		 * Creates a new <code>StragglerTask</code> for the specified 
+		 * <code>Batch</code>.
+		 * 
+		 * @param batch	<code>Batch</code> that shall be completed.
+		 */
+		protected StragglerTask(Batch batch) {
+			
+			isRequestTimer = (batch == requestBatch) ? true : false;
+			
+		}
+		
+		
+		/**
+		 * Substitutes straggling messages of the batch it is linked to and 
+		 * puts it out.
+		 */
+		@Override
+		public void run() {
+			
+			if (isRequestTimer) {
+				
+				substituteStragglingRequests();
+				
+			} else {
+				
+				substituteStragglingReplies();
+				
+			}
+			
+		}
+		
+	}
+
 
 }